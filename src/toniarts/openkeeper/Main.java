@@ -78,6 +78,7 @@ import toniarts.openkeeper.setup.DKConverter;
 import toniarts.openkeeper.setup.DKFolderSelector;
 import toniarts.openkeeper.setup.IFrameClosingBehavior;
 import toniarts.openkeeper.tools.convert.AssetsConverter;
+import toniarts.openkeeper.tools.convert.textures.enginetextures.EngineTexturesLocator;
 import toniarts.openkeeper.tools.modelviewer.SoundsLoader;
 import toniarts.openkeeper.utils.PathUtils;
 import toniarts.openkeeper.utils.SettingUtils;
@@ -205,6 +206,7 @@ public final class Main extends SimpleApplication {
             AssetManager assetManager = JmeSystem.newAssetManager(
                     Thread.currentThread().getContextClassLoader()
                             .getResource("com/jme3/asset/Desktop.cfg")); // Get temporary asset manager instance since we not yet have one ourselves
+            EngineTexturesLocator.register(assetManager, getDkIIFolder());
             assetManager.registerLocator(AssetsConverter.getAssetsFolder(), FileLocator.class);
             DKConverter frame = new DKConverter(getDkIIFolder(), assetManager) {
                 @Override
@@ -346,7 +348,8 @@ public final class Main extends SimpleApplication {
             }
         }
 
-        // Distribution locator
+        // Distribution locator, the engine textures are served straight from their decoded pixels
+        EngineTexturesLocator.register(getAssetManager(), getDkIIFolder());
         getAssetManager().registerLocator(AssetsConverter.getAssetsFolder(), FileLocator.class);
 
         // Init nifty while in render thread so it will get initialized before it is updated, otherwise we might hit a rare race-condition
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.animation;
+
+import com.jme3.scene.VertexBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shares the morphed vertex positions of the {@link PoseTrack}s. All the
+ * instances of a model share the same pose frames, so for example all the
+ * imps digging show the same handful of frames. Each frame is morphed once
+ * into a vertex buffer of its own, which is then set to every mesh showing
+ * that frame. So the morphing and the upload to the GPU happen once per
+ * frame, not once per instance per rendered frame.<br>
+ * The cache has a memory budget, the least recently used frames are evicted
+ * when it is exceeded. With a zero budget the tracks morph their own buffers
+ * like before.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class PoseFrameCache {
+
+    /**
+     * The default memory budget, a typical creature animation frame is a few
+     * tens of kilobytes
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+    private static final PoseFrameCache INSTANCE = new PoseFrameCache(DEFAULT_MEMORY_BUDGET);
+
+    private final Map<FrameKey, VertexBuffer> frames = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBudget;
+    private long memoryUsed = 0;
+    private long hits = 0;
+    private long morphs = 0;
+    private long evictions = 0;
+    private long uploadedBytes = 0;
+
+    public PoseFrameCache(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Get the shared cache the pose tracks use
+     *
+     * @return the cache
+     */
+    public static PoseFrameCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the cached frame positions
+     *
+     * @param poseFrames the pose frames of the track
+     * @param frameIndex the frame
+     * @return the positions or {@code null} if not cached
+     */
+    public synchronized VertexBuffer get(PoseTrack.PoseFrame[] poseFrames, int frameIndex) {
+        VertexBuffer positions = frames.get(new FrameKey(poseFrames, frameIndex));
+        if (positions != null) {
+            hits++;
+        }
+
+        return positions;
+    }
+
+    /**
+     * Would the frame of the given size fit the cache
+     *
+     * @param bytes the size of the frame positions
+     * @return true if the frame can be cached
+     */
+    public synchronized boolean fits(long bytes) {
+        return bytes <= memoryBudget;
+    }
+
+    /**
+     * Cache the frame positions, evicts the least recently used frames if
+     * needed
+     *
+     * @param poseFrames the pose frames of the track
+     * @param frameIndex the frame
+     * @param positions the morphed positions
+     * @return true if the positions were cached, false if they don't fit
+     */
+    public synchronized boolean put(PoseTrack.PoseFrame[] poseFrames, int frameIndex, VertexBuffer positions) {
+        long size = getSize(positions);
+        if (size > memoryBudget) {
+            return false;
+        }
+
+        VertexBuffer previous = frames.put(new FrameKey(poseFrames, frameIndex), positions);
+        if (previous != null) {
+            memoryUsed -= getSize(previous);
+        }
+        memoryUsed += size;
+        evict();
+
+        return true;
+    }
+
+    /**
+     * Records a morph, for the statistics
+     *
+     * @param bytes the bytes that need to be uploaded for the result
+     */
+    synchronized void recordMorph(long bytes) {
+        morphs++;
+        uploadedBytes += bytes;
+    }
+
+    /**
+     * Set the memory budget, the cache is trimmed down right away if needed
+     *
+     * @param memoryBudget the memory budget in bytes, zero disables the
+     * cache
+     */
+    public synchronized void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        evict();
+    }
+
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMorphs() {
+        return morphs;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the bytes of vertex data morphed so far, all of it needs to be
+     * uploaded to the GPU
+     *
+     * @return the uploaded bytes
+     */
+    public synchronized long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    /**
+     * Clears the cache and the statistics
+     */
+    public synchronized void clear() {
+        frames.clear();
+        memoryUsed = 0;
+        hits = 0;
+        morphs = 0;
+        evictions = 0;
+        uploadedBytes = 0;
+    }
+
+    private void evict() {
+        Iterator<VertexBuffer> iter = frames.values().iterator();
+        while (memoryUsed > memoryBudget && iter.hasNext()) {
+            memoryUsed -= getSize(iter.next());
+            iter.remove();
+            evictions++;
+        }
+    }
+
+    private static long getSize(VertexBuffer positions) {
+        return (long) positions.getData().capacity() * Float.BYTES;
+    }
+
+    private record FrameKey(PoseTrack.PoseFrame[] poseFrames, int frameIndex) {
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof FrameKey other)) {
+                return false;
+            }
+
+            return poseFrames == other.poseFrames && frameIndex == other.frameIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(poseFrames) * 31 + frameIndex;
+        }
+    }
+
+}
@@ -42,18 +42,27 @@ import com.jme3.math.Vector3f;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Mesh;
 import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.VertexBuffer.Format;
 import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.VertexBuffer.Usage;
 import com.jme3.util.BufferUtils;
 import java.io.IOException;
 import java.nio.FloatBuffer;
 import javax.annotation.Nullable;
 
 /**
- * A single track of pose animation associated with a certain mesh.
+ * A single track of pose animation associated with a certain mesh. The
+ * morphed frames are shared between all the instances via the
+ * {@link PoseFrameCache}.
  */
 public final class PoseTrack extends MorphTrack {
 
     private PoseTrack.PoseFrame[] frames;
+    /**
+     * The position buffer of our own mesh, used if the frame can't be shared
+     */
+    private transient VertexBuffer ownPositions;
+    private transient int ownFrameIndex = -1;
 
     public static final class PoseFrame implements Savable, Cloneable {
 
@@ -125,18 +134,26 @@ public final class PoseTrack extends MorphTrack {
     public PoseTrack() {
     }
 
-    private void applyFrame(Mesh target, int frameIndex) {
+    /**
+     * Morphs the frame from the bind pose
+     *
+     * @param target the mesh having the bind pose
+     * @param frameIndex the frame
+     * @param vertexBuffer the buffer to morph to
+     */
+    private void applyFrame(Mesh target, int frameIndex, FloatBuffer vertexBuffer) {
+        FloatBuffer bpb = (FloatBuffer) target.getBuffer(Type.BindPosePosition).getData();
+        vertexBuffer.clear();
+        bpb.clear();
+        vertexBuffer.put(bpb).clear();
+
         PoseFrame frame = frames[frameIndex];
-        VertexBuffer pb = target.getBuffer(Type.Position);
         for (int i = 0; i < frame.poses.length / 2; i++) {
 
             // Poses come in pairs of two [startPose] + [endPose], weight tells us how close we are to the end
             // The pose pair must have the same vertices in the same order
-            applyPose(frame.poses[i * 2], frame.poses[i * 2 + 1], frame.weights[i], (FloatBuffer) pb.getData());
+            applyPose(frame.poses[i * 2], frame.poses[i * 2 + 1], frame.weights[i], vertexBuffer);
         }
-
-        // force to re-upload data to gpu
-        pb.updateData(pb.getData());
     }
 
     /**
@@ -169,30 +186,61 @@ public final class PoseTrack extends MorphTrack {
 
     @Override
     public void getDataAtTime(double time, float[] store) {
+        int frameIndex = getFrameIndex(time);
         Mesh mesh = getTarget().getMesh();
-        VertexBuffer bindPos = mesh.getBuffer(Type.BindPosePosition);
-        VertexBuffer pos = mesh.getBuffer(Type.Position);
-        FloatBuffer pb = (FloatBuffer) pos.getData();
-        FloatBuffer bpb = (FloatBuffer) bindPos.getData();
-        pb.clear();
-        bpb.clear();
-        pb.put(bpb).clear();
+        if (ownPositions == null) {
+            ownPositions = mesh.getBuffer(Type.Position);
+        }
+
+        // See if some other instance has already morphed this frame
+        PoseFrameCache cache = PoseFrameCache.getInstance();
+        VertexBuffer positions = cache.get(frames, frameIndex);
+        long size = (long) ownPositions.getData().capacity() * Float.BYTES;
+        if (positions == null && cache.fits(size)) {
+            FloatBuffer data = BufferUtils.createFloatBuffer(ownPositions.getData().capacity());
+            applyFrame(mesh, frameIndex, data);
+            cache.recordMorph(size);
+
+            positions = new VertexBuffer(Type.Position);
+            positions.setupData(Usage.Static, 3, Format.Float, data);
+            cache.put(frames, frameIndex, positions);
+        }
 
+        // Not shared, morph our own
+        if (positions == null) {
+            if (ownFrameIndex != frameIndex) {
+                FloatBuffer data = (FloatBuffer) ownPositions.getData();
+                applyFrame(mesh, frameIndex, data);
+                cache.recordMorph(size);
+
+                // force to re-upload data to gpu
+                ownPositions.updateData(data);
+                ownFrameIndex = frameIndex;
+            }
+            positions = ownPositions;
+        }
+
+        if (mesh.getBuffer(Type.Position) != positions) {
+            mesh.clearBuffer(Type.Position);
+            mesh.setBuffer(positions);
+        }
+    }
+
+    private int getFrameIndex(double time) {
         if (time < getTimes()[0]) {
-            applyFrame(mesh, 0);
+            return 0;
         } else if (time > getTimes()[getTimes().length - 1]) {
-            applyFrame(mesh, getTimes().length - 1);
-        } else {
-            int startFrame = 0;
-            for (int i = 0; i < getTimes().length; i++) {
-                if (getTimes()[i] < time) {
-                    startFrame = i;
-                }
-            }
+            return getTimes().length - 1;
+        }
 
-            int endFrame = startFrame + 1;
-            applyFrame(mesh, endFrame);
+        int startFrame = 0;
+        for (int i = 0; i < getTimes().length; i++) {
+            if (getTimes()[i] < time) {
+                startFrame = i;
+            }
         }
+
+        return startFrame + 1;
     }
 
     /**
@@ -211,6 +259,8 @@ public final class PoseTrack extends MorphTrack {
                     result.frames[i] = this.frames[i].clone();
                 }
             }
+            result.ownPositions = null;
+            result.ownFrameIndex = -1;
             return result;
         } catch (CloneNotSupportedException e) {
             throw new AssertionError();
@@ -221,6 +271,8 @@ public final class PoseTrack extends MorphTrack {
     public Object jmeClone() {
         try {
             PoseTrack clone = (PoseTrack) super.clone();
+            clone.ownPositions = null;
+            clone.ownFrameIndex = -1;
             return clone;
         } catch (CloneNotSupportedException ex) {
             throw new AssertionError();
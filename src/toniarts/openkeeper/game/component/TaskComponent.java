@@ -34,7 +34,9 @@ public final class TaskComponent implements EntityComponent {
     public TaskType taskType;
 
     /**
-     * How long we have contributed to the task
+     * How long we have contributed to the task, as of the last task change.
+     * The server keeps the running time as tick-local state, this is not
+     * updated every tick
      */
     public float taskDuration;
     public boolean taskStarted;
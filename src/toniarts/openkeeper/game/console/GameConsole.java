@@ -26,8 +26,12 @@ import toniarts.openkeeper.game.state.CheatState;
 import toniarts.openkeeper.game.state.GameClientState;
 import toniarts.openkeeper.game.state.PlayerState;
 import toniarts.openkeeper.tools.convert.map.Creature;
+import toniarts.openkeeper.utils.TickCounter;
+import toniarts.openkeeper.utils.TickProfiler;
+import toniarts.openkeeper.utils.TickStatistics;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  *
@@ -62,6 +66,7 @@ public final class GameConsole {
         HELP,
         LOOSE_LEVEL,
         LEVEL_MAX,
+        PROFILE,
         SPAWN_IMP,
         UNLOCK_ROOMS,
         UNLOCK_SPELLS,
@@ -134,6 +139,9 @@ public final class GameConsole {
                 case LOOSE_LEVEL:
                     // TODO
                     break;
+                case PROFILE:
+                    showProfile();
+                    break;
                 case SPAWN_IMP:
                     spawnImp();
                     break;
@@ -232,6 +240,32 @@ public final class GameConsole {
 //        stateManager.getState(WorldState.class).getThingLoader().spawnCreature(creatureId, keeper.getId(), level, dhEntrance, false, null);
     }
 
+    private void showProfile() {
+
+        // The game loops are only run locally when we host the game
+        List<TickStatistics> statistics = TickProfiler.getStatistics();
+        List<TickCounter> counters = TickProfiler.getCounters();
+        if (statistics.isEmpty() && counters.isEmpty()) {
+            console.output("No tick statistics available", messageOutputColor);
+            return;
+        }
+
+        StringBuilder outputText = new StringBuilder();
+        for (TickStatistics statistic : statistics) {
+            if (outputText.length() > 0) {
+                outputText.append("\n");
+            }
+            outputText.append(statistic);
+        }
+        for (TickCounter counter : counters) {
+            if (outputText.length() > 0) {
+                outputText.append("\n");
+            }
+            outputText.append(counter);
+        }
+        console.output(outputText.toString(), messageOutputColor);
+    }
+
     private boolean showHelpMessage() {
         StringBuilder outputText = new StringBuilder();
         outputText.append("##########################################\n");
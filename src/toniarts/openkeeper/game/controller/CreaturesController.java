@@ -26,13 +26,11 @@ import com.simsilica.es.filter.FieldFilter;
 import toniarts.openkeeper.utils.Point;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 import toniarts.openkeeper.game.component.CreatureAi;
 import toniarts.openkeeper.game.component.CreatureComponent;
@@ -71,6 +69,7 @@ import toniarts.openkeeper.game.controller.creature.PartyController;
 import toniarts.openkeeper.game.controller.creature.PartyType;
 import toniarts.openkeeper.game.controller.room.AbstractRoomController;
 import toniarts.openkeeper.game.controller.room.IRoomController;
+import toniarts.openkeeper.game.logic.TickLocalState;
 import toniarts.openkeeper.tools.convert.map.Creature;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Player;
@@ -106,14 +105,15 @@ public final class CreaturesController implements ICreaturesController {
      * I don't know how to design this perfectly in the entity world, we have
      * the state machine running inside an CreatureController. That is probably
      * wrong (should be inside a system instead). But while it is in there, we
-     * should share the instances for it to function properly.<br>
-     * The value needs to be weak reference also since it references the key
+     * should share the instances for it to function properly. So the
+     * creature controllers are stateful in the registry
      */
-    private final Map<EntityId, WeakReference<ICreatureController>> creatureControllersByEntityId = new WeakHashMap<>();
+    private final EntityControllerRegistry controllerRegistry;
     private final IGameTimer gameTimer;
     private final IGameController gameController;
     private final IMapController mapController;
     private final ILevelInfo levelInfo;
+    private final TickLocalState tickLocalState = new TickLocalState(CreatureController.TIMER_COUNT);
 
     private final static int MANA_GENERATION_IMP = -7;  // I don't find in Creature.java
 
@@ -127,9 +127,10 @@ public final class CreaturesController implements ICreaturesController {
      * @param gameController
      * @param mapController
      * @param levelInfo
+     * @param controllerRegistry the registry to hold the creature controllers
      */
     public CreaturesController(KwdFile kwdFile, EntityData entityData, Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings, IGameTimer gameTimer,
-            IGameController gameController, IMapController mapController, ILevelInfo levelInfo) {
+            IGameController gameController, IMapController mapController, ILevelInfo levelInfo, EntityControllerRegistry controllerRegistry) {
         this.kwdFile = kwdFile;
         this.entityData = entityData;
         this.gameSettings = gameSettings;
@@ -137,6 +138,8 @@ public final class CreaturesController implements ICreaturesController {
         this.gameController = gameController;
         this.mapController = mapController;
         this.levelInfo = levelInfo;
+        this.controllerRegistry = controllerRegistry;
+        controllerRegistry.register(ICreatureController.class, CreatureComponent.class, this::createCreatureController, true);
 
         // Load creatures
         loadCreatures();
@@ -545,31 +548,27 @@ public final class CreaturesController implements ICreaturesController {
 
     @Override
     public ICreatureController createController(EntityId entityId) {
-        CreatureComponent creatureComponent = entityData.getComponent(entityId, CreatureComponent.class);
-        if (creatureComponent == null) {
-            throw new RuntimeException("Entity " + entityId + " doesn't represent a creature!");
-        }
-        ICreatureController creatureController = creatureControllersByEntityId.computeIfAbsent(entityId, (id) -> {
-            return new WeakReference<>(createCreatureController(id, creatureComponent));
-        }).get();
-
-        // Hmm, the entity IDs seem to be referenced somewhere, they outlast the controllers
-        // So maybe this is all very unnecessary...
+        ICreatureController creatureController = controllerRegistry.get(entityId, ICreatureController.class);
         if (creatureController == null) {
-            creatureController = createCreatureController(entityId, creatureComponent);
-            creatureControllersByEntityId.put(entityId, new WeakReference<>(creatureController));
+            throw new RuntimeException("Entity " + entityId + " doesn't represent a creature!");
         }
 
         return creatureController;
     }
 
-    private ICreatureController createCreatureController(EntityId id, CreatureComponent creatureComponent) {
-        return new CreatureController(id, entityData, kwdFile.getCreature(creatureComponent.creatureId), gameController.getNavigationService(), gameController.getTaskManager(), gameTimer, gameSettings, this, gameController.getEntityLookupService(), mapController, levelInfo, gameController.getGameWorldController().getObjectsController(), gameController.getGameWorldController().getShotsController());
+    private ICreatureController createCreatureController(EntityId id) {
+        CreatureComponent creatureComponent = entityData.getComponent(id, CreatureComponent.class);
+        return new CreatureController(id, entityData, kwdFile.getCreature(creatureComponent.creatureId), gameController.getNavigationService(), gameController.getTaskManager(), gameTimer, gameSettings, this, gameController.getEntityLookupService(), gameController.getSensesLookupService(), mapController, levelInfo, gameController.getGameWorldController().getObjectsController(), gameController.getGameWorldController().getShotsController(), tickLocalState);
+    }
+
+    @Override
+    public TickLocalState getTickLocalState() {
+        return tickLocalState;
     }
 
     @Override
     public boolean isValidEntity(EntityId entityId) {
-        return entityData.getComponent(entityId, CreatureComponent.class) != null;
+        return controllerRegistry.isValidEntity(entityId, ICreatureController.class);
     }
 
     @Override
@@ -60,6 +60,7 @@ public final class DoorsController implements IDoorsController {
     private IMapController mapController;
     private IGameController gameController;
     private ILevelInfo levelInfo;
+    private EntityControllerRegistry controllerRegistry;
 
     public DoorsController() {
         // For serialization
@@ -74,15 +75,18 @@ public final class DoorsController implements IDoorsController {
      * @param mapController the map controller
      * @param gameController
      * @param levelInfo
+     * @param controllerRegistry the registry to hold the door controllers
      */
     public DoorsController(KwdFile kwdFile, EntityData entityData, Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings,
-            IMapController mapController, IGameController gameController, ILevelInfo levelInfo) {
+            IMapController mapController, IGameController gameController, ILevelInfo levelInfo, EntityControllerRegistry controllerRegistry) {
         this.kwdFile = kwdFile;
         this.entityData = entityData;
         this.gameSettings = gameSettings;
         this.mapController = mapController;
         this.gameController = gameController;
         this.levelInfo = levelInfo;
+        this.controllerRegistry = controllerRegistry;
+        controllerRegistry.register(IDoorController.class, DoorComponent.class, this::createDoorController, false);
 
         // Load doors
         loadDoors();
@@ -158,17 +162,22 @@ public final class DoorsController implements IDoorsController {
 
     @Override
     public IDoorController createController(EntityId entityId) {
-        DoorComponent doorComponent = entityData.getComponent(entityId, DoorComponent.class);
-        if (doorComponent == null) {
+        IDoorController doorController = controllerRegistry.get(entityId, IDoorController.class);
+        if (doorController == null) {
             throw new RuntimeException("Entity " + entityId + " doesn't represent a door!");
         }
+        return doorController;
+    }
+
+    private IDoorController createDoorController(EntityId entityId) {
+        DoorComponent doorComponent = entityData.getComponent(entityId, DoorComponent.class);
         return new DoorController(entityId, entityData, kwdFile.getDoorById(doorComponent.doorId), gameController.getGameWorldController().getObjectsController(), gameController.getGameWorldController().getMapController()
         );
     }
 
     @Override
     public boolean isValidEntity(EntityId entityId) {
-        return entityData.getComponent(entityId, DoorComponent.class) != null;
+        return controllerRegistry.isValidEntity(entityId, IDoorController.class);
     }
 
 }
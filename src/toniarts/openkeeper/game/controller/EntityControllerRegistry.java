@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.controller;
+
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.EntitySet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import toniarts.openkeeper.game.controller.entity.IEntityController;
+import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
+
+/**
+ * Holds the entity controllers for the lifetime of their entities. The
+ * controllers are created when an entity with the defining component appears
+ * and dropped when the component is gone, so looking one up is just a map get.
+ * <br>
+ * Entities created during the tick get their controllers on the first lookup,
+ * the entity sets only catch up on the next tick. Stateless controllers are
+ * recreated when the defining component changes, stateful ones (the ones with
+ * a state machine) are kept as long as the entity has the component.<br>
+ * The lookups are thread safe, the registry itself should be run on the game
+ * logic loop.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class EntityControllerRegistry implements IGameLogicUpdatable {
+
+    private final EntityData entityData;
+    private final Map<Class<?>, Registration<?>> registrationsByType = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Registration<?>> registrations = new CopyOnWriteArrayList<>();
+
+    public EntityControllerRegistry(EntityData entityData) {
+        this.entityData = entityData;
+    }
+
+    /**
+     * Registers a controller type
+     *
+     * @param <T> the controller type
+     * @param controllerType the controller type, used for the lookups
+     * @param componentType the component that defines the entity as this
+     * type
+     * @param factory creates the controller for an entity
+     * @param stateful whether the controller holds state of its own, stateful
+     * controllers are never recreated while the entity lives
+     */
+    public <T extends IEntityController> void register(Class<T> controllerType, Class<? extends EntityComponent> componentType,
+            Function<EntityId, T> factory, boolean stateful) {
+        Registration<T> registration = new Registration<>(componentType, factory, stateful);
+        if (registrationsByType.putIfAbsent(controllerType, registration) != null) {
+            throw new IllegalStateException("Controller type " + controllerType + " is already registered!");
+        }
+        registrations.add(registration);
+    }
+
+    /**
+     * Get the controller of the entity
+     *
+     * @param <T> the controller type
+     * @param entityId the entity
+     * @param controllerType the controller type
+     * @return the controller, or {@code null} if the entity is not of the
+     * type
+     */
+    public <T extends IEntityController> T get(EntityId entityId, Class<T> controllerType) {
+        Registration<T> registration = (Registration<T>) registrationsByType.get(controllerType);
+        if (registration == null) {
+            throw new IllegalArgumentException("No controllers registered with type " + controllerType + "!");
+        }
+
+        return registration.get(entityId);
+    }
+
+    /**
+     * Get the controller of the entity, of the first registered type the
+     * entity is
+     *
+     * @param entityId the entity
+     * @return the controller, or {@code null} if the entity is none of the
+     * types
+     */
+    public IEntityController get(EntityId entityId) {
+        for (Registration<?> registration : registrations) {
+            IEntityController controller = registration.get(entityId);
+            if (controller != null) {
+                return controller;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Test whether the entity is of the given controller type
+     *
+     * @param entityId the entity
+     * @param controllerType the controller type
+     * @return true if the entity has a controller of the type
+     */
+    public boolean isValidEntity(EntityId entityId, Class<? extends IEntityController> controllerType) {
+        Registration<?> registration = registrationsByType.get(controllerType);
+
+        return registration != null && registration.isValidEntity(entityId);
+    }
+
+    @Override
+    public void start() {
+
+    }
+
+    @Override
+    public void processTick(float tpf) {
+        for (Registration<?> registration : registrations) {
+            registration.update();
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (Registration<?> registration : registrations) {
+            registration.release();
+        }
+        registrations.clear();
+        registrationsByType.clear();
+    }
+
+    private final class Registration<T extends IEntityController> {
+
+        private final Class<? extends EntityComponent> componentType;
+        private final Function<EntityId, T> factory;
+        private final boolean stateful;
+        private final Map<EntityId, T> controllers = new ConcurrentHashMap<>();
+        private final EntitySet entities;
+
+        /**
+         * Controllers created on lookup, before the entity set knew about
+         * them. Checked on the next update, they might have been removed
+         * already
+         */
+        private final Queue<EntityId> createdOnLookup = new ConcurrentLinkedQueue<>();
+
+        public Registration(Class<? extends EntityComponent> componentType, Function<EntityId, T> factory, boolean stateful) {
+            this.componentType = componentType;
+            this.factory = factory;
+            this.stateful = stateful;
+            this.entities = entityData.getEntities(componentType);
+            for (Entity entity : entities) {
+                controllers.put(entity.getId(), factory.apply(entity.getId()));
+            }
+        }
+
+        public T get(EntityId entityId) {
+            T controller = controllers.get(entityId);
+            if (controller != null) {
+                return controller;
+            }
+
+            if (!isValidEntity(entityId)) {
+                return null;
+            }
+
+            controller = controllers.computeIfAbsent(entityId, factory);
+            createdOnLookup.add(entityId);
+
+            return controller;
+        }
+
+        public boolean isValidEntity(EntityId entityId) {
+            return entityData.getComponent(entityId, componentType) != null;
+        }
+
+        public void update() {
+
+            // Only the ones created before the changes were applied can be verified
+            int created = createdOnLookup.size();
+
+            if (entities.applyChanges()) {
+                for (Entity entity : entities.getRemovedEntities()) {
+                    controllers.remove(entity.getId());
+                }
+                for (Entity entity : entities.getAddedEntities()) {
+                    if (stateful) {
+                        controllers.computeIfAbsent(entity.getId(), factory);
+                    } else {
+                        controllers.put(entity.getId(), factory.apply(entity.getId()));
+                    }
+                }
+                if (!stateful) {
+                    for (Entity entity : entities.getChangedEntities()) {
+                        controllers.put(entity.getId(), factory.apply(entity.getId()));
+                    }
+                }
+            }
+
+            for (int i = 0; i < created; i++) {
+                EntityId entityId = createdOnLookup.poll();
+                if (entityId != null && !entities.containsId(entityId)) {
+                    controllers.remove(entityId);
+                }
+            }
+        }
+
+        public void release() {
+            entities.release();
+            controllers.clear();
+            createdOnLookup.clear();
+        }
+    }
+
+}
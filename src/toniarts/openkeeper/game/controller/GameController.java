@@ -78,6 +78,7 @@ public final class GameController implements IGameLogicUpdatable, IGameControlle
     private GameWorldController gameWorldController;
     private INavigationService navigationService;
     private PositionSystem positionSystem;
+    private SensesSystem sensesSystem;
 
     private GameResult gameResult = null;
     private TaskManager taskManager;
@@ -120,12 +121,14 @@ public final class GameController implements IGameLogicUpdatable, IGameControlle
         gameWorldController = new GameWorldController(this, levelInfo, entityData, gameSettings, playerControllers, gameTimer);
 
         positionSystem = new PositionSystem(gameWorldController.getMapController(), entityData,
-                gameWorldController.getCreaturesController(), gameWorldController.getDoorsController(),
-                gameWorldController.getObjectsController());
+                gameWorldController.getControllerRegistry(), gameWorldController.getObjectsController());
         gameWorldController.setEntityPositionLookup(positionSystem);
+        sensesSystem = new SensesSystem(gameWorldController.getMapController(), entityData, positionSystem);
 
-        // Navigation
-        navigationService = new NavigationService(gameWorldController.getMapController(), positionSystem);
+        // Navigation, build the path finding graphs now rather than on the first paths searched
+        NavigationService navigation = new NavigationService(gameWorldController, positionSystem);
+        navigation.buildPathFindingGraphs(levelInfo.getLevelData().getCreatureList(), levelInfo.getPlayers().keySet());
+        navigationService = navigation;
 
         // Initialize tasks
         taskManager = new TaskManager(entityData, gameWorldController, gameWorldController.getMapController(),
@@ -152,6 +155,7 @@ public final class GameController implements IGameLogicUpdatable, IGameControlle
                 playerService));
         controllers.add(gameTimer);
         controllers.add(positionSystem);
+        controllers.add(sensesSystem);
 
         int triggerId = levelInfo.kwdFile.getGameLevel().getTriggerId();
         if (triggerId != 0) {
@@ -402,6 +406,9 @@ public final class GameController implements IGameLogicUpdatable, IGameControlle
     public void stop() {
         controllers.stream().forEach(IGameLogicUpdatable::stop);
         controllers.clear();
+
+        logger.log(Level.INFO, "Path cache hits {0}, misses {1}", navigationService.getPathCacheHits(),
+                navigationService.getPathCacheMisses());
     }
 
     @Override
@@ -414,6 +421,11 @@ public final class GameController implements IGameLogicUpdatable, IGameControlle
         return positionSystem;
     }
 
+    @Override
+    public ISensesLookup getSensesLookupService() {
+        return sensesSystem;
+    }
+
     @Override
     public ILevelInfo getLevelInfo() {
         return levelInfo;
@@ -108,6 +108,7 @@ public final class GameWorldController implements IGameWorldController, IPlayerA
     private IDoorsController doorsController;
     private ITrapsController trapsController;
     private IShotsController shotsController;
+    private final EntityControllerRegistry controllerRegistry;
     private IEntityPositionLookup entityPositionLookup;
     private final Map<Short, IPlayerController> playerControllers;
     private final Map<Short, Keeper> players;
@@ -127,6 +128,7 @@ public final class GameWorldController implements IGameWorldController, IPlayerA
         this.gameTimer = gameTimer;
         this.playerControllers = playerControllers;
         this.players = levelInfo.getPlayers();
+        this.controllerRegistry = new EntityControllerRegistry(entityData);
 
         this.createNewGame(gameController, levelInfo);
     }
@@ -134,19 +136,19 @@ public final class GameWorldController implements IGameWorldController, IPlayerA
     private void createNewGame(IGameController gameController, ILevelInfo levelInfo) {
 
         // Load objects
-        objectsController = new ObjectsController(kwdFile, entityData, gameSettings, gameTimer, gameController, levelInfo);
+        objectsController = new ObjectsController(kwdFile, entityData, gameSettings, gameTimer, gameController, levelInfo, controllerRegistry);
 
         // Load the map
         mapController = new MapController(kwdFile, objectsController, gameSettings, gameTimer, entityData, levelInfo);
 
         // Load creatures
-        creaturesController = new CreaturesController(kwdFile, entityData, gameSettings, gameTimer, gameController, mapController, levelInfo);
+        creaturesController = new CreaturesController(kwdFile, entityData, gameSettings, gameTimer, gameController, mapController, levelInfo, controllerRegistry);
 
         // Load the doors
-        doorsController = new DoorsController(kwdFile, entityData, gameSettings, mapController, gameController, levelInfo);
+        doorsController = new DoorsController(kwdFile, entityData, gameSettings, mapController, gameController, levelInfo, controllerRegistry);
 
         // Load the traps
-        trapsController = new TrapsController(kwdFile, entityData, gameSettings, gameController, levelInfo);
+        trapsController = new TrapsController(kwdFile, entityData, gameSettings, gameController, levelInfo, controllerRegistry);
 
         // Init handlers
         shotsController = new ShotsController(kwdFile, entityData, gameSettings, gameTimer, gameController, mapController, levelInfo, objectsController, creaturesController);
@@ -990,6 +992,11 @@ public final class GameWorldController implements IGameWorldController, IPlayerA
         return shotsController;
     }
 
+    @Override
+    public EntityControllerRegistry getControllerRegistry() {
+        return controllerRegistry;
+    }
+
     public void setEntityPositionLookup(IEntityPositionLookup entityPositionLookup) {
         this.entityPositionLookup = entityPositionLookup;
     }
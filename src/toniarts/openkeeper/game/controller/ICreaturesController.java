@@ -22,6 +22,7 @@ import java.util.List;
 import toniarts.openkeeper.game.controller.creature.ICreatureController;
 import toniarts.openkeeper.game.controller.creature.IPartyController;
 import toniarts.openkeeper.game.controller.creature.PartyType;
+import toniarts.openkeeper.game.logic.TickLocalState;
 import toniarts.openkeeper.tools.convert.map.Thing;
 
 /**
@@ -127,4 +128,13 @@ public interface ICreaturesController extends IEntityWrapper<ICreatureController
      */
     public void turnCreatureIntoAnother(EntityId entityId, short playerId, short creatureId);
 
+    /**
+     * Get the tick-local state of the creatures, the high frequency timers
+     * that are not written to the components every tick. Remove the creature
+     * from there once it is gone
+     *
+     * @return the tick-local state
+     */
+    TickLocalState getTickLocalState();
+
 }
@@ -161,6 +161,13 @@ public interface IGameWorldController {
      */
     public IShotsController getShotsController();
 
+    /**
+     * Get the registry holding the entity controllers
+     *
+     * @return the controller registry
+     */
+    public EntityControllerRegistry getControllerRegistry();
+
     /**
      * Cast a keeper spell on target / location
      *
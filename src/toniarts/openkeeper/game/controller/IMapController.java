@@ -13,6 +13,7 @@ import toniarts.openkeeper.game.controller.room.IRoomController;
 import toniarts.openkeeper.game.listener.MapListener;
 import toniarts.openkeeper.game.listener.RoomListener;
 import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
+import toniarts.openkeeper.game.map.IMapData;
 import toniarts.openkeeper.game.map.IMapInformation;
 import toniarts.openkeeper.game.map.IMapTileController;
 import toniarts.openkeeper.utils.Point;
@@ -28,6 +29,9 @@ import java.util.Set;
  */
 public interface IMapController extends IMapInformation<IMapTileController>, IGameLogicUpdatable {
 
+    @Override
+    IMapData getMapData();
+
     /**
      * Set some tiles selected/undelected
      *
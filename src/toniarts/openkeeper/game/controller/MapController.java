@@ -87,7 +87,7 @@ public final class MapController extends Container implements IMapController {
 
         this.kwdFile = kwdFile;
         this.objectsController = objectsController;
-        this.mapData = new MapData(kwdFile, entityData, levelInfo.getPlayers().values());
+        this.mapData = new MapData(kwdFile, levelInfo.getPlayers().values());
         this.gameSettings = gameSettings;
         this.gameTimer = gameTimer;
         this.entityData = entityData;
@@ -667,7 +667,7 @@ public final class MapController extends Container implements IMapController {
     private void changeTerrain(IMapTileController tile, short terrainId) {
         tile.setTerrainId(terrainId);
         Terrain terrain = getTerrain(tile);
-        MapTileController.setAttributesFromTerrain(entityData, tile, terrain);
+        MapTileController.setAttributesFromTerrain(tile, terrain);
 
         // If the terrain is not taggable anymore, reset the tagging data
         if (!terrain.getFlags().contains(Terrain.TerrainFlag.TAGGABLE)) {
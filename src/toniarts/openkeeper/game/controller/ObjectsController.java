@@ -22,9 +22,7 @@ import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
-import java.lang.ref.WeakReference;
 import java.util.Map;
-import java.util.WeakHashMap;
 import toniarts.openkeeper.game.component.ChickenAi;
 import toniarts.openkeeper.game.component.Decay;
 import toniarts.openkeeper.game.component.Food;
@@ -94,10 +92,10 @@ public final class ObjectsController implements IObjectsController {
      * I don't know how to design this perfectly in the entity world, we have
      * the state machine running inside an CreatureController. That is probably
      * wrong (should be inside a system instead). But while it is in there, we
-     * should share the instances for it to function properly.<br>
-     * The value needs to be weak reference also since it references the key
+     * should share the instances for it to function properly. So the chicken
+     * controllers are stateful in the registry
      */
-    private final Map<EntityId, WeakReference<IChickenController>> chickenControllersByEntityId = new WeakHashMap<>();
+    private EntityControllerRegistry controllerRegistry;
 
     public ObjectsController() {
         // For serialization
@@ -112,15 +110,19 @@ public final class ObjectsController implements IObjectsController {
      * @param gameTimer
      * @param gameController
      * @param levelInfo
+     * @param controllerRegistry the registry to hold the object controllers
      */
     public ObjectsController(KwdFile kwdFile, EntityData entityData, Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings,
-            IGameTimer gameTimer, IGameController gameController, ILevelInfo levelInfo) {
+            IGameTimer gameTimer, IGameController gameController, ILevelInfo levelInfo, EntityControllerRegistry controllerRegistry) {
         this.kwdFile = kwdFile;
         this.entityData = entityData;
         this.gameSettings = gameSettings;
         this.gameTimer = gameTimer;
         this.gameController = gameController;
         this.levelInfo = levelInfo;
+        this.controllerRegistry = controllerRegistry;
+        controllerRegistry.register(IObjectController.class, ObjectComponent.class, this::createObjectController, false);
+        controllerRegistry.register(IChickenController.class, ChickenAi.class, this::createChickenControllerInternal, true);
 
         // Load objects
         loadObjects();
@@ -265,16 +267,21 @@ public final class ObjectsController implements IObjectsController {
 
     @Override
     public IObjectController createController(EntityId entityId) {
-        ObjectComponent objectComponent = entityData.getComponent(entityId, ObjectComponent.class);
-        if (objectComponent == null) {
+        IObjectController objectController = controllerRegistry.get(entityId, IObjectController.class);
+        if (objectController == null) {
             throw new RuntimeException("Entity " + entityId + " doesn't represent a object!");
         }
+        return objectController;
+    }
+
+    private IObjectController createObjectController(EntityId entityId) {
+        ObjectComponent objectComponent = entityData.getComponent(entityId, ObjectComponent.class);
         return new ObjectController(entityId, entityData, kwdFile.getObject(objectComponent.objectId), this, gameController.getGameWorldController().getMapController());
     }
 
     @Override
     public boolean isValidEntity(EntityId entityId) {
-        return entityData.getComponent(entityId, ObjectComponent.class) != null;
+        return controllerRegistry.isValidEntity(entityId, IObjectController.class);
     }
 
     @Override
@@ -309,17 +316,9 @@ public final class ObjectsController implements IObjectsController {
 
     @Override
     public IChickenController createChickenController(EntityId entityId) {
-        ChickenAi chickenAi = entityData.getComponent(entityId, ChickenAi.class);
-        if (chickenAi == null) {
-            throw new RuntimeException("Entity " + entityId + " doesn't represent a chicken!");
-        }
-        IChickenController chickenController = chickenControllersByEntityId.computeIfAbsent(entityId, (id) -> {
-            return new WeakReference<>(createChickenControllerInternal(id));
-        }).get();
-
+        IChickenController chickenController = controllerRegistry.get(entityId, IChickenController.class);
         if (chickenController == null) {
-            chickenController = createChickenControllerInternal(entityId);
-            chickenControllersByEntityId.put(entityId, new WeakReference<>(chickenController));
+            throw new RuntimeException("Entity " + entityId + " doesn't represent a chicken!");
         }
 
         return chickenController;
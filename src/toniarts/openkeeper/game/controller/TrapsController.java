@@ -54,6 +54,7 @@ public final class TrapsController implements ITrapsController {
     private Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings;
     private IGameController gameController;
     private ILevelInfo levelInfo;
+    private EntityControllerRegistry controllerRegistry;
 
     public TrapsController() {
         // For serialization
@@ -67,14 +68,17 @@ public final class TrapsController implements ITrapsController {
      * @param gameSettings the game settings
      * @param gameController
      * @param levelInfo
+     * @param controllerRegistry the registry to hold the trap controllers
      */
     public TrapsController(KwdFile kwdFile, EntityData entityData, Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings,
-            IGameController gameController, ILevelInfo levelInfo) {
+            IGameController gameController, ILevelInfo levelInfo, EntityControllerRegistry controllerRegistry) {
         this.kwdFile = kwdFile;
         this.entityData = entityData;
         this.gameSettings = gameSettings;
         this.gameController = gameController;
         this.levelInfo = levelInfo;
+        this.controllerRegistry = controllerRegistry;
+        controllerRegistry.register(ITrapController.class, TrapComponent.class, this::createTrapController, false);
 
         // Load traps
         loadTraps();
@@ -131,16 +135,21 @@ public final class TrapsController implements ITrapsController {
 
     @Override
     public ITrapController createController(EntityId entityId) {
-        TrapComponent trapComponent = entityData.getComponent(entityId, TrapComponent.class);
-        if (trapComponent == null) {
+        ITrapController trapController = controllerRegistry.get(entityId, ITrapController.class);
+        if (trapController == null) {
             throw new RuntimeException("Entity " + entityId + " doesn't represent a trap!");
         }
+        return trapController;
+    }
+
+    private ITrapController createTrapController(EntityId entityId) {
+        TrapComponent trapComponent = entityData.getComponent(entityId, TrapComponent.class);
         return new TrapController(entityId, entityData, kwdFile.getTrapById(trapComponent.trapId), gameController.getGameWorldController().getObjectsController(), gameController.getGameWorldController().getMapController());
     }
 
     @Override
     public boolean isValidEntity(EntityId entityId) {
-        return entityData.getComponent(entityId, TrapComponent.class) != null;
+        return controllerRegistry.isValidEntity(entityId, ITrapController.class);
     }
 
 }
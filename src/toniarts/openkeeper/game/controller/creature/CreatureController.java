@@ -72,6 +72,8 @@ import toniarts.openkeeper.game.controller.room.IRoomController;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.data.ObjectiveType;
 import toniarts.openkeeper.game.logic.IEntityPositionLookup;
+import toniarts.openkeeper.game.logic.ISensesLookup;
+import toniarts.openkeeper.game.logic.TickLocalState;
 import toniarts.openkeeper.game.map.IMapTileInformation;
 import toniarts.openkeeper.game.navigation.INavigationService;
 import toniarts.openkeeper.game.navigation.steering.SteeringUtils;
@@ -89,6 +91,7 @@ import toniarts.openkeeper.utils.WorldUtils;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -106,23 +109,34 @@ public final class CreatureController extends EntityController implements ICreat
 
     private static final Logger logger = System.getLogger(CreatureController.class.getName());
 
+    /**
+     * Tick-local timers, see {@link TickLocalState}
+     */
+    private static final int TIMER_TASK_DURATION = 0;
+    private static final int TIMER_MOTIONLESS = 1;
+    public static final int TIMER_COUNT = 2;
+
     private final INavigationService navigationService;
     private final ITaskManager taskManager;
     private final IGameTimer gameTimer;
     private final Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings;
     private final ICreaturesController creaturesController;
     private final IEntityPositionLookup entityPositionLookup;
+    private final ISensesLookup sensesLookup;
     private final ILevelInfo levelInfo;
     private final IShotsController shotsController;
+    private final TickLocalState tickLocalState;
     // TODO: All the data is not supposed to be on entities as they become too big, but I don't want these here either
     private final Creature creature;
     private final StateMachine<ICreatureController, CreatureState> stateMachine;
-    private float motionless = 0;
+    private final Surroundings surroundings = new Surroundings();
+    private boolean surroundingsAssessed = false;
 
     public CreatureController(EntityId entityId, EntityData entityData, Creature creature, INavigationService navigationService,
             ITaskManager taskManager, IGameTimer gameTimer, Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings,
-            ICreaturesController creaturesController, IEntityPositionLookup entityPositionLookup, IMapController mapController,
-            ILevelInfo levelInfo, IObjectsController objectsController, IShotsController shotsController) {
+            ICreaturesController creaturesController, IEntityPositionLookup entityPositionLookup, ISensesLookup sensesLookup,
+            IMapController mapController, ILevelInfo levelInfo, IObjectsController objectsController, IShotsController shotsController,
+            TickLocalState tickLocalState) {
         super(entityId, entityData, objectsController, mapController);
         this.navigationService = navigationService;
         this.taskManager = taskManager;
@@ -131,8 +145,10 @@ public final class CreatureController extends EntityController implements ICreat
         this.gameSettings = gameSettings;
         this.creaturesController = creaturesController;
         this.entityPositionLookup = entityPositionLookup;
+        this.sensesLookup = sensesLookup;
         this.levelInfo = levelInfo;
         this.shotsController = shotsController;
+        this.tickLocalState = tickLocalState;
         this.stateMachine = new DefaultStateMachine<>(this);
     }
 
@@ -146,10 +162,11 @@ public final class CreatureController extends EntityController implements ICreat
             Threat threatComponent = entityData.getComponent(entityId, Threat.class);
             int threat = threatComponent != null ? threatComponent.threat : 0;
             int fear = entityData.getComponent(entityId, CreatureComponent.class).fear;
-            int threatToUs = getEnemyThreat();
+            Surroundings surroundings = getSurroundings();
+            int threatToUs = surroundings.enemyThreat;
             int threatCaused = creature.getFlags().contains(Creature.CreatureFlag.ALWAYS_FLEE)
-                    || isHealthAtCriticalLevel() ? threat : getOurThreat();
-            if (threatToUs - threatCaused > fear && (getFellowFighters() == 0
+                    || isHealthAtCriticalLevel() ? threat : surroundings.ourThreat;
+            if (threatToUs - threatCaused > fear && (surroundings.fellowFighters == 0
                     || creature.getFlags().contains(Creature.CreatureFlag.ALWAYS_FLEE))) {
 
                 // No longer flee from DHeart
@@ -187,7 +204,8 @@ public final class CreatureController extends EntityController implements ICreat
             return;
         }
 
-        for (EntityId entity : entityPositionLookup.getSensedEntities(entityId)) {
+        // Someone else might have already claimed them
+        for (EntityId entity : getSurroundings().neutralCreatures) {
             Owner owner = entityData.getComponent(entity, Owner.class);
             if (owner != null && owner.ownerId == Player.NEUTRAL_PLAYER_ID) {
                 convertCreature(entity, ownerId);
@@ -195,40 +213,64 @@ public final class CreatureController extends EntityController implements ICreat
         }
     }
 
-    /**
-     * Checks if we should fear death
-     *
-     * @return true if we have critically low health level
-     */
-    private boolean isHealthAtCriticalLevel() {
-        return gameSettings.get(Variable.MiscVariable.MiscType.CREATURE_CRITICAL_HEALTH_PERCENTAGE_OF_MAX).getValue() > getHealthPercentage();
-    }
+    @Override
+    public void assessSurroundings() {
+        surroundings.clear();
+
+        // Neutral creatures get converted to our side before the threat is evaluated, count them in already
+        short ownerId = getOwnerId();
+        boolean canConvert = ownerId != Player.NEUTRAL_PLAYER_ID && ownerId != Player.GOOD_PLAYER_ID;
+        for (EntityId entity : sensesLookup.getSensedEntities(entityId)) {
+            boolean ally = isAlly(entity);
+            if (canConvert && !ally) {
+                Owner owner = entityData.getComponent(entity, Owner.class);
+                if (owner != null && owner.ownerId == Player.NEUTRAL_PLAYER_ID) {
+                    surroundings.neutralCreatures.add(entity);
+                    ally = true;
+                }
+            }
 
-    private int getFellowFighters() {
-        int fellowFighters = 0;
-        for (EntityId entity : entityPositionLookup.getSensedEntities(entityId)) {
-            if (isAlly(entity) && !isIncapacitated(entity) && getEntityFightingStyle(entity) != Creature.FightStyle.NON_FIGHTER) {
-                fellowFighters++;
+            if (ally) {
+                if (!isIncapacitated(entity) && getEntityFightingStyle(entity) != Creature.FightStyle.NON_FIGHTER) {
+                    surroundings.fellowFighters++;
+                }
+                if (isThreat(entity)) {
+                    surroundings.ourThreat += getThreat(entity);
+                }
+            } else if (isEnemy(entity)) {
+                if (isThreat(entity)) {
+                    surroundings.enemyThreat += getThreat(entity);
+                }
+                if (isValidAttackTarget(entity)) {
+                    surroundings.addAttackCandidate(entity, getDistanceToCreature(entity));
+                }
             }
         }
 
-        return fellowFighters;
+        surroundingsAssessed = true;
     }
 
     /**
-     * Gets the total threat caused by the enemies visible
+     * Gets the surroundings assessed for this tick. Assesses them on the spot
+     * if asked outside of the tick
      *
-     * @return total enemy threat
+     * @return the surroundings
      */
-    private int getEnemyThreat() {
-        int enemyThreat = 0;
-        for (EntityId entity : entityPositionLookup.getSensedEntities(entityId)) {
-            if (isEnemy(entity) && isThreat(entity)) {
-                enemyThreat += getThreat(entity);
-            }
+    private Surroundings getSurroundings() {
+        if (!surroundingsAssessed) {
+            assessSurroundings();
         }
 
-        return enemyThreat;
+        return surroundings;
+    }
+
+    /**
+     * Checks if we should fear death
+     *
+     * @return true if we have critically low health level
+     */
+    private boolean isHealthAtCriticalLevel() {
+        return gameSettings.get(Variable.MiscVariable.MiscType.CREATURE_CRITICAL_HEALTH_PERCENTAGE_OF_MAX).getValue() > getHealthPercentage();
     }
 
     /**
@@ -253,23 +295,6 @@ public final class CreatureController extends EntityController implements ICreat
         return isImprisoned(entityData, entity) || isTortured(entityData, entity);
     }
 
-    /**
-     * Gets the total threat caused by us. Meaning the band of brothers visible
-     * to us
-     *
-     * @return total threat caused by us
-     */
-    private int getOurThreat() {
-        int ourThreat = 0;
-        for (EntityId entity : entityPositionLookup.getSensedEntities(entityId)) {
-            if (isAlly(entity) && isThreat(entity)) {
-                ourThreat += getThreat(entity);
-            }
-        }
-
-        return ourThreat;
-    }
-
     @Override
     public void unassingCurrentTask() {
         Task assignedTask = getAssignedTask();
@@ -415,7 +440,7 @@ public final class CreatureController extends EntityController implements ICreat
             entityData.setComponent(entityId, new TaskComponent(taskComponent.taskId, taskComponent.targetEntity, taskComponent.targetLocation, taskComponent.taskType, taskComponent.taskDuration, true));
         }
         if (isAssignedTaskValid()) {
-            getAssignedTask().executeTask(this, taskComponent.taskDuration);
+            getAssignedTask().executeTask(this, tickLocalState.getTimer(entityId, TIMER_TASK_DURATION));
         }
     }
 
@@ -508,18 +533,13 @@ public final class CreatureController extends EntityController implements ICreat
             // Pick a new target
             // TODO: is there any preference? Now just take the nearest
             // TODO: creatures only now
+            // The candidates are sorted by the distance, recheck them since the others might have already acted on them
             EntityId nearestEnemy = null;
-            float nearestDistance = Float.MAX_VALUE;
-            for (EntityId entity : entityPositionLookup.getSensedEntities(entityId)) {
-                if (creaturesController.isValidEntity(entity)
-                        && isEnemy(entity)
-                        && !(isIncapacitated(entity) || isFleeing(entity) || isCaptive(entity))
+            for (EntityId entity : getSurroundings().attackCandidates) {
+                if (isValidAttackTarget(entity)
                         && (hasPathToEntity(entity) || isWithinAttackDistance(entity))) {
-                    float distance = getDistanceToCreature(entity);
-                    if (distance < nearestDistance) {
-                        nearestDistance = distance;
-                        nearestEnemy = entity;
-                    }
+                    nearestEnemy = entity;
+                    break;
                 }
             }
             if (nearestEnemy != null) {
@@ -534,6 +554,12 @@ public final class CreatureController extends EntityController implements ICreat
         return attackTargetController;
     }
 
+    private boolean isValidAttackTarget(EntityId entity) {
+        return creaturesController.isValidEntity(entity)
+                && isEnemy(entity)
+                && !(isIncapacitated(entity) || isFleeing(entity) || isCaptive(entity));
+    }
+
     private boolean hasPathToEntity(EntityId entity) {
         Point ourPos = WorldUtils.vectorToPoint(getPosition());
         Point theirPos = WorldUtils.vectorToPoint(getPosition(entityData, entity));
@@ -937,15 +963,15 @@ public final class CreatureController extends EntityController implements ICreat
          * probably go with pretty much event driven AI.
          */
         if (isStopped()) {
-            motionless += tpf;
+            tickLocalState.advanceTimer(entityId, TIMER_MOTIONLESS, tpf);
         } else {
-            motionless = 0;
+            tickLocalState.setTimer(entityId, TIMER_MOTIONLESS, 0);
         }
 
-        // Task timer
+        // Task timer, the task component is only written when the task changes
         TaskComponent taskComponent = entityData.getComponent(entityId, TaskComponent.class);
         if (taskComponent != null && taskComponent.taskStarted) {
-            entityData.setComponent(entityId, new TaskComponent(taskComponent.taskId, taskComponent.targetEntity, taskComponent.targetLocation, taskComponent.taskType, taskComponent.taskDuration + tpf, taskComponent.taskStarted));
+            tickLocalState.advanceTimer(entityId, TIMER_TASK_DURATION, tpf);
         }
 
         stateMachine.update();
@@ -955,6 +981,9 @@ public final class CreatureController extends EntityController implements ICreat
         if (creatureAi == null || stateMachine.getCurrentState() != creatureAi.getCreatureState()) {
             entityData.setComponent(entityId, new CreatureAi(gameTimer.getGameTime(), stateMachine.getCurrentState(), creature.getId()));
         }
+
+        // The assessment was for this tick only
+        surroundingsAssessed = false;
     }
 
     @Override
@@ -962,12 +991,12 @@ public final class CreatureController extends EntityController implements ICreat
 
         // See that we have been motionless for enough time, per state
         // TODO: now just 5 seconds, it is the default for imps
-        return motionless >= 5f;
+        return tickLocalState.getTimer(entityId, TIMER_MOTIONLESS) >= 5f;
     }
 
     @Override
     public void resetReEvaluationTimer() {
-        motionless = 0;
+        tickLocalState.setTimer(entityId, TIMER_MOTIONLESS, 0);
     }
 
     @Override
@@ -1038,6 +1067,7 @@ public final class CreatureController extends EntityController implements ICreat
         unassingCurrentTask();
 
         //workNavigationRequired = true;
+        tickLocalState.setTimer(entityId, TIMER_TASK_DURATION, 0);
         entityData.setComponent(entityId, new TaskComponent(task.getId(), task.getTaskTarget(), task.getTaskLocation(), task.getTaskType(), 0.0f, false));
     }
 
@@ -1452,4 +1482,45 @@ public final class CreatureController extends EntityController implements ICreat
         getStateMachine().changeState(CreatureState.IDLE);
     }
 
+    /**
+     * What the creature makes of its surroundings during a tick. Reused from
+     * tick to tick
+     */
+    private static final class Surroundings {
+
+        private final List<EntityId> neutralCreatures = new ArrayList<>();
+        private final List<EntityId> attackCandidates = new ArrayList<>();
+        private float[] attackCandidateDistances = new float[8];
+        private int fellowFighters;
+        private int enemyThreat;
+        private int ourThreat;
+
+        private void clear() {
+            neutralCreatures.clear();
+            attackCandidates.clear();
+            fellowFighters = 0;
+            enemyThreat = 0;
+            ourThreat = 0;
+        }
+
+        /**
+         * Adds an attack candidate, keeping the candidates sorted by the
+         * distance. The ones with the same distance stay in the order added
+         */
+        private void addAttackCandidate(EntityId entity, float distance) {
+            int size = attackCandidates.size();
+            if (size == attackCandidateDistances.length) {
+                attackCandidateDistances = Arrays.copyOf(attackCandidateDistances, size * 2);
+            }
+
+            int index = size;
+            while (index > 0 && attackCandidateDistances[index - 1] > distance) {
+                attackCandidateDistances[index] = attackCandidateDistances[index - 1];
+                index--;
+            }
+            attackCandidateDistances[index] = distance;
+            attackCandidates.add(index, entity);
+        }
+    }
+
 }
@@ -43,6 +43,14 @@ public interface ICreatureController extends IGameLogicUpdatable, INavigable, IE
      */
     public void checkSurroundings();
 
+    /**
+     * Assesses the surroundings for the current tick, the threats and the
+     * possible targets. Only reads the entity data and doesn't change anything,
+     * so this can be run for all the creatures in parallel before they act on
+     * it in {@link #processTick(float)}
+     */
+    public void assessSurroundings();
+
     public void unassingCurrentTask();
 
     public void navigateToRandomPoint();
@@ -252,6 +252,11 @@ public final class PartyController implements IPartyController {
         return cost;
     }
 
+    @Override
+    public boolean hasCustomCost() {
+        return true;
+    }
+
     @Override
     public boolean canMoveDiagonally() {
 
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.data;
+
+import com.simsilica.es.ComponentFilter;
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.base.ComponentHandler;
+import com.simsilica.es.filter.FieldFilter;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the components of one type like the default handler does, but also
+ * keeps an index of the entities by the value of one component field. So
+ * {@link FieldFilter} queries on that field only touch the matching entities.
+ * <br>
+ * Writes are serialized, reads are lock free.
+ *
+ * @param <T> the component type
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class IndexedComponentHandler<T extends EntityComponent> implements ComponentHandler<T> {
+
+    /**
+     * The index can't hold nulls
+     */
+    private static final Object NULL_KEY = new Object();
+
+    private final Class<T> type;
+    private final Field field;
+    private final Map<EntityId, T> components = new ConcurrentHashMap<>();
+    private final Map<Object, Set<EntityId>> index = new ConcurrentHashMap<>();
+
+    public IndexedComponentHandler(Class<T> type, String fieldName) {
+        this.type = type;
+        try {
+            field = type.getField(fieldName);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("Component " + type + " has no public field " + fieldName + "!", e);
+        }
+    }
+
+    /**
+     * Is the filter answerable straight from the index
+     *
+     * @param filter the filter
+     * @return true if the filter is a field filter on the indexed field
+     */
+    public boolean isIndexed(ComponentFilter filter) {
+        return filter instanceof FieldFilter
+                && filter.getComponentType() == type
+                && field.equals(((FieldFilter) filter).getField());
+    }
+
+    @Override
+    public synchronized void setComponent(EntityId entityId, T component) {
+        T oldComponent = components.put(entityId, component);
+        if (oldComponent != null) {
+            removeFromIndex(entityId, oldComponent);
+        }
+        index.computeIfAbsent(getIndexKey(component), (key) -> ConcurrentHashMap.newKeySet()).add(entityId);
+    }
+
+    @Override
+    public synchronized boolean removeComponent(EntityId entityId) {
+        T oldComponent = components.remove(entityId);
+        if (oldComponent == null) {
+            return false;
+        }
+
+        removeFromIndex(entityId, oldComponent);
+        return true;
+    }
+
+    @Override
+    public T getComponent(EntityId entityId) {
+        return components.get(entityId);
+    }
+
+    @Override
+    public Set<EntityId> getEntities() {
+        return components.keySet();
+    }
+
+    @Override
+    public Set<EntityId> getEntities(ComponentFilter filter) {
+        if (filter == null) {
+            return components.keySet();
+        }
+        if (isIndexed(filter)) {
+            Set<EntityId> entities = index.get(toKey(((FieldFilter) filter).getValue()));
+            return entities != null ? new HashSet<>(entities) : Collections.emptySet();
+        }
+
+        Set<EntityId> entities = new HashSet<>();
+        for (Map.Entry<EntityId, T> entry : components.entrySet()) {
+            if (filter.evaluate(entry.getValue())) {
+                entities.add(entry.getKey());
+            }
+        }
+
+        return entities;
+    }
+
+    @Override
+    public EntityId findEntity(ComponentFilter filter) {
+        if (isIndexed(filter)) {
+            Set<EntityId> entities = index.get(toKey(((FieldFilter) filter).getValue()));
+            if (entities != null) {
+                for (EntityId entityId : entities) {
+                    return entityId;
+                }
+            }
+            return null;
+        }
+
+        for (Map.Entry<EntityId, T> entry : components.entrySet()) {
+            if (filter == null || filter.evaluate(entry.getValue())) {
+                return entry.getKey();
+            }
+        }
+
+        return null;
+    }
+
+    private void removeFromIndex(EntityId entityId, T component) {
+        Object key = getIndexKey(component);
+        Set<EntityId> entities = index.get(key);
+        if (entities != null) {
+            entities.remove(entityId);
+            if (entities.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private Object getIndexKey(T component) {
+        try {
+            return toKey(field.get(component));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Failed to read the indexed field " + field + "!", e);
+        }
+    }
+
+    private static Object toKey(Object value) {
+        return value != null ? value : NULL_KEY;
+    }
+
+}
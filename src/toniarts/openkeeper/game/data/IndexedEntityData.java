@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.data;
+
+import com.simsilica.es.ComponentFilter;
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.base.DefaultEntityData;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import toniarts.openkeeper.game.component.ObjectComponent;
+import toniarts.openkeeper.game.component.Owner;
+import toniarts.openkeeper.game.component.Stored;
+
+/**
+ * Entity data that keeps secondary indexes on declared component fields. The
+ * default entity data answers a {@link com.simsilica.es.filter.FieldFilter}
+ * query by going through all the components of the type, with an index the
+ * query only touches the matching entities. The entity sets use the same
+ * queries to load themselves.<br>
+ * Declare the indexes before any components of the type are written.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class IndexedEntityData extends DefaultEntityData {
+
+    private final Map<Class<?>, IndexedComponentHandler<?>> indexedHandlers = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the entity data with the indexes the game logic queries by
+     *
+     * @return new entity data
+     */
+    public static IndexedEntityData createGameEntityData() {
+        IndexedEntityData entityData = new IndexedEntityData();
+        entityData.index(Owner.class, "ownerId");
+        entityData.index(ObjectComponent.class, "objectId");
+        entityData.index(Stored.class, "objectType");
+
+        return entityData;
+    }
+
+    /**
+     * Index the component type by the given field. Only one field per
+     * component type can be indexed
+     *
+     * @param <T> the component type
+     * @param type the component type
+     * @param fieldName the public field to index by
+     */
+    public <T extends EntityComponent> void index(Class<T> type, String fieldName) {
+        IndexedComponentHandler<T> handler = new IndexedComponentHandler<>(type, fieldName);
+        if (indexedHandlers.putIfAbsent(type, handler) != null) {
+            throw new IllegalStateException("Component " + type + " is already indexed!");
+        }
+        registerComponentHandler(type, handler);
+    }
+
+    @Override
+    public Set<EntityId> findEntities(ComponentFilter filter, Class... types) {
+        IndexedComponentHandler<?> handler = getIndexedHandler(filter);
+        if (handler == null) {
+            return super.findEntities(filter, types);
+        }
+
+        // Start from the index and drop the ones missing the other components
+        Set<EntityId> entities = handler.getEntities(filter);
+        if (types != null) {
+            Iterator<EntityId> iter = entities.iterator();
+            while (iter.hasNext()) {
+                if (!hasComponents(iter.next(), filter.getComponentType(), types)) {
+                    iter.remove();
+                }
+            }
+        }
+
+        return entities;
+    }
+
+    @Override
+    public EntityId findEntity(ComponentFilter filter, Class... types) {
+        IndexedComponentHandler<?> handler = getIndexedHandler(filter);
+        if (handler == null) {
+            return super.findEntity(filter, types);
+        }
+
+        for (EntityId entityId : handler.getEntities(filter)) {
+            if (types == null || hasComponents(entityId, filter.getComponentType(), types)) {
+                return entityId;
+            }
+        }
+
+        return null;
+    }
+
+    private IndexedComponentHandler<?> getIndexedHandler(ComponentFilter filter) {
+        if (filter == null) {
+            return null;
+        }
+
+        IndexedComponentHandler<?> handler = indexedHandlers.get(filter.getComponentType());
+        if (handler == null || !handler.isIndexed(filter)) {
+            return null;
+        }
+
+        return handler;
+    }
+
+    private boolean hasComponents(EntityId entityId, Class<?> filteredType, Class... types) {
+        for (Class type : types) {
+            if (type != filteredType && getComponent(entityId, type) == null) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
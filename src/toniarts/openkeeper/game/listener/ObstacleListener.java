@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.listener;
+
+import toniarts.openkeeper.utils.Point;
+
+/**
+ * Listen to changes in the tile obstacles, i.e. doors being placed, locked,
+ * unlocked or destroyed
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public interface ObstacleListener {
+
+    /**
+     * On obstacles changed in a tile. The tile may have become blocked or
+     * unblocked, for some or all the players.
+     *
+     * @param p the tile coordinates
+     */
+    public void onObstacleChange(Point p);
+
+}
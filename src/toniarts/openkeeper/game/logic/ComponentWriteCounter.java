@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.EntityChange;
+import com.simsilica.es.EntityComponentListener;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.base.DefaultEntityData;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import toniarts.openkeeper.utils.TickCounter;
+import toniarts.openkeeper.utils.TickProfiler;
+
+/**
+ * Counts the component writes (and removals) per game logic tick, in total and
+ * per component type. Every write is sent to all the clients and to all the
+ * entity sets interested, so this is a good measure of how chatty the systems
+ * are. See {@link TickProfiler}.<br>
+ * Writes from the other loops are counted to the logic tick they happen in.
+ * Should be run last in the loop.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class ComponentWriteCounter implements IGameLogicUpdatable, EntityComponentListener {
+
+    private static final Logger logger = System.getLogger(ComponentWriteCounter.class.getName());
+
+    private static final String NAME = "ComponentWrites";
+
+    private final EntityData entityData;
+    private final String loop;
+    private final Map<Class<?>, TickCounter> countersByType = new ConcurrentHashMap<>();
+    private volatile TickCounter counter;
+
+    /**
+     * Creates a new component write counter
+     *
+     * @param entityData the entity data to listen to
+     * @param loop the loop this is run in, for the statistics
+     */
+    public ComponentWriteCounter(EntityData entityData, String loop) {
+        this.entityData = entityData;
+        this.loop = loop;
+    }
+
+    @Override
+    public void componentChange(EntityChange change) {
+        TickCounter tickCounter = counter;
+        if (tickCounter == null) {
+            return;
+        }
+
+        tickCounter.increment();
+        countersByType.computeIfAbsent(change.getType(), (type) -> {
+            return TickProfiler.registerCounter(loop, NAME + "/" + type.getSimpleName());
+        }).increment();
+    }
+
+    @Override
+    public void processTick(float tpf) {
+        TickCounter tickCounter = counter;
+        if (tickCounter == null) {
+            return;
+        }
+
+        tickCounter.tick();
+        for (TickCounter typeCounter : countersByType.values()) {
+            typeCounter.tick();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!(entityData instanceof DefaultEntityData)) {
+            logger.log(Level.WARNING, "Component writes can't be counted from " + entityData.getClass() + "!");
+            return;
+        }
+
+        counter = TickProfiler.registerCounter(loop, NAME);
+        ((DefaultEntityData) entityData).addEntityComponentListener(this);
+    }
+
+    @Override
+    public void stop() {
+        TickCounter tickCounter = counter;
+        counter = null;
+        if (tickCounter == null) {
+            return;
+        }
+
+        ((DefaultEntityData) entityData).removeEntityComponentListener(this);
+        TickProfiler.unregister(tickCounter);
+        for (TickCounter typeCounter : countersByType.values()) {
+            TickProfiler.unregister(typeCounter);
+        }
+        countersByType.clear();
+    }
+
+}
@@ -21,6 +21,7 @@ import com.simsilica.es.Entity;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
 import com.simsilica.es.EntitySet;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -32,22 +33,46 @@ import toniarts.openkeeper.game.task.ITaskManager;
 
 /**
  * Handles creature logic updates, the creature AI updates that is. The AI is implemented elsewhere for
- * clarity. This class just attaches the AI to the entity having this component and updates it periodically.
+ * clarity. This class just attaches the AI to the entity having this component and updates it periodically.<br>
+ * The tick is split in two. First all the creatures assess their surroundings against the same state of the
+ * world, this only reads the entity data and can be run in parallel. Then the creatures act on it one by one
+ * in the entity ID order, all the changes happen here. So the result is the same whether the assessment is
+ * run in parallel or not.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public final class CreatureAiSystem implements IGameLogicUpdatable {
 
+    /**
+     * Below this the parallel assessment is not worth the overhead
+     */
+    public static final int PARALLEL_THRESHOLD = 32;
+
     private final EntitySet creatureEntities;
 
     private final SafeArrayList<ICreatureController> creatureControllers;
     private final Map<EntityId, ICreatureController> creatureControllersByEntityId;
     private final ICreaturesController creaturesController;
     private final ITaskManager taskManager;
+    private final boolean parallel;
 
     public CreatureAiSystem(EntityData entityData, ICreaturesController creaturesController, ITaskManager taskManager) {
+        this(entityData, creaturesController, taskManager, false);
+    }
+
+    /**
+     * Creates the creature AI system
+     *
+     * @param entityData the entity data
+     * @param creaturesController the creatures controller
+     * @param taskManager the task manager
+     * @param parallel assess the creature surroundings in parallel on the
+     * common fork-join pool
+     */
+    public CreatureAiSystem(EntityData entityData, ICreaturesController creaturesController, ITaskManager taskManager, boolean parallel) {
         this.creaturesController = creaturesController;
         this.taskManager = taskManager;
+        this.parallel = parallel;
 
         creatureEntities = entityData.getEntities(CreatureAi.class);
         creatureControllers = new SafeArrayList<>(ICreatureController.class);
@@ -63,8 +88,18 @@ public final class CreatureAiSystem implements IGameLogicUpdatable {
             processAddedEntities(creatureEntities.getAddedEntities());
         }
 
+        // Assess the surroundings, from the same state of the world for everybody
+        ICreatureController[] controllers = creatureControllers.getArray();
+        if (parallel && controllers.length >= PARALLEL_THRESHOLD) {
+            Arrays.stream(controllers).parallel().forEach(ICreatureController::assessSurroundings);
+        } else {
+            for (ICreatureController creatureController : controllers) {
+                creatureController.assessSurroundings();
+            }
+        }
+
         // Process ticks
-        for (ICreatureController creatureController : creatureControllers.getArray()) {
+        for (ICreatureController creatureController : controllers) {
             creatureController.processTick(tpf);
         }
 
@@ -89,6 +124,7 @@ public final class CreatureAiSystem implements IGameLogicUpdatable {
                 creatureControllers.remove(index);
                 creatureController.getStateMachine().changeState(null);
             }
+            creaturesController.getTickLocalState().remove(entity.getId());
         }
     }
 
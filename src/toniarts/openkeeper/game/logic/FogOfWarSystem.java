@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.EntitySet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import toniarts.openkeeper.game.component.Owner;
+import toniarts.openkeeper.game.component.Position;
+import toniarts.openkeeper.game.component.Senses;
+import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.data.Keeper;
+import toniarts.openkeeper.game.listener.MapListener;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.game.map.MapTileStore;
+import toniarts.openkeeper.game.map.VisibilityGrid;
+import toniarts.openkeeper.game.state.session.GameSessionService;
+import toniarts.openkeeper.tools.convert.map.Terrain;
+import toniarts.openkeeper.utils.Point;
+import toniarts.openkeeper.utils.WorldUtils;
+
+/**
+ * Maintains the fog of war, a {@link VisibilityGrid} per player. The players
+ * see what their entities with senses see, and their own territory with the
+ * tiles next to it.<br>
+ * The sights are only recast when an entity moves to another tile or the
+ * terrain around it changes, and only the tiles that became visible or hidden
+ * are sent to the players. Should be run after the systems that move the
+ * entities and modify the map, but before the {@link MapTileStateSystem} that
+ * uses the grids to filter the tile updates.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class FogOfWarSystem implements IGameLogicUpdatable {
+
+    private final EntityData entityData;
+    private final IMapController mapController;
+    private final MapTileStore tileStore;
+    private final GameSessionService gameService;
+    private final MapListener mapListener = new MapListenerImpl();
+    private final Map<Short, VisibilityGrid> grids = new HashMap<>();
+    private final Map<Short, Boolean> pendingRevealAll = new ConcurrentHashMap<>();
+    private final Map<EntityId, Sight> sights = new HashMap<>();
+    private final Set<Sight> dirtySights = new HashSet<>();
+    private EntitySet sensingEntities;
+
+    private final int width;
+    private final int height;
+    private final short[] tileOwners;
+    private final boolean[] solidTiles;
+    private final ShadowCaster shadowCaster;
+
+    // Casting marks the tiles it has already seen with the stamp
+    private final int[] tileStamps;
+    private int stamp;
+    private Sight castSight;
+    private final ShadowCaster.TileVisitor castVisitor;
+
+    public FogOfWarSystem(EntityData entityData, IMapController mapController, Collection<Keeper> players,
+            GameSessionService gameService) {
+        this.entityData = entityData;
+        this.mapController = mapController;
+        this.tileStore = mapController.getMapData().getTileStore();
+        this.gameService = gameService;
+
+        width = tileStore.getWidth();
+        height = tileStore.getHeight();
+        tileOwners = new short[width * height];
+        solidTiles = new boolean[width * height];
+        tileStamps = new int[width * height];
+        shadowCaster = new ShadowCaster(width, height, solidTiles);
+        castVisitor = (x, y) -> see(y * width + x);
+        for (Keeper keeper : players) {
+            grids.put(keeper.getId(), new VisibilityGrid(width, height));
+        }
+    }
+
+    @Override
+    public void start() {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                updateSolid(x, y);
+                updateOwner(y * width + x);
+            }
+        }
+
+        sensingEntities = entityData.getEntities(Position.class, Owner.class, Senses.class);
+        sensingEntities.applyChanges();
+        for (Entity entity : sensingEntities) {
+            updateSight(entity);
+        }
+        mapController.addListener(mapListener);
+    }
+
+    @Override
+    public void processTick(float tpf) {
+        for (Map.Entry<Short, Boolean> entry : pendingRevealAll.entrySet()) {
+            VisibilityGrid grid = grids.get(entry.getKey());
+            if (grid != null) {
+                grid.setRevealAll(entry.getValue());
+            }
+            pendingRevealAll.remove(entry.getKey(), entry.getValue());
+        }
+
+        if (sensingEntities.applyChanges()) {
+            for (Entity entity : sensingEntities.getRemovedEntities()) {
+                Sight sight = sights.remove(entity.getId());
+                if (sight != null) {
+                    removeSight(sight);
+                    dirtySights.remove(sight);
+                }
+            }
+            for (Entity entity : sensingEntities.getAddedEntities()) {
+                updateSight(entity);
+            }
+            for (Entity entity : sensingEntities.getChangedEntities()) {
+                updateSight(entity);
+            }
+        }
+
+        // Recast the sights the terrain changes affected
+        for (Sight sight : dirtySights) {
+            removeSight(sight);
+            castSight(sight);
+        }
+        dirtySights.clear();
+
+        // Send the changes
+        for (Map.Entry<Short, VisibilityGrid> entry : grids.entrySet()) {
+            int[] revealed = entry.getValue().pollRevealed();
+            if (revealed.length > 0) {
+                gameService.updateVisibility(revealed, true, entry.getKey());
+            }
+            int[] hidden = entry.getValue().pollHidden();
+            if (hidden.length > 0) {
+                gameService.updateVisibility(hidden, false, entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Get the visibility of the player
+     *
+     * @param playerId the player ID
+     * @return the visibility grid, {@code null} if the player has none
+     */
+    public VisibilityGrid getVisibilityGrid(short playerId) {
+        return grids.get(playerId);
+    }
+
+    /**
+     * Get all the visibility grids
+     *
+     * @return the visibility grids by player ID
+     */
+    public Map<Short, VisibilityGrid> getVisibilityGrids() {
+        return grids;
+    }
+
+    /**
+     * Reveal the whole map to the player, or return to the normal fog of war.
+     * Safe to call from any thread, takes effect on the next tick.
+     *
+     * @param playerId the player ID
+     * @param revealAll whether to reveal the whole map
+     */
+    public void setRevealAll(short playerId, boolean revealAll) {
+        pendingRevealAll.put(playerId, revealAll);
+    }
+
+    private void updateSight(Entity entity) {
+        Owner owner = entity.get(Owner.class);
+        VisibilityGrid grid = grids.get(owner.ownerId);
+        Sight sight = sights.get(entity.getId());
+        if (grid == null) {
+            if (sight != null) {
+                sights.remove(entity.getId());
+                removeSight(sight);
+                dirtySights.remove(sight);
+            }
+            return;
+        }
+
+        Point p = WorldUtils.vectorToPoint(entity.get(Position.class).position);
+        int index = p.x >= 0 && p.y >= 0 && p.x < width && p.y < height ? p.y * width + p.x : -1;
+        float radius = entity.get(Senses.class).distanceCanSee;
+        if (sight == null) {
+            sight = new Sight();
+            sights.put(entity.getId(), sight);
+        } else if (sight.grid == grid && sight.index == index && sight.radius == radius) {
+
+            // Still on the same tile, nothing to do
+            return;
+        } else {
+            removeSight(sight);
+        }
+
+        sight.grid = grid;
+        sight.index = index;
+        sight.radius = radius;
+        castSight(sight);
+    }
+
+    private void castSight(Sight sight) {
+        sight.tileCount = 0;
+        if (sight.index < 0) {
+            return;
+        }
+
+        nextStamp();
+        castSight = sight;
+        see(sight.index);
+        shadowCaster.cast(sight.index % width, sight.index / width, sight.radius, castVisitor);
+        castSight = null;
+    }
+
+    private void see(int index) {
+        if (tileStamps[index] != stamp) {
+            tileStamps[index] = stamp;
+            castSight.add(index);
+            castSight.grid.addSight(index);
+        }
+    }
+
+    private static void removeSight(Sight sight) {
+        for (int i = 0; i < sight.tileCount; i++) {
+            sight.grid.removeSight(sight.tiles[i]);
+        }
+        sight.tileCount = 0;
+    }
+
+    private void nextStamp() {
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(tileStamps, 0);
+            stamp = 0;
+        }
+        stamp++;
+    }
+
+    private void updateSolid(int x, int y) {
+        int index = y * width + x;
+        IMapTileInformation tile = mapController.getMapData().getTile(x, y);
+        boolean solid = mapController.getTerrain(tile).getFlags().contains(Terrain.TerrainFlag.SOLID);
+        if (solidTiles[index] == solid) {
+            return;
+        }
+        solidTiles[index] = solid;
+
+        // The sights that may reach this tile need to be recast
+        for (Sight sight : sights.values()) {
+            if (sight.index >= 0) {
+                int dx = sight.index % width - x;
+                int dy = sight.index / width - y;
+                if (dx * dx + dy * dy <= (sight.radius + 1) * (sight.radius + 1)) {
+                    dirtySights.add(sight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Owned territory is seen, with the tiles next to it
+     *
+     * @param index the tile index
+     */
+    private void updateOwner(int index) {
+        short ownerId = tileStore.getOwnerId(index);
+        if (tileOwners[index] == ownerId) {
+            return;
+        }
+
+        VisibilityGrid oldGrid = grids.get(tileOwners[index]);
+        VisibilityGrid newGrid = grids.get(ownerId);
+        tileOwners[index] = ownerId;
+        int x = index % width;
+        int y = index / width;
+        for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+                if (oldGrid != null) {
+                    oldGrid.removeSight(ny * width + nx);
+                }
+                if (newGrid != null) {
+                    newGrid.addSight(ny * width + nx);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        mapController.removeListener(mapListener);
+        if (sensingEntities != null) {
+            sensingEntities.release();
+            sensingEntities = null;
+        }
+        sights.clear();
+        dirtySights.clear();
+    }
+
+    /**
+     * Keep the terrain and the territory up to date
+     */
+    private final class MapListenerImpl implements MapListener {
+
+        @Override
+        public void onTilesChange(List<Point> updatedTiles) {
+            for (Point p : updatedTiles) {
+                updateSolid(p.x, p.y);
+                updateOwner(p.y * width + p.x);
+            }
+        }
+
+        @Override
+        public void onTileFlash(List<Point> points, boolean enabled, short keeperId) {
+            // Not interested
+        }
+    }
+
+    /**
+     * The tiles a single entity sees
+     */
+    private static final class Sight {
+
+        private VisibilityGrid grid;
+        private int index = -1;
+        private float radius;
+        private int[] tiles = new int[16];
+        private int tileCount = 0;
+
+        private void add(int index) {
+            if (tileCount == tiles.length) {
+                tiles = Arrays.copyOf(tiles, tiles.length * 2);
+            }
+            tiles[tileCount++] = index;
+        }
+    }
+
+}
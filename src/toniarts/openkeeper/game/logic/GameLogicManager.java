@@ -18,9 +18,12 @@ package toniarts.openkeeper.game.logic;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import toniarts.openkeeper.utils.TickProfiler;
+import toniarts.openkeeper.utils.TickStatistics;
 
 /**
- * Runs the game logic tasks, well, doesn't literally run them but wraps them up
+ * Runs the game logic tasks, well, doesn't literally run them but wraps them up. Also times each task, see
+ * {@link TickProfiler}
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
@@ -29,13 +32,32 @@ public final class GameLogicManager implements IGameLogicUpdatable {
     private static final Logger logger = System.getLogger(GameLogicManager.class.getName());
 
     protected final IGameLogicUpdatable[] updatables;
+    private final String name;
+    private volatile TickStatistics[] statistics;
 
     public GameLogicManager(IGameLogicUpdatable... updatables) {
+        this("", updatables);
+    }
+
+    /**
+     * Creates a new game logic manager
+     *
+     * @param name the name, the loop that runs these, for the statistics
+     * @param updatables the game logic tasks
+     */
+    public GameLogicManager(String name, IGameLogicUpdatable... updatables) {
+        this.name = name;
         this.updatables = updatables;
     }
 
     @Override
     public void start() {
+        TickStatistics[] tickStatistics = new TickStatistics[updatables.length];
+        for (int i = 0; i < updatables.length; i++) {
+            tickStatistics[i] = TickProfiler.register(name, updatables[i].getClass().getSimpleName(), 0);
+        }
+        statistics = tickStatistics;
+
         for (IGameLogicUpdatable updatable : updatables) {
             updatable.start();
         }
@@ -43,13 +65,20 @@ public final class GameLogicManager implements IGameLogicUpdatable {
 
     @Override
     public void processTick(float tpf) {
+        TickStatistics[] tickStatistics = statistics;
+
         // Update updatables
-        for (IGameLogicUpdatable updatable : updatables) {
+        for (int i = 0; i < updatables.length; i++) {
+            IGameLogicUpdatable updatable = updatables[i];
+            long start = System.nanoTime();
             try {
                 updatable.processTick(tpf);
             } catch (Exception e) {
                 logger.log(Level.ERROR, "Error in game logic tick on " + updatable.getClass() + "!", e);
             }
+            if (tickStatistics != null) {
+                tickStatistics[i].record(System.nanoTime() - start);
+            }
         }
     }
 
@@ -58,6 +87,14 @@ public final class GameLogicManager implements IGameLogicUpdatable {
         for (IGameLogicUpdatable updatable : updatables) {
             updatable.stop();
         }
+
+        TickStatistics[] tickStatistics = statistics;
+        statistics = null;
+        if (tickStatistics != null) {
+            for (TickStatistics statistic : tickStatistics) {
+                TickProfiler.unregister(statistic);
+            }
+        }
     }
 
 //    private void drawCreatureVisibilities() {
@@ -18,9 +18,11 @@ package toniarts.openkeeper.game.logic;
 
 import com.simsilica.es.EntityId;
 import toniarts.openkeeper.utils.Point;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
+import java.util.function.Consumer;
 import toniarts.openkeeper.game.controller.entity.IEntityController;
+import toniarts.openkeeper.game.listener.ObstacleListener;
 import toniarts.openkeeper.game.map.IMapTileInformation;
 
 /**
@@ -55,6 +57,35 @@ public interface IEntityPositionLookup {
      */
     List<EntityId> getEntitiesInLocation(IMapTileInformation mapTile);
 
+    /**
+     * Get the entities in specified map point without creating any garbage
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param result the entities are added here
+     * @return the number of entities in given location
+     */
+    int getEntitiesInLocation(int x, int y, Collection<EntityId> result);
+
+    /**
+     * Go through the entities in specified map point without creating any
+     * garbage. The action must not modify the entity positions.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param action the action to run for each entity
+     */
+    void forEachEntityInLocation(int x, int y, Consumer<EntityId> action);
+
+    /**
+     * Get the number of entities in specified map point
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the number of entities in given location
+     */
+    int getEntityCountInLocation(int x, int y);
+
     /**
      * Get the map tile of an entity
      *
@@ -121,12 +152,28 @@ public interface IEntityPositionLookup {
     boolean isTileBlocked(IMapTileInformation mapTile, short playerId);
 
     /**
-     * Gets all the entities around given entity that you see or hear at this
-     * given moment
+     * Checks if a tile in given location is blocked for everyone, regardless
+     * of the player (a.k.a. there is a locked door)
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the tile is blocked for everyone
+     */
+    boolean isTileLocked(int x, int y);
+
+    /**
+     * If you want to get notified about tile obstacle changes, i.e. when
+     * {@link #isTileBlocked(int, int, short)} might give a different answer
+     *
+     * @param listener the listener
+     */
+    void addListener(ObstacleListener listener);
+
+    /**
+     * Stop listening to tile obstacle changes
      *
-     * @param entityId you, the entitty
-     * @return set of entities you see or hear
+     * @param listener the listener
      */
-    Set<EntityId> getSensedEntities(EntityId entityId);
+    void removeListener(ObstacleListener listener);
 
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.jme3.math.Vector3f;
+import com.simsilica.es.EntityId;
+
+/**
+ * Publishes the transforms of the moving entities to the clients. Moving
+ * entities would otherwise need a new Position component on every steering
+ * tick. The transforms are published in frames, one per tick, all from the
+ * same thread.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public interface IEntityTransformPublisher {
+
+    /**
+     * Start a new frame, all the transforms published until
+     * {@link #endFrame()} are of the same moment
+     */
+    void beginFrame();
+
+    /**
+     * Publish the current transform of the entity
+     *
+     * @param entityId the entity
+     * @param position the position
+     * @param rotation the rotation around the y-axis, as in the Position
+     * component
+     * @param radius the bounding radius of the entity
+     */
+    void publish(EntityId entityId, Vector3f position, float rotation, float radius);
+
+    /**
+     * The entity has stopped moving, its Position component is up to date
+     * again
+     *
+     * @param entityId the entity
+     */
+    void remove(EntityId entityId);
+
+    void endFrame();
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.EntityId;
+import java.util.List;
+
+/**
+ * Lookup for what the entities sense, see and hear. The senses are refreshed
+ * once per game tick.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public interface ISensesLookup {
+
+    /**
+     * Gets all the entities around given entity that you see or hear at this
+     * given moment. The list is reused, so it should not be kept over to the
+     * next tick.
+     *
+     * @param entityId you, the entity
+     * @return unmodifiable list of entities you see or hear
+     */
+    List<EntityId> getSensedEntities(EntityId entityId);
+
+    /**
+     * Gets all the entities around given entity that you see at this given
+     * moment. The list is reused, so it should not be kept over to the next
+     * tick.
+     *
+     * @param entityId you, the entity
+     * @return unmodifiable list of entities you see
+     */
+    List<EntityId> getVisibleEntities(EntityId entityId);
+
+}
@@ -28,9 +28,11 @@ import toniarts.openkeeper.game.component.Mana;
 import toniarts.openkeeper.game.component.Owner;
 import toniarts.openkeeper.game.controller.IPlayerController;
 import toniarts.openkeeper.game.controller.player.PlayerManaControl;
+import toniarts.openkeeper.game.map.MapTileStore;
 
 /**
- * Calculates mana for all players
+ * Calculates mana for all players. The entities with mana are tracked as they
+ * change, the map tiles are simply summed up on every update.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
@@ -43,8 +45,12 @@ public final class ManaCalculatorLogic implements IGameLogicUpdatable {
     private final Map<Short, PlayerManaControl> manaControls;
     private final Map<Short, Integer> manaGains;
     private final Map<Short, Integer> manaLosses;
+    private final MapTileStore tileStore;
+    private final Map<Short, Integer> tileManaGains;
+    private final Map<Short, Integer> tileManaLosses;
 
-    public ManaCalculatorLogic(Collection<IPlayerController> playerControllers, EntityData entityData) {
+    public ManaCalculatorLogic(Collection<IPlayerController> playerControllers, EntityData entityData, MapTileStore tileStore) {
+        this.tileStore = tileStore;
         manaControls = HashMap.newHashMap(playerControllers.size());
         for (IPlayerController playerController : playerControllers) {
             PlayerManaControl manaControl = playerController.getManaControl();
@@ -54,6 +60,8 @@ public final class ManaCalculatorLogic implements IGameLogicUpdatable {
         }
         manaGains = HashMap.newHashMap(manaControls.size());
         manaLosses = HashMap.newHashMap(manaControls.size());
+        tileManaGains = HashMap.newHashMap(manaControls.size());
+        tileManaLosses = HashMap.newHashMap(manaControls.size());
 
         // Listen for mana entities
         manaEntities = entityData.getEntities(Mana.class, Owner.class);
@@ -65,6 +73,7 @@ public final class ManaCalculatorLogic implements IGameLogicUpdatable {
         tick += tpf;
         if (tick >= 1) {
             updateManaSources();
+            updateTileManaSources();
             updateManaControls();
             tick -= 1;
         }
@@ -72,7 +81,9 @@ public final class ManaCalculatorLogic implements IGameLogicUpdatable {
 
     private void updateManaControls() {
         for (Map.Entry<Short, PlayerManaControl> entry : manaControls.entrySet()) {
-            entry.getValue().updateMana(manaGains.getOrDefault(entry.getKey(), 0), manaLosses.getOrDefault(entry.getKey(), 0));
+            short playerId = entry.getKey();
+            entry.getValue().updateMana(manaGains.getOrDefault(playerId, 0) + tileManaGains.getOrDefault(playerId, 0),
+                    manaLosses.getOrDefault(playerId, 0) + tileManaLosses.getOrDefault(playerId, 0));
         }
     }
 
@@ -97,6 +108,26 @@ public final class ManaCalculatorLogic implements IGameLogicUpdatable {
         }
     }
 
+    private void updateTileManaSources() {
+        tileManaGains.clear();
+        tileManaLosses.clear();
+        for (int i = 0; i < tileStore.getSize(); i++) {
+            int manaGeneration = tileStore.getManaGain(i);
+            if (manaGeneration == 0) {
+                continue;
+            }
+
+            short ownerId = tileStore.getOwnerId(i);
+            if (manaControls.containsKey(ownerId)) {
+                if (manaGeneration < 0) {
+                    addMana(tileManaLosses, ownerId, -manaGeneration);
+                } else {
+                    addMana(tileManaGains, ownerId, manaGeneration);
+                }
+            }
+        }
+    }
+
     private void processAddedEntities(Set<Entity> entities) {
         for (Entity entity : entities) {
             short ownerId = entity.get(Owner.class).ownerId;
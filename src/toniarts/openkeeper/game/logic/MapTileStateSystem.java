@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import toniarts.openkeeper.game.map.MapTileDelta;
+import toniarts.openkeeper.game.map.MapTileStore;
+import toniarts.openkeeper.game.map.VisibilityGrid;
+import toniarts.openkeeper.game.state.session.GameSessionService;
+
+/**
+ * Sends the map tiles changed during the tick to the clients. Should be run
+ * after all the systems that modify the map.<br>
+ * The players only get the changes of the tiles they see. The changes of the
+ * hidden tiles are held back until the player sees the tiles again, and then
+ * only their latest state is sent. So the players see the unseen tiles as
+ * they last saw them.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class MapTileStateSystem implements IGameLogicUpdatable {
+
+    private final MapTileStore tileStore;
+    private final GameSessionService gameService;
+    private final FogOfWarSystem fogOfWar;
+    private final Map<Short, BitSet> pendingTiles = new HashMap<>();
+
+    public MapTileStateSystem(MapTileStore tileStore, GameSessionService gameService, FogOfWarSystem fogOfWar) {
+        this.tileStore = tileStore;
+        this.gameService = gameService;
+        this.fogOfWar = fogOfWar;
+    }
+
+    @Override
+    public void processTick(float tpf) {
+        BitSet changedTiles = tileStore.pollChangedTiles();
+        for (Map.Entry<Short, VisibilityGrid> entry : fogOfWar.getVisibilityGrids().entrySet()) {
+            BitSet tiles = pendingTiles.computeIfAbsent(entry.getKey(), (playerId) -> new BitSet(tileStore.getSize()));
+            tiles.or(changedTiles);
+            if (tiles.isEmpty()) {
+                continue;
+            }
+
+            // Send what is visible, keep the rest pending
+            BitSet visibleTiles = (BitSet) tiles.clone();
+            visibleTiles.and(entry.getValue().getVisibleTiles());
+            if (visibleTiles.isEmpty()) {
+                continue;
+            }
+            tiles.andNot(visibleTiles);
+            for (MapTileDelta delta : tileStore.createDeltas(visibleTiles)) {
+                gameService.updateTileStates(delta, entry.getKey());
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+
+    }
+
+    @Override
+    public void stop() {
+        pendingTiles.clear();
+    }
+
+}
@@ -18,6 +18,7 @@ package toniarts.openkeeper.game.logic;
 
 import com.badlogic.gdx.ai.steer.SteeringAcceleration;
 import com.badlogic.gdx.math.Vector2;
+import com.jme3.math.Vector3f;
 import com.jme3.util.SafeArrayList;
 import com.simsilica.es.Entity;
 import com.simsilica.es.EntityData;
@@ -36,9 +37,13 @@ import toniarts.openkeeper.game.navigation.steering.EntitySteeringFactory;
 import toniarts.openkeeper.game.navigation.steering.ISteerableEntity;
 import toniarts.openkeeper.game.navigation.steering.SteerableEntity;
 import toniarts.openkeeper.game.navigation.steering.SteeringUtils;
+import toniarts.openkeeper.utils.WorldUtils;
 
 /**
- * Handles moving of the entities
+ * Handles moving of the entities. If there is a transform publisher, the
+ * movement is published through it and the Position components are only set
+ * when the entities change tiles or stop. The position vector is still updated
+ * in place, so the game logic sees where the entities are.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
@@ -61,9 +66,22 @@ public final class MovementSystem implements IGameLogicUpdatable {
     private final Map<EntitySteeringBehavior, SteeringAcceleration<Vector2>> steeringOutputsBySteeringBehaviors = new HashMap<>();
     private final EntitySet movableEntities;
     private final EntityData entityData;
+    private final IEntityTransformPublisher transformPublisher;
 
     public MovementSystem(EntityData entityData) {
+        this(entityData, null);
+    }
+
+    /**
+     * Creates the movement system
+     *
+     * @param entityData the entity data
+     * @param transformPublisher publisher for the movement, {@code null} to
+     * set the Position components on every tick
+     */
+    public MovementSystem(EntityData entityData, IEntityTransformPublisher transformPublisher) {
         this.entityData = entityData;
+        this.transformPublisher = transformPublisher;
         movableEntities = entityData.getEntities(Position.class, Mobile.class, Navigation.class);
 
         processAddedEntities(movableEntities);
@@ -71,6 +89,10 @@ public final class MovementSystem implements IGameLogicUpdatable {
 
     @Override
     public void processTick(float tpf) {
+        if (transformPublisher != null) {
+            transformPublisher.beginFrame();
+        }
+
         if (movableEntities.applyChanges()) {
             processDeletedEntities(movableEntities.getRemovedEntities());
 
@@ -96,6 +118,10 @@ public final class MovementSystem implements IGameLogicUpdatable {
             // Apply steering acceleration
             applySteering(entityIdsBySteeringBehavior.get(steeringBehavior), steerableEntitiesBySteeringBehavior.get(steeringBehavior), steeringOutput, tpf);
         }
+
+        if (transformPublisher != null) {
+            transformPublisher.endFrame();
+        }
     }
 
     private void processAddedEntities(Set<Entity> addedEntities) {
@@ -129,6 +155,9 @@ public final class MovementSystem implements IGameLogicUpdatable {
     private void processDeletedEntities(Set<Entity> removedEntities) {
         for (Entity entity : removedEntities) {
             deleteEntity(entity);
+            if (transformPublisher != null) {
+                transformPublisher.remove(entity.getId());
+            }
         }
     }
 
@@ -171,6 +200,11 @@ public final class MovementSystem implements IGameLogicUpdatable {
         if (steering.isZero()
                 && steerableEntity.getLinearVelocity().isZero(steerableEntity.getZeroLinearSpeedThreshold())
                 && isZeroAngular(steerableEntity.getAngularVelocity(), steerableEntity.getZeroLinearSpeedThreshold())) {
+
+            // Make sure the final position is in the component
+            if (transformPublisher != null) {
+                updatePosition(entityId, steerableEntity, true);
+            }
             entityData.removeComponent(entityId, Navigation.class);
             return;
         }
@@ -205,16 +239,34 @@ public final class MovementSystem implements IGameLogicUpdatable {
         }
 
         // Also update the real components
+        updatePosition(entityId, steerableEntity, transformPublisher == null);
+    }
+
+    private void updatePosition(EntityId entityId, ISteerableEntity steerableEntity, boolean setComponent) {
         Position oldPosition = entityData.getComponent(entityId, Position.class);
-        if (oldPosition != null) {
+        if (oldPosition == null) {
+            return;
+        }
 
-            // Re-use the vector, the position might be already removed from another thread
-            oldPosition.position.x = steerableEntity.getPosition().x;
-            oldPosition.position.z = steerableEntity.getPosition().y;
-            entityData.setComponent(entityId, new Position(-steerableEntity.getOrientation(), oldPosition.position));
+        // Re-use the vector, the position might be already removed from another thread
+        Vector3f position = oldPosition.position;
+        float rotation = -steerableEntity.getOrientation();
+        boolean tileChanged = !isSameTile(position.x, position.z, steerableEntity.getPosition().x, steerableEntity.getPosition().y);
+        position.x = steerableEntity.getPosition().x;
+        position.z = steerableEntity.getPosition().y;
+        if (setComponent || tileChanged) {
+            entityData.setComponent(entityId, new Position(rotation, position));
+        }
+        if (transformPublisher != null) {
+            transformPublisher.publish(entityId, position, rotation, steerableEntity.getBoundingRadius());
         }
     }
 
+    private static boolean isSameTile(float x1, float y1, float x2, float y2) {
+        return Math.round(x1 / WorldUtils.TILE_WIDTH) == Math.round(x2 / WorldUtils.TILE_WIDTH)
+                && Math.round(y1 / WorldUtils.TILE_WIDTH) == Math.round(y2 / WorldUtils.TILE_WIDTH);
+    }
+
     /**
      * Limit angular speed or acceleration
      *
@@ -16,33 +16,28 @@
  */
 package toniarts.openkeeper.game.logic;
 
+import com.jme3.util.SafeArrayList;
 import com.simsilica.es.Entity;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
 import com.simsilica.es.EntitySet;
 import toniarts.openkeeper.utils.Point;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import toniarts.openkeeper.game.component.DoorComponent;
 import toniarts.openkeeper.game.component.Owner;
 import toniarts.openkeeper.game.component.Position;
-import toniarts.openkeeper.game.component.Senses;
-import toniarts.openkeeper.game.controller.ICreaturesController;
-import toniarts.openkeeper.game.controller.IDoorsController;
-import toniarts.openkeeper.game.controller.IEntityWrapper;
+import toniarts.openkeeper.game.controller.EntityControllerRegistry;
 import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.controller.IObjectsController;
-import toniarts.openkeeper.game.controller.creature.ICreatureController;
-import toniarts.openkeeper.game.controller.door.IDoorController;
 import toniarts.openkeeper.game.controller.entity.EntityController;
 import toniarts.openkeeper.game.controller.entity.IEntityController;
+import toniarts.openkeeper.game.listener.ObstacleListener;
 import toniarts.openkeeper.game.map.IMapTileInformation;
-import toniarts.openkeeper.tools.convert.map.Terrain;
 import toniarts.openkeeper.utils.WorldUtils;
 
 /**
@@ -56,100 +51,111 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
     private final IMapController mapController;
     private final IObjectsController objectsController;
     private final EntitySet positionedEntities;
-    private final Set<EntityId>[][] entitiesByMapTile;
-    private final Set<EntityId>[][] obstaclesByMapTile;
-    private final Map<EntityId, IMapTileInformation> mapTilesByEntities = new HashMap<>();
-    private final Map<Class, IEntityWrapper<?>> entityWrappers = new HashMap<>();
-
-    private final Map<EntityId, Set<EntityId>> sensedEntitiesByEntity = new HashMap<>();
-
-    public PositionSystem(IMapController mapController, EntityData entityData, ICreaturesController creaturesController, IDoorsController doorsController, IObjectsController objectsController) {
+    private final EntitySet doorEntities;
+    private final int width;
+    private final TileEntityIndex entitiesByMapTile;
+    private final TileEntityIndex obstaclesByMapTile;
+    private final EntityControllerRegistry controllerRegistry;
+    private final SafeArrayList<ObstacleListener> obstacleListeners = new SafeArrayList<>(ObstacleListener.class);
+
+    public PositionSystem(IMapController mapController, EntityData entityData, EntityControllerRegistry controllerRegistry, IObjectsController objectsController) {
         this.entityData = entityData;
         this.mapController = mapController;
         this.objectsController = objectsController;
-        entityWrappers.put(ICreatureController.class, creaturesController);
-        entityWrappers.put(IDoorController.class, doorsController);
+        this.controllerRegistry = controllerRegistry;
 
         // Initialize data structures
-        int width = mapController.getMapData().getWidth();
+        width = mapController.getMapData().getWidth();
         int height = mapController.getMapData().getHeight();
-        entitiesByMapTile = initializeMatrix(width, height);
-        obstaclesByMapTile = initializeMatrix(width, height);
+        entitiesByMapTile = new TileEntityIndex(width * height);
+        obstaclesByMapTile = new TileEntityIndex(width * height);
 
         positionedEntities = entityData.getEntities(Position.class);
         processAddedEntities(positionedEntities);
-    }
-
-    private static Set<EntityId>[][] initializeMatrix(int width, int height) {
-        Set<EntityId>[][] matrix = new Set[width][height];
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                matrix[x][y] = new HashSet<>();
-            }
-        }
 
-        return matrix;
+        // Doors are the obstacles, we need to know about locking etc.
+        doorEntities = entityData.getEntities(DoorComponent.class, Position.class);
     }
 
     @Override
     public void processTick(float tpf) {
-        // This is just a cache for a tick
-        sensedEntitiesByEntity.clear();
-
         if (positionedEntities.applyChanges()) {
             processAddedEntities(positionedEntities.getAddedEntities());
             processDeletedEntities(positionedEntities.getRemovedEntities());
             processChangedEntities(positionedEntities.getChangedEntities());
         }
+
+        if (doorEntities.applyChanges()) {
+            processObstacleChanges(doorEntities.getAddedEntities());
+            processObstacleChanges(doorEntities.getRemovedEntities());
+            processChangedObstacles(doorEntities.getChangedEntities());
+        }
+    }
+
+    private void processChangedObstacles(Set<Entity> entities) {
+
+        // The obstacle status may have changed, i.e. door got built
+        for (Entity entity : entities) {
+            int tile = entitiesByMapTile.getTile(entity.getId());
+            if (tile == TileEntityIndex.NONE) {
+                continue;
+            }
+
+            if (isObstacle(entityData, entity.getId())) {
+                obstaclesByMapTile.put(entity.getId(), tile);
+            } else {
+                obstaclesByMapTile.remove(entity.getId());
+            }
+        }
+
+        processObstacleChanges(entities);
+    }
+
+    private void processObstacleChanges(Set<Entity> entities) {
+        for (Entity entity : entities) {
+            Point p = WorldUtils.vectorToPoint(entity.get(Position.class).position);
+            for (ObstacleListener listener : obstacleListeners.getArray()) {
+                listener.onObstacleChange(p);
+            }
+        }
     }
 
     private void processChangedEntities(Set<Entity> entities) {
         // Update
         for (Entity entity : entities) {
             Point p = WorldUtils.vectorToPoint(entity.get(Position.class).position);
-            IMapTileInformation currentMapTile = mapController.getMapData().getTile(p);
-
-            IMapTileInformation previousMapTile = mapTilesByEntities.get(entity.getId());
-            if (currentMapTile.equals(previousMapTile)) {
+            int tile = getTileIndex(p);
+            if (entitiesByMapTile.getTile(entity.getId()) == tile) {
                 continue;
             }
 
-            int x = previousMapTile.getX();
-            int y = previousMapTile.getY();
-
             // Moved
-            mapTilesByEntities.put(entity.getId(), currentMapTile);
-            entitiesByMapTile[x][y].remove(entity.getId());
-
-            // Obstacles
-            obstaclesByMapTile[x][y].remove(entity.getId());
-
-            addEntityToTile(currentMapTile, entity);
+            addEntityToTile(tile, entity);
         }
     }
 
-    private void addEntityToTile(IMapTileInformation mapTile, Entity entity) {
-        int x = mapTile.getX();
-        int y = mapTile.getY();
-
-        entitiesByMapTile[x][y].add(entity.getId());
+    private void addEntityToTile(int tile, Entity entity) {
+        entitiesByMapTile.put(entity.getId(), tile);
 
         // Obstacles
         if (isObstacle(entityData, entity.getId())) {
-            obstaclesByMapTile[x][y].add(entity.getId());
+            obstaclesByMapTile.put(entity.getId(), tile);
+        } else {
+            obstaclesByMapTile.remove(entity.getId());
         }
     }
 
+    private int getTileIndex(Point p) {
+        IMapTileInformation mapTile = mapController.getMapData().getTile(p);
+        return mapTile.getY() * width + mapTile.getX();
+    }
+
     private void processDeletedEntities(Set<Entity> entities) {
 
         // Remove
         for (Entity entity : entities) {
-            IMapTileInformation mapTile = mapTilesByEntities.remove(entity.getId());
-
-            int x = mapTile.getX();
-            int y = mapTile.getY();
-            entitiesByMapTile[x][y].remove(entity.getId());
-            obstaclesByMapTile[x][y].remove(entity.getId());
+            entitiesByMapTile.remove(entity.getId());
+            obstaclesByMapTile.remove(entity.getId());
         }
     }
 
@@ -158,10 +164,8 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
         // Add
         for (Entity entity : entities) {
             Point p = WorldUtils.vectorToPoint(entity.get(Position.class).position);
-            IMapTileInformation mapTile = mapController.getMapData().getTile(p);
-            mapTilesByEntities.put(entity.getId(), mapTile);
 
-            addEntityToTile(mapTile, entity);
+            addEntityToTile(getTileIndex(p), entity);
         }
     }
 
@@ -177,17 +181,48 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
 
     @Override
     public List<EntityId> getEntitiesInLocation(int x, int y) {
-        Set<EntityId> entityIds = entitiesByMapTile[x][y];
-        if (entityIds.isEmpty()) {
+        int tile = y * width + x;
+        if (entitiesByMapTile.getCount(tile) == 0) {
             return Collections.emptyList();
         }
 
-        return new ArrayList<>(entityIds);
+        List<EntityId> entityIds = new ArrayList<>(entitiesByMapTile.getCount(tile));
+        getEntitiesInLocation(x, y, entityIds);
+
+        return entityIds;
+    }
+
+    @Override
+    public int getEntitiesInLocation(int x, int y, Collection<EntityId> result) {
+        int tile = y * width + x;
+        for (int slot = entitiesByMapTile.first(tile); slot != TileEntityIndex.NONE; slot = entitiesByMapTile.next(slot)) {
+            result.add(entitiesByMapTile.getEntity(slot));
+        }
+
+        return entitiesByMapTile.getCount(tile);
+    }
+
+    @Override
+    public void forEachEntityInLocation(int x, int y, Consumer<EntityId> action) {
+        int tile = y * width + x;
+        for (int slot = entitiesByMapTile.first(tile); slot != TileEntityIndex.NONE; slot = entitiesByMapTile.next(slot)) {
+            action.accept(entitiesByMapTile.getEntity(slot));
+        }
+    }
+
+    @Override
+    public int getEntityCountInLocation(int x, int y) {
+        return entitiesByMapTile.getCount(y * width + x);
     }
 
     @Override
     public IMapTileInformation getEntityLocation(EntityId entityId) {
-        return mapTilesByEntities.get(entityId);
+        int tile = entitiesByMapTile.getTile(entityId);
+        if (tile == TileEntityIndex.NONE) {
+            return null;
+        }
+
+        return mapController.getMapData().getTile(tile % width, tile / width);
     }
 
     @Override
@@ -202,20 +237,17 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
 
     @Override
     public <T extends IEntityController> List<T> getEntityTypesInLocation(int x, int y, Class<T> clazz) {
-        Set<EntityId> entityIds = entitiesByMapTile[x][y];
-        if (entityIds.isEmpty()) {
+        int tile = y * width + x;
+        if (entitiesByMapTile.getCount(tile) == 0) {
             return Collections.emptyList();
         }
 
-        IEntityWrapper<T> entityWrapper = getEntityWrapper(clazz);
-
-        List<T> entities = new ArrayList<>(entityIds.size());
-        for (EntityId entityId : new ArrayList<>(entityIds)) {
-            if (!entityWrapper.isValidEntity(entityId)) {
-                continue;
+        List<T> entities = new ArrayList<>(entitiesByMapTile.getCount(tile));
+        for (int slot = entitiesByMapTile.first(tile); slot != TileEntityIndex.NONE; slot = entitiesByMapTile.next(slot)) {
+            T controller = controllerRegistry.get(entitiesByMapTile.getEntity(slot), clazz);
+            if (controller != null) {
+                entities.add(controller);
             }
-
-            entities.add(entityWrapper.createController(entityId));
         }
 
         return entities;
@@ -223,13 +255,9 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
 
     @Override
     public IEntityController getEntityController(EntityId entityId) {
-
-        // Hmm, dunno, it might get duplicate hits etc. Not maybe smart design.
-        // Maybe create the base interface methods as final, and it would be always valid to return the IEntityController wherever required
-        for (IEntityWrapper<?> entityWrapper : entityWrappers.values()) {
-            if (entityWrapper.isValidEntity(entityId)) {
-                return entityWrapper.createController(entityId);
-            }
+        IEntityController controller = controllerRegistry.get(entityId);
+        if (controller != null) {
+            return controller;
         }
 
         // Hmm, I think this is safe, just create the general one
@@ -238,17 +266,22 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
 
     @Override
     public <T extends IEntityController> T getEntityController(EntityId entityId, Class<T> clazz) {
-        IEntityWrapper<T> entityWrapper = getEntityWrapper(clazz);
+        T controller = controllerRegistry.get(entityId, clazz);
+        if (controller == null) {
+            throw new RuntimeException("Entity " + entityId + " doesn't represent a " + clazz + "!");
+        }
 
-        return entityWrapper.createController(entityId);
+        return controller;
     }
 
-    private <T extends IEntityController> IEntityWrapper<T> getEntityWrapper(Class<T> clazz) throws RuntimeException {
-        IEntityWrapper<T> entityWrapper = (IEntityWrapper<T>) entityWrappers.get(clazz);
-        if (entityWrapper == null) {
-            throw new RuntimeException("No entity wrappers registered with type " + clazz + "!");
-        }
-        return entityWrapper;
+    @Override
+    public void addListener(ObstacleListener listener) {
+        obstacleListeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(ObstacleListener listener) {
+        obstacleListeners.remove(listener);
     }
 
     @Override
@@ -259,18 +292,10 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
     @Override
     public void stop() {
         positionedEntities.release();
-        mapTilesByEntities.clear();
-        entityWrappers.clear();
-        clearMatrix(entitiesByMapTile);
-        clearMatrix(obstaclesByMapTile);
-    }
-
-    private static void clearMatrix(Set<EntityId>[][] matrix) {
-        for (int x = 0; x < matrix.length; x++) {
-            for (int y = 0; y < matrix[x].length; y++) {
-                matrix[x][y] = null;
-            }
-        }
+        doorEntities.release();
+        obstacleListeners.clear();
+        entitiesByMapTile.clear();
+        obstaclesByMapTile.clear();
     }
 
     private static boolean isObstacle(EntityData entityData, EntityId id) {
@@ -294,12 +319,9 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
 
     @Override
     public boolean isTileBlocked(int x, int y, short playerId) {
-        Set<EntityId> entityIds = obstaclesByMapTile[x][y];
-        if (entityIds.isEmpty()) {
-            return false;
-        }
-
-        for (EntityId entityId : entityIds) {
+        int tile = y * width + x;
+        for (int slot = obstaclesByMapTile.first(tile); slot != TileEntityIndex.NONE; slot = obstaclesByMapTile.next(slot)) {
+            EntityId entityId = obstaclesByMapTile.getEntity(slot);
             DoorComponent doorComponent = entityData.getComponent(entityId, DoorComponent.class);
             if (doorComponent == null) {
                 continue;
@@ -318,42 +340,17 @@ public final class PositionSystem implements IGameLogicUpdatable, IEntityPositio
     }
 
     @Override
-    public Set<EntityId> getSensedEntities(EntityId entityId) {
-        Senses senses = entityData.getComponent(entityId, Senses.class);
-        if (senses == null) {
-            return Collections.emptySet();
-        }
-
-        return sensedEntitiesByEntity.computeIfAbsent(entityId, (id) -> {
-            Set<EntityId> sensedEntities = new HashSet<>();
-
-            // Get creatures we sense
-            IMapTileInformation tile = getEntityLocation(id);
-            // TODO: Every creature has hearing & vision 4, so I can just cheat this in, but should fix eventually
-            // https://github.com/tonihele/OpenKeeper/issues/261
-            if (tile != null) {
-                addSensedEntities(tile, (int) Math.max(senses.distanceCanHear, senses.distanceCanSee), sensedEntities);
+    public boolean isTileLocked(int x, int y) {
+        int tile = y * width + x;
+        for (int slot = obstaclesByMapTile.first(tile); slot != TileEntityIndex.NONE; slot = obstaclesByMapTile.next(slot)) {
+            EntityId entityId = obstaclesByMapTile.getEntity(slot);
+            DoorComponent doorComponent = entityData.getComponent(entityId, DoorComponent.class);
+            if (doorComponent != null && doorComponent.locked) {
+                return true;
             }
-
-            // Remove us, the caller
-            sensedEntities.remove(id);
-
-            return sensedEntities;
-        });
-    }
-
-    private void addSensedEntities(IMapTileInformation tile, int range, Set<EntityId> sensedEntities) {
-        if (tile == null || mapController.getTerrain(tile).getFlags().contains(Terrain.TerrainFlag.SOLID)
-                || range-- < 0) {
-            return;
         }
 
-        sensedEntities.addAll(getEntitiesInLocation(tile));
-
-        addSensedEntities(mapController.getMapData().getTile(tile.getX() + 1, tile.getY()), range, sensedEntities);
-        addSensedEntities(mapController.getMapData().getTile(tile.getX() - 1, tile.getY()), range, sensedEntities);
-        addSensedEntities(mapController.getMapData().getTile(tile.getX(), tile.getY() + 1), range, sensedEntities);
-        addSensedEntities(mapController.getMapData().getTile(tile.getX(), tile.getY() - 1), range, sensedEntities);
+        return false;
     }
 
 }
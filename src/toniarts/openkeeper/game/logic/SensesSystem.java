@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.EntitySet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import toniarts.openkeeper.game.component.Position;
+import toniarts.openkeeper.game.component.Senses;
+import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.listener.MapListener;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.tools.convert.map.Terrain;
+import toniarts.openkeeper.utils.Point;
+
+/**
+ * Senses of the entities, what they see and what they hear. Refreshed once per
+ * tick for all the entities that have senses.<br>
+ * Vision is shadow cast from the entity tile, solid terrain blocks the line of
+ * sight. Hearing spreads from the entity tile around the solid terrain. The
+ * visited tiles are marked with a running stamp and the results are stored to
+ * reused lists, so that nothing is allocated per tick.<br>
+ * Should be run right after the {@link PositionSystem}. Not thread safe.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class SensesSystem implements IGameLogicUpdatable, ISensesLookup {
+
+    private final IMapController mapController;
+    private final IEntityPositionLookup entityPositionLookup;
+    private final EntitySet sensingEntities;
+    private final MapListener mapListener = new MapListenerImpl();
+    private final Map<EntityId, SensedEntities> sensedEntitiesByEntity = new HashMap<>();
+
+    private final int width;
+    private final int height;
+    private final boolean[] solidTiles;
+    private final ShadowCaster shadowCaster;
+    private List<EntityId> seeResult;
+    private final ShadowCaster.TileVisitor seeVisitor = (x, y) -> see(x, y, seeResult);
+
+    // Vision marks the tiles it sees with the stamp, hearing with the stamp + 1
+    private final int[] tileStamps;
+    private int stamp;
+    private final int[] queue;
+
+    public SensesSystem(IMapController mapController, EntityData entityData, IEntityPositionLookup entityPositionLookup) {
+        this.mapController = mapController;
+        this.entityPositionLookup = entityPositionLookup;
+
+        width = mapController.getMapData().getWidth();
+        height = mapController.getMapData().getHeight();
+        solidTiles = new boolean[width * height];
+        shadowCaster = new ShadowCaster(width, height, solidTiles);
+        tileStamps = new int[width * height];
+        queue = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                updateTile(x, y);
+            }
+        }
+
+        sensingEntities = entityData.getEntities(Senses.class, Position.class);
+        mapController.addListener(mapListener);
+    }
+
+    @Override
+    public void processTick(float tpf) {
+        if (sensingEntities.applyChanges()) {
+            for (Entity entity : sensingEntities.getRemovedEntities()) {
+                sensedEntitiesByEntity.remove(entity.getId());
+            }
+        }
+
+        for (Entity entity : sensingEntities) {
+            SensedEntities sensedEntities = sensedEntitiesByEntity.computeIfAbsent(entity.getId(), (id) -> new SensedEntities());
+            updateSenses(entity.getId(), entity.get(Senses.class), sensedEntities);
+        }
+    }
+
+    @Override
+    public List<EntityId> getSensedEntities(EntityId entityId) {
+        SensedEntities sensedEntities = sensedEntitiesByEntity.get(entityId);
+        if (sensedEntities == null) {
+            return Collections.emptyList();
+        }
+
+        return sensedEntities.sensedView;
+    }
+
+    @Override
+    public List<EntityId> getVisibleEntities(EntityId entityId) {
+        SensedEntities sensedEntities = sensedEntitiesByEntity.get(entityId);
+        if (sensedEntities == null) {
+            return Collections.emptyList();
+        }
+
+        return sensedEntities.visibleView;
+    }
+
+    private void updateSenses(EntityId entityId, Senses senses, SensedEntities sensedEntities) {
+        sensedEntities.visible.clear();
+        sensedEntities.sensed.clear();
+        IMapTileInformation tile = entityPositionLookup.getEntityLocation(entityId);
+        if (tile == null) {
+            return;
+        }
+
+        nextStamp();
+        int x = tile.getX();
+        int y = tile.getY();
+
+        // We always know what happens on our own tile
+        see(x, y, sensedEntities.visible);
+        seeResult = sensedEntities.visible;
+        shadowCaster.cast(x, y, senses.distanceCanSee, seeVisitor);
+        seeResult = null;
+
+        // Remove us, the caller
+        sensedEntities.visible.remove(entityId);
+
+        // What we see, we also sense. Add what we hear on top
+        sensedEntities.sensed.addAll(sensedEntities.visible);
+        hear(x, y, (int) senses.distanceCanHear, sensedEntities.sensed);
+    }
+
+    private void nextStamp() {
+        if (stamp >= Integer.MAX_VALUE - 2) {
+            Arrays.fill(tileStamps, 0);
+            stamp = 0;
+        }
+        stamp += 2;
+    }
+
+    private void see(int x, int y, List<EntityId> result) {
+        int index = y * width + x;
+        if (tileStamps[index] != stamp) {
+            tileStamps[index] = stamp;
+            if (!solidTiles[index]) {
+                entityPositionLookup.getEntitiesInLocation(x, y, result);
+            }
+        }
+    }
+
+    /**
+     * Breadth first spread of the sound around the solid terrain
+     *
+     * @param range the hearing distance in tiles
+     * @param result the entities heard, but not seen, are added here
+     */
+    private void hear(int originX, int originY, int range, List<EntityId> result) {
+        int heardStamp = stamp + 1;
+        int head = 0;
+        int tail = 0;
+        int origin = originY * width + originX;
+        tileStamps[origin] = heardStamp;
+        queue[tail++] = origin;
+        for (int distance = 0; distance < range && head < tail; distance++) {
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int index = queue[head++];
+                int x = index % width;
+                int y = index / width;
+                if (y > 0) {
+                    tail = hear(index - width, x, y - 1, tail, result);
+                }
+                if (x < width - 1) {
+                    tail = hear(index + 1, x + 1, y, tail, result);
+                }
+                if (y < height - 1) {
+                    tail = hear(index + width, x, y + 1, tail, result);
+                }
+                if (x > 0) {
+                    tail = hear(index - 1, x - 1, y, tail, result);
+                }
+            }
+        }
+    }
+
+    private int hear(int index, int x, int y, int tail, List<EntityId> result) {
+        int tileStamp = tileStamps[index];
+        if (tileStamp == stamp + 1 || solidTiles[index]) {
+            return tail;
+        }
+
+        // Already seen tiles are spread through, but not added again
+        if (tileStamp != stamp) {
+            entityPositionLookup.getEntitiesInLocation(x, y, result);
+        }
+        tileStamps[index] = stamp + 1;
+        queue[tail] = index;
+
+        return tail + 1;
+    }
+
+    private void updateTile(int x, int y) {
+        IMapTileInformation tile = mapController.getMapData().getTile(x, y);
+        solidTiles[y * width + x] = mapController.getTerrain(tile).getFlags().contains(Terrain.TerrainFlag.SOLID);
+    }
+
+    @Override
+    public void start() {
+
+    }
+
+    @Override
+    public void stop() {
+        mapController.removeListener(mapListener);
+        sensingEntities.release();
+        sensedEntitiesByEntity.clear();
+    }
+
+    /**
+     * Keep the solid terrain up to date
+     */
+    private final class MapListenerImpl implements MapListener {
+
+        @Override
+        public void onTilesChange(List<Point> updatedTiles) {
+            for (Point p : updatedTiles) {
+                updateTile(p.x, p.y);
+            }
+        }
+
+        @Override
+        public void onTileFlash(List<Point> points, boolean enabled, short keeperId) {
+            // Not interested
+        }
+    }
+
+    /**
+     * The reused result lists of a single entity
+     */
+    private static final class SensedEntities {
+
+        private final List<EntityId> visible = new ArrayList<>();
+        private final List<EntityId> sensed = new ArrayList<>();
+        private final List<EntityId> visibleView = Collections.unmodifiableList(visible);
+        private final List<EntityId> sensedView = Collections.unmodifiableList(sensed);
+
+    }
+
+}
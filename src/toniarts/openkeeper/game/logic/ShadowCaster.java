@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+/**
+ * Recursive shadow casting over the tile grid, solid tiles block the line of
+ * sight. Visits every tile seen from the origin within the radius, the solid
+ * tiles that block the view included. A tile may be visited more than once.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class ShadowCaster {
+
+    /**
+     * Octant transformations for the shadow casting
+     */
+    private static final int[][] OCTANTS = {
+        {1, 0, 0, 1},
+        {0, 1, 1, 0},
+        {0, -1, 1, 0},
+        {-1, 0, 0, 1},
+        {-1, 0, 0, -1},
+        {0, -1, -1, 0},
+        {0, 1, -1, 0},
+        {1, 0, 0, -1}
+    };
+
+    /**
+     * Receives the tiles seen
+     */
+    @FunctionalInterface
+    interface TileVisitor {
+
+        void visit(int x, int y);
+    }
+
+    private final int width;
+    private final int height;
+    private final boolean[] solidTiles;
+
+    /**
+     * Creates a new shadow caster
+     *
+     * @param width the map width
+     * @param height the map height
+     * @param solidTiles the solid tiles by tile index, the caller keeps these
+     * up to date
+     */
+    public ShadowCaster(int width, int height, boolean[] solidTiles) {
+        this.width = width;
+        this.height = height;
+        this.solidTiles = solidTiles;
+    }
+
+    /**
+     * Casts the view around the origin. The origin itself is not visited.
+     *
+     * @param originX the origin tile x
+     * @param originY the origin tile y
+     * @param radius the vision radius in tiles
+     * @param visitor receives the tiles seen
+     */
+    public void cast(int originX, int originY, float radius, TileVisitor visitor) {
+        if (radius <= 0) {
+            return;
+        }
+        for (int[] octant : OCTANTS) {
+            castLight(originX, originY, 1, 1.0f, 0.0f, radius, octant[0], octant[1], octant[2], octant[3], visitor);
+        }
+    }
+
+    /**
+     * Recursive shadow casting of a single octant
+     *
+     * @param row the distance from the origin to start from
+     * @param startSlope the slope where the visible area starts
+     * @param endSlope the slope where the visible area ends
+     * @param radius the vision radius
+     * @param xx octant transformation
+     * @param xy octant transformation
+     * @param yx octant transformation
+     * @param yy octant transformation
+     * @param visitor receives the tiles seen
+     */
+    private void castLight(int originX, int originY, int row, float startSlope, float endSlope, float radius,
+            int xx, int xy, int yx, int yy, TileVisitor visitor) {
+        if (startSlope < endSlope) {
+            return;
+        }
+
+        int maxDistance = (int) radius;
+        float radiusSquared = radius * radius;
+        float newStartSlope = 0.0f;
+        for (int distance = row; distance <= maxDistance; distance++) {
+            boolean blocked = false;
+            int dy = -distance;
+            for (int dx = -distance; dx <= 0; dx++) {
+                float leftSlope = (dx - 0.5f) / (dy + 0.5f);
+                float rightSlope = (dx + 0.5f) / (dy - 0.5f);
+                if (startSlope < rightSlope) {
+                    continue;
+                }
+                if (endSlope > leftSlope) {
+                    break;
+                }
+
+                int x = originX + dx * xx + dy * xy;
+                int y = originY + dx * yx + dy * yy;
+                boolean inside = isInside(x, y);
+                if (inside && dx * dx + dy * dy <= radiusSquared) {
+                    visitor.visit(x, y);
+                }
+
+                boolean opaque = !inside || solidTiles[y * width + x];
+                if (blocked) {
+                    if (opaque) {
+                        newStartSlope = rightSlope;
+                    } else {
+                        blocked = false;
+                        startSlope = newStartSlope;
+                    }
+                } else if (opaque && distance < maxDistance) {
+
+                    // Start of a shadow, scan the part before it further away
+                    blocked = true;
+                    castLight(originX, originY, distance + 1, startSlope, leftSlope, radius, xx, xy, yx, yy, visitor);
+                    newStartSlope = rightSlope;
+                }
+            }
+            if (blocked) {
+                break;
+            }
+        }
+    }
+
+    private boolean isInside(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+}
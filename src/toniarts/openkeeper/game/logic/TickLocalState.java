@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.EntityId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Server side state that changes every tick but that nobody else needs to see
+ * every tick, like how long a creature has been doing its task. Writing these
+ * as components would send them to every client and entity set each tick. So
+ * they are kept here in a plain float array, one slot of timers per entity,
+ * and only published as components on meaningful transitions (if at all).<br>
+ * Not thread safe, meant to be used from the logic thread only. The slots are
+ * recycled, so remember to remove the entity when it is gone.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class TickLocalState {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int timerCount;
+    private final Map<EntityId, Integer> slots = new HashMap<>();
+    private float[] timers;
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeSlotCount = 0;
+    private int slotCount = 0;
+
+    /**
+     * Creates a new tick-local state
+     *
+     * @param timerCount how many timers each entity has, the timers are
+     * referenced by their index
+     */
+    public TickLocalState(int timerCount) {
+        if (timerCount <= 0) {
+            throw new IllegalArgumentException("Timer count must be positive, was " + timerCount + "!");
+        }
+        this.timerCount = timerCount;
+        this.timers = new float[INITIAL_CAPACITY * timerCount];
+    }
+
+    /**
+     * Get the timer value
+     *
+     * @param entityId the entity
+     * @param timer the timer index
+     * @return the timer value, zero if the entity has no timers
+     */
+    public float getTimer(EntityId entityId, int timer) {
+        Integer slot = slots.get(entityId);
+        if (slot == null) {
+            return 0;
+        }
+
+        return timers[getIndex(slot, timer)];
+    }
+
+    /**
+     * Set the timer value
+     *
+     * @param entityId the entity
+     * @param timer the timer index
+     * @param value the new value
+     */
+    public void setTimer(EntityId entityId, int timer, float value) {
+        timers[getIndex(getSlot(entityId), timer)] = value;
+    }
+
+    /**
+     * Advances the timer
+     *
+     * @param entityId the entity
+     * @param timer the timer index
+     * @param tpf the time to add
+     * @return the new timer value
+     */
+    public float advanceTimer(EntityId entityId, int timer, float tpf) {
+        int index = getIndex(getSlot(entityId), timer);
+        timers[index] += tpf;
+
+        return timers[index];
+    }
+
+    /**
+     * Removes all the timers of the entity
+     *
+     * @param entityId the entity
+     */
+    public void remove(EntityId entityId) {
+        Integer slot = slots.remove(entityId);
+        if (slot == null) {
+            return;
+        }
+
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    /**
+     * Get the number of entities having timers
+     *
+     * @return the entity count
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    private int getSlot(EntityId entityId) {
+        Integer slot = slots.get(entityId);
+        if (slot != null) {
+            return slot;
+        }
+
+        int newSlot;
+        if (freeSlotCount > 0) {
+            newSlot = freeSlots[--freeSlotCount];
+        } else {
+            newSlot = slotCount++;
+            if (slotCount * timerCount > timers.length) {
+                timers = Arrays.copyOf(timers, timers.length * 2);
+            }
+        }
+        Arrays.fill(timers, newSlot * timerCount, (newSlot + 1) * timerCount, 0f);
+        slots.put(entityId, newSlot);
+
+        return newSlot;
+    }
+
+    private int getIndex(int slot, int timer) {
+        if (timer < 0 || timer >= timerCount) {
+            throw new IllegalArgumentException("Timer index must be between 0 and " + (timerCount - 1) + ", was " + timer + "!");
+        }
+
+        return slot * timerCount + timer;
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import com.simsilica.es.EntityId;
+import java.util.Arrays;
+
+/**
+ * Compact index of entities by map tile. Each tile has an intrusive doubly
+ * linked list of entity slots, the slots are stored in flat primitive arrays
+ * and recycled. Entities are found by their primitive ID from an open
+ * addressing hash table. Nothing is allocated after the arrays have grown to
+ * the needed size.<br>
+ * Iterate the entities on a tile with {@link #first(int)} and
+ * {@link #next(int)}:
+ * <pre>
+ * for (int slot = index.first(tile); slot != TileEntityIndex.NONE; slot = index.next(slot)) {
+ *     EntityId entityId = index.getEntity(slot);
+ * }
+ * </pre> Not thread safe.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class TileEntityIndex {
+
+    static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int[] heads;
+    private final int[] counts;
+
+    // Entity slots
+    private EntityId[] entities;
+    private long[] ids;
+    private int[] tiles;
+    private int[] nextSlots;
+    private int[] previousSlots;
+    private int slotCount;
+    private int freeSlot = NONE;
+    private int size;
+
+    // ID -> slot + 1, zero marks an empty bucket
+    private int[] table;
+
+    TileEntityIndex(int tileCount) {
+        heads = new int[tileCount];
+        counts = new int[tileCount];
+        Arrays.fill(heads, NONE);
+        entities = new EntityId[INITIAL_CAPACITY];
+        ids = new long[INITIAL_CAPACITY];
+        tiles = new int[INITIAL_CAPACITY];
+        nextSlots = new int[INITIAL_CAPACITY];
+        previousSlots = new int[INITIAL_CAPACITY];
+        table = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * Put the entity on a tile, moves the entity if it is already indexed
+     *
+     * @param entityId the entity
+     * @param tile the tile index
+     */
+    void put(EntityId entityId, int tile) {
+        int slot = findSlot(entityId.getId());
+        if (slot != NONE) {
+            if (tiles[slot] != tile) {
+                unlink(slot);
+                link(slot, tile);
+            }
+            return;
+        }
+
+        slot = allocateSlot();
+        entities[slot] = entityId;
+        ids[slot] = entityId.getId();
+        link(slot, tile);
+        insert(slot);
+        size++;
+    }
+
+    /**
+     * Remove the entity from the index
+     *
+     * @param entityId the entity
+     * @return {@code true} if the entity was indexed
+     */
+    boolean remove(EntityId entityId) {
+        int bucket = findBucket(entityId.getId());
+        if (bucket == NONE) {
+            return false;
+        }
+
+        int slot = table[bucket] - 1;
+        delete(bucket);
+        unlink(slot);
+        entities[slot] = null;
+        nextSlots[slot] = freeSlot;
+        freeSlot = slot;
+        size--;
+
+        return true;
+    }
+
+    /**
+     * Get the tile of the entity
+     *
+     * @param entityId the entity
+     * @return the tile index, {@link #NONE} if the entity is not indexed
+     */
+    int getTile(EntityId entityId) {
+        int slot = findSlot(entityId.getId());
+        return slot != NONE ? tiles[slot] : NONE;
+    }
+
+    int getCount(int tile) {
+        return counts[tile];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the first entity slot of a tile
+     *
+     * @param tile the tile index
+     * @return the slot, {@link #NONE} if there are no entities on the tile
+     */
+    int first(int tile) {
+        return heads[tile];
+    }
+
+    /**
+     * Get the next entity slot on the same tile
+     *
+     * @param slot the current slot
+     * @return the next slot, {@link #NONE} if there are no more entities
+     */
+    int next(int slot) {
+        return nextSlots[slot];
+    }
+
+    EntityId getEntity(int slot) {
+        return entities[slot];
+    }
+
+    void clear() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(counts, 0);
+        Arrays.fill(entities, null);
+        Arrays.fill(table, 0);
+        slotCount = 0;
+        freeSlot = NONE;
+        size = 0;
+    }
+
+    private int allocateSlot() {
+        if (freeSlot != NONE) {
+            int slot = freeSlot;
+            freeSlot = nextSlots[slot];
+            return slot;
+        }
+
+        if (slotCount == entities.length) {
+            grow();
+        }
+        return slotCount++;
+    }
+
+    private void grow() {
+        int capacity = entities.length * 2;
+        entities = Arrays.copyOf(entities, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        tiles = Arrays.copyOf(tiles, capacity);
+        nextSlots = Arrays.copyOf(nextSlots, capacity);
+        previousSlots = Arrays.copyOf(previousSlots, capacity);
+
+        // Rehash, the table is kept at most half full
+        table = new int[capacity * 2];
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (entities[slot] != null) {
+                insert(slot);
+            }
+        }
+    }
+
+    private void link(int slot, int tile) {
+        int head = heads[tile];
+        tiles[slot] = tile;
+        previousSlots[slot] = NONE;
+        nextSlots[slot] = head;
+        if (head != NONE) {
+            previousSlots[head] = slot;
+        }
+        heads[tile] = slot;
+        counts[tile]++;
+    }
+
+    private void unlink(int slot) {
+        int tile = tiles[slot];
+        int previous = previousSlots[slot];
+        int next = nextSlots[slot];
+        if (previous != NONE) {
+            nextSlots[previous] = next;
+        } else {
+            heads[tile] = next;
+        }
+        if (next != NONE) {
+            previousSlots[next] = previous;
+        }
+        counts[tile]--;
+    }
+
+    private int findSlot(long id) {
+        int bucket = findBucket(id);
+        return bucket != NONE ? table[bucket] - 1 : NONE;
+    }
+
+    private int findBucket(long id) {
+        int mask = table.length - 1;
+        for (int bucket = hash(id) & mask; table[bucket] != 0; bucket = (bucket + 1) & mask) {
+            if (ids[table[bucket] - 1] == id) {
+                return bucket;
+            }
+        }
+
+        return NONE;
+    }
+
+    private void insert(int slot) {
+        int mask = table.length - 1;
+        int bucket = hash(ids[slot]) & mask;
+        while (table[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        table[bucket] = slot + 1;
+    }
+
+    /**
+     * Delete a bucket, shifting back the following entries of the probe
+     * sequence so that no tombstones are needed
+     */
+    private void delete(int bucket) {
+        int mask = table.length - 1;
+        int hole = bucket;
+        int current = (hole + 1) & mask;
+        while (table[current] != 0) {
+            int home = hash(ids[table[current] - 1]) & mask;
+
+            // Move the entry to the hole if the hole is between its home and the current position
+            if (((current - home) & mask) >= ((current - hole) & mask)) {
+                table[hole] = table[current];
+                hole = current;
+            }
+            current = (current + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
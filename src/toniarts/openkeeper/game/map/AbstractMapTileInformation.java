@@ -16,78 +16,65 @@
  */
 package toniarts.openkeeper.game.map;
 
-import com.simsilica.es.EntityComponent;
 import com.simsilica.es.EntityId;
 import toniarts.openkeeper.utils.Point;
-import java.util.Objects;
-import toniarts.openkeeper.game.component.Gold;
-import toniarts.openkeeper.game.component.Health;
-import toniarts.openkeeper.game.component.Mana;
-import toniarts.openkeeper.game.component.MapTile;
-import toniarts.openkeeper.game.component.Owner;
 import toniarts.openkeeper.tools.convert.map.Tile.BridgeTerrainType;
 
 /**
- * A presentation of a single map tile. Gets data from specified entity
+ * A presentation of a single map tile. Gets data from the map tile store
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public abstract class AbstractMapTileInformation implements IMapTileInformation {
 
-    protected final EntityId entityId;
+    protected final MapTileStore tileStore;
+    protected final int index;
+    private final Point location;
 
-    public AbstractMapTileInformation(EntityId entityId) {
-        this.entityId = entityId;
+    public AbstractMapTileInformation(MapTileStore tileStore, int index) {
+        this.tileStore = tileStore;
+        this.index = index;
+        this.location = new Point(index % tileStore.getWidth(), index / tileStore.getWidth());
     }
 
-    protected abstract <T extends EntityComponent> T getEntityComponent(Class<T> type);
-
     @Override
     public boolean isSelected(short playerId) {
-        MapTile mapTileComponent = getEntityComponent(MapTile.class);
-        if (mapTileComponent.selection != null) {
-            return mapTileComponent.selection.getOrDefault(playerId, false);
-        }
-        return false;
+        return tileStore.isSelected(index, playerId);
     }
 
     @Override
     public boolean isFlashed(short playerId) {
-        MapTile mapTileComponent = getEntityComponent(MapTile.class);
-        if (mapTileComponent.flashing != null) {
-            return mapTileComponent.flashing.getOrDefault(playerId, false);
-        }
-        return false;
+        return tileStore.isFlashed(index, playerId);
     }
 
     @Override
     public short getOwnerId() {
-        return getEntityComponent(Owner.class).ownerId;
+        return tileStore.getOwnerId(index);
     }
 
     @Override
     public short getTerrainId() {
-        return getEntityComponent(MapTile.class).terrainId;
+        return tileStore.getTerrainId(index);
     }
 
     @Override
     public BridgeTerrainType getBridgeTerrainType() {
-        return getEntityComponent(MapTile.class).bridgeTerrainType;
+        return tileStore.getBridgeTerrainType(index);
     }
 
     @Override
     public int getRandomTextureIndex() {
-        return getEntityComponent(MapTile.class).randomTextureIndex;
+        return tileStore.getRandomTextureIndex(index);
     }
 
     @Override
     public int getX() {
-        return getLocation().x;
+        return location.x;
     }
 
     @Override
     public int getY() {
-        return getLocation().y;
+        return location.y;
     }
 
     /**
@@ -97,38 +84,37 @@ public abstract class AbstractMapTileInformation implements IMapTileInformation
      */
     @Override
     public Point getLocation() {
-        return getEntityComponent(MapTile.class).p;
+        return location;
     }
 
     @Override
     public int getIndex() {
-        return getEntityComponent(MapTile.class).index;
+        return index;
     }
 
     @Override
     public int getHealth() {
-        return getEntityComponent(Health.class).health;
+        return tileStore.getHealth(index);
     }
 
     @Override
     public int getGold() {
-        return getEntityComponent(Gold.class).gold;
+        return tileStore.getGold(index);
     }
 
     @Override
     public int getMaxHealth() {
-        return getEntityComponent(Health.class).maxHealth;
+        return tileStore.getMaxHealth(index);
     }
 
     @Override
     public Integer getHealthPercent() {
-        Health health = getEntityComponent(Health.class);
-        return Math.round((float) health.health / health.maxHealth * 100);
+        return Math.round((float) tileStore.getHealth(index) / tileStore.getMaxHealth(index) * 100);
     }
 
     @Override
     public int getManaGain() {
-        return getEntityComponent(Mana.class).manaGeneration;
+        return tileStore.getManaGain(index);
     }
 
     /**
@@ -138,24 +124,18 @@ public abstract class AbstractMapTileInformation implements IMapTileInformation
      */
     @Override
     public boolean isAtFullHealth() {
-        Health health = getEntityComponent(Health.class);
-        return (health.health == health.maxHealth);
-    }
-
-    @Override
-    public EntityId getEntityId() {
-        return entityId;
+        return (tileStore.getHealth(index) == tileStore.getMaxHealth(index));
     }
 
     @Override
     public EntityId getRoomId() {
-        return getEntityComponent(MapTile.class).room;
+        return tileStore.getRoomId(index);
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 41 * hash + Objects.hashCode(this.entityId);
+        hash = 41 * hash + this.index;
         return hash;
     }
 
@@ -171,7 +151,7 @@ public abstract class AbstractMapTileInformation implements IMapTileInformation
             return false;
         }
         final AbstractMapTileInformation other = (AbstractMapTileInformation) obj;
-        if (!Objects.equals(this.entityId, other.entityId)) {
+        if (this.index != other.index || this.tileStore != other.tileStore) {
             return false;
         }
         return true;
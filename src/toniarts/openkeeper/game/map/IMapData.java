@@ -23,4 +23,11 @@ package toniarts.openkeeper.game.map;
  */
 public interface IMapData extends IMapDataInformation<IMapTileController> {
 
+    /**
+     * Get the store holding the actual tile states
+     *
+     * @return the tile store
+     */
+    MapTileStore getTileStore();
+
 }
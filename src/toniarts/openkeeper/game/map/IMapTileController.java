@@ -17,7 +17,6 @@
 package toniarts.openkeeper.game.map;
 
 import com.simsilica.es.EntityId;
-import toniarts.openkeeper.utils.Point;
 import toniarts.openkeeper.tools.convert.map.Tile;
 
 /**
@@ -40,13 +39,11 @@ public interface IMapTileController extends IMapTileInformation {
      */
     void setHealth(int health);
 
-    void setIndex(int index);
-
     void setMaxHealth(int maxHealth);
 
-    void setOwnerId(short ownerId);
+    void setManaGain(int manaGain);
 
-    void setPoint(Point p);
+    void setOwnerId(short ownerId);
 
     void setRandomTextureIndex(int randomTextureIndex);
 
@@ -27,13 +27,6 @@ import toniarts.openkeeper.tools.convert.map.Tile;
  */
 public interface IMapTileInformation {
 
-    /**
-     * Get the entity ID of this map tile
-     *
-     * @return
-     */
-    EntityId getEntityId();
-
     Tile.BridgeTerrainType getBridgeTerrainType();
 
     int getGold();
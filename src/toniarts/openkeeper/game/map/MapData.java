@@ -16,15 +16,10 @@
  */
 package toniarts.openkeeper.game.map;
 
-import com.simsilica.es.EntityData;
-import com.simsilica.es.EntityId;
-import toniarts.openkeeper.utils.Point;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import toniarts.openkeeper.game.component.MapTile;
-import toniarts.openkeeper.game.component.Owner;
 import toniarts.openkeeper.game.data.Keeper;
 import static toniarts.openkeeper.game.map.MapTileController.setAttributesFromTerrain;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
@@ -41,51 +36,51 @@ public final class MapData implements IMapData {
 
     private final int width;
     private final int height;
+    private final MapTileStore tileStore;
     private final IMapTileController[][] tiles;
 
-    public MapData(KwdFile kwdFile, EntityData entityData, Collection<Keeper> players) {
+    public MapData(KwdFile kwdFile, Collection<Keeper> players) {
         width = kwdFile.getMap().getWidth();
         height = kwdFile.getMap().getHeight();
 
         // Duplicate the map
+        this.tileStore = new MapTileStore(width, height);
         this.tiles = new IMapTileController[width][height];
         Map<Short, Keeper> playersById = players.stream().collect(Collectors.toMap(Keeper::getId, keeper -> keeper));
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
                 Tile tile = kwdFile.getMap().getTile(x, y);
-                tiles[x][y] = createMapTile(entityData, tile, kwdFile, x, y, y * width + x, playersById);
+                tiles[x][y] = createMapTile(tileStore, tile, kwdFile, y * width + x, playersById);
             }
         }
+
+        // The clients get the initial state as a snapshot
+        tileStore.clearChanges();
     }
 
-    private static MapTileController createMapTile(EntityData entityData, Tile tile, KwdFile kwdFile, int x, int y, int index,
+    private static MapTileController createMapTile(MapTileStore tileStore, Tile tile, KwdFile kwdFile, int index,
             Map<Short, Keeper> playersById) {
-        EntityId entityId = entityData.createEntity();
-
-        // Create ALL components for the map tile, even things like Gold when it has none, helps to parse the map tile as whole in client
-        // The actual map tile
-        MapTile mapTileComponent = new MapTile();
-        mapTileComponent.p = new Point(x, y);
-        mapTileComponent.index = index;
-        mapTileComponent.bridgeTerrainType = tile.getFlag();
+        MapTileController mapTile = new MapTileController(tileStore, index);
+        mapTile.setBridgeTerrainType(tile.getFlag());
 
-        mapTileComponent.terrainId = setupTerrainOwner(kwdFile, tile, entityData, entityId, playersById);
+        short terrainId = setupTerrainOwner(kwdFile, tile, mapTile, playersById);
+        mapTile.setTerrainId(terrainId);
 
         // The water/lava under the bridge is set only when there is an actual bridge, but we might as well set it here, it doesn't change
-        Terrain terrain = kwdFile.getTerrain(mapTileComponent.terrainId);
+        Terrain terrain = kwdFile.getTerrain(terrainId);
         if (terrain.getFlags().contains(Terrain.TerrainFlag.LAVA)) {
-            mapTileComponent.bridgeTerrainType = Tile.BridgeTerrainType.LAVA;
+            mapTile.setBridgeTerrainType(Tile.BridgeTerrainType.LAVA);
         } else if (terrain.getFlags().contains(Terrain.TerrainFlag.WATER)) {
-            mapTileComponent.bridgeTerrainType = Tile.BridgeTerrainType.WATER;
+            mapTile.setBridgeTerrainType(Tile.BridgeTerrainType.WATER);
         }
 
         // Set attributes
-        setAttributesFromTerrain(entityData, entityId, mapTileComponent, terrain);
+        setAttributesFromTerrain(mapTile, terrain);
 
-        return new MapTileController(entityId, entityData);
+        return mapTile;
     }
 
-    private static short setupTerrainOwner(KwdFile kwdFile, Tile tile, EntityData entityData, EntityId entityId,
+    private static short setupTerrainOwner(KwdFile kwdFile, Tile tile, IMapTileController mapTile,
             Map<Short, Keeper> playersById) {
         short terrainId = tile.getTerrainId();
         short ownerId = tile.getPlayerId();
@@ -106,8 +101,7 @@ public final class MapData implements IMapData {
         }
 
         // Owner
-        Owner owner = new Owner(ownerId, ownerId);
-        entityData.setComponent(entityId, owner);
+        mapTile.setOwnerId(ownerId);
 
         return terrainId;
     }
@@ -144,4 +138,9 @@ public final class MapData implements IMapData {
         }
     }
 
+    @Override
+    public MapTileStore getTileStore() {
+        return tileStore;
+    }
+
 }
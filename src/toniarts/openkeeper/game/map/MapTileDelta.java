@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.map;
+
+/**
+ * Changed map tile states, as runs of consecutive tile indices. The tile
+ * values are in the order of the runs.
+ *
+ * @see MapTileStore
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class MapTileDelta {
+
+    private final int[] runs;
+    private final long[] states;
+    private final int[] health;
+    private final int[] maxHealth;
+    private final int[] gold;
+    private final int[] manaGain;
+    private final long[] rooms;
+
+    /**
+     * Create a new delta
+     *
+     * @param runs start index and length pairs of the changed tiles
+     * @param states the packed tile states
+     * @param health the tile health
+     * @param maxHealth the tile max health
+     * @param gold the tile gold
+     * @param manaGain the tile mana gain
+     * @param rooms the room entity IDs
+     */
+    public MapTileDelta(int[] runs, long[] states, int[] health, int[] maxHealth, int[] gold, int[] manaGain, long[] rooms) {
+        this.runs = runs;
+        this.states = states;
+        this.health = health;
+        this.maxHealth = maxHealth;
+        this.gold = gold;
+        this.manaGain = manaGain;
+        this.rooms = rooms;
+    }
+
+    public int[] getRuns() {
+        return runs;
+    }
+
+    public int getTileCount() {
+        return states.length;
+    }
+
+    public long[] getStates() {
+        return states;
+    }
+
+    public int[] getHealth() {
+        return health;
+    }
+
+    public int[] getMaxHealth() {
+        return maxHealth;
+    }
+
+    public int[] getGold() {
+        return gold;
+    }
+
+    public int[] getManaGain() {
+        return manaGain;
+    }
+
+    public long[] getRooms() {
+        return rooms;
+    }
+
+}
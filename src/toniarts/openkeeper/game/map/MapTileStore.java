@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.map;
+
+import com.simsilica.es.EntityId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import toniarts.openkeeper.tools.convert.map.Tile.BridgeTerrainType;
+
+/**
+ * Holds the state of all the map tiles in flat primitive arrays, indexed by
+ * the tile index. The discrete attributes of a tile are packed to a single
+ * long:
+ * <pre>
+ * bits  0-15 terrain ID
+ * bits 16-23 owner ID
+ * bits 24-25 bridge terrain type, 0 for none
+ * bits 26-33 random texture index
+ * bits 34-41 selection, one bit per player ID
+ * bits 42-49 flashing, one bit per player ID
+ * </pre> Health, gold and mana are kept in their own arrays since their
+ * ranges come straight from the KWD.<br>
+ * Changed tiles are marked dirty and collected to {@link MapTileDelta}s, the
+ * clients apply the deltas to their own copy of the store.<br>
+ * The writes and the deltas are synchronized. Reading is not, the values are
+ * single primitives so the readers on other threads may just see them a bit
+ * late.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class MapTileStore {
+
+    /**
+     * Maximum amount of tiles in a single delta, keeps the deltas well within
+     * the network message size
+     */
+    public static final int MAX_DELTA_TILES = 512;
+
+    /**
+     * The room ID of a tile that doesn't belong to a room, in the deltas
+     */
+    static final long NO_ROOM = -1;
+
+    private static final int TERRAIN_SHIFT = 0;
+    private static final int TERRAIN_BITS = 16;
+    private static final int OWNER_SHIFT = 16;
+    private static final int OWNER_BITS = 8;
+    private static final int BRIDGE_SHIFT = 24;
+    private static final int BRIDGE_BITS = 2;
+    private static final int TEXTURE_SHIFT = 26;
+    private static final int TEXTURE_BITS = 8;
+    private static final int SELECTION_SHIFT = 34;
+    private static final int FLASHING_SHIFT = 42;
+    private static final int PLAYER_BITS = 8;
+
+    private static final BridgeTerrainType[] BRIDGE_TERRAIN_TYPES = BridgeTerrainType.values();
+
+    private final int width;
+    private final int height;
+    private final long[] states;
+    private final int[] health;
+    private final int[] maxHealth;
+    private final int[] gold;
+    private final int[] manaGain;
+    private final EntityId[] rooms;
+    private final BitSet dirtyTiles;
+
+    public MapTileStore(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        int size = width * height;
+        states = new long[size];
+        health = new int[size];
+        maxHealth = new int[size];
+        gold = new int[size];
+        manaGain = new int[size];
+        rooms = new EntityId[size];
+        dirtyTiles = new BitSet(size);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSize() {
+        return states.length;
+    }
+
+    public short getTerrainId(int index) {
+        return (short) getBits(index, TERRAIN_SHIFT, TERRAIN_BITS);
+    }
+
+    public void setTerrainId(int index, short terrainId) {
+        setBits(index, TERRAIN_SHIFT, TERRAIN_BITS, terrainId);
+    }
+
+    public short getOwnerId(int index) {
+        return (short) getBits(index, OWNER_SHIFT, OWNER_BITS);
+    }
+
+    public void setOwnerId(int index, short ownerId) {
+        setBits(index, OWNER_SHIFT, OWNER_BITS, ownerId);
+    }
+
+    public BridgeTerrainType getBridgeTerrainType(int index) {
+        int bridgeTerrainType = (int) getBits(index, BRIDGE_SHIFT, BRIDGE_BITS);
+        return bridgeTerrainType != 0 ? BRIDGE_TERRAIN_TYPES[bridgeTerrainType - 1] : null;
+    }
+
+    public void setBridgeTerrainType(int index, BridgeTerrainType bridgeTerrainType) {
+        setBits(index, BRIDGE_SHIFT, BRIDGE_BITS, bridgeTerrainType != null ? bridgeTerrainType.ordinal() + 1 : 0);
+    }
+
+    public int getRandomTextureIndex(int index) {
+        return (int) getBits(index, TEXTURE_SHIFT, TEXTURE_BITS);
+    }
+
+    public void setRandomTextureIndex(int index, int randomTextureIndex) {
+        setBits(index, TEXTURE_SHIFT, TEXTURE_BITS, randomTextureIndex);
+    }
+
+    public boolean isSelected(int index, short playerId) {
+        return getBits(index, SELECTION_SHIFT + getPlayerBit(playerId), 1) != 0;
+    }
+
+    public void setSelected(int index, boolean selected, short playerId) {
+        setBits(index, SELECTION_SHIFT + getPlayerBit(playerId), 1, selected ? 1 : 0);
+    }
+
+    public boolean isFlashed(int index, short playerId) {
+        return getBits(index, FLASHING_SHIFT + getPlayerBit(playerId), 1) != 0;
+    }
+
+    public void setFlashed(int index, boolean flashed, short playerId) {
+        setBits(index, FLASHING_SHIFT + getPlayerBit(playerId), 1, flashed ? 1 : 0);
+    }
+
+    public int getHealth(int index) {
+        return health[index];
+    }
+
+    public void setHealth(int index, int health) {
+        setValue(this.health, index, health);
+    }
+
+    public int getMaxHealth(int index) {
+        return maxHealth[index];
+    }
+
+    public void setMaxHealth(int index, int maxHealth) {
+        setValue(this.maxHealth, index, maxHealth);
+    }
+
+    public int getGold(int index) {
+        return gold[index];
+    }
+
+    public void setGold(int index, int gold) {
+        setValue(this.gold, index, gold);
+    }
+
+    public int getManaGain(int index) {
+        return manaGain[index];
+    }
+
+    public void setManaGain(int index, int manaGain) {
+        setValue(this.manaGain, index, manaGain);
+    }
+
+    public EntityId getRoomId(int index) {
+        return rooms[index];
+    }
+
+    public synchronized void setRoomId(int index, EntityId roomId) {
+        if (!Objects.equals(rooms[index], roomId)) {
+            rooms[index] = roomId;
+            dirtyTiles.set(index);
+        }
+    }
+
+    /**
+     * Forget the changes made so far, i.e. the initial state is sent as a
+     * snapshot anyway
+     */
+    public synchronized void clearChanges() {
+        dirtyTiles.clear();
+    }
+
+    /**
+     * Collect the tiles changed since the last call
+     *
+     * @return the changes, empty if nothing has changed
+     */
+    public synchronized List<MapTileDelta> pollChanges() {
+        if (dirtyTiles.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<MapTileDelta> deltas = createDeltas(dirtyTiles);
+        dirtyTiles.clear();
+
+        return deltas;
+    }
+
+    /**
+     * Collect the tiles changed since the last call, for sending them
+     * selectively with {@link #createDeltas(BitSet)}
+     *
+     * @return the changed tile indices
+     */
+    public synchronized BitSet pollChangedTiles() {
+        BitSet changedTiles = (BitSet) dirtyTiles.clone();
+        dirtyTiles.clear();
+
+        return changedTiles;
+    }
+
+    /**
+     * Create deltas of the whole map, the pending changes are left intact
+     *
+     * @return all the tiles
+     */
+    public synchronized List<MapTileDelta> createSnapshot() {
+        BitSet allTiles = new BitSet(states.length);
+        allTiles.set(0, states.length);
+
+        return createDeltas(allTiles);
+    }
+
+    /**
+     * Apply tile changes, typically received from the server. The applied
+     * changes are not recorded as changes of this store.
+     *
+     * @param delta the changes
+     */
+    public synchronized void applyDelta(MapTileDelta delta) {
+        int[] runs = delta.getRuns();
+        int tile = 0;
+        for (int i = 0; i < runs.length; i += 2) {
+            int start = runs[i];
+            int length = runs[i + 1];
+            System.arraycopy(delta.getStates(), tile, states, start, length);
+            System.arraycopy(delta.getHealth(), tile, health, start, length);
+            System.arraycopy(delta.getMaxHealth(), tile, maxHealth, start, length);
+            System.arraycopy(delta.getGold(), tile, gold, start, length);
+            System.arraycopy(delta.getManaGain(), tile, manaGain, start, length);
+            for (int j = 0; j < length; j++) {
+                long roomId = delta.getRooms()[tile + j];
+                EntityId room = rooms[start + j];
+                if (roomId == NO_ROOM) {
+                    rooms[start + j] = null;
+                } else if (room == null || room.getId() != roomId) {
+                    rooms[start + j] = new EntityId(roomId);
+                }
+            }
+            tile += length;
+        }
+    }
+
+    /**
+     * Create deltas of the current state of the given tiles
+     *
+     * @param tiles the tile indices
+     * @return the tiles, empty if no tiles were given
+     */
+    public synchronized List<MapTileDelta> createDeltas(BitSet tiles) {
+        List<MapTileDelta> deltas = new ArrayList<>(1);
+        int[] runs = new int[16];
+        int runsLength = 0;
+        int tileCount = 0;
+        int start = tiles.nextSetBit(0);
+        while (start >= 0) {
+            int end = tiles.nextClearBit(start);
+            int length = Math.min(end - start, MAX_DELTA_TILES - tileCount);
+            if (runsLength == runs.length) {
+                runs = Arrays.copyOf(runs, runs.length * 2);
+            }
+            runs[runsLength++] = start;
+            runs[runsLength++] = length;
+            tileCount += length;
+
+            // Full, split the rest of the run to the next delta
+            if (tileCount == MAX_DELTA_TILES) {
+                deltas.add(createDelta(Arrays.copyOf(runs, runsLength), tileCount));
+                runsLength = 0;
+                tileCount = 0;
+            }
+            start = start + length < end ? start + length : tiles.nextSetBit(end);
+        }
+        if (tileCount > 0) {
+            deltas.add(createDelta(Arrays.copyOf(runs, runsLength), tileCount));
+        }
+
+        return deltas;
+    }
+
+    private MapTileDelta createDelta(int[] runs, int tileCount) {
+        long[] deltaStates = new long[tileCount];
+        int[] deltaHealth = new int[tileCount];
+        int[] deltaMaxHealth = new int[tileCount];
+        int[] deltaGold = new int[tileCount];
+        int[] deltaManaGain = new int[tileCount];
+        long[] deltaRooms = new long[tileCount];
+        int tile = 0;
+        for (int i = 0; i < runs.length; i += 2) {
+            int start = runs[i];
+            int length = runs[i + 1];
+            System.arraycopy(states, start, deltaStates, tile, length);
+            System.arraycopy(health, start, deltaHealth, tile, length);
+            System.arraycopy(maxHealth, start, deltaMaxHealth, tile, length);
+            System.arraycopy(gold, start, deltaGold, tile, length);
+            System.arraycopy(manaGain, start, deltaManaGain, tile, length);
+            for (int j = 0; j < length; j++) {
+                EntityId room = rooms[start + j];
+                deltaRooms[tile + j] = room != null ? room.getId() : NO_ROOM;
+            }
+            tile += length;
+        }
+
+        return new MapTileDelta(runs, deltaStates, deltaHealth, deltaMaxHealth, deltaGold, deltaManaGain, deltaRooms);
+    }
+
+    private long getBits(int index, int shift, int bits) {
+        return (states[index] >>> shift) & ((1L << bits) - 1);
+    }
+
+    private synchronized void setBits(int index, int shift, int bits, long value) {
+        long mask = ((1L << bits) - 1) << shift;
+        long state = (states[index] & ~mask) | ((value << shift) & mask);
+        if (state != states[index]) {
+            states[index] = state;
+            dirtyTiles.set(index);
+        }
+    }
+
+    private synchronized void setValue(int[] values, int index, int value) {
+        if (values[index] != value) {
+            values[index] = value;
+            dirtyTiles.set(index);
+        }
+    }
+
+    private static int getPlayerBit(short playerId) {
+        if (playerId < 0 || playerId >= PLAYER_BITS) {
+            throw new IllegalArgumentException("Player ID " + playerId + " doesn't fit the tile state!");
+        }
+
+        return playerId;
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.map;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * What a single player sees of the map, the fog of war. On the server every
+ * tile counts the sights covering it, a tile is visible as long as someone
+ * sees it. The tiles that became visible or hidden are collected so that only
+ * the changes need to be sent. The clients just apply the changes with
+ * {@link #setVisible(int[], boolean)}.<br>
+ * Not thread safe.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class VisibilityGrid {
+
+    private final int width;
+    private final int height;
+    private final int[] sightCounts;
+    private final BitSet visibleTiles;
+    private final BitSet revealedTiles;
+    private final BitSet hiddenTiles;
+    private boolean revealAll = false;
+
+    public VisibilityGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        int size = width * height;
+        sightCounts = new int[size];
+        visibleTiles = new BitSet(size);
+        revealedTiles = new BitSet(size);
+        hiddenTiles = new BitSet(size);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Add a sight to a tile
+     *
+     * @param index the tile index
+     */
+    public void addSight(int index) {
+        if (sightCounts[index]++ == 0 && !revealAll) {
+            reveal(index);
+        }
+    }
+
+    /**
+     * Remove a sight added with {@link #addSight(int)}
+     *
+     * @param index the tile index
+     */
+    public void removeSight(int index) {
+        if (--sightCounts[index] == 0 && !revealAll) {
+            hide(index);
+        }
+    }
+
+    public boolean isVisible(int index) {
+        return visibleTiles.get(index);
+    }
+
+    public boolean isVisible(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+
+        return visibleTiles.get(y * width + x);
+    }
+
+    /**
+     * Get the visible tiles, do not modify
+     *
+     * @return the visible tile indices
+     */
+    public BitSet getVisibleTiles() {
+        return visibleTiles;
+    }
+
+    /**
+     * Reveal the whole map regardless of the sights, or go back to the sights
+     *
+     * @param revealAll whether all the tiles are visible
+     */
+    public void setRevealAll(boolean revealAll) {
+        if (this.revealAll == revealAll) {
+            return;
+        }
+
+        this.revealAll = revealAll;
+        for (int i = 0; i < sightCounts.length; i++) {
+            if (revealAll || sightCounts[i] > 0) {
+                reveal(i);
+            } else {
+                hide(i);
+            }
+        }
+    }
+
+    public boolean isRevealAll() {
+        return revealAll;
+    }
+
+    /**
+     * Apply visibility changes, typically received from the server
+     *
+     * @param runs start index and length pairs of the changed tiles
+     * @param visible whether the tiles became visible or hidden
+     */
+    public void setVisible(int[] runs, boolean visible) {
+        for (int i = 0; i < runs.length; i += 2) {
+            visibleTiles.set(runs[i], runs[i] + runs[i + 1], visible);
+        }
+    }
+
+    /**
+     * Collect the tiles revealed since the last call
+     *
+     * @return start index and length pairs of the revealed tiles
+     */
+    public int[] pollRevealed() {
+        return poll(revealedTiles);
+    }
+
+    /**
+     * Collect the tiles hidden since the last call
+     *
+     * @return start index and length pairs of the hidden tiles
+     */
+    public int[] pollHidden() {
+        return poll(hiddenTiles);
+    }
+
+    private void reveal(int index) {
+        if (!visibleTiles.get(index)) {
+            visibleTiles.set(index);
+            if (hiddenTiles.get(index)) {
+                hiddenTiles.clear(index);
+            } else {
+                revealedTiles.set(index);
+            }
+        }
+    }
+
+    private void hide(int index) {
+        if (visibleTiles.get(index)) {
+            visibleTiles.clear(index);
+            if (revealedTiles.get(index)) {
+                revealedTiles.clear(index);
+            } else {
+                hiddenTiles.set(index);
+            }
+        }
+    }
+
+    private static int[] poll(BitSet tiles) {
+        int[] runs = new int[8];
+        int length = 0;
+        int start = tiles.nextSetBit(0);
+        while (start >= 0) {
+            int end = tiles.nextClearBit(start);
+            if (length == runs.length) {
+                runs = Arrays.copyOf(runs, runs.length * 2);
+            }
+            runs[length++] = start;
+            runs[length++] = end - start;
+            start = tiles.nextSetBit(end);
+        }
+        tiles.clear();
+
+        return Arrays.copyOf(runs, length);
+    }
+
+}
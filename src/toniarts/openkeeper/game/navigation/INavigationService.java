@@ -59,6 +59,18 @@ public interface INavigationService {
      */
     GraphPath<IMapTileInformation> findPath(Point start, Point end, INavigable navigable);
 
+    /**
+     * Quick check whether there can be a path between the given points at all.
+     * Doesn't run the path finding, so a positive answer doesn't guarantee a
+     * path, but a negative one means there certainly is none
+     *
+     * @param start start point
+     * @param end end point
+     * @param navigable the entity to test with
+     * @return false if the end point is unreachable
+     */
+    boolean isReachable(Point start, Point end, INavigable navigable);
+
     /**
      * Check if given tile is accessible by the given creature
      *
@@ -69,4 +81,19 @@ public interface INavigationService {
      */
     boolean isAccessible(IMapTileInformation from, IMapTileInformation to, INavigable navigable);
 
+    /**
+     * Get the number of paths found from the path cache
+     *
+     * @return path cache hits
+     */
+    long getPathCacheHits();
+
+    /**
+     * Get the number of paths that had to be searched, as they were not in
+     * the path cache
+     *
+     * @return path cache misses
+     */
+    long getPathCacheMisses();
+
 }
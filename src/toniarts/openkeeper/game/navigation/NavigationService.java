@@ -18,21 +18,33 @@ package toniarts.openkeeper.game.navigation;
 
 import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
 import com.badlogic.gdx.ai.pfa.GraphPath;
+import toniarts.openkeeper.game.controller.IGameWorldController;
 import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.controller.room.IRoomController;
+import toniarts.openkeeper.game.listener.MapListener;
+import toniarts.openkeeper.game.listener.ObstacleListener;
+import toniarts.openkeeper.game.listener.PlayerActionListener;
 import toniarts.openkeeper.game.logic.IEntityPositionLookup;
 import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.game.navigation.pathfinding.HierarchicalPathFinder;
 import toniarts.openkeeper.game.navigation.pathfinding.INavigable;
 import toniarts.openkeeper.game.navigation.pathfinding.MapDistance;
 import toniarts.openkeeper.game.navigation.pathfinding.MapIndexedGraph;
 import toniarts.openkeeper.game.navigation.pathfinding.MapPathFinder;
+import toniarts.openkeeper.game.navigation.pathfinding.PathCache;
+import toniarts.openkeeper.game.navigation.pathfinding.TileCostGrid;
+import toniarts.openkeeper.game.navigation.pathfinding.TilePathFinder;
+import toniarts.openkeeper.game.navigation.pathfinding.TileRegions;
+import toniarts.openkeeper.tools.convert.map.Creature;
 import toniarts.openkeeper.utils.Point;
 import toniarts.openkeeper.utils.Utils;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -44,22 +56,80 @@ public final class NavigationService implements INavigationService {
     
     private static final Logger logger = System.getLogger(NavigationService.class.getName());
 
+    private static final int PATH_CACHE_SIZE = 1024;
+
     private final IMapController mapController;
     private final IEntityPositionLookup entityPositionLookup;
     private final MapIndexedGraph pathFindingMap;
     private final MapPathFinder pathFinder;
     private final MapDistance heuristic;
+    private final TileCostGrid costGrid;
+    private final TilePathFinder tilePathFinder;
+    private final HierarchicalPathFinder hierarchicalPathFinder;
+    private final TileRegions regions;
+    private final PathCache pathCache;
+    private final boolean useGdxPathFinder;
+
+    public NavigationService(IGameWorldController gameWorldController, IEntityPositionLookup entityPositionLookup) {
+        this(gameWorldController, entityPositionLookup, false);
+    }
 
-    public NavigationService(IMapController mapController, IEntityPositionLookup entityPositionLookup) {
-        this.mapController = mapController;
+    /**
+     * Creates the navigation service
+     *
+     * @param gameWorldController the game world controller
+     * @param entityPositionLookup the entity lookup
+     * @param useGdxPathFinder use the gdx-ai path finder instead of the tile
+     * based one, mainly for comparison and debugging
+     */
+    public NavigationService(IGameWorldController gameWorldController, IEntityPositionLookup entityPositionLookup, boolean useGdxPathFinder) {
+        this.mapController = gameWorldController.getMapController();
         this.entityPositionLookup = entityPositionLookup;
+        this.useGdxPathFinder = useGdxPathFinder;
 
         pathFindingMap = new MapIndexedGraph(mapController, entityPositionLookup);
         pathFinder = new MapPathFinder(pathFindingMap, false);
         heuristic = new MapDistance();
+
+        costGrid = new TileCostGrid(mapController);
+        tilePathFinder = new TilePathFinder(mapController, entityPositionLookup, costGrid);
+        hierarchicalPathFinder = new HierarchicalPathFinder(mapController, tilePathFinder, costGrid);
+        regions = new TileRegions(costGrid, entityPositionLookup);
+        pathCache = new PathCache(PATH_CACHE_SIZE, costGrid.getWidth(), costGrid.getHeight());
+
+        // Keep the terrain costs and the cached paths up to date
+        mapController.addListener(new MapListenerImpl());
+        gameWorldController.addListener(new PlayerActionListenerImpl());
+        entityPositionLookup.addListener(new ObstacleListenerImpl());
     }
 
 
+    /**
+     * Build the path finding graphs for the creatures up front, so that the
+     * first paths searched during the game don't need to. Best done when
+     * loading the level, the graphs of other navigables are still built on
+     * demand
+     *
+     * @param creatures the creature types
+     * @param ownerIds the players the creatures may belong to
+     */
+    public void buildPathFindingGraphs(Collection<Creature> creatures, Collection<Short> ownerIds) {
+        Set<Integer> navigableClasses = new HashSet<>();
+        for (Creature creature : creatures) {
+
+            // Same as the creature controllers, creatures always move diagonally
+            navigableClasses.add(TileCostGrid.getNavigableClass(creature.getFlags().contains(Creature.CreatureFlag.CAN_FLY),
+                    creature.getFlags().contains(Creature.CreatureFlag.CAN_WALK_ON_LAVA),
+                    creature.getFlags().contains(Creature.CreatureFlag.CAN_WALK_ON_WATER), true));
+        }
+
+        for (int navigableClass : navigableClasses) {
+            for (short ownerId : ownerIds) {
+                hierarchicalPathFinder.buildGraph(navigableClass, ownerId);
+            }
+        }
+    }
+
     @Override
     public Point findRandomAccessibleTile(Point start, int radius, INavigable navigable) {
         return findRandomAccessibleTile(start, radius, navigable, null);
@@ -111,7 +181,8 @@ public final class NavigationService implements INavigationService {
     }
 
     /**
-     * Note that this is not thread safe!!
+     * Note that this is not thread safe!! The returned paths are cached and
+     * shared, do not modify them.
      *
      * @param start
      * @param end
@@ -120,14 +191,89 @@ public final class NavigationService implements INavigationService {
      */
     @Override
     public GraphPath<IMapTileInformation> findPath(Point start, Point end, INavigable navigable) {
-        pathFindingMap.setPathFindable(navigable);
         GraphPath<IMapTileInformation> outPath = new DefaultGraphPath<>();
         IMapTileInformation startTile = mapController.getMapData().getTile(start.x, start.y);
         IMapTileInformation endTile = mapController.getMapData().getTile(end.x, end.y);
-        if (startTile != null && endTile != null && pathFinder.searchNodePath(startTile, endTile, heuristic, outPath)) {
+        if (startTile == null || endTile == null) {
+            return null;
+        }
+
+        int startIndex = getIndex(startTile);
+        int endIndex = getIndex(endTile);
+        int navigableClass = TileCostGrid.getNavigableClass(navigable);
+        short ownerId = navigable.getOwnerId();
+
+        // The custom movement rules are only known by the navigable itself, so the graph search asking it is needed
+        boolean customCost = navigable.hasCustomCost();
+        if (!customCost) {
+
+            // Don't bother searching if there is no way to get there, the regions don't know about digging and such
+            if (!regions.isReachable(startIndex, endIndex, navigableClass)) {
+                return null;
+            }
+
+            GraphPath<IMapTileInformation> cachedPath = pathCache.get(startIndex, endIndex, navigableClass, ownerId);
+            if (cachedPath != null) {
+                return cachedPath;
+            }
+        }
+
+        boolean found;
+        if (useGdxPathFinder || customCost) {
+            pathFindingMap.setPathFindable(navigable);
+            found = pathFinder.searchNodePath(startTile, endTile, heuristic, outPath);
+        } else {
+            found = hierarchicalPathFinder.searchNodePath(startTile, endTile, navigable, outPath);
+        }
+        if (!found) {
+            return null;
+        }
+        if (customCost) {
             return outPath;
         }
-        return null;
+
+        // The costs need to be tracked for the cache invalidation to work
+        pathCache.put(startIndex, endIndex, navigableClass, ownerId, outPath, costGrid.getCosts(navigableClass));
+
+        return outPath;
+    }
+
+    @Override
+    public boolean isReachable(Point start, Point end, INavigable navigable) {
+        IMapTileInformation startTile = mapController.getMapData().getTile(start.x, start.y);
+        IMapTileInformation endTile = mapController.getMapData().getTile(end.x, end.y);
+        if (startTile == null || endTile == null) {
+            return false;
+        }
+
+        // The regions only follow the terrain costs
+        if (navigable.hasCustomCost()) {
+            return findPath(start, end, navigable) != null;
+        }
+
+        return regions.isReachable(getIndex(startTile), getIndex(endTile), TileCostGrid.getNavigableClass(navigable));
+    }
+
+    private int getIndex(IMapTileInformation tile) {
+        return tile.getY() * costGrid.getWidth() + tile.getX();
+    }
+
+    @Override
+    public long getPathCacheHits() {
+        return pathCache.getHits();
+    }
+
+    @Override
+    public long getPathCacheMisses() {
+        return pathCache.getMisses();
+    }
+
+    private void updateTiles(List<Point> updatedTiles) {
+        costGrid.updateTiles(updatedTiles, (costClass, index, opened) -> {
+            pathCache.onTileCostChange(costClass, index, opened);
+            hierarchicalPathFinder.onTileCostChange(costClass, index, opened);
+            regions.onTileCostChange(costClass, index, opened);
+        });
     }
 
     @Override
@@ -136,4 +282,50 @@ public final class NavigationService implements INavigationService {
         return cost != null;
     }
 
+    /**
+     * Listen for the map changes
+     */
+    private final class MapListenerImpl implements MapListener {
+
+        @Override
+        public void onTilesChange(List<Point> updatedTiles) {
+            updateTiles(updatedTiles);
+        }
+
+        @Override
+        public void onTileFlash(List<Point> points, boolean enabled, short keeperId) {
+            // Not interested
+        }
+    }
+
+    /**
+     * Rooms are built and sold without the map tile notifications
+     */
+    private final class PlayerActionListenerImpl implements PlayerActionListener {
+
+        @Override
+        public void onBuild(short keeperId, List<Point> tiles) {
+            updateTiles(tiles);
+        }
+
+        @Override
+        public void onSold(short keeperId, List<Point> tiles) {
+            updateTiles(tiles);
+        }
+    }
+
+    /**
+     * Listen for the doors
+     */
+    private final class ObstacleListenerImpl implements ObstacleListener {
+
+        @Override
+        public void onObstacleChange(Point p) {
+            int index = p.y * costGrid.getWidth() + p.x;
+            pathCache.onObstacleChange(index, (ownerId) -> entityPositionLookup.isTileBlocked(p, ownerId));
+            hierarchicalPathFinder.onObstacleChange(index);
+            regions.onObstacleChange(index);
+        }
+    }
+
 }
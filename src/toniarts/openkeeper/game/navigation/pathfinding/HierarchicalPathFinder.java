@@ -0,0 +1,526 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+
+import static toniarts.openkeeper.game.navigation.pathfinding.TileCostGrid.BLOCKED;
+
+/**
+ * Hierarchical path finder (HPA*). The map is divided into square clusters,
+ * the same size as the map view pages. Entrances are placed on the cluster
+ * borders and the distances between the entrances inside a cluster are
+ * precalculated. Long paths are then searched from this small abstract graph
+ * and built from the cached cluster paths, so the work doesn't grow with the
+ * map size.<br>
+ * The abstract graphs are created per navigable class and owner. Building a
+ * whole graph is heavy, so the known graphs should be built up front with
+ * {@link #buildGraph(int, short)} when the level is loaded. After that only
+ * the clusters touched by terrain or obstacle changes are rebuilt, lazily
+ * when the graph is next searched. Short paths are searched straight with
+ * the {@link TilePathFinder}.<br>
+ * Not thread safe.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class HierarchicalPathFinder {
+
+    /**
+     * Cluster size, same as the map view page size
+     */
+    public static final int CLUSTER_SIZE = 8;
+    /**
+     * Border openings longer than this get an entrance on both ends, shorter
+     * ones just one in the middle
+     */
+    private static final int MAX_SINGLE_ENTRANCE_LENGTH = 6;
+
+    private final IMapController mapController;
+    private final TilePathFinder tilePathFinder;
+    private final int width;
+    private final int height;
+    private final int clustersX;
+    private final int clustersY;
+    private final Map<Integer, ClusterGraph> graphs = new HashMap<>();
+
+    public HierarchicalPathFinder(IMapController mapController, TilePathFinder tilePathFinder, TileCostGrid costGrid) {
+        this.mapController = mapController;
+        this.tilePathFinder = tilePathFinder;
+        this.width = costGrid.getWidth();
+        this.height = costGrid.getHeight();
+        this.clustersX = (width + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clustersY = (height + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+    }
+
+    /**
+     * Search for a path between the tiles
+     *
+     * @param startTile the start tile
+     * @param endTile the end tile
+     * @param navigable the entity to find the path for
+     * @param outPath the path is appended here, including the start and the
+     * end tiles
+     * @return {@code true} if path was found
+     */
+    public boolean searchNodePath(IMapTileInformation startTile, IMapTileInformation endTile, INavigable navigable, GraphPath<IMapTileInformation> outPath) {
+        int start = startTile.getY() * width + startTile.getX();
+        int end = endTile.getY() * width + endTile.getX();
+        int startCluster = getCluster(start);
+        int endCluster = getCluster(end);
+
+        // For short distances the abstraction just gets in the way
+        if (Math.abs(startCluster % clustersX - endCluster % clustersX) <= 1
+                && Math.abs(startCluster / clustersX - endCluster / clustersX) <= 1) {
+            return tilePathFinder.searchNodePath(startTile, endTile, navigable, outPath);
+        }
+
+        ClusterGraph graph = getGraph(TileCostGrid.getNavigableClass(navigable), navigable.getOwnerId());
+        int[] path = graph.search(start, end, startCluster, endCluster);
+        if (path == null) {
+
+            // The abstraction is not perfect, rooms and such may hide some routes, do a proper search
+            return tilePathFinder.searchNodePath(startTile, endTile, navigable, outPath);
+        }
+
+        for (int tile : path) {
+            outPath.add(mapController.getMapData().getTile(tile % width, tile / width));
+        }
+        return true;
+    }
+
+    /**
+     * Build the abstract graph for the navigable class and owner, if it is not
+     * built already
+     *
+     * @param navigableClass the navigable class
+     * @param ownerId the owner of the navigables
+     */
+    public void buildGraph(int navigableClass, short ownerId) {
+        getGraph(navigableClass, ownerId);
+    }
+
+    private ClusterGraph getGraph(int navigableClass, short ownerId) {
+        ClusterGraph graph = graphs.computeIfAbsent(getGraphKey(navigableClass, ownerId), (key) -> new ClusterGraph(navigableClass, ownerId));
+        graph.update();
+
+        return graph;
+    }
+
+    /**
+     * Terrain cost of a tile has changed, the cluster needs to be rebuilt
+     *
+     * @param costClass the affected cost class
+     * @param index the tile index
+     * @param opened whether the tile is now accessible
+     * @see TileCostGrid.TileCostListener
+     */
+    public void onTileCostChange(int costClass, int index, boolean opened) {
+        int cluster = getCluster(index);
+        for (ClusterGraph graph : graphs.values()) {
+            if (TileCostGrid.getCostClass(graph.navigableClass) == costClass) {
+                graph.setDirty(cluster);
+            }
+        }
+    }
+
+    /**
+     * Obstacles of a tile have changed, the cluster needs to be rebuilt for
+     * everybody
+     *
+     * @param index the tile index
+     */
+    public void onObstacleChange(int index) {
+        int cluster = getCluster(index);
+        for (ClusterGraph graph : graphs.values()) {
+            graph.setDirty(cluster);
+        }
+    }
+
+    private int getCluster(int index) {
+        return (index / width / CLUSTER_SIZE) * clustersX + (index % width / CLUSTER_SIZE);
+    }
+
+    private static int getGraphKey(int navigableClass, short ownerId) {
+        return (navigableClass << 16) | (ownerId & 0xFFFF);
+    }
+
+    /**
+     * The abstract graph for a navigable class and owner
+     */
+    private final class ClusterGraph {
+
+        private final int navigableClass;
+        private final short ownerId;
+        private final boolean canMoveDiagonally;
+        private final List<Node>[] nodesByCluster;
+        private final boolean[] dirtyClusters;
+        private boolean dirty = true;
+
+        @SuppressWarnings("unchecked")
+        public ClusterGraph(int navigableClass, short ownerId) {
+            this.navigableClass = navigableClass;
+            this.ownerId = ownerId;
+            this.canMoveDiagonally = (navigableClass & TileCostGrid.CAN_MOVE_DIAGONALLY) != 0;
+
+            int clusterCount = clustersX * clustersY;
+            nodesByCluster = new List[clusterCount];
+            for (int i = 0; i < clusterCount; i++) {
+                nodesByCluster[i] = new ArrayList<>();
+            }
+            dirtyClusters = new boolean[clusterCount];
+            Arrays.fill(dirtyClusters, true);
+        }
+
+        public void setDirty(int cluster) {
+            dirtyClusters[cluster] = true;
+            dirty = true;
+        }
+
+        /**
+         * Rebuild the dirty clusters. The borders of the dirty clusters are
+         * recreated, and so the paths inside the neighbouring clusters need
+         * to be recalculated as well.
+         */
+        public void update() {
+            if (!dirty) {
+                return;
+            }
+
+            boolean[] affectedClusters = new boolean[dirtyClusters.length];
+            for (int cluster = 0; cluster < dirtyClusters.length; cluster++) {
+                if (!dirtyClusters[cluster]) {
+                    continue;
+                }
+
+                affectedClusters[cluster] = true;
+
+                // If the west or north neighbour is dirty, it has already done the shared border
+                int x = cluster % clustersX;
+                int y = cluster / clustersX;
+                if (x > 0 && !dirtyClusters[cluster - 1]) {
+                    rebuildBorder(cluster - 1, cluster, affectedClusters);
+                }
+                if (x < clustersX - 1) {
+                    rebuildBorder(cluster, cluster + 1, affectedClusters);
+                }
+                if (y > 0 && !dirtyClusters[cluster - clustersX]) {
+                    rebuildBorder(cluster - clustersX, cluster, affectedClusters);
+                }
+                if (y < clustersY - 1) {
+                    rebuildBorder(cluster, cluster + clustersX, affectedClusters);
+                }
+            }
+
+            for (int cluster = 0; cluster < affectedClusters.length; cluster++) {
+                if (affectedClusters[cluster]) {
+                    rebuildPaths(cluster);
+                }
+            }
+
+            Arrays.fill(dirtyClusters, false);
+            dirty = false;
+        }
+
+        /**
+         * Recreate the entrances between two clusters
+         *
+         * @param first the west or north cluster
+         * @param second the east or south cluster
+         * @param affectedClusters the clusters whose paths need updating
+         */
+        private void rebuildBorder(int first, int second, boolean[] affectedClusters) {
+            removeBorder(first, second);
+            removeBorder(second, first);
+            affectedClusters[first] = true;
+            affectedClusters[second] = true;
+
+            boolean vertical = second == first + 1;
+            int minX = (first % clustersX) * CLUSTER_SIZE;
+            int minY = (first / clustersX) * CLUSTER_SIZE;
+            int length;
+            int firstTile;
+            int step;
+            int offset;
+            if (vertical) {
+                length = Math.min(CLUSTER_SIZE, height - minY);
+                firstTile = minY * width + minX + CLUSTER_SIZE - 1;
+                step = width;
+                offset = 1;
+            } else {
+                length = Math.min(CLUSTER_SIZE, width - minX);
+                firstTile = (minY + CLUSTER_SIZE - 1) * width + minX;
+                step = 1;
+                offset = width;
+            }
+
+            // Find the continuous openings
+            int openingStart = -1;
+            for (int i = 0; i <= length; i++) {
+                boolean open = i < length && isOpen(firstTile + i * step, firstTile + i * step + offset);
+                if (open && openingStart < 0) {
+                    openingStart = i;
+                } else if (!open && openingStart >= 0) {
+                    int openingEnd = i - 1;
+                    if (openingEnd - openingStart + 1 > MAX_SINGLE_ENTRANCE_LENGTH) {
+                        addEntrance(first, second, firstTile + openingStart * step, offset);
+                        addEntrance(first, second, firstTile + openingEnd * step, offset);
+                    } else {
+                        addEntrance(first, second, firstTile + ((openingStart + openingEnd) / 2) * step, offset);
+                    }
+                    openingStart = -1;
+                }
+            }
+        }
+
+        private void removeBorder(int cluster, int neighbour) {
+            Iterator<Node> iter = nodesByCluster[cluster].iterator();
+            while (iter.hasNext()) {
+                if (iter.next().partner.cluster == neighbour) {
+                    iter.remove();
+                }
+            }
+        }
+
+        private boolean isOpen(int firstTile, int secondTile) {
+            return tilePathFinder.getMoveCost(firstTile, secondTile, navigableClass, ownerId) != BLOCKED
+                    || tilePathFinder.getMoveCost(secondTile, firstTile, navigableClass, ownerId) != BLOCKED;
+        }
+
+        private void addEntrance(int first, int second, int firstTile, int offset) {
+            Node firstNode = new Node(firstTile, first);
+            Node secondNode = new Node(firstTile + offset, second);
+            firstNode.partner = secondNode;
+            firstNode.partnerCost = tilePathFinder.getMoveCost(firstNode.tile, secondNode.tile, navigableClass, ownerId);
+            secondNode.partner = firstNode;
+            secondNode.partnerCost = tilePathFinder.getMoveCost(secondNode.tile, firstNode.tile, navigableClass, ownerId);
+            nodesByCluster[first].add(firstNode);
+            nodesByCluster[second].add(secondNode);
+        }
+
+        /**
+         * Calculate the paths between all the entrances inside a cluster
+         *
+         * @param cluster the cluster
+         */
+        private void rebuildPaths(int cluster) {
+            List<Node> nodes = nodesByCluster[cluster];
+            for (Node node : nodes) {
+                node.edges.clear();
+                for (Node target : nodes) {
+                    if (node == target) {
+                        continue;
+                    }
+                    if (node.tile == target.tile) {
+                        node.edges.add(new Edge(target, 0, new int[]{node.tile}));
+                        continue;
+                    }
+
+                    int[] path = searchInsideCluster(node.tile, target.tile, cluster);
+                    if (path != null) {
+                        node.edges.add(new Edge(target, tilePathFinder.getPathCost(), path));
+                    }
+                }
+            }
+        }
+
+        private int[] searchInsideCluster(int start, int end, int cluster) {
+            int minX = (cluster % clustersX) * CLUSTER_SIZE;
+            int minY = (cluster / clustersX) * CLUSTER_SIZE;
+            int maxX = Math.min(minX + CLUSTER_SIZE, width) - 1;
+            int maxY = Math.min(minY + CLUSTER_SIZE, height) - 1;
+
+            return tilePathFinder.searchTilePath(start, end, navigableClass, ownerId, minX, minY, maxX, maxY);
+        }
+
+        /**
+         * Search the path from the abstract graph
+         *
+         * @return the tile indices of the whole path, {@code null} if not
+         * found
+         */
+        public int[] search(int start, int end, int startCluster, int endCluster) {
+
+            // Connect the end to the graph
+            Map<Node, Edge> endEdges = new IdentityHashMap<>();
+            for (Node node : nodesByCluster[endCluster]) {
+                int[] path = searchInsideCluster(node.tile, end, endCluster);
+                if (path != null) {
+                    endEdges.put(node, new Edge(null, tilePathFinder.getPathCost(), path));
+                }
+            }
+            if (endEdges.isEmpty()) {
+                return null;
+            }
+
+            // Connect the start to the graph, and start the search
+            int endX = end % width;
+            int endY = end / width;
+            Map<Node, SearchRecord> records = new IdentityHashMap<>();
+            PriorityQueue<SearchRecord> openList = new PriorityQueue<>();
+            for (Node node : nodesByCluster[startCluster]) {
+                int[] path = searchInsideCluster(start, node.tile, startCluster);
+                if (path != null) {
+                    SearchRecord record = new SearchRecord(node, null, path, tilePathFinder.getPathCost(), estimate(node.tile, endX, endY));
+                    SearchRecord existing = records.get(node);
+                    if (existing == null || record.cost < existing.cost) {
+                        records.put(node, record);
+                        openList.add(record);
+                    }
+                }
+            }
+
+            SearchRecord goal = null;
+            while (!openList.isEmpty()) {
+                SearchRecord current = openList.poll();
+                if (current.node == null) {
+                    goal = current;
+                    break;
+                }
+                if (current.closed || records.get(current.node) != current) {
+                    continue; // Outdated
+                }
+                current.closed = true;
+
+                // To the end
+                Edge endEdge = endEdges.get(current.node);
+                if (endEdge != null) {
+                    openList.add(new SearchRecord(null, current, endEdge.path, current.cost + endEdge.cost, 0));
+                }
+
+                // Over the border
+                Node partner = current.node.partner;
+                if (current.node.partnerCost != BLOCKED) {
+                    relax(records, openList, partner, current, new int[]{current.node.tile, partner.tile}, current.cost + current.node.partnerCost, endX, endY);
+                }
+
+                // Inside the cluster
+                for (Edge edge : current.node.edges) {
+                    relax(records, openList, edge.to, current, edge.path, current.cost + edge.cost, endX, endY);
+                }
+            }
+
+            if (goal == null) {
+                return null;
+            }
+
+            // Stitch the path together, the segments share their end and start tiles
+            List<int[]> segments = new ArrayList<>();
+            int length = 1;
+            for (SearchRecord record = goal; record != null; record = record.parent) {
+                segments.add(record.path);
+                length += record.path.length - 1;
+            }
+            int[] path = new int[length];
+            int index = 0;
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                int[] segment = segments.get(i);
+                int from = index == 0 ? 0 : 1;
+                System.arraycopy(segment, from, path, index, segment.length - from);
+                index += segment.length - from;
+            }
+
+            return path;
+        }
+
+        private float estimate(int tile, int endX, int endY) {
+            return TilePathFinder.estimate(tile % width, tile / width, endX, endY, canMoveDiagonally);
+        }
+
+        private void relax(Map<Node, SearchRecord> records, PriorityQueue<SearchRecord> openList, Node node,
+                SearchRecord parent, int[] path, float cost, int endX, int endY) {
+            SearchRecord existing = records.get(node);
+            if (existing != null && existing.cost <= cost) {
+                return;
+            }
+
+            SearchRecord record = new SearchRecord(node, parent, path, cost, estimate(node.tile, endX, endY));
+            records.put(node, record);
+            openList.add(record);
+        }
+
+    }
+
+    /**
+     * An entrance tile on a cluster border
+     */
+    private static final class Node {
+
+        private final int tile;
+        private final int cluster;
+        private final List<Edge> edges = new ArrayList<>();
+        private Node partner;
+        private float partnerCost;
+
+        public Node(int tile, int cluster) {
+            this.tile = tile;
+            this.cluster = cluster;
+        }
+
+    }
+
+    /**
+     * Precalculated path between entrances
+     */
+    private static final class Edge {
+
+        private final Node to;
+        private final float cost;
+        private final int[] path;
+
+        public Edge(Node to, float cost, int[] path) {
+            this.to = to;
+            this.cost = cost;
+            this.path = path;
+        }
+
+    }
+
+    private static final class SearchRecord implements Comparable<SearchRecord> {
+
+        private final Node node;
+        private final SearchRecord parent;
+        private final int[] path;
+        private final float cost;
+        private final float estimatedTotalCost;
+        private boolean closed = false;
+
+        public SearchRecord(Node node, SearchRecord parent, int[] path, float cost, float estimate) {
+            this.node = node;
+            this.parent = parent;
+            this.path = path;
+            this.cost = cost;
+            this.estimatedTotalCost = cost + estimate;
+        }
+
+        @Override
+        public int compareTo(SearchRecord o) {
+            return Float.compare(estimatedTotalCost, o.estimatedTotalCost);
+        }
+
+    }
+
+}
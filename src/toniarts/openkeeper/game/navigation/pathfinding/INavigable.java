@@ -53,6 +53,18 @@ public interface INavigable {
         return MapIndexedGraph.getCost(this, from, to, mapController, entityPositionLookup);
     }
 
+    /**
+     * Does the entity have movement rules of its own in
+     * {@link #getCost(IMapTileInformation, IMapTileInformation, IMapController, IEntityPositionLookup)},
+     * like digging or smashing through obstacles. The precalculated terrain
+     * costs can't be used for such entities.
+     *
+     * @return {@code true} if the cost is overridden
+     */
+    default public boolean hasCustomCost() {
+        return false;
+    }
+
     /**
      * The owner of the entity, useful for checking can we pass the doors etc.
      *
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation.pathfinding;
+
+/**
+ * Binary min heap of node indices, prioritized by a float value. The heap is
+ * allocated once for the given node count and reused between the searches. A
+ * node can be in the heap only once.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class NodeHeap {
+
+    private final int[] heap;
+    private final int[] positions;
+    private final float[] priorities;
+    private int size;
+
+    NodeHeap(int nodeCount) {
+        heap = new int[nodeCount];
+        positions = new int[nodeCount];
+        priorities = new float[nodeCount];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(int node, float priority) {
+        priorities[node] = priority;
+        heap[size] = node;
+        positions[node] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Lower the priority of a node already in the heap
+     *
+     * @param node the node
+     * @param priority the new priority, must be lower than the current one
+     */
+    void decreasePriority(int node, float priority) {
+        priorities[node] = priority;
+        siftUp(positions[node]);
+    }
+
+    /**
+     * Remove the node with the lowest priority
+     *
+     * @return the node index
+     */
+    int poll() {
+        int node = heap[0];
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+
+        return node;
+    }
+
+    private void siftUp(int index) {
+        int node = heap[index];
+        float priority = priorities[node];
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            int parent = heap[parentIndex];
+            if (priority >= priorities[parent]) {
+                break;
+            }
+            heap[index] = parent;
+            positions[parent] = index;
+            index = parentIndex;
+        }
+        heap[index] = node;
+        positions[node] = index;
+    }
+
+    private void siftDown(int index) {
+        int node = heap[index];
+        float priority = priorities[node];
+        int half = size >>> 1;
+        while (index < half) {
+            int childIndex = (index << 1) + 1;
+            int child = heap[childIndex];
+            int rightIndex = childIndex + 1;
+            if (rightIndex < size && priorities[heap[rightIndex]] < priorities[child]) {
+                childIndex = rightIndex;
+                child = heap[childIndex];
+            }
+            if (priority <= priorities[child]) {
+                break;
+            }
+            heap[index] = child;
+            positions[child] = index;
+            index = childIndex;
+        }
+        heap[index] = node;
+        positions[node] = index;
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+
+import static toniarts.openkeeper.game.navigation.pathfinding.INavigable.DEFAULT_COST;
+import static toniarts.openkeeper.game.navigation.pathfinding.TileCostGrid.BLOCKED;
+import static toniarts.openkeeper.game.navigation.pathfinding.TileCostGrid.ROOM;
+
+/**
+ * Bounded LRU cache of found paths. The paths are keyed by the start and end
+ * tiles, the navigable class and the owner (for the doors). The cached paths
+ * are indexed by the tiles they go through, so that only the paths crossing a
+ * changed tile are dropped. A tile that opens up can only offer a shortcut to
+ * the paths whose cost exceeds the shortest possible detour through the tile,
+ * the rest are kept.<br>
+ * The cached paths are shared, they must not be modified.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class PathCache {
+
+    private final int capacity;
+    private final int width;
+    private final Map<Long, CachedPath> paths;
+    private final Set<CachedPath>[] pathsByTile;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a new path cache
+     *
+     * @param capacity maximum number of paths to hold
+     * @param width the map width, for calculating the tile indices
+     * @param height the map height
+     */
+    @SuppressWarnings("unchecked")
+    public PathCache(int capacity, int width, int height) {
+        this.capacity = capacity;
+        this.width = width;
+        this.pathsByTile = new Set[width * height];
+        this.paths = new LinkedHashMap<>(capacity, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedPath> eldest) {
+                if (size() > PathCache.this.capacity) {
+                    unindex(eldest.getValue());
+                    return true;
+                }
+
+                return false;
+            }
+
+        };
+    }
+
+    /**
+     * Get a cached path
+     *
+     * @param start the start tile index
+     * @param end the end tile index
+     * @param navigableClass the navigable class
+     * @param ownerId the owner of the navigable
+     * @return the cached path or {@code null} if not found
+     */
+    public GraphPath<IMapTileInformation> get(int start, int end, int navigableClass, short ownerId) {
+        CachedPath cachedPath = paths.get(getKey(start, end, navigableClass, ownerId));
+        if (cachedPath == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return cachedPath.path;
+    }
+
+    /**
+     * Add a path to the cache
+     *
+     * @param start the start tile index
+     * @param end the end tile index
+     * @param navigableClass the navigable class
+     * @param ownerId the owner of the navigable
+     * @param path the path found
+     * @param costs the terrain costs of the navigable class, for the path
+     * cost
+     * @see TileCostGrid#getCosts(int)
+     */
+    public void put(int start, int end, int navigableClass, short ownerId, GraphPath<IMapTileInformation> path, float[] costs) {
+        int[] tiles = new int[path.getCount()];
+        float cost = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            IMapTileInformation tile = path.get(i);
+            tiles[i] = tile.getY() * width + tile.getX();
+            if (i > 0) {
+                float tileCost = costs[tiles[i]];
+                cost += tileCost == ROOM || tileCost == BLOCKED ? DEFAULT_COST : tileCost;
+            }
+        }
+
+        CachedPath cachedPath = new CachedPath(path, tiles, start, end, cost, navigableClass, ownerId);
+        CachedPath previous = paths.put(getKey(start, end, navigableClass, ownerId), cachedPath);
+        if (previous != null) {
+            unindex(previous);
+        }
+        for (int tile : tiles) {
+            Set<CachedPath> tilePaths = pathsByTile[tile];
+            if (tilePaths == null) {
+                tilePaths = new HashSet<>();
+                pathsByTile[tile] = tilePaths;
+            }
+            tilePaths.add(cachedPath);
+        }
+    }
+
+    /**
+     * Terrain cost of a tile has changed
+     *
+     * @param costClass the affected cost class
+     * @param index the tile index
+     * @param opened whether the tile is now accessible, might create shorter
+     * routes
+     * @see TileCostGrid.TileCostListener
+     */
+    public void onTileCostChange(int costClass, int index, boolean opened) {
+
+        // The paths going through have a different cost now, or are blocked
+        Set<CachedPath> tilePaths = pathsByTile[index];
+        if (tilePaths != null) {
+            for (CachedPath cachedPath : new ArrayList<>(tilePaths)) {
+                if (TileCostGrid.getCostClass(cachedPath.navigableClass) == costClass) {
+                    remove(cachedPath);
+                }
+            }
+        }
+
+        if (opened) {
+            removeShortcutPaths(index, (cachedPath) -> TileCostGrid.getCostClass(cachedPath.navigableClass) == costClass);
+        }
+    }
+
+    /**
+     * Obstacles of a tile have changed
+     *
+     * @param index the tile index
+     * @param blocked tells whether the tile is now blocked for the given owner
+     */
+    public void onObstacleChange(int index, ObstacleTest blocked) {
+
+        // The paths going through might be blocked now
+        Set<CachedPath> tilePaths = pathsByTile[index];
+        if (tilePaths != null) {
+            for (CachedPath cachedPath : new ArrayList<>(tilePaths)) {
+                remove(cachedPath);
+            }
+        }
+
+        // The tile might now offer a shortcut
+        removeShortcutPaths(index, (cachedPath) -> !blocked.isBlocked(cachedPath.ownerId));
+    }
+
+    /**
+     * Drop the paths that might get shorter through the given tile
+     *
+     * @param index the tile index
+     * @param affected tells which paths the tile may now be open to
+     */
+    private void removeShortcutPaths(int index, Predicate<CachedPath> affected) {
+        int x = index % width;
+        int y = index / width;
+        List<CachedPath> removed = null;
+        for (CachedPath cachedPath : paths.values()) {
+            if (affected.test(cachedPath) && cachedPath.getDetourCost(x, y, width) < cachedPath.cost) {
+                if (removed == null) {
+                    removed = new ArrayList<>();
+                }
+                removed.add(cachedPath);
+            }
+        }
+
+        if (removed != null) {
+            for (CachedPath cachedPath : removed) {
+                remove(cachedPath);
+            }
+        }
+    }
+
+    private void remove(CachedPath cachedPath) {
+        paths.remove(getKey(cachedPath.start, cachedPath.end, cachedPath.navigableClass, cachedPath.ownerId));
+        unindex(cachedPath);
+    }
+
+    private void unindex(CachedPath cachedPath) {
+        for (int tile : cachedPath.tiles) {
+            Set<CachedPath> tilePaths = pathsByTile[tile];
+            if (tilePaths != null && tilePaths.remove(cachedPath) && tilePaths.isEmpty()) {
+                pathsByTile[tile] = null;
+            }
+        }
+    }
+
+    public void clear() {
+        paths.clear();
+        Arrays.fill(pathsByTile, null);
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int getSize() {
+        return paths.size();
+    }
+
+    private static long getKey(int start, int end, int navigableClass, short ownerId) {
+        return ((long) start << 40) | ((long) end << 16) | ((long) navigableClass << 8) | (ownerId & 0xFF);
+    }
+
+    @Override
+    public String toString() {
+        long total = hits + misses;
+        return "PathCache{" + "size=" + paths.size() + ", hits=" + hits + ", misses=" + misses
+                + ", hitRate=" + (total > 0 ? (hits * 100 / total) : 0) + "%}";
+    }
+
+    /**
+     * Tests whether a tile is blocked for the given owner
+     */
+    @FunctionalInterface
+    public interface ObstacleTest {
+
+        boolean isBlocked(short ownerId);
+
+    }
+
+    private static final class CachedPath {
+
+        private final GraphPath<IMapTileInformation> path;
+        private final int[] tiles;
+        private final int start;
+        private final int end;
+        private final float cost;
+        private final int navigableClass;
+        private final short ownerId;
+
+        public CachedPath(GraphPath<IMapTileInformation> path, int[] tiles, int start, int end, float cost, int navigableClass, short ownerId) {
+            this.path = path;
+            this.tiles = tiles;
+            this.start = start;
+            this.end = end;
+            this.cost = cost;
+            this.navigableClass = navigableClass;
+            this.ownerId = ownerId;
+        }
+
+        /**
+         * The least a path from the start to the end through the given tile
+         * can cost
+         */
+        public float getDetourCost(int x, int y, int width) {
+            boolean canMoveDiagonally = (navigableClass & TileCostGrid.CAN_MOVE_DIAGONALLY) != 0;
+
+            return TilePathFinder.estimate(start % width, start / width, x, y, canMoveDiagonally)
+                    + TilePathFinder.estimate(x, y, end % width, end / width, canMoveDiagonally);
+        }
+
+    }
+
+}
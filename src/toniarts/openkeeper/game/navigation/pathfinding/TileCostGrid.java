@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation.pathfinding;
+
+import java.util.Collection;
+import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.tools.convert.map.Terrain;
+import toniarts.openkeeper.utils.Point;
+
+import static toniarts.openkeeper.game.navigation.pathfinding.INavigable.DEFAULT_COST;
+import static toniarts.openkeeper.game.navigation.pathfinding.INavigable.WATER_COST;
+
+/**
+ * Precalculated terrain costs of the map tiles, a flat grid per navigable
+ * class. Only the terrain part of the cost is stored here, the doors and room
+ * obstacles can change at any time and are checked during the search.<br>
+ * Grids are created lazily, the first time a navigable class needs them.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class TileCostGrid {
+
+    /**
+     * The tile can't be entered
+     */
+    public static final float BLOCKED = 0f;
+    /**
+     * A room tile, the accessibility is decided by the room itself
+     */
+    public static final float ROOM = -1f;
+
+    public static final int CAN_FLY = 1;
+    public static final int CAN_WALK_ON_LAVA = 1 << 1;
+    public static final int CAN_WALK_ON_WATER = 1 << 2;
+    public static final int CAN_MOVE_DIAGONALLY = 1 << 3;
+    /**
+     * Number of different terrain cost classes, diagonal movement doesn't
+     * affect the cost so it is left out
+     */
+    static final int COST_CLASS_COUNT = 8;
+
+    private final IMapController mapController;
+    private final int width;
+    private final int height;
+    private final float[][] costsByClass = new float[COST_CLASS_COUNT][];
+
+    public TileCostGrid(IMapController mapController) {
+        this.mapController = mapController;
+        this.width = mapController.getMapData().getWidth();
+        this.height = mapController.getMapData().getHeight();
+    }
+
+    /**
+     * Get the movement capabilities of the navigable as a bit mask
+     *
+     * @param navigable the navigable
+     * @return the movement capabilities
+     * @see #CAN_FLY
+     * @see #CAN_WALK_ON_LAVA
+     * @see #CAN_WALK_ON_WATER
+     * @see #CAN_MOVE_DIAGONALLY
+     */
+    public static int getNavigableClass(INavigable navigable) {
+        return getNavigableClass(navigable.canFly(), navigable.canWalkOnLava(), navigable.canWalkOnWater(), navigable.canMoveDiagonally());
+    }
+
+    /**
+     * Get the movement capabilities as a bit mask
+     *
+     * @param canFly can fly
+     * @param canWalkOnLava can walk on lava
+     * @param canWalkOnWater can walk on water
+     * @param canMoveDiagonally can move diagonally
+     * @return the movement capabilities
+     */
+    public static int getNavigableClass(boolean canFly, boolean canWalkOnLava, boolean canWalkOnWater, boolean canMoveDiagonally) {
+        int navigableClass = 0;
+        if (canFly) {
+            navigableClass |= CAN_FLY;
+        }
+        if (canWalkOnLava) {
+            navigableClass |= CAN_WALK_ON_LAVA;
+        }
+        if (canWalkOnWater) {
+            navigableClass |= CAN_WALK_ON_WATER;
+        }
+        if (canMoveDiagonally) {
+            navigableClass |= CAN_MOVE_DIAGONALLY;
+        }
+
+        return navigableClass;
+    }
+
+    /**
+     * Get the terrain costs for the navigable, indexed by the map tile index
+     *
+     * @param navigable the navigable
+     * @return the terrain costs, {@link #BLOCKED} or {@link #ROOM} for special
+     * tiles
+     */
+    public float[] getCosts(INavigable navigable) {
+        return getCosts(getNavigableClass(navigable));
+    }
+
+    /**
+     * Get the terrain costs for the navigable class, indexed by the map tile
+     * index
+     *
+     * @param navigableClass the navigable class
+     * @return the terrain costs, {@link #BLOCKED} or {@link #ROOM} for special
+     * tiles
+     * @see #getNavigableClass(toniarts.openkeeper.game.navigation.pathfinding.INavigable)
+     */
+    public float[] getCosts(int navigableClass) {
+        int costClass = getCostClass(navigableClass);
+        float[] costs = costsByClass[costClass];
+        if (costs == null) {
+            costs = new float[width * height];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    costs[y * width + x] = calculateCost(mapController.getMapData().getTile(x, y), costClass);
+                }
+            }
+            costsByClass[costClass] = costs;
+        }
+
+        return costs;
+    }
+
+    /**
+     * Recalculate the costs of given tiles
+     *
+     * @param updatedTiles the tiles that have changed
+     * @param listener optional listener to get notified of the actual cost
+     * changes
+     */
+    public void updateTiles(Collection<Point> updatedTiles, TileCostListener listener) {
+        for (int costClass = 0; costClass < COST_CLASS_COUNT; costClass++) {
+            float[] costs = costsByClass[costClass];
+            if (costs == null) {
+                continue;
+            }
+
+            for (Point p : updatedTiles) {
+                IMapTileInformation tile = mapController.getMapData().getTile(p);
+                if (tile == null) {
+                    continue;
+                }
+
+                int index = p.y * width + p.x;
+                float oldCost = costs[index];
+                float cost = calculateCost(tile, costClass);
+                costs[index] = cost;
+
+                // Rooms may have changed their insides even if the tile stays as room
+                if (listener != null && (cost != oldCost || cost == ROOM)) {
+                    listener.onTileCostChange(costClass, index, cost != BLOCKED);
+                }
+            }
+        }
+    }
+
+    private float calculateCost(IMapTileInformation tile, int costClass) {
+        Terrain terrain = mapController.getTerrain(tile);
+        if (terrain.getFlags().contains(Terrain.TerrainFlag.SOLID)) {
+            return BLOCKED;
+        }
+
+        // Same rules as in the MapIndexedGraph
+        if (terrain.getFlags().contains(Terrain.TerrainFlag.ROOM)) {
+            return ROOM;
+        } else if ((costClass & CAN_FLY) != 0) {
+            return DEFAULT_COST;
+        } else if (terrain.getFlags().contains(Terrain.TerrainFlag.LAVA) && (costClass & CAN_WALK_ON_LAVA) == 0) {
+            return BLOCKED;
+        } else if (terrain.getFlags().contains(Terrain.TerrainFlag.WATER)) {
+            if ((costClass & CAN_WALK_ON_WATER) != 0) {
+                return WATER_COST;
+            }
+            return BLOCKED;
+        }
+        return DEFAULT_COST;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the terrain cost class of a navigable class, i.e. the capabilities
+     * without the diagonal movement
+     *
+     * @param navigableClass the navigable class
+     * @return the cost class
+     */
+    public static int getCostClass(int navigableClass) {
+        return navigableClass & (COST_CLASS_COUNT - 1);
+    }
+
+    /**
+     * Listen to the terrain cost changes
+     */
+    @FunctionalInterface
+    public interface TileCostListener {
+
+        /**
+         * The terrain cost of a tile has changed
+         *
+         * @param costClass the cost class affected
+         * @param index the tile index
+         * @param opened whether the tile is now accessible, which may open up
+         * new routes
+         */
+        void onTileCostChange(int costClass, int index, boolean opened);
+
+    }
+
+}
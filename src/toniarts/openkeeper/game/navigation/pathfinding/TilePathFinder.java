@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import java.util.Arrays;
+import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.controller.room.IRoomController;
+import toniarts.openkeeper.game.logic.IEntityPositionLookup;
+import toniarts.openkeeper.game.map.IMapTileInformation;
+
+import static toniarts.openkeeper.game.navigation.pathfinding.INavigable.DEFAULT_COST;
+import static toniarts.openkeeper.game.navigation.pathfinding.TileCostGrid.BLOCKED;
+import static toniarts.openkeeper.game.navigation.pathfinding.TileCostGrid.ROOM;
+
+/**
+ * A* path finder working straight on the map tile indices. All the search
+ * state is kept in primitive arrays that are allocated once and reused, so a
+ * search doesn't create garbage besides the resulting path. Follows the same
+ * movement rules as {@link MapIndexedGraph}.<br>
+ * Not thread safe.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class TilePathFinder {
+
+    private static final byte OPEN = 1;
+    private static final byte CLOSED = 2;
+    private static final int NO_PARENT = -1;
+
+    private final IMapController mapController;
+    private final IEntityPositionLookup entityPositionLookup;
+    private final TileCostGrid costGrid;
+    private final int width;
+    private final int height;
+
+    private final float[] costsSoFar;
+    private final int[] parents;
+    private final int[] searchIds;
+    private final byte[] states;
+    private final NodeHeap openList;
+    private int searchId;
+    private float pathCost;
+
+    // Search area
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+
+    public TilePathFinder(IMapController mapController, IEntityPositionLookup entityPositionLookup, TileCostGrid costGrid) {
+        this.mapController = mapController;
+        this.entityPositionLookup = entityPositionLookup;
+        this.costGrid = costGrid;
+        this.width = costGrid.getWidth();
+        this.height = costGrid.getHeight();
+
+        int nodeCount = width * height;
+        costsSoFar = new float[nodeCount];
+        parents = new int[nodeCount];
+        searchIds = new int[nodeCount];
+        states = new byte[nodeCount];
+        openList = new NodeHeap(nodeCount);
+    }
+
+    /**
+     * Search for a path between the tiles
+     *
+     * @param startTile the start tile
+     * @param endTile the end tile
+     * @param navigable the entity to find the path for
+     * @param outPath the path is appended here, including the start and the
+     * end tiles
+     * @return {@code true} if path was found
+     */
+    public boolean searchNodePath(IMapTileInformation startTile, IMapTileInformation endTile, INavigable navigable, GraphPath<IMapTileInformation> outPath) {
+        int start = startTile.getY() * width + startTile.getX();
+        int end = endTile.getY() * width + endTile.getX();
+        if (search(start, end, TileCostGrid.getNavigableClass(navigable), navigable.getOwnerId(), 0, 0, width - 1, height - 1)) {
+            generateNodePath(end, outPath);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Search for a path between the tiles, only inside the given area
+     *
+     * @param start the start tile index
+     * @param end the end tile index
+     * @param navigableClass the navigable class
+     * @param ownerId the owner of the navigable
+     * @param minX min x coordinate, inclusive
+     * @param minY min y coordinate, inclusive
+     * @param maxX max x coordinate, inclusive
+     * @param maxY max y coordinate, inclusive
+     * @return the tile indices of the path, including the start and the end
+     * tiles, {@code null} if no path was found
+     * @see #getPathCost()
+     */
+    public int[] searchTilePath(int start, int end, int navigableClass, short ownerId, int minX, int minY, int maxX, int maxY) {
+        if (!search(start, end, navigableClass, ownerId, minX, minY, maxX, maxY)) {
+            return null;
+        }
+
+        int length = 0;
+        for (int node = end; node != NO_PARENT; node = parents[node]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = end; node != NO_PARENT; node = parents[node]) {
+            path[--length] = node;
+        }
+
+        return path;
+    }
+
+    /**
+     * Get the cost of the last path found
+     *
+     * @return the path cost
+     */
+    public float getPathCost() {
+        return pathCost;
+    }
+
+    /**
+     * Get the cost of moving between two adjacent tiles
+     *
+     * @param from the tile index moving from
+     * @param to the tile index moving to
+     * @param navigableClass the navigable class
+     * @param ownerId the owner of the navigable
+     * @return the cost, {@link TileCostGrid#BLOCKED} if not accessible
+     */
+    public float getMoveCost(int from, int to, int navigableClass, short ownerId) {
+        return getTileCost(from % width, from / width, to % width, to / width, costGrid.getCosts(navigableClass), ownerId);
+    }
+
+    private boolean search(int start, int end, int navigableClass, short ownerId, int minX, int minY, int maxX, int maxY) {
+        int endX = end % width;
+        int endY = end / width;
+        float[] costs = costGrid.getCosts(navigableClass);
+        boolean canMoveDiagonally = (navigableClass & TileCostGrid.CAN_MOVE_DIAGONALLY) != 0;
+
+        initSearch(minX, minY, maxX, maxY);
+        searchIds[start] = searchId;
+        states[start] = OPEN;
+        costsSoFar[start] = 0;
+        parents[start] = NO_PARENT;
+        openList.add(start, estimate(start % width, start / width, endX, endY, canMoveDiagonally));
+
+        while (!openList.isEmpty()) {
+            int current = openList.poll();
+            if (current == end) {
+                pathCost = costsSoFar[end];
+                return true;
+            }
+            states[current] = CLOSED;
+
+            int x = current % width;
+            int y = current / width;
+            boolean north = visit(current, x, y, x, y - 1, costs, ownerId, endX, endY, canMoveDiagonally);
+            boolean east = visit(current, x, y, x + 1, y, costs, ownerId, endX, endY, canMoveDiagonally);
+            boolean south = visit(current, x, y, x, y + 1, costs, ownerId, endX, endY, canMoveDiagonally);
+            boolean west = visit(current, x, y, x - 1, y, costs, ownerId, endX, endY, canMoveDiagonally);
+
+            // We can never squeeze through obstacles, even if able to move diagonally
+            if (canMoveDiagonally) {
+                if (north && east) {
+                    visit(current, x, y, x + 1, y - 1, costs, ownerId, endX, endY, true);
+                }
+                if (north && west) {
+                    visit(current, x, y, x - 1, y - 1, costs, ownerId, endX, endY, true);
+                }
+                if (south && east) {
+                    visit(current, x, y, x + 1, y + 1, costs, ownerId, endX, endY, true);
+                }
+                if (south && west) {
+                    visit(current, x, y, x - 1, y + 1, costs, ownerId, endX, endY, true);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void initSearch(int minX, int minY, int maxX, int maxY) {
+        openList.clear();
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+
+        // Search IDs tell us whether the node data is from this search, so no clearing needed in between
+        searchId++;
+        if (searchId == Integer.MAX_VALUE) {
+            Arrays.fill(searchIds, 0);
+            searchId = 1;
+        }
+    }
+
+    /**
+     * Visit a neighbouring node
+     *
+     * @return whether the neighbour is accessible from the current node
+     */
+    private boolean visit(int current, int fromX, int fromY, int toX, int toY, float[] costs, short ownerId, int endX, int endY,
+            boolean canMoveDiagonally) {
+        float cost = getCost(fromX, fromY, toX, toY, costs, ownerId);
+        if (cost == BLOCKED) {
+            return false;
+        }
+
+        int node = toY * width + toX;
+        float nodeCost = costsSoFar[current] + cost;
+        if (searchIds[node] != searchId) {
+            searchIds[node] = searchId;
+            states[node] = OPEN;
+            costsSoFar[node] = nodeCost;
+            parents[node] = current;
+            openList.add(node, nodeCost + estimate(toX, toY, endX, endY, canMoveDiagonally));
+        } else if (nodeCost < costsSoFar[node]) {
+
+            // Not with a consistent heuristic, but reopen the closed nodes just to be safe
+            costsSoFar[node] = nodeCost;
+            parents[node] = current;
+            if (states[node] == OPEN) {
+                openList.decreasePriority(node, nodeCost + estimate(toX, toY, endX, endY, canMoveDiagonally));
+            } else {
+                states[node] = OPEN;
+                openList.add(node, nodeCost + estimate(toX, toY, endX, endY, canMoveDiagonally));
+            }
+        }
+
+        return true;
+    }
+
+    private float getCost(int fromX, int fromY, int toX, int toY, float[] costs, short ownerId) {
+        if (toX < minX || toY < minY || toX > maxX || toY > maxY) {
+            return BLOCKED;
+        }
+
+        return getTileCost(fromX, fromY, toX, toY, costs, ownerId);
+    }
+
+    private float getTileCost(int fromX, int fromY, int toX, int toY, float[] costs, short ownerId) {
+        float cost = costs[toY * width + toX];
+        if (cost == BLOCKED) {
+            return BLOCKED;
+        }
+
+        // Check for doors etc.
+        if (entityPositionLookup.isTileBlocked(toX, toY, ownerId)) {
+            return BLOCKED;
+        }
+
+        // Get room obstacles
+        if (cost == ROOM) {
+            IMapTileInformation from = mapController.getMapData().getTile(fromX, fromY);
+            IMapTileInformation to = mapController.getMapData().getTile(toX, toY);
+            IRoomController room = mapController.getRoomControllerByCoordinates(to.getLocation());
+            return room != null && room.isTileAccessible(from.getLocation(), to.getLocation()) ? DEFAULT_COST : BLOCKED;
+        }
+
+        return cost;
+    }
+
+    /**
+     * Estimate the cost to the end. No move costs less than
+     * {@link INavigable#DEFAULT_COST}, and a diagonal move costs the same as a
+     * straight one, so the estimate never exceeds the real cost.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param endX the end x coordinate
+     * @param endY the end y coordinate
+     * @param canMoveDiagonally whether diagonal moves are allowed
+     * @return the estimated cost
+     */
+    static float estimate(int x, int y, int endX, int endY, boolean canMoveDiagonally) {
+        int dx = Math.abs(x - endX);
+        int dy = Math.abs(y - endY);
+
+        return DEFAULT_COST * (canMoveDiagonally ? Math.max(dx, dy) : dx + dy);
+    }
+
+    private void generateNodePath(int end, GraphPath<IMapTileInformation> outPath) {
+        int node = end;
+        while (node != NO_PARENT) {
+            outPath.add(mapController.getMapData().getTile(node % width, node / width));
+            node = parents[node];
+        }
+        outPath.reverse();
+    }
+
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.navigation.pathfinding;
+
+import java.util.Arrays;
+import toniarts.openkeeper.game.logic.IEntityPositionLookup;
+
+import static toniarts.openkeeper.game.navigation.pathfinding.TileCostGrid.BLOCKED;
+
+/**
+ * Connected regions of the map, labelled per terrain cost class. Tells in
+ * constant time whether there can be a path between two tiles at all, so that
+ * we don't need to exhaust the whole reachable area with A* to find out there
+ * is none.<br>
+ * The regions are a superset of the actual connectivity: the room insides and
+ * the unlocked doors are owner and direction specific, so they are treated as
+ * open. Only the terrain and the locked doors split the regions. Diagonal
+ * movement is irrelevant here since it requires both orthogonal neighbours to
+ * be open anyway.<br>
+ * Opening a tile merges the neighbouring regions with union-find, closing one
+ * flood fills the region it belonged to, since it might have split in two.<br>
+ * Not thread safe.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class TileRegions {
+
+    private static final int NO_REGION = 0;
+    private static final int UNLABELLED = -1;
+
+    private final TileCostGrid costGrid;
+    private final IEntityPositionLookup entityPositionLookup;
+    private final int width;
+    private final int height;
+    private final Regions[] regionsByClass = new Regions[TileCostGrid.COST_CLASS_COUNT];
+    private final int[] queue;
+
+    public TileRegions(TileCostGrid costGrid, IEntityPositionLookup entityPositionLookup) {
+        this.costGrid = costGrid;
+        this.entityPositionLookup = entityPositionLookup;
+        this.width = costGrid.getWidth();
+        this.height = costGrid.getHeight();
+        this.queue = new int[width * height];
+    }
+
+    /**
+     * Checks whether there might be a path between the tiles
+     *
+     * @param start the start tile index
+     * @param end the end tile index
+     * @param navigableClass the navigable class
+     * @return {@code false} if there certainly is no path, {@code true} if
+     * there might be one
+     */
+    public boolean isReachable(int start, int end, int navigableClass) {
+        if (start == end) {
+            return true;
+        }
+
+        Regions regions = getRegions(TileCostGrid.getCostClass(navigableClass));
+        int endRegion = regions.labels[end];
+        if (endRegion == NO_REGION) {
+            return false;
+        }
+        endRegion = regions.find(endRegion);
+
+        int startRegion = regions.labels[start];
+        if (startRegion != NO_REGION) {
+            return regions.find(startRegion) == endRegion;
+        }
+
+        // We might be standing on a closed tile, i.e. in a door that just got locked, we can still step out of it
+        int x = start % width;
+        int y = start / width;
+        return isInRegion(regions, x, y - 1, endRegion)
+                || isInRegion(regions, x + 1, y, endRegion)
+                || isInRegion(regions, x, y + 1, endRegion)
+                || isInRegion(regions, x - 1, y, endRegion);
+    }
+
+    private boolean isInRegion(Regions regions, int x, int y, int region) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+
+        int label = regions.labels[y * width + x];
+        return label != NO_REGION && regions.find(label) == region;
+    }
+
+    /**
+     * The terrain cost of a tile has changed
+     *
+     * @param costClass the cost class affected
+     * @param index the tile index
+     * @param opened whether the tile is now accessible
+     * @see TileCostGrid.TileCostListener
+     */
+    public void onTileCostChange(int costClass, int index, boolean opened) {
+        Regions regions = regionsByClass[costClass];
+        if (regions != null) {
+            updateTile(regions, index, opened && !isLocked(index));
+        }
+    }
+
+    /**
+     * An obstacle, i.e. a door, has changed on a tile
+     *
+     * @param index the tile index
+     */
+    public void onObstacleChange(int index) {
+        boolean locked = isLocked(index);
+        for (int costClass = 0; costClass < regionsByClass.length; costClass++) {
+            Regions regions = regionsByClass[costClass];
+            if (regions != null) {
+                updateTile(regions, index, !locked && costGrid.getCosts(costClass)[index] != BLOCKED);
+            }
+        }
+    }
+
+    private boolean isLocked(int index) {
+        return entityPositionLookup.isTileLocked(index % width, index / width);
+    }
+
+    private Regions getRegions(int costClass) {
+        Regions regions = regionsByClass[costClass];
+        if (regions == null) {
+            regions = new Regions(costClass, width * height);
+            labelRegions(regions, costGrid.getCosts(costClass));
+            regionsByClass[costClass] = regions;
+        }
+
+        return regions;
+    }
+
+    private void labelRegions(Regions regions, float[] costs) {
+        regions.clear();
+        for (int i = 0; i < costs.length; i++) {
+            regions.labels[i] = costs[i] != BLOCKED && !isLocked(i) ? UNLABELLED : NO_REGION;
+        }
+        for (int i = 0; i < costs.length; i++) {
+            if (regions.labels[i] == UNLABELLED) {
+                floodFill(regions, i, regions.newRegion());
+            }
+        }
+    }
+
+    private void updateTile(Regions regions, int index, boolean open) {
+        int[] labels = regions.labels;
+        if (open == (labels[index] != NO_REGION)) {
+            return;
+        }
+
+        int x = index % width;
+        int y = index / width;
+        if (open) {
+
+            // Join the tile and all its neighbours to a single region
+            int region = NO_REGION;
+            region = join(regions, region, x, y - 1);
+            region = join(regions, region, x + 1, y);
+            region = join(regions, region, x, y + 1);
+            region = join(regions, region, x - 1, y);
+            labels[index] = region != NO_REGION ? region : regions.newRegion();
+            return;
+        }
+
+        // The region might have split, relabel everything connected to the neighbours
+        labels[index] = NO_REGION;
+        int firstNewRegion = regions.getRegionCount() + 1;
+        relabel(regions, x, y - 1, firstNewRegion);
+        relabel(regions, x + 1, y, firstNewRegion);
+        relabel(regions, x, y + 1, firstNewRegion);
+        relabel(regions, x - 1, y, firstNewRegion);
+
+        // Old regions are left orphaned, compact every now and then
+        if (regions.getRegionCount() > labels.length) {
+            labelRegions(regions, costGrid.getCosts(regions.costClass));
+        }
+    }
+
+    private int join(Regions regions, int region, int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return region;
+        }
+
+        int label = regions.labels[y * width + x];
+        if (label == NO_REGION) {
+            return region;
+        }
+        if (region == NO_REGION) {
+            return regions.find(label);
+        }
+
+        return regions.union(region, label);
+    }
+
+    private void relabel(Regions regions, int x, int y, int firstNewRegion) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return;
+        }
+
+        int index = y * width + x;
+        int label = regions.labels[index];
+        if (label != NO_REGION && label < firstNewRegion) {
+            floodFill(regions, index, regions.newRegion());
+        }
+    }
+
+    /**
+     * Flood fill the open tiles connected to the given tile with a new region
+     * label. All the open tiles are expected to be labelled, with anything else
+     * than the new region.
+     */
+    private void floodFill(Regions regions, int start, int region) {
+        int[] labels = regions.labels;
+        int head = 0;
+        int tail = 0;
+        labels[start] = region;
+        queue[tail++] = start;
+        while (head < tail) {
+            int index = queue[head++];
+            int x = index % width;
+            int y = index / width;
+            if (y > 0 && labels[index - width] != NO_REGION && labels[index - width] != region) {
+                labels[index - width] = region;
+                queue[tail++] = index - width;
+            }
+            if (x < width - 1 && labels[index + 1] != NO_REGION && labels[index + 1] != region) {
+                labels[index + 1] = region;
+                queue[tail++] = index + 1;
+            }
+            if (y < height - 1 && labels[index + width] != NO_REGION && labels[index + width] != region) {
+                labels[index + width] = region;
+                queue[tail++] = index + width;
+            }
+            if (x > 0 && labels[index - 1] != NO_REGION && labels[index - 1] != region) {
+                labels[index - 1] = region;
+                queue[tail++] = index - 1;
+            }
+        }
+    }
+
+    /**
+     * Region labels of a single cost class. The labels are joined with
+     * union-find, so the actual region of a tile is the root of its label.
+     */
+    private static final class Regions {
+
+        private final int costClass;
+        private final int[] labels;
+        private int[] parents;
+        private int regionCount;
+
+        public Regions(int costClass, int tileCount) {
+            this.costClass = costClass;
+            labels = new int[tileCount];
+            parents = new int[64];
+        }
+
+        private void clear() {
+            regionCount = 0;
+        }
+
+        private int getRegionCount() {
+            return regionCount;
+        }
+
+        private int newRegion() {
+            int region = ++regionCount;
+            if (region == parents.length) {
+                parents = Arrays.copyOf(parents, parents.length * 2);
+            }
+            parents[region] = region;
+
+            return region;
+        }
+
+        private int find(int region) {
+            while (parents[region] != region) {
+
+                // Path halving
+                parents[region] = parents[parents[region]];
+                region = parents[region];
+            }
+
+            return region;
+        }
+
+        private int union(int region, int other) {
+            int root = find(region);
+            int otherRoot = find(other);
+            if (root != otherRoot) {
+                parents[otherRoot] = root;
+            }
+
+            return root;
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ package toniarts.openkeeper.game.network;
 
 import com.simsilica.ethereal.net.ObjectStateProtocol;
 import com.simsilica.ethereal.zone.ZoneGrid;
+import com.simsilica.mathd.Vec3d;
 import com.simsilica.mathd.Vec3i;
 import com.simsilica.mathd.bits.QuatBits;
 import com.simsilica.mathd.bits.Vec3Bits;
@@ -127,4 +128,89 @@ public final class NetworkConstants {
      * including the zone they are in.
      */
     public static final Vec3i ZONE_RADIUS = new Vec3i(1, 1, 1);
+
+    /**
+     * The players don't have an avatar moving in the world, so their zone
+     * center is fixed. The zone radius around it covers maps up to three grid
+     * cells wide.
+     */
+    public static final Vec3d ZONE_CENTER = new Vec3d(gridSize * 1.5, 0, gridSize * 1.5);
+
+    /**
+     * The players are not objects in the zones, this is given as their "self"
+     */
+    public static final Long NO_SELF_ID = -1L;
+
+    /**
+     * Every player has its own layer of zones that gets only the moving
+     * entities the player sees. The layers are stacked on the y-axis, far
+     * enough apart that the zone radius around one layer never reaches the
+     * next one. The object ID tells the entity and the layer.
+     */
+    private static final int LAYER_BITS = 3;
+    private static final double LAYER_HEIGHT = gridSize * 3;
+
+    /**
+     * Get the zone center of the player, the zone radius around it covers the
+     * layer of the player
+     *
+     * @param playerId the player ID
+     * @return the zone center
+     */
+    public static Vec3d getLayerCenter(short playerId) {
+        return new Vec3d(ZONE_CENTER.x, ZONE_CENTER.y + getLayerOffset(playerId), ZONE_CENTER.z);
+    }
+
+    /**
+     * Get the height at which the layer of the player starts
+     *
+     * @param playerId the player ID
+     * @return the offset to add to the entity positions on the y-axis
+     */
+    public static double getLayerOffset(short playerId) {
+        return playerId * LAYER_HEIGHT;
+    }
+
+    /**
+     * Get the zone object ID of an entity on the layer of the player
+     *
+     * @param entityId the entity ID
+     * @param playerId the player ID
+     * @return the zone object ID
+     */
+    public static long getLayerObjectId(long entityId, short playerId) {
+        return (entityId << LAYER_BITS) | playerId;
+    }
+
+    /**
+     * Get the entity ID from a zone object ID
+     *
+     * @param objectId the zone object ID
+     * @return the entity ID
+     */
+    public static long getLayerEntityId(long objectId) {
+        return objectId >>> LAYER_BITS;
+    }
+
+    /**
+     * Remove the layer offset from a position received from the zones
+     *
+     * @param position the position on some layer, modified in place
+     * @return the given position
+     */
+    public static Vec3d toLayerPosition(Vec3d position) {
+        position.y -= Math.rint(position.y / LAYER_HEIGHT) * LAYER_HEIGHT;
+
+        return position;
+    }
+
+    /**
+     * Can the player have a layer of its own
+     *
+     * @param playerId the player ID
+     * @return {@code true} if the player ID fits in the layer bits
+     */
+    public static boolean isLayerPlayer(short playerId) {
+        return playerId >= 0 && playerId < (1 << LAYER_BITS);
+    }
 }
@@ -27,7 +27,6 @@ import com.jme3.network.serializing.serializers.FieldSerializer;
 import com.jme3.network.service.HostedService;
 import com.jme3.network.service.rmi.RmiHostedService;
 import com.jme3.network.service.rpc.RpcHostedService;
-import com.simsilica.es.base.DefaultEntityData;
 import com.simsilica.es.server.EntityDataHostedService;
 import com.simsilica.ethereal.EtherealHost;
 import toniarts.openkeeper.utils.Point;
@@ -64,7 +63,6 @@ import toniarts.openkeeper.game.component.Health;
 import toniarts.openkeeper.game.component.InHand;
 import toniarts.openkeeper.game.component.Interaction;
 import toniarts.openkeeper.game.component.Mana;
-import toniarts.openkeeper.game.component.MapTile;
 import toniarts.openkeeper.game.component.Mobile;
 import toniarts.openkeeper.game.component.Navigation;
 import toniarts.openkeeper.game.component.ObjectComponent;
@@ -91,17 +89,22 @@ import toniarts.openkeeper.game.component.Trigger;
 import toniarts.openkeeper.game.component.Unconscious;
 import toniarts.openkeeper.game.component.ViewType;
 import toniarts.openkeeper.game.controller.room.AbstractRoomController;
+import toniarts.openkeeper.game.data.IndexedEntityData;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.data.ObjectiveType;
 import toniarts.openkeeper.game.data.PlayerSpell;
 import toniarts.openkeeper.game.data.ResearchableEntity;
 import toniarts.openkeeper.game.data.ResearchableType;
+import toniarts.openkeeper.game.map.MapTileDelta;
 import toniarts.openkeeper.game.network.chat.ChatHostedService;
 import toniarts.openkeeper.game.network.game.GameHostedService;
+import toniarts.openkeeper.game.network.game.MapTileDeltaSerializer;
 import toniarts.openkeeper.game.network.lobby.LobbyHostedService;
 import toniarts.openkeeper.game.network.message.GameLoadProgressData;
 import toniarts.openkeeper.game.network.message.StreamedMessage;
+import toniarts.openkeeper.game.network.message.StreamedMessageAck;
 import toniarts.openkeeper.game.network.session.AccountHostedService;
+import toniarts.openkeeper.game.network.streaming.StreamedMessageSerializer;
 import toniarts.openkeeper.game.network.streaming.StreamingHostedService;
 import toniarts.openkeeper.game.state.lobby.ClientInfo;
 import toniarts.openkeeper.game.task.TaskType;
@@ -133,7 +136,8 @@ public final class NetworkServer {
             initialized = true;
 
             // Messages
-            Serializer.registerClass(StreamedMessage.class, new FieldSerializer());
+            Serializer.registerClass(StreamedMessage.class, new StreamedMessageSerializer());
+            Serializer.registerClass(StreamedMessageAck.class, new FieldSerializer());
             Serializer.registerClass(GameLoadProgressData.class, new FieldSerializer());
 
             // Lobby
@@ -145,6 +149,7 @@ public final class NetworkServer {
             Serializer.registerClass(Vector2.class, new FieldSerializer());
             Serializer.registerClass(Point.class, new FieldSerializer());
             Serializer.registerClass(Tile.BridgeTerrainType.class, new EnumSerializer());
+            Serializer.registerClass(MapTileDelta.class, new MapTileDeltaSerializer());
             Serializer.registerClass(Thing.HeroParty.Objective.class, new EnumSerializer());
             Serializer.registerClass(ObjectiveType.class, new EnumSerializer());
             Serializer.registerClass(AbstractRoomController.ObjectType.class, new EnumSerializer());
@@ -185,7 +190,6 @@ public final class NetworkServer {
             Serializer.registerClass(InHand.class, new FieldSerializer());
             Serializer.registerClass(Interaction.class, new FieldSerializer());
             Serializer.registerClass(Mana.class, new FieldSerializer());
-            Serializer.registerClass(MapTile.class, new FieldSerializer());
             Serializer.registerClass(Mobile.class, new FieldSerializer());
             Serializer.registerClass(Navigation.class, new FieldSerializer());
             Serializer.registerClass(ObjectComponent.class, new FieldSerializer());
@@ -230,7 +234,7 @@ public final class NetworkServer {
 
         server.getServices().addServices(new RpcHostedService(),
                 new RmiHostedService(),
-                new StreamingHostedService(),
+                new StreamingHostedService(true),
                 new AccountHostedService(name),
                 new LobbyHostedService(),
                 new ChatHostedService(),
@@ -245,7 +249,7 @@ public final class NetworkServer {
         server.getServices().addService(ethereal);
 
         // The ES objects
-        server.getServices().addService(new EntityDataHostedService(NetworkConstants.ES_CHANNEL, new DefaultEntityData(), false));
+        server.getServices().addService(new EntityDataHostedService(NetworkConstants.ES_CHANNEL, IndexedEntityData.createGameEntityData(), false));
 
         server.start();
 
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.network.game;
+
+import com.jme3.math.Vector3f;
+import toniarts.openkeeper.game.map.VisibilityGrid;
+import toniarts.openkeeper.utils.Point;
+import toniarts.openkeeper.utils.WorldUtils;
+
+/**
+ * What the client of a player has been told it sees, a mirror of the fog of
+ * war of the player built from the visibility changes sent to it. The entities
+ * are filtered by this so that the client never gets what is hidden from it.
+ * <br>
+ * Written on the game logic thread and read by the threads sending the
+ * entities.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class ClientVisibility {
+
+    private final short playerId;
+    private final VisibilityGrid grid;
+    private volatile int version;
+
+    public ClientVisibility(short playerId, int width, int height) {
+        this.playerId = playerId;
+        this.grid = new VisibilityGrid(width, height);
+    }
+
+    public short getPlayerId() {
+        return playerId;
+    }
+
+    public synchronized void setVisible(int[] runs, boolean visible) {
+        grid.setVisible(runs, visible);
+        version++;
+    }
+
+    public synchronized boolean isVisible(Vector3f position) {
+        Point p = WorldUtils.vectorToPoint(position);
+
+        return grid.isVisible(p.x, p.y);
+    }
+
+    /**
+     * The version changes every time the visibility does, no need to check the
+     * entities that have not moved if the version stays the same
+     *
+     * @return the visibility version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.network.game;
+
+import com.jme3.scene.Spatial;
+import com.simsilica.es.EntityId;
+import com.simsilica.ethereal.EtherealClient;
+import com.simsilica.ethereal.SharedObject;
+import com.simsilica.ethereal.SharedObjectListener;
+import com.simsilica.ethereal.TimeSource;
+import com.simsilica.mathd.trans.PositionTransition3d;
+import com.simsilica.mathd.trans.TransitionBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import toniarts.openkeeper.game.network.NetworkConstants;
+
+/**
+ * Collects the transforms of the moving entities from SimEthereal and
+ * interpolates them for the view. The server only updates the Position
+ * components of the moving entities when they change tiles or stop, so while
+ * an entity is here, its Position component should not be used for the view.
+ * <br>
+ * The server publishes the transforms on the zone layer of our player, and
+ * only for the entities we see.<br>
+ * The transforms are received on the network thread and read on the render
+ * thread.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class EntityTransformBuffer implements SharedObjectListener {
+
+    private static final int BUFFER_SIZE = 12;
+
+    private final EtherealClient etherealClient;
+    private final TimeSource timeSource;
+    private final Map<EntityId, EntityTransform> transforms = new ConcurrentHashMap<>();
+    private long frameTime;
+
+    public EntityTransformBuffer(EtherealClient etherealClient) {
+        this.etherealClient = etherealClient;
+        this.timeSource = etherealClient.getTimeSource();
+    }
+
+    public void start() {
+        etherealClient.addObjectListener(this);
+    }
+
+    public void stop() {
+        etherealClient.removeObjectListener(this);
+        transforms.clear();
+    }
+
+    /**
+     * Is the entity moved by us
+     *
+     * @param entityId the entity
+     * @return {@code true} if the entity transform comes from here
+     */
+    public boolean isMoving(EntityId entityId) {
+        return transforms.containsKey(entityId);
+    }
+
+    /**
+     * Move the entity models to where the entities are at the moment
+     *
+     * @param models gives the model of an entity, {@code null} if there is no
+     * such model
+     */
+    public void update(Function<EntityId, Spatial> models) {
+        long time = timeSource.getTime();
+        Iterator<Map.Entry<EntityId, EntityTransform>> iter = transforms.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<EntityId, EntityTransform> entry = iter.next();
+            EntityTransform transform = entry.getValue();
+            Spatial model = models.apply(entry.getKey());
+            PositionTransition3d transition = transform.buffer.getTransition(time);
+            if (model != null && transition != null) {
+                model.setLocalTranslation(transition.getPosition(time, true).toVector3f());
+                model.setLocalRotation(transition.getRotation(time, true).toQuaternion());
+            }
+
+            // The entity has stopped, the Position component takes over
+            if (time >= transform.removeTime) {
+                iter.remove();
+            }
+        }
+    }
+
+    @Override
+    public void beginFrame(long time) {
+        frameTime = time;
+    }
+
+    @Override
+    public void objectUpdated(SharedObject obj) {
+        EntityTransform transform = transforms.computeIfAbsent(getEntityId(obj), (entityId) -> new EntityTransform());
+        transform.removeTime = Long.MAX_VALUE;
+        transform.buffer.addTransition(createTransition(obj));
+    }
+
+    @Override
+    public void objectRemoved(SharedObject obj) {
+        EntityTransform transform = transforms.get(getEntityId(obj));
+        if (transform != null) {
+            transform.buffer.addTransition(createTransition(obj));
+            transform.removeTime = frameTime;
+        }
+    }
+
+    private static EntityId getEntityId(SharedObject obj) {
+        return new EntityId(NetworkConstants.getLayerEntityId(obj.getEntityId()));
+    }
+
+    private PositionTransition3d createTransition(SharedObject obj) {
+        return new PositionTransition3d(frameTime, NetworkConstants.toLayerPosition(obj.getWorldPosition().clone()), obj.getWorldRotation().clone(), true);
+    }
+
+    @Override
+    public void endFrame() {
+
+    }
+
+    private static final class EntityTransform {
+
+        private final TransitionBuffer<PositionTransition3d> buffer = PositionTransition3d.createBuffer(BUFFER_SIZE);
+        private volatile long removeTime = Long.MAX_VALUE;
+
+    }
+
+}
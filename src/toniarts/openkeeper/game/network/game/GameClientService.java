@@ -35,6 +35,7 @@ import java.util.Collection;
 import java.util.List;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.data.ResearchableEntity;
+import toniarts.openkeeper.game.map.MapTileDelta;
 import toniarts.openkeeper.game.network.NetworkConstants;
 import toniarts.openkeeper.game.network.message.GameLoadProgressData;
 import toniarts.openkeeper.game.state.CheatState;
@@ -285,6 +286,20 @@ public final class GameClientService extends AbstractClientService
             }
         }
 
+        @Override
+        public void onTileStatesChange(MapTileDelta delta) {
+            for (GameSessionListener l : listeners.getArray()) {
+                l.onTileStatesChange(delta);
+            }
+        }
+
+        @Override
+        public void onVisibilityChange(int[] runs, boolean visible) {
+            for (GameSessionListener l : listeners.getArray()) {
+                l.onVisibilityChange(runs, visible);
+            }
+        }
+
         @Override
         public void onGoldChange(short keeperId, int gold) {
             for (GameSessionListener l : listeners.getArray()) {
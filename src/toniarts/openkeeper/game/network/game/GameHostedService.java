@@ -30,6 +30,8 @@ import com.jme3.util.SafeArrayList;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
 import com.simsilica.es.server.EntityDataHostedService;
+import com.simsilica.es.server.HostedEntityData;
+import com.simsilica.ethereal.EtherealHost;
 import toniarts.openkeeper.utils.Point;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
@@ -40,6 +42,8 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.data.ResearchableEntity;
+import toniarts.openkeeper.game.logic.IEntityTransformPublisher;
+import toniarts.openkeeper.game.map.MapTileDelta;
 import toniarts.openkeeper.game.network.NetworkConstants;
 import toniarts.openkeeper.game.network.message.GameLoadProgressData;
 import toniarts.openkeeper.game.state.CheatState;
@@ -77,6 +81,9 @@ public final class GameHostedService extends AbstractHostedConnectionService imp
     private final SafeArrayList<GameSessionServiceListener> serverListeners = new SafeArrayList<>(GameSessionServiceListener.class);
     private RmiHostedService rmiService;
     private ScheduledExecutorService entityUpdater;
+    private IEntityTransformPublisher transformPublisher;
+    private final Map<Short, ClientVisibility> visibilities = new ConcurrentHashMap<>(4, 0.75f, 5);
+    private final Map<HostedConnection, PositionVisibility> positionVisibilities = new ConcurrentHashMap<>(4, 0.75f, 5);
 
     /**
      * Creates a new lobby service that will use the default reliable channel
@@ -155,6 +162,12 @@ public final class GameHostedService extends AbstractHostedConnectionService imp
             playersByConnection.remove(conn);
             playersInTransition.remove(player.clientInfo);
         }
+
+        // The visibility holds an entity set of all the positions
+        PositionVisibility positionVisibility = positionVisibilities.remove(conn);
+        if (positionVisibility != null) {
+            positionVisibility.release();
+        }
     }
 
     @Override
@@ -167,6 +180,27 @@ public final class GameHostedService extends AbstractHostedConnectionService imp
         serverListeners.remove(l);
     }
 
+    @Override
+    public synchronized IEntityTransformPublisher getEntityTransformPublisher() {
+        if (transformPublisher == null) {
+            transformPublisher = new ZoneTransformPublisher(getService(EtherealHost.class).getZones(), visibilities);
+        }
+
+        return transformPublisher;
+    }
+
+    @Override
+    public void initializeVisibility(int width, int height) {
+        for (ClientInfo clientInfo : players.keySet()) {
+            short playerId = clientInfo.getKeeper().getId();
+            if (NetworkConstants.isLayerPlayer(playerId)) {
+                visibilities.put(playerId, new ClientVisibility(playerId, width, height));
+            } else {
+                logger.log(Level.WARNING, "Player {0} can not have a zone layer, the entities are not filtered for it!", playerId);
+            }
+        }
+    }
+
     @Override
     public EntityData getEntityData() {
         return getServiceManager().getService(EntityDataHostedService.class).getEntityData();
@@ -175,6 +209,21 @@ public final class GameHostedService extends AbstractHostedConnectionService imp
     @Override
     public void sendGameData(Collection<Keeper> players) {
 
+        // Only send the entities the players see
+        EtherealHost etherealHost = getService(EtherealHost.class);
+        EntityDataHostedService entityDataService = getService(EntityDataHostedService.class);
+        for (Map.Entry<HostedConnection, ClientInfo> player : playersByConnection.entrySet()) {
+            ClientVisibility visibility = visibilities.get(player.getValue().getKeeper().getId());
+            HostedEntityData hostedEntityData = entityDataService.getHostedEntityData(player.getKey());
+            if (visibility != null && hostedEntityData != null) {
+                etherealHost.getStateListener(player.getKey()).setSelf(NetworkConstants.NO_SELF_ID,
+                        NetworkConstants.getLayerCenter(visibility.getPlayerId()));
+                PositionVisibility positionVisibility = new PositionVisibility(visibility);
+                hostedEntityData.registerComponentVisibility(positionVisibility);
+                positionVisibilities.put(player.getKey(), positionVisibility);
+            }
+        }
+
         // Hmm, for now this, update the entities
         entityUpdater = Executors.newSingleThreadScheduledExecutor((Runnable r) -> new Thread(r, "EntityDataUpdater"));
         entityUpdater.scheduleAtFixedRate(() -> {
@@ -205,6 +254,38 @@ public final class GameHostedService extends AbstractHostedConnectionService imp
         }
     }
 
+    @Override
+    public void updateTileStates(MapTileDelta delta) {
+        for (GameSessionImpl gameSession : players.values()) {
+            gameSession.onTileStatesChange(delta);
+        }
+    }
+
+    @Override
+    public void updateTileStates(MapTileDelta delta, short playerId) {
+        for (Map.Entry<ClientInfo, GameSessionImpl> gameSession : players.entrySet()) {
+            if (gameSession.getKey().getKeeper().getId() == playerId) {
+                gameSession.getValue().onTileStatesChange(delta);
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void updateVisibility(int[] runs, boolean visible, short playerId) {
+        ClientVisibility visibility = visibilities.get(playerId);
+        if (visibility != null) {
+            visibility.setVisible(runs, visible);
+        }
+
+        for (Map.Entry<ClientInfo, GameSessionImpl> gameSession : players.entrySet()) {
+            if (gameSession.getKey().getKeeper().getId() == playerId) {
+                gameSession.getValue().onVisibilityChange(runs, visible);
+                break;
+            }
+        }
+    }
+
     @Override
     public void setWidescreen(boolean enable, short playerId) {
         for (Map.Entry<ClientInfo, GameSessionImpl> gameSession : players.entrySet()) {
@@ -484,6 +565,16 @@ public final class GameHostedService extends AbstractHostedConnectionService imp
             getCallback().onTilesChange(updatedTiles);
         }
 
+        @Override
+        public void onTileStatesChange(MapTileDelta delta) {
+            getCallback().onTileStatesChange(delta);
+        }
+
+        @Override
+        public void onVisibilityChange(int[] runs, boolean visible) {
+            getCallback().onVisibilityChange(runs, visible);
+        }
+
         @Override
         public void markReady() {
             clientInfo.setReadyToLoad(true);
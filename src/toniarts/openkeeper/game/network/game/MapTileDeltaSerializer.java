@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.network.game;
+
+import com.jme3.network.serializing.Serializer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import toniarts.openkeeper.game.map.MapTileDelta;
+import toniarts.openkeeper.game.map.MapTileStore;
+
+/**
+ * Writes the {@link MapTileDelta} arrays as they are, the generic array
+ * serializer would write them element by element with the type information.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class MapTileDeltaSerializer extends Serializer {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T readObject(ByteBuffer data, Class<T> c) throws IOException {
+        int runCount = data.getShort();
+        int tileCount = data.getShort();
+        if (runCount < 0 || tileCount < 0 || tileCount > MapTileStore.MAX_DELTA_TILES) {
+            throw new IOException("Invalid map tile delta, " + runCount + " runs and " + tileCount + " tiles!");
+        }
+
+        int[] runs = new int[runCount * 2];
+        data.asIntBuffer().get(runs);
+        data.position(data.position() + runs.length * Integer.BYTES);
+
+        long[] states = new long[tileCount];
+        data.asLongBuffer().get(states);
+        data.position(data.position() + tileCount * Long.BYTES);
+
+        int[] health = readInts(data, tileCount);
+        int[] maxHealth = readInts(data, tileCount);
+        int[] gold = readInts(data, tileCount);
+        int[] manaGain = readInts(data, tileCount);
+
+        long[] rooms = new long[tileCount];
+        data.asLongBuffer().get(rooms);
+        data.position(data.position() + tileCount * Long.BYTES);
+
+        return (T) new MapTileDelta(runs, states, health, maxHealth, gold, manaGain, rooms);
+    }
+
+    @Override
+    public void writeObject(ByteBuffer buffer, Object object) throws IOException {
+        MapTileDelta delta = (MapTileDelta) object;
+        buffer.putShort((short) (delta.getRuns().length / 2));
+        buffer.putShort((short) delta.getTileCount());
+
+        buffer.asIntBuffer().put(delta.getRuns());
+        buffer.position(buffer.position() + delta.getRuns().length * Integer.BYTES);
+
+        buffer.asLongBuffer().put(delta.getStates());
+        buffer.position(buffer.position() + delta.getTileCount() * Long.BYTES);
+
+        writeInts(buffer, delta.getHealth());
+        writeInts(buffer, delta.getMaxHealth());
+        writeInts(buffer, delta.getGold());
+        writeInts(buffer, delta.getManaGain());
+
+        buffer.asLongBuffer().put(delta.getRooms());
+        buffer.position(buffer.position() + delta.getTileCount() * Long.BYTES);
+    }
+
+    private static int[] readInts(ByteBuffer data, int count) {
+        int[] values = new int[count];
+        data.asIntBuffer().get(values);
+        data.position(data.position() + count * Integer.BYTES);
+
+        return values;
+    }
+
+    private static void writeInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+    }
+
+}
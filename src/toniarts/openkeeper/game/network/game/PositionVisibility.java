@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.network.game;
+
+import com.simsilica.es.ComponentFilter;
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityChange;
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.EntitySet;
+import com.simsilica.es.server.ComponentVisibility;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import toniarts.openkeeper.game.component.Owner;
+import toniarts.openkeeper.game.component.Position;
+
+/**
+ * Lets a client have the Position of an entity only when the player sees the
+ * tile the entity is on, or owns the entity. Without a position the entity
+ * can't be placed in the world and the entity sets of the client leave it
+ * out. So the entities in the fog of war are never sent, not even in the
+ * initial snapshot, and they are removed from the client when they go out of
+ * view.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class PositionVisibility implements ComponentVisibility {
+
+    private final ClientVisibility visibility;
+    private final Map<EntityId, Position> sentPositions = new HashMap<>();
+    private EntityData entityData;
+    private EntitySet entities;
+    private int version;
+
+    public PositionVisibility(ClientVisibility visibility) {
+        this.visibility = visibility;
+    }
+
+    @Override
+    public Class<? extends EntityComponent> getComponentType() {
+        return Position.class;
+    }
+
+    @Override
+    public synchronized void initialize(EntityData ed) {
+        entityData = ed;
+        entities = ed.getEntities(Position.class);
+
+        // Check everything on the first collection
+        version = visibility.getVersion() - 1;
+    }
+
+    /**
+     * Releases the entity set of the positions, call when the connection is
+     * closed
+     */
+    public synchronized void release() {
+        if (entities != null) {
+            entities.release();
+            entities = null;
+        }
+        sentPositions.clear();
+    }
+
+    @Override
+    public synchronized <T extends EntityComponent> T getComponent(EntityId entityId, Class<T> type) {
+        return type.cast(sentPositions.get(entityId));
+    }
+
+    @Override
+    public synchronized Set<EntityId> getEntityIds(ComponentFilter filter) {
+        Set<EntityId> result = new HashSet<>();
+        for (Map.Entry<EntityId, Position> entry : sentPositions.entrySet()) {
+            if (filter == null || filter.evaluate(entry.getValue())) {
+                result.add(entry.getKey());
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public synchronized boolean collectChanges(Queue<EntityChange> updates) {
+        if (entities == null) {
+            return false;
+        }
+
+        boolean changed = false;
+        boolean entitiesChanged = entities.applyChanges();
+        if (entitiesChanged) {
+            for (Entity entity : entities.getRemovedEntities()) {
+                if (sentPositions.remove(entity.getId()) != null) {
+                    updates.add(new EntityChange(entity.getId(), Position.class));
+                    changed = true;
+                }
+            }
+        }
+
+        // When the visibility changes, everything needs to be checked, otherwise just the entities that moved
+        int currentVersion = visibility.getVersion();
+        if (version != currentVersion) {
+            version = currentVersion;
+            for (Entity entity : entities) {
+                changed |= updateEntity(entity, updates);
+            }
+        } else if (entitiesChanged) {
+            for (Entity entity : entities.getAddedEntities()) {
+                changed |= updateEntity(entity, updates);
+            }
+            for (Entity entity : entities.getChangedEntities()) {
+                changed |= updateEntity(entity, updates);
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean updateEntity(Entity entity, Queue<EntityChange> updates) {
+        EntityId entityId = entity.getId();
+        Position position = entity.get(Position.class);
+        if (isVisible(entityId, position)) {
+            if (sentPositions.put(entityId, position) != position) {
+                updates.add(new EntityChange(entityId, position));
+                return true;
+            }
+        } else if (sentPositions.remove(entityId) != null) {
+            updates.add(new EntityChange(entityId, Position.class));
+            return true;
+        }
+
+        return false;
+    }
+
+    private boolean isVisible(EntityId entityId, Position position) {
+        if (visibility.isVisible(position.position)) {
+            return true;
+        }
+
+        Owner owner = entityData.getComponent(entityId, Owner.class);
+        return owner != null && owner.ownerId == visibility.getPlayerId();
+    }
+
+}
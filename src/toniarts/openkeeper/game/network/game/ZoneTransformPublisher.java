@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.network.game;
+
+import com.jme3.math.Vector3f;
+import com.simsilica.es.EntityId;
+import com.simsilica.ethereal.zone.ZoneManager;
+import com.simsilica.mathd.AaBBox;
+import com.simsilica.mathd.Quatd;
+import com.simsilica.mathd.Vec3d;
+import java.util.HashMap;
+import java.util.Map;
+import toniarts.openkeeper.game.logic.IEntityTransformPublisher;
+import toniarts.openkeeper.game.network.NetworkConstants;
+
+/**
+ * Publishes the entity transforms to the SimEthereal zones. SimEthereal then
+ * sends them to the clients delta compressed, only for the zones they are
+ * interested in.<br>
+ * Every player has a layer of zones of its own, see
+ * {@link NetworkConstants#getLayerCenter(short)}. An entity is published on
+ * the layer of a player only while the player sees the tile the entity is on,
+ * so the clients never get the transforms of the entities in their fog of
+ * war.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class ZoneTransformPublisher implements IEntityTransformPublisher {
+
+    private final ZoneManager zones;
+    private final Map<Short, ClientVisibility> visibilities;
+    private final Map<EntityId, Transform> transforms = new HashMap<>();
+
+    public ZoneTransformPublisher(ZoneManager zones, Map<Short, ClientVisibility> visibilities) {
+        this.zones = zones;
+        this.visibilities = visibilities;
+    }
+
+    @Override
+    public void beginFrame() {
+        zones.beginUpdate(System.nanoTime());
+    }
+
+    @Override
+    public void publish(EntityId entityId, Vector3f position, float rotation, float radius) {
+        Transform transform = transforms.get(entityId);
+        if (transform == null) {
+            transform = new Transform(radius);
+            transforms.put(entityId, transform);
+        }
+        transform.rotation.fromAngles(0, rotation, 0);
+
+        for (ClientVisibility visibility : visibilities.values()) {
+            short playerId = visibility.getPlayerId();
+            long objectId = NetworkConstants.getLayerObjectId(entityId.getId(), playerId);
+            int layer = 1 << playerId;
+            if (!visibility.isVisible(position)) {
+                if ((transform.layers & layer) != 0) {
+                    transform.layers &= ~layer;
+                    zones.remove(objectId);
+                }
+                continue;
+            }
+
+            transform.layers |= layer;
+            Vec3d layerPosition = transform.getPosition(playerId);
+            layerPosition.set(position.x, position.y + NetworkConstants.getLayerOffset(playerId), position.z);
+            AaBBox bounds = transform.getBounds(playerId);
+            bounds.setCenter(layerPosition);
+
+            zones.updateEntity(objectId, true, layerPosition, transform.rotation, bounds);
+        }
+    }
+
+    @Override
+    public void remove(EntityId entityId) {
+        Transform transform = transforms.remove(entityId);
+        if (transform == null) {
+            return;
+        }
+
+        for (short playerId = 0; transform.layers != 0; playerId++) {
+            int layer = 1 << playerId;
+            if ((transform.layers & layer) != 0) {
+                transform.layers &= ~layer;
+                zones.remove(NetworkConstants.getLayerObjectId(entityId.getId(), playerId));
+            }
+        }
+    }
+
+    @Override
+    public void endFrame() {
+        zones.endUpdate();
+    }
+
+    /**
+     * The zone manager works with these, so keep them per entity and layer
+     */
+    private static final class Transform {
+
+        private final double radius;
+        private final Quatd rotation = new Quatd();
+        private final Map<Short, Vec3d> positions = new HashMap<>(4);
+        private final Map<Short, AaBBox> bounds = new HashMap<>(4);
+        private int layers = 0;
+
+        public Transform(double radius) {
+            this.radius = radius;
+        }
+
+        public Vec3d getPosition(short playerId) {
+            return positions.computeIfAbsent(playerId, (id) -> new Vec3d());
+        }
+
+        public AaBBox getBounds(short playerId) {
+            return bounds.computeIfAbsent(playerId, (id) -> new AaBBox(radius));
+        }
+    }
+
+}
@@ -375,7 +375,9 @@ public final class LobbyHostedService extends AbstractHostedConnectionService im
             // there might not be enough time for the services to start
             if (ready && !hostingGameServices) {
                 hostingGameServices = true;
-                getService(EtherealHost.class).startHostingOnConnection(conn);
+                EtherealHost etherealHost = getService(EtherealHost.class);
+                etherealHost.startHostingOnConnection(conn);
+                etherealHost.getStateListener(conn).setSelf(NetworkConstants.NO_SELF_ID, NetworkConstants.ZONE_CENTER);
                 getService(GameHostedService.class).startHostingOnConnection(conn, getClientInfo());
                 getService(EntityDataHostedService.class).startHostingOnConnection(conn);
             }
@@ -17,29 +17,45 @@
 package toniarts.openkeeper.game.network.message;
 
 import com.jme3.network.AbstractMessage;
+import java.nio.ByteBuffer;
 
 /**
- * A message that holds a part (or all) of a streamed object data
+ * A message that holds a part (or all) of a streamed object data. The payload
+ * is a view to the sender's buffer, so it is not copied until it is written to
+ * the network. See the StreamedMessageSerializer.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public final class StreamedMessage extends AbstractMessage {
 
+    private int transferId;
     private int totalSize;
-    private byte[] payload;
+    private ByteBuffer payload;
     private int messageType;
+    private boolean compressed;
 
     public StreamedMessage() {
 
     }
 
-    public StreamedMessage(byte[] payload, int totalSize, int messageType) {
+    public StreamedMessage(int transferId, ByteBuffer payload, int totalSize, int messageType, boolean compressed) {
+        this.transferId = transferId;
         this.payload = payload;
         this.totalSize = totalSize;
         this.messageType = messageType;
+        this.compressed = compressed;
     }
 
-    public byte[] getPayload() {
+    /**
+     * Identifies the transfer this part belongs to, unique per sender
+     *
+     * @return the transfer ID
+     */
+    public int getTransferId() {
+        return transferId;
+    }
+
+    public ByteBuffer getPayload() {
         return payload;
     }
 
@@ -51,4 +67,13 @@ public final class StreamedMessage extends AbstractMessage {
         return messageType;
     }
 
+    /**
+     * Whether the payload is deflated. Each part is compressed on its own
+     *
+     * @return is the payload compressed
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
 }
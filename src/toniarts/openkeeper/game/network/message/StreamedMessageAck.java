@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.network.message;
+
+import com.jme3.network.AbstractMessage;
+
+/**
+ * The receiver tells how far it has got with a streamed transfer. The sender
+ * waits for these before sending more, so that a large transfer doesn't flood
+ * the channel.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class StreamedMessageAck extends AbstractMessage {
+
+    private int transferId;
+    private int receivedParts;
+
+    public StreamedMessageAck() {
+
+    }
+
+    public StreamedMessageAck(int transferId, int receivedParts) {
+        this.transferId = transferId;
+        this.receivedParts = receivedParts;
+    }
+
+    public int getTransferId() {
+        return transferId;
+    }
+
+    public int getReceivedParts() {
+        return receivedParts;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.network.streaming;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * A small pool of direct byte buffers. The buffers are allocated in powers of
+ * two so that they can be reused for different sized data. The largest ones
+ * are kept when the pool is full. Thread safe.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class ByteBufferPool {
+
+    private static final int MIN_CAPACITY = 64 * 1024;
+
+    private final int maxPooledBuffers;
+    private final Deque<ByteBuffer> buffers = new ArrayDeque<>();
+
+    public ByteBufferPool(int maxPooledBuffers) {
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * Get a buffer from the pool, or allocate a new one
+     *
+     * @param size the minimum capacity needed
+     * @return a cleared buffer, with the limit at its full capacity
+     */
+    public ByteBuffer acquire(int size) {
+        synchronized (buffers) {
+            Iterator<ByteBuffer> iter = buffers.iterator();
+            while (iter.hasNext()) {
+                ByteBuffer buffer = iter.next();
+                if (buffer.capacity() >= size) {
+                    iter.remove();
+                    return buffer.clear();
+                }
+            }
+        }
+
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, size - 1)) << 1);
+        return ByteBuffer.allocateDirect(capacity > 0 ? capacity : size);
+    }
+
+    /**
+     * Return the buffer to the pool. The buffer may not be used after this
+     *
+     * @param buffer the buffer
+     */
+    public void release(ByteBuffer buffer) {
+        synchronized (buffers) {
+            if (buffers.size() < maxPooledBuffers) {
+                buffers.add(buffer);
+                return;
+            }
+
+            // Keep the larger ones, they can serve anything
+            ByteBuffer smallest = null;
+            for (ByteBuffer pooled : buffers) {
+                if (smallest == null || pooled.capacity() < smallest.capacity()) {
+                    smallest = pooled;
+                }
+            }
+            if (smallest != null && smallest.capacity() < buffer.capacity()) {
+                buffers.remove(smallest);
+                buffers.add(buffer);
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (buffers) {
+            buffers.clear();
+        }
+    }
+
+}
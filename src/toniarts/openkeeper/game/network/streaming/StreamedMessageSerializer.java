@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.network.streaming;
+
+import com.jme3.network.serializing.Serializer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import toniarts.openkeeper.game.network.message.StreamedMessage;
+
+/**
+ * Writes the {@link StreamedMessage} payload straight from the sender's buffer
+ * to the network buffer, the generic serializers would go through it byte by
+ * byte.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class StreamedMessageSerializer extends Serializer {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T readObject(ByteBuffer data, Class<T> c) throws IOException {
+        int transferId = data.getInt();
+        int totalSize = data.getInt();
+        int messageType = data.getInt();
+        boolean compressed = data.get() != 0;
+
+        // The network buffer is reused, so we need to take a copy
+        byte[] payload = new byte[data.getInt()];
+        data.get(payload);
+
+        return (T) new StreamedMessage(transferId, ByteBuffer.wrap(payload), totalSize, messageType, compressed);
+    }
+
+    @Override
+    public void writeObject(ByteBuffer buffer, Object object) throws IOException {
+        StreamedMessage message = (StreamedMessage) object;
+        buffer.putInt(message.getTransferId());
+        buffer.putInt(message.getTotalSize());
+        buffer.putInt(message.getMessageType());
+        buffer.put((byte) (message.isCompressed() ? 1 : 0));
+
+        // Duplicate so that the message can be written again, i.e. to several clients
+        ByteBuffer payload = message.getPayload().duplicate();
+        buffer.putInt(payload.remaining());
+        buffer.put(payload);
+    }
+
+}
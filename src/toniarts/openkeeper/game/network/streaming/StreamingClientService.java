@@ -31,11 +31,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 import toniarts.openkeeper.game.network.message.StreamedMessage;
+import toniarts.openkeeper.game.network.message.StreamedMessageAck;
 
 /**
  * A client that listens for our streamed packages and notifies you when they
- * are done
+ * are done. The parts are acknowledged back to the sender every now and then,
+ * so that it knows to keep sending.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
@@ -43,9 +47,11 @@ public final class StreamingClientService extends AbstractClientService {
     
     private static final Logger logger = System.getLogger(StreamingClientService.class.getName());
 
-    private final Map<Integer, Map<Integer, ByteBuffer>> messageReceiveMap = new ConcurrentHashMap<>();
+    private final Map<Integer, Transfer> transfers = new ConcurrentHashMap<>();
     private final MessageListener<Client> messageListener = new StreamedMessageServiceListenerImpl();
     private final Map<Integer, List<StreamedMessageListener>> listeners = new HashMap<>();
+    private final ByteBufferPool bufferPool = new ByteBufferPool(2);
+    private final Inflater inflater = new Inflater();
 
     @Override
     protected void onInitialize(ClientServiceManager serviceManager) {
@@ -62,8 +68,10 @@ public final class StreamingClientService extends AbstractClientService {
         getClient().removeMessageListener(messageListener, StreamedMessage.class);
 
         // Get rid of all buffers
-        for (Map<Integer, ByteBuffer> buffers : messageReceiveMap.values()) {
-            buffers.clear();
+        transfers.clear();
+        bufferPool.clear();
+        synchronized (inflater) {
+            inflater.end();
         }
     }
 
@@ -83,6 +91,31 @@ public final class StreamingClientService extends AbstractClientService {
         }
     }
 
+    private void inflate(ByteBuffer payload, ByteBuffer messageBuffer) throws DataFormatException {
+        synchronized (inflater) {
+            inflater.reset();
+            inflater.setInput(payload);
+            while (!inflater.finished()) {
+                if (inflater.inflate(messageBuffer) == 0 && (inflater.needsInput() || !messageBuffer.hasRemaining())) {
+                    throw new DataFormatException("Truncated or oversized part!");
+                }
+            }
+        }
+    }
+
+    /**
+     * A single data transfer being received
+     */
+    private static final class Transfer {
+
+        private final ByteBuffer buffer;
+        private int receivedParts = 0;
+
+        public Transfer(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
     /**
      * Listens to the messages and parses them up
      */
@@ -92,29 +125,43 @@ public final class StreamingClientService extends AbstractClientService {
         public void messageReceived(Client source, Message m) {
             StreamedMessage message = (StreamedMessage) m;
 
-            // Set up a buffer for this client
-            Map<Integer, ByteBuffer> messageBuffers = messageReceiveMap.get(source.getId());
-            if (messageBuffers == null) {
-                messageBuffers = new HashMap<>();
-                messageReceiveMap.put(source.getId(), messageBuffers);
+            // Set up a buffer for this transfer
+            Transfer transfer = transfers.get(message.getTransferId());
+            if (transfer == null) {
+                ByteBuffer buffer = bufferPool.acquire(message.getTotalSize());
+                buffer.limit(message.getTotalSize());
+                transfer = new Transfer(buffer);
+                transfers.put(message.getTransferId(), transfer);
+            }
+            ByteBuffer messageBuffer = transfer.buffer;
+            try {
+                if (message.isCompressed()) {
+                    inflate(message.getPayload(), messageBuffer);
+                } else {
+                    messageBuffer.put(message.getPayload());
+                }
+            } catch (DataFormatException | RuntimeException ex) {
+                logger.log(Level.ERROR, "Failed to read part of transfer " + message.getTransferId() + "!", ex);
+                transfers.remove(message.getTransferId());
+                bufferPool.release(messageBuffer);
+                return;
             }
 
-            // Handle buffer for client's message type
-            ByteBuffer messageBuffer = messageBuffers.get(message.getMessageType());
-            if (messageBuffer == null) {
-                messageBuffer = ByteBuffer.allocate(message.getTotalSize());
-                messageBuffers.put(message.getMessageType(), messageBuffer);
+            // Let the sender know we are keeping up
+            transfer.receivedParts++;
+            if (transfer.receivedParts % StreamingHostedService.ACK_INTERVAL == 0) {
+                source.send(new StreamedMessageAck(message.getTransferId(), transfer.receivedParts));
             }
-            messageBuffer.put(message.getPayload());
 
             // If the message is complete, notify and discard
             // In theory we should always listen to the whole message, even if nobody is listening when we started
             // There is a possibility that someone starts to listen to it in the middle of transmission
             if (!messageBuffer.hasRemaining()) {
+                transfers.remove(message.getTransferId());
                 List<StreamedMessageListener> messageListeners = listeners.get(message.getMessageType());
                 if (messageListeners != null) {
                     try {
-                        messageBuffer.rewind();
+                        messageBuffer.flip();
 
                         // Deserialize
                         Object data = Serializer.readClassAndObject(messageBuffer);
@@ -127,7 +174,7 @@ public final class StreamingClientService extends AbstractClientService {
                         logger.log(Level.ERROR, "Failed to deserialize the data payload!", ex);
                     }
                 }
-                messageBuffers.remove(message.getMessageType());
+                bufferPool.release(messageBuffer);
             }
         }
 
@@ -16,20 +16,40 @@
  */
 package toniarts.openkeeper.game.network.streaming;
 
+import com.jme3.network.Filters;
 import com.jme3.network.HostedConnection;
+import com.jme3.network.Message;
+import com.jme3.network.MessageListener;
 import com.jme3.network.serializing.Serializer;
 import com.jme3.network.service.AbstractHostedService;
 import com.jme3.network.service.HostedServiceManager;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
 import toniarts.openkeeper.game.network.message.StreamedMessage;
+import toniarts.openkeeper.game.network.message.StreamedMessageAck;
 
 /**
  * Streaming data, meaning that if something is needed to be send over to
  * clients that doesn't fit to a single message, this is your service. We simply
  * keep sending messages until everything is transfered. The payload needs to be
- * serializable though...
+ * serializable though...<br>
+ * The data is serialized to a pooled buffer that grows as needed, and the
+ * messages just hold views to it. The parts can be compressed. The receivers
+ * acknowledge the parts every now and then, and we only let a limited amount
+ * of parts to be on the way at once.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
@@ -37,49 +57,225 @@ public final class StreamingHostedService extends AbstractHostedService {
     
     private static final Logger logger = System.getLogger(StreamingHostedService.class.getName());
 
-    private static final int MAX_MESSAGE_SIZE = 30000;
+    static final int MAX_MESSAGE_SIZE = 30000;
     private static final int MAX_TOTAL_SIZE = 10000000;
 
+    /**
+     * How many parts can be on the way to a receiver, not yet acknowledged
+     */
+    static final int SEND_WINDOW = 32;
+
+    /**
+     * The receivers acknowledge after this many parts
+     */
+    static final int ACK_INTERVAL = SEND_WINDOW / 2;
+    private static final long ACK_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+    private static final long ACK_POLL_INTERVAL = 100;
+
+    private final boolean compress;
+    private final ByteBufferPool bufferPool = new ByteBufferPool(2);
+    private final AtomicInteger transferIds = new AtomicInteger();
+    private final Map<Integer, Transfer> transfers = new ConcurrentHashMap<>();
+    private final MessageListener<HostedConnection> ackListener = new AckListenerImpl();
+    private volatile int serializedSize = 0;
+
+    public StreamingHostedService() {
+        this(false);
+    }
+
+    /**
+     * Creates the streaming service
+     *
+     * @param compress compress the data, each part is compressed separately
+     * and only if it makes it smaller
+     */
+    public StreamingHostedService(boolean compress) {
+        this.compress = compress;
+    }
+
     @Override
     protected void onInitialize(HostedServiceManager serviceManager) {
+        getServer().addMessageListener(ackListener, StreamedMessageAck.class);
+    }
 
+    @Override
+    public void terminate(HostedServiceManager serviceManager) {
+        super.terminate(serviceManager);
+
+        getServer().removeMessageListener(ackListener, StreamedMessageAck.class);
+        bufferPool.clear();
     }
 
     /**
      * Simple blocking send method that sends your serializable object in as
-     * many packages as is needed
+     * many packages as is needed. Blocks also while the receivers are catching
+     * up, so don't call this from the network threads.
      *
      * @param messageType the type of messages, so that the receiver can
      * recognice and listen to it
      * @param data the serializable data
      * @param sendTo a specific client to send to, null will broadcast
-     * @throws IOException the serialization may fail
+     * @throws IOException the serialization may fail, or the receivers don't
+     * acknowledge the data in time
      */
     public void sendData(int messageType, Object data, HostedConnection sendTo) throws IOException {
+        ByteBuffer buffer = serialize(data);
+        Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        ByteBuffer compressBuffer = compress ? bufferPool.acquire(MAX_MESSAGE_SIZE) : null;
+        Collection<HostedConnection> receivers = sendTo == null ? new ArrayList<>(getServer().getConnections()) : Collections.singletonList(sendTo);
+        Transfer transfer = new Transfer(transferIds.incrementAndGet(), receivers);
+        transfers.put(transfer.id, transfer);
+        try {
+            int totalSize = buffer.remaining();
+            int part = 0;
+            while (buffer.hasRemaining()) {
+                int length = Math.min(MAX_MESSAGE_SIZE, buffer.remaining());
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+
+                boolean compressed = false;
+                if (deflater != null) {
+                    ByteBuffer compressedPayload = deflate(deflater, payload, compressBuffer);
+                    if (compressedPayload != null) {
+                        payload = compressedPayload;
+                        compressed = true;
+                    }
+                }
+
+                transfer.awaitWindow(part++);
+                StreamedMessage message = new StreamedMessage(transfer.id, payload, totalSize, messageType, compressed);
+                message.setReliable(true);
+
+                // The message is serialized right away, so the buffers can be reused after
+                getServer().broadcast(Filters.in(receivers), message);
+            }
+        } finally {
+            transfers.remove(transfer.id);
+            bufferPool.release(buffer);
+            if (deflater != null) {
+                deflater.end();
+                bufferPool.release(compressBuffer);
+            }
+        }
+    }
 
-        // Allocate max size buffer and write the object
-        ByteBuffer buffer = ByteBuffer.allocate(MAX_TOTAL_SIZE);
-        Serializer.writeClassAndObject(buffer, data);
-
-        // Allocate a new job
-        int totalSize = buffer.position();
-        int written = 0;
-        buffer.rewind();
-        while (written < totalSize) {
-            int write = Math.min(MAX_MESSAGE_SIZE, totalSize - written);
-            byte[] part = new byte[write];
-            buffer.get(part);
-            written += write;
-            StreamedMessage message = new StreamedMessage(part, totalSize, messageType);
-            message.setReliable(true);
-
-            // Broadcast if receiver is null
-            if (sendTo == null) {
-                getServer().broadcast(message);
+    /**
+     * Serializes the data to a pooled buffer. Starts with the size of the
+     * previous data and grows the buffer as needed.
+     *
+     * @param data the data
+     * @return the buffer, ready to be read
+     */
+    private ByteBuffer serialize(Object data) throws IOException {
+        int size = Math.max(serializedSize, MAX_MESSAGE_SIZE);
+        while (true) {
+            ByteBuffer buffer = bufferPool.acquire(size);
+            try {
+                Serializer.writeClassAndObject(buffer, data);
+                buffer.flip();
+                serializedSize = buffer.remaining();
+
+                return buffer;
+            } catch (BufferOverflowException e) {
+                bufferPool.release(buffer);
+                if (buffer.capacity() >= MAX_TOTAL_SIZE) {
+                    throw new IOException("The data doesn't fit in " + MAX_TOTAL_SIZE + " bytes!", e);
+                }
+                size = Math.min(buffer.capacity() * 2, MAX_TOTAL_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Compress a part
+     *
+     * @return the compressed part, or {@code null} if it didn't get any
+     * smaller
+     */
+    private static ByteBuffer deflate(Deflater deflater, ByteBuffer payload, ByteBuffer output) {
+        deflater.reset();
+        deflater.setInput(payload.duplicate());
+        deflater.finish();
+        output.clear().limit(payload.remaining() - 1);
+        while (!deflater.finished() && output.hasRemaining()) {
+            deflater.deflate(output);
+        }
+        if (!deflater.finished()) {
+            return null;
+        }
+
+        return output.flip();
+    }
+
+    /**
+     * A single sending of data, keeps track of how far the receivers are
+     */
+    private final class Transfer {
+
+        private final int id;
+        private final Collection<HostedConnection> receivers;
+        private final Map<Integer, Integer> receivedPartsByConnection = new HashMap<>();
+
+        public Transfer(int id, Collection<HostedConnection> receivers) {
+            this.id = id;
+            this.receivers = receivers;
+        }
+
+        private synchronized void acknowledge(int connectionId, int receivedParts) {
+            receivedPartsByConnection.merge(connectionId, receivedParts, Math::max);
+            notifyAll();
+        }
+
+        /**
+         * Wait until every receiver is within the send window of the given
+         * part. Receivers that have disconnected are not waited for.
+         */
+        private synchronized void awaitWindow(int part) throws IOException {
+            long deadline = System.nanoTime() + ACK_TIMEOUT;
+            while (!isWithinWindow(part)) {
+                long timeLeft = deadline - System.nanoTime();
+                if (timeLeft <= 0) {
+                    throw new IOException("Timed out waiting for the receivers to acknowledge transfer " + id + "!");
+                }
+                try {
+
+                    // Disconnecting doesn't notify us, so poll
+                    wait(Math.min(ACK_POLL_INTERVAL, TimeUnit.NANOSECONDS.toMillis(timeLeft) + 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while sending transfer " + id + "!");
+                }
+            }
+        }
+
+        private boolean isWithinWindow(int part) {
+            for (HostedConnection connection : receivers) {
+                int receivedParts = receivedPartsByConnection.getOrDefault(connection.getId(), 0);
+                if (part - receivedParts >= SEND_WINDOW && getServer().getConnection(connection.getId()) != null) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Listens to the receivers acknowledging the parts
+     */
+    private final class AckListenerImpl implements MessageListener<HostedConnection> {
+
+        @Override
+        public void messageReceived(HostedConnection source, Message m) {
+            StreamedMessageAck ack = (StreamedMessageAck) m;
+            Transfer transfer = transfers.get(ack.getTransferId());
+            if (transfer != null) {
+                transfer.acknowledge(source.getId(), ack.getReceivedParts());
             } else {
-                sendTo.send(message);
+                logger.log(Level.TRACE, "Acknowledgement for a finished transfer {0}", ack.getTransferId());
             }
         }
+
     }
 
 }
@@ -22,6 +22,7 @@ import com.jme3.cinematic.events.CinematicEvent;
 import com.jme3.cinematic.events.CinematicEventListener;
 import com.jme3.math.Vector3f;
 import com.simsilica.es.EntityId;
+import com.simsilica.ethereal.EtherealClient;
 import toniarts.openkeeper.utils.Point;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
@@ -29,14 +30,20 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import toniarts.openkeeper.Main;
+import toniarts.openkeeper.animation.PoseFrameCache;
 import toniarts.openkeeper.game.controller.IPlayerController;
 import toniarts.openkeeper.game.controller.PlayerController;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.data.ResearchableEntity;
 import toniarts.openkeeper.game.data.ResearchableType;
 import toniarts.openkeeper.game.map.IMapInformation;
+import toniarts.openkeeper.game.map.MapTileDelta;
+import toniarts.openkeeper.game.map.VisibilityGrid;
+import toniarts.openkeeper.game.network.game.EntityTransformBuffer;
 import toniarts.openkeeper.game.state.loading.IPlayerLoadingProgress;
 import toniarts.openkeeper.game.state.loading.MultiplayerLoadingState;
 import toniarts.openkeeper.game.state.loading.SingleBarLoadingState;
@@ -79,6 +86,8 @@ public final class GameClientState extends AbstractPauseAwareState {
     private IPlayerLoadingProgress loadingState;
     private final GameSessionClientService gameClientService;
     private final GameSessionListenerImpl gameSessionListener = new GameSessionListenerImpl();
+    private final Queue<MapTileDelta> tileStateDeltas = new ConcurrentLinkedQueue<>();
+    private volatile VisibilityGrid visibility;
     private IMapInformation mapInformation;
     private PlayerState playerState;
 
@@ -181,6 +190,9 @@ public final class GameClientState extends AbstractPauseAwareState {
         // Detach
         detach();
 
+        // The shared animation frames are of this level's models
+        PoseFrameCache.getInstance().clear();
+
         super.cleanup();
     }
 
@@ -321,7 +333,7 @@ public final class GameClientState extends AbstractPauseAwareState {
                 // Create player state
                 playerState = new PlayerState(playerId, kwdFile, gameClientService.getEntityData(), false, app);
 
-                playerMapViewState = new PlayerMapViewState(app, kwdFile, app.getAssetManager(), players, gameClientService.getEntityData(), playerId,
+                playerMapViewState = new PlayerMapViewState(app, kwdFile, app.getAssetManager(), players, gameClientService.getEntityData(), tileStateDeltas, playerId,
                         () -> {
                             synchronized (mapDataLoadingObject) {
                                 mapDataLoaded = true;
@@ -345,7 +357,12 @@ public final class GameClientState extends AbstractPauseAwareState {
                 };
                 mapInformation = playerMapViewState.getMapInformation();
                 textParser = new TextParserService(mapInformation, playerMapViewState.getRoomsInformation());
-                playerModelViewState = new PlayerEntityViewState(kwdFile, app.getAssetManager(), gameClientService.getEntityData(), playerId, textParser, app.getRootNode());
+
+                // In network games the moving entities come through SimEthereal
+                ConnectionState connectionState = stateManager.getState(ConnectionState.class);
+                EntityTransformBuffer entityTransforms = connectionState != null ? new EntityTransformBuffer(connectionState.getService(EtherealClient.class)) : null;
+                visibility = new VisibilityGrid(kwdFile.getMap().getWidth(), kwdFile.getMap().getHeight());
+                playerModelViewState = new PlayerEntityViewState(kwdFile, app.getAssetManager(), gameClientService.getEntityData(), entityTransforms, playerId, textParser, app.getRootNode(), visibility);
 
                 // Attach the states
                 stateManager.attach(playerState);
@@ -409,6 +426,22 @@ public final class GameClientState extends AbstractPauseAwareState {
             });
         }
 
+        @Override
+        public void onTileStatesChange(MapTileDelta delta) {
+
+            // Collected already while loading, the map view applies these
+            tileStateDeltas.add(delta);
+        }
+
+        @Override
+        public void onVisibilityChange(int[] runs, boolean visible) {
+
+            // Only sent once the game is running, the grid is there by then
+            app.enqueue(() -> {
+                visibility.setVisible(runs, visible);
+            });
+        }
+
         @Override
         public void onTilesChange(List<Point> updatedTiles) {
             //mapInformation.setTiles(updatedTiles);
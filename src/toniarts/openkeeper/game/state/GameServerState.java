@@ -36,6 +36,7 @@ import toniarts.openkeeper.game.controller.player.PlayerTrapControl;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.listener.MapListener;
 import toniarts.openkeeper.game.listener.PlayerActionListener;
+import toniarts.openkeeper.game.map.MapTileDelta;
 import toniarts.openkeeper.game.state.loop.GameLoopManager;
 import toniarts.openkeeper.game.state.session.GameSessionServerService;
 import toniarts.openkeeper.game.state.session.GameSessionServiceListener;
@@ -185,6 +186,11 @@ public final class GameServerState extends AbstractAppState {
             // Send the the initial game data
             gameService.sendGameData(game.getGameController().getLevelInfo().getPlayers().values());
 
+            // And the whole map, the changes follow from the game loop
+            for (MapTileDelta delta : mapController.getMapData().getTileStore().createSnapshot()) {
+                gameService.updateTileStates(delta);
+            }
+
             // Set up a listener for the map
             mapController.addListener(mapListener);
 
@@ -324,7 +330,7 @@ public final class GameServerState extends AbstractAppState {
                     break;
                 }
                 case REMOVE_FOW: {
-                    // TODO:
+                    game.getFogOfWar().setRevealAll(playerId, true);
                     break;
                 }
                 case UNLOCK_ROOMS: {
@@ -45,6 +45,10 @@ public final class GameLoopManager {
 
     private final IGameController gameController;
 
+    private final FogOfWarSystem fogOfWar;
+
+    private final long tickInterval;
+
     /**
      * Single use game states
      *
@@ -53,6 +57,19 @@ public final class GameLoopManager {
      * @param players player participating in this game, can be {@code null}
      */
     public GameLoopManager(KwdFile level, GameSessionServerService gameService, List<Keeper> players) {
+        this(level, gameService, players, false);
+    }
+
+    /**
+     * Single use game states
+     *
+     * @param level the level to load
+     * @param gameService
+     * @param players player participating in this game, can be {@code null}
+     * @param parallelCreatureAi whether the creatures assess their
+     * surroundings in parallel, see {@link CreatureAiSystem}
+     */
+    public GameLoopManager(KwdFile level, GameSessionServerService gameService, List<Keeper> players, boolean parallelCreatureAi) {
         this.gameService = gameService;
         final EntityData entityData = gameService.getEntityData();
         final Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings = level.getVariables();
@@ -64,8 +81,14 @@ public final class GameLoopManager {
         final Map<Short, IPlayerController> playerControllers = gameController.getPlayerControllers();
         final ITaskManager taskManager = gameController.getTaskManager();
 
+        // Fog of war, before the map tiles are sent so that they are filtered by it
+        fogOfWar = new FogOfWarSystem(entityData, gameWorldController.getMapController(), levelInfo.getPlayers().values(), gameService);
+        gameService.initializeVisibility(gameWorldController.getMapController().getMapData().getWidth(),
+                gameWorldController.getMapController().getMapData().getHeight());
+
         // Game logic
-        final GameLogicManager gameLogicThread = new GameLogicManager(
+        final GameLogicManager gameLogicThread = new GameLogicManager("Logic",
+                gameWorldController.getControllerRegistry(),
                 gameWorldController.getMapController(),
                 new DecaySystem(entityData),
                 new CreatureExperienceSystem(entityData, levelInfo.getLevelData(), gameSettings,
@@ -83,19 +106,23 @@ public final class GameLoopManager {
                         gameSettings, levelInfo, gameWorldController.getMapController()),
                 new ChickenSpawnSystem(entityData, gameWorldController.getObjectsController(),
                         playerControllers.values(), gameSettings, levelInfo, gameWorldController.getMapController()),
-                new ManaCalculatorLogic(playerControllers.values(), entityData),
-                new CreatureAiSystem(entityData, gameWorldController.getCreaturesController(), taskManager),
+                new ManaCalculatorLogic(playerControllers.values(), entityData, gameWorldController.getMapController().getMapData().getTileStore()),
+                new CreatureAiSystem(entityData, gameWorldController.getCreaturesController(), taskManager, parallelCreatureAi),
                 new ChickenAiSystem(entityData, gameWorldController.getObjectsController()),
                 new CreatureViewSystem(entityData),
                 new DoorViewSystem(entityData, positionSystem),
                 new LooseObjectSystem(entityData, gameWorldController.getMapController(), playerControllers, positionSystem),
                 new HaulingSystem(entityData),
-                (IGameLogicUpdatable) taskManager);
+                (IGameLogicUpdatable) taskManager,
+                fogOfWar,
+                new MapTileStateSystem(gameWorldController.getMapController().getMapData().getTileStore(), gameService, fogOfWar),
+                new ComponentWriteCounter(entityData, "Logic"));
 
-        loops.add(new GameLoop(gameLogicThread, 1_000_000_000 / levelInfo.getLevelData().getGameLevel().getTicksPerSec(), "Logic"));
+        tickInterval = 1_000_000_000 / levelInfo.getLevelData().getGameLevel().getTicksPerSec();
+        loops.add(new GameLoop(gameLogicThread, tickInterval, "Logic"));
 
         // Animation systems
-        final GameLogicManager gameAnimationThread = new GameLogicManager(
+        final GameLogicManager gameAnimationThread = new GameLogicManager("Animation",
                 new DungeonHeartConstruction(
                         entityData,
                         gameController.getLevelVariable(Variable.MiscVariable.MiscType.TIME_BEFORE_DUNGEON_HEART_CONSTRUCTION_BEGINS)),
@@ -103,7 +130,7 @@ public final class GameLoopManager {
         loops.add(new GameLoop(gameAnimationThread, GameLoop.INTERVAL_FPS_60, "Animation"));
 
         // Steering
-        loops.add(new GameLoop(new GameLogicManager(new MovementSystem(entityData)), GameLoop.INTERVAL_FPS_60, "Steering"));
+        loops.add(new GameLoop(new GameLogicManager("Steering", new MovementSystem(entityData, gameService.getEntityTransformPublisher())), GameLoop.INTERVAL_FPS_60, "Steering"));
     }
 
     public void pause() {
@@ -125,8 +152,23 @@ public final class GameLoopManager {
         loops.clear();
     }
 
+    /**
+     * Advances the game by one logic tick on the calling thread, instead of
+     * starting the loops. The other loops are stepped by the same game time.
+     * For replaying the game, don't mix with {@link #start()}.
+     */
+    public void step() {
+        for (GameLoop loop : loops) {
+            loop.step(tickInterval);
+        }
+    }
+
     public IGameController getGameController() {
         return gameController;
     }
 
+    public FogOfWarSystem getFogOfWar() {
+        return fogOfWar;
+    }
+
 }
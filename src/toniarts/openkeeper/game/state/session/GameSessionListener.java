@@ -23,6 +23,7 @@ import java.util.Collection;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.listener.MapListener;
 import toniarts.openkeeper.game.listener.PlayerListener;
+import toniarts.openkeeper.game.map.MapTileDelta;
 import toniarts.openkeeper.tools.convert.map.TriggerAction;
 
 /**
@@ -57,6 +58,23 @@ public interface GameSessionListener extends MapListener, PlayerListener {
     @Asynchronous
     public void onLoadStatusUpdate(float progress, short keeperId);
 
+    /**
+     * Map tile states have changed, the first changes are the whole map
+     *
+     * @param delta the changed tile states
+     */
+    @Asynchronous
+    public void onTileStatesChange(MapTileDelta delta);
+
+    /**
+     * Map tiles have become visible or hidden to us
+     *
+     * @param runs start index and length pairs of the changed tiles
+     * @param visible whether the tiles became visible or hidden
+     */
+    @Asynchronous
+    public void onVisibilityChange(int[] runs, boolean visible);
+
     /**
      * Client should start the visuals
      */
@@ -16,6 +16,8 @@
  */
 package toniarts.openkeeper.game.state.session;
 
+import toniarts.openkeeper.game.logic.IEntityTransformPublisher;
+
 /**
  * A generous game client services for the esteemed guests!
  *
@@ -27,4 +29,22 @@ public interface GameSessionServerService extends GameSessionService {
 
     public void removeGameSessionServiceListener(GameSessionServiceListener l);
 
+    /**
+     * Get the publisher for the moving entities
+     *
+     * @return the publisher, or {@code null} if the clients should just read
+     * the Position components
+     */
+    public IEntityTransformPublisher getEntityTransformPublisher();
+
+    /**
+     * Start keeping track of what the players see, from the visibility changes
+     * sent with {@link #updateVisibility(int[], boolean, short)}. The entities
+     * are then only sent to the clients where their players see them.
+     *
+     * @param width the map width
+     * @param height the map height
+     */
+    public void initializeVisibility(int width, int height);
+
 }
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.List;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.listener.PlayerListener;
+import toniarts.openkeeper.game.map.MapTileDelta;
 
 /**
  * This is server's perspective of game flow things. The services we offer our
@@ -60,6 +61,34 @@ public interface GameSessionService extends PlayerListener, PlayerService {
     @Asynchronous
     public void updateTiles(List<Point> updatedTiles);
 
+    /**
+     * Sends the changed map tile states to the clients
+     *
+     * @param delta the changed tile states
+     */
+    @Asynchronous
+    public void updateTileStates(MapTileDelta delta);
+
+    /**
+     * Sends the changed map tile states to a single player
+     *
+     * @param delta the changed tile states
+     * @param playerId the player ID
+     */
+    @Asynchronous
+    public void updateTileStates(MapTileDelta delta, short playerId);
+
+    /**
+     * Sends the map tiles that became visible or hidden to the player, the fog
+     * of war
+     *
+     * @param runs start index and length pairs of the changed tiles
+     * @param visible whether the tiles became visible or hidden
+     * @param playerId the player ID
+     */
+    @Asynchronous
+    public void updateVisibility(int[] runs, boolean visible, short playerId);
+
     /**
      * Map tiles should be set flashing
      *
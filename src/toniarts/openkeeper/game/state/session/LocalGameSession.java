@@ -13,7 +13,6 @@ import com.jme3.math.Vector3f;
 import com.jme3.util.SafeArrayList;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
-import com.simsilica.es.base.DefaultEntityData;
 import toniarts.openkeeper.utils.Point;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
@@ -27,8 +26,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import toniarts.openkeeper.Main;
+import toniarts.openkeeper.game.data.IndexedEntityData;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.data.ResearchableEntity;
+import toniarts.openkeeper.game.logic.IEntityTransformPublisher;
+import toniarts.openkeeper.game.map.MapTileDelta;
 import toniarts.openkeeper.game.state.CheatState;
 import toniarts.openkeeper.game.state.GameClientState;
 import toniarts.openkeeper.game.state.GameServerState;
@@ -50,7 +52,7 @@ public final class LocalGameSession implements GameSessionServerService, GameSes
     private static final short PLAYER_ID = Player.KEEPER1_ID;
 
     private boolean playerInTransition = false;
-    private final EntityData entityData = new DefaultEntityData();
+    private final EntityData entityData = IndexedEntityData.createGameEntityData();
     private final SafeArrayList<GameSessionListener> listeners = new SafeArrayList<>(GameSessionListener.class);
     private final SafeArrayList<GameSessionServiceListener> serverListeners = new SafeArrayList<>(GameSessionServiceListener.class);
 
@@ -401,6 +403,29 @@ public final class LocalGameSession implements GameSessionServerService, GameSes
         }
     }
 
+    @Override
+    public void updateTileStates(MapTileDelta delta) {
+        for (GameSessionListener listener : listeners.getArray()) {
+            listener.onTileStatesChange(delta);
+        }
+    }
+
+    @Override
+    public void updateTileStates(MapTileDelta delta, short playerId) {
+        if (playerId == PLAYER_ID) {
+            updateTileStates(delta);
+        }
+    }
+
+    @Override
+    public void updateVisibility(int[] runs, boolean visible, short playerId) {
+        if (playerId == PLAYER_ID) {
+            for (GameSessionListener listener : listeners.getArray()) {
+                listener.onVisibilityChange(runs, visible);
+            }
+        }
+    }
+
     @Override
     public void addGameSessionServiceListener(GameSessionServiceListener l) {
         serverListeners.add(l);
@@ -411,6 +436,19 @@ public final class LocalGameSession implements GameSessionServerService, GameSes
         serverListeners.remove(l);
     }
 
+    @Override
+    public IEntityTransformPublisher getEntityTransformPublisher() {
+
+        // We share the entity data with the client, no need
+        return null;
+    }
+
+    @Override
+    public void initializeVisibility(int width, int height) {
+
+        // The entity data is shared, the view hides what the player doesn't see
+    }
+
     @Override
     public void onGoldChange(short keeperId, int gold) {
         for (GameSessionListener listener : listeners.getArray()) {
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Assigns a batch of workers to a batch of tasks. Tasks with the least
+ * assignees are filled first, and from those the worker-task pair with the
+ * least points (distance + priority) wins.<br>
+ * Each task keeps its candidate workers sorted by the points, and the tasks
+ * themselves are kept in a priority queue by their assignee count and their
+ * best candidate. Since the assignee counts only go up and the candidates
+ * only get worse during the batch, the queue entries are refreshed lazily when
+ * they come up. As long as the task order is unambiguous, this gives the
+ * same result as re-sorting all the worker-task pairs after every assignment,
+ * without the cost.
+ *
+ * @param <W> the worker type
+ * @param <T> the task type
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class TaskAssigner<W, T> {
+
+    /**
+     * The worker can't do the task at all
+     */
+    public static final int NO_POINTS = Integer.MAX_VALUE;
+
+    private final Rules<W, T> rules;
+    private final Comparator<T> taskOrder;
+
+    /**
+     * Creates a new task assigner
+     *
+     * @param rules the assignment rules
+     * @param taskOrder the order of the tasks when everything else is equal
+     */
+    public TaskAssigner(Rules<W, T> rules, Comparator<T> taskOrder) {
+        this.rules = rules;
+        this.taskOrder = taskOrder;
+    }
+
+    /**
+     * Assign the workers to the tasks
+     *
+     * @param workers the workers looking for work
+     * @param tasks the available tasks
+     * @return the workers that didn't get any task
+     */
+    public List<W> assign(List<W> workers, List<T> tasks) {
+        boolean[] assigned = new boolean[workers.size()];
+        int unassigned = workers.size();
+
+        // Rate each worker for each task
+        PriorityQueue<TaskEntry<T>> queue = new PriorityQueue<>(Math.max(1, tasks.size()), this::compare);
+        for (int i = 0; i < tasks.size(); i++) {
+            T task = tasks.get(i);
+            long[] candidates = new long[workers.size()];
+            int candidateCount = 0;
+            for (int j = 0; j < workers.size(); j++) {
+                int points = rules.getPoints(workers.get(j), task);
+                if (points != NO_POINTS) {
+                    candidates[candidateCount++] = ((long) points << 32) | j;
+                }
+            }
+            if (candidateCount == 0) {
+                continue;
+            }
+
+            // Sort by the points, the worker index is in the low bits
+            candidates = Arrays.copyOf(candidates, candidateCount);
+            Arrays.sort(candidates);
+            queue.add(new TaskEntry<>(i, task, candidates, rules.getAssigneeCount(task)));
+        }
+
+        while (unassigned > 0 && !queue.isEmpty()) {
+            TaskEntry<T> entry = queue.poll();
+
+            // Skip the workers that already got something else
+            while (entry.cursor < entry.candidates.length && assigned[(int) entry.candidates[entry.cursor]]) {
+                entry.cursor++;
+            }
+            if (entry.cursor == entry.candidates.length) {
+                continue;
+            }
+
+            // If the entry was outdated, just put it back with the correct standing
+            if (entry.refresh(rules.getAssigneeCount(entry.task))) {
+                queue.add(entry);
+                continue;
+            }
+
+            if (rules.isFull(entry.task)) {
+                continue;
+            }
+
+            W worker = workers.get(entry.worker);
+            if (rules.canAssign(worker, entry.task)) {
+                rules.assign(worker, entry.task);
+                assigned[entry.worker] = true;
+                unassigned--;
+            }
+
+            // Next candidate for the task
+            entry.cursor++;
+            if (entry.cursor < entry.candidates.length) {
+                entry.refresh(rules.getAssigneeCount(entry.task));
+                queue.add(entry);
+            }
+        }
+
+        List<W> unemployed = new ArrayList<>(unassigned);
+        for (int i = 0; i < assigned.length; i++) {
+            if (!assigned[i]) {
+                unemployed.add(workers.get(i));
+            }
+        }
+
+        return unemployed;
+    }
+
+    private int compare(TaskEntry<T> o1, TaskEntry<T> o2) {
+
+        // Fill in jobs that have no workers first
+        int result = Integer.compare(o1.assigneeCount, o2.assigneeCount);
+        if (result != 0) {
+            return result;
+        }
+
+        // Closest creature gets the job
+        result = Integer.compare(o1.points, o2.points);
+        if (result != 0) {
+            return result;
+        }
+
+        // If the same, compare by date added
+        result = taskOrder.compare(o1.task, o2.task);
+        if (result != 0) {
+            return result;
+        }
+
+        // Keep it deterministic, in the order given
+        result = Integer.compare(o1.worker, o2.worker);
+        if (result != 0) {
+            return result;
+        }
+        return Integer.compare(o1.index, o2.index);
+    }
+
+    /**
+     * The rules of the assignment
+     *
+     * @param <W> the worker type
+     * @param <T> the task type
+     */
+    public interface Rules<W, T> {
+
+        /**
+         * Rate the worker for the task, this should be a light weight check
+         *
+         * @param worker the worker
+         * @param task the task
+         * @return the points, less is better, {@link #NO_POINTS} if the worker
+         * can't do the task
+         */
+        int getPoints(W worker, T task);
+
+        int getAssigneeCount(T task);
+
+        boolean isFull(T task);
+
+        /**
+         * The final, possibly heavy, check whether the worker can do the task
+         *
+         * @param worker the worker
+         * @param task the task
+         * @return true if the worker can be assigned to the task
+         */
+        boolean canAssign(W worker, T task);
+
+        void assign(W worker, T task);
+
+    }
+
+    private static final class TaskEntry<T> {
+
+        private final int index;
+        private final T task;
+        private final long[] candidates;
+        private int cursor;
+
+        // The standing in the queue, might be outdated
+        private int assigneeCount;
+        private int points;
+        private int worker;
+
+        public TaskEntry(int index, T task, long[] candidates, int assigneeCount) {
+            this.index = index;
+            this.task = task;
+            this.candidates = candidates;
+            refresh(assigneeCount);
+        }
+
+        /**
+         * Update the standing to match the current candidate
+         *
+         * @param assigneeCount the current assignee count of the task
+         * @return true if the standing changed
+         */
+        private boolean refresh(int assigneeCount) {
+            int newPoints = (int) (candidates[cursor] >> 32);
+            int newWorker = (int) candidates[cursor];
+            boolean changed = assigneeCount != this.assigneeCount || newPoints != points || newWorker != worker;
+            this.assigneeCount = assigneeCount;
+            this.points = newPoints;
+            this.worker = newWorker;
+
+            return changed;
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import toniarts.openkeeper.utils.Point;
+
+/**
+ * Task queue of a single player, indexed by the task locations. Tasks are
+ * bucketed by the map tile they are on, so that the tasks on a tile are found
+ * in constant time and the nearest tasks by growing the search area tile ring
+ * by tile ring. The task location is read when the task is added and is
+ * assumed to stay the same while the task is in the queue, as is the task
+ * priority.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class TaskIndex {
+
+    private final int width;
+    private final int height;
+    private final Set<Task> tasks = new HashSet<>();
+    private final Map<Task, Integer> tileIndices = new HashMap<>();
+    private final Set<Task> unlocatedTasks = new HashSet<>();
+    private final TreeMap<Integer, Integer> priorityCounts = new TreeMap<>();
+    private final List<Task>[] tasksByTile;
+
+    @SuppressWarnings("unchecked")
+    public TaskIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tasksByTile = new List[width * height];
+    }
+
+    /**
+     * Add a task to the queue
+     *
+     * @param task the task
+     * @return {@code false} if there already is an equal task
+     */
+    public boolean add(Task task) {
+        if (!tasks.add(task)) {
+            return false;
+        }
+
+        // Tasks without a location are just not found by the location
+        Point location = task.getTaskLocation();
+        if (location != null && isInside(location.x, location.y)) {
+            int index = location.y * width + location.x;
+            List<Task> tileTasks = tasksByTile[index];
+            if (tileTasks == null) {
+                tileTasks = new ArrayList<>(1);
+                tasksByTile[index] = tileTasks;
+            }
+            tileTasks.add(task);
+            tileIndices.put(task, index);
+            priorityCounts.merge(task.getPriority(), 1, Integer::sum);
+        } else {
+            unlocatedTasks.add(task);
+        }
+
+        return true;
+    }
+
+    /**
+     * Remove a task from the queue
+     *
+     * @param task the task
+     * @return {@code true} if the task was in the queue
+     */
+    public boolean remove(Task task) {
+        if (!tasks.remove(task)) {
+            return false;
+        }
+
+        Integer index = tileIndices.remove(task);
+        if (index != null) {
+            List<Task> tileTasks = tasksByTile[index];
+            tileTasks.remove(task);
+            if (tileTasks.isEmpty()) {
+                tasksByTile[index] = null;
+            }
+            priorityCounts.computeIfPresent(task.getPriority(), (priority, count) -> count > 1 ? count - 1 : null);
+        } else {
+            unlocatedTasks.remove(task);
+        }
+
+        return true;
+    }
+
+    public boolean contains(Task task) {
+        return tasks.contains(task);
+    }
+
+    public boolean isEmpty() {
+        return tasks.isEmpty();
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    /**
+     * Get all the tasks in the queue
+     *
+     * @return unmodifiable view of the tasks
+     */
+    public Set<Task> getTasks() {
+        return Collections.unmodifiableSet(tasks);
+    }
+
+    /**
+     * Get the tasks located on the given tile
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return unmodifiable view of the tasks on the tile, empty if none
+     */
+    public List<Task> getTasks(int x, int y) {
+        if (!isInside(x, y)) {
+            return Collections.emptyList();
+        }
+
+        List<Task> tileTasks = tasksByTile[y * width + x];
+        return tileTasks != null ? Collections.unmodifiableList(tileTasks) : Collections.emptyList();
+    }
+
+    /**
+     * Find the best tasks for the given location, ranked by the manhattan
+     * distance plus the task priority, less is better. The tasks without a
+     * location can't be ranked, so they are always included, after the ranked
+     * ones.
+     *
+     * @param location the location to search from
+     * @param count the amount of ranked tasks wanted
+     * @param filter only the tasks accepted by the filter are included
+     * @param result the found tasks are added here, best first
+     */
+    public void getBestTasks(Point location, int count, Predicate<Task> filter, List<Task> result) {
+        if (count > 0 && !tileIndices.isEmpty()) {
+            getBestLocatedTasks(location, count, filter, result);
+        }
+
+        for (Task task : unlocatedTasks) {
+            if (filter.test(task)) {
+                result.add(task);
+            }
+        }
+    }
+
+    private void getBestLocatedTasks(Point location, int count, Predicate<Task> filter, List<Task> result) {
+
+        // No point in searching if we are going to take everything anyway
+        if (tileIndices.size() <= count) {
+            int start = result.size();
+            for (Task task : tileIndices.keySet()) {
+                if (filter.test(task)) {
+                    result.add(task);
+                }
+            }
+            result.subList(start, result.size()).sort(Comparator.comparingInt((task) -> getDistance(location, tileIndices.get(task)) + task.getPriority()));
+            return;
+        }
+
+        // Keep the best ones found so far, the worst on top. The rings grow until even the least important task can't beat the worst of them
+        PriorityQueue<Candidate> best = new PriorityQueue<>(count + 1, Comparator.comparingInt((Candidate candidate) -> candidate.score).reversed());
+        int minPriority = priorityCounts.firstKey();
+        int maxDistance = width + height;
+        for (int distance = 0; distance <= maxDistance; distance++) {
+            if (best.size() == count && distance + minPriority >= best.peek().score) {
+                break;
+            }
+
+            // Walk the diamond shaped ring of tiles on the current distance
+            for (int dx = -distance; dx <= distance; dx++) {
+                int dy = distance - Math.abs(dx);
+                collect(location.x + dx, location.y + dy, distance, count, filter, best);
+                if (dy != 0) {
+                    collect(location.x + dx, location.y - dy, distance, count, filter, best);
+                }
+            }
+        }
+
+        int start = result.size();
+        while (!best.isEmpty()) {
+            result.add(best.poll().task);
+        }
+        Collections.reverse(result.subList(start, result.size()));
+    }
+
+    private void collect(int x, int y, int distance, int count, Predicate<Task> filter, PriorityQueue<Candidate> best) {
+        if (!isInside(x, y)) {
+            return;
+        }
+
+        List<Task> tileTasks = tasksByTile[y * width + x];
+        if (tileTasks == null) {
+            return;
+        }
+
+        for (Task task : tileTasks) {
+            int score = distance + task.getPriority();
+            if (best.size() == count && score >= best.peek().score) {
+                continue;
+            }
+            if (filter.test(task)) {
+                best.add(new Candidate(score, task));
+                if (best.size() > count) {
+                    best.poll();
+                }
+            }
+        }
+    }
+
+    private int getDistance(Point location, int index) {
+        return Math.abs(location.x - index % width) + Math.abs(location.y - index / width);
+    }
+
+    private boolean isInside(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    private static final class Candidate {
+
+        private final int score;
+        private final Task task;
+
+        public Candidate(int score, Task task) {
+            this.score = score;
+            this.task = task;
+        }
+
+    }
+
+}
@@ -33,7 +33,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -109,6 +109,14 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
 
     private static final Logger logger = System.getLogger(TaskManager.class.getName());
 
+    /**
+     * How many of the best tasks, by distance and priority, are first
+     * considered for an unemployed worker. The search is widened if none of
+     * them will do
+     */
+    private static final int MAX_CANDIDATE_TASKS = 32;
+    private static final Comparator<Task> TASK_ORDER = (o1, o2) -> o1.getTaskCreated().compareTo(o2.getTaskCreated());
+
     private final IMapController mapController;
     private final IGameWorldController gameWorldController;
     private final IObjectsController objectsController;
@@ -122,8 +130,12 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
     private final EntitySet unconsciousEntities;
     private final EntitySet corpseEntities;
     private final EntitySet freeObjectEntities;
-    private final Map<Short, Set<Task>> taskQueues;
+    private final Map<Short, TaskIndex> taskQueues;
     private final Map<Long, Task> tasksByIds = new HashMap<>();
+    /**
+     * Tasks removed from the queues, but still having assignees
+     */
+    private final Set<Long> retiredTaskIds = new HashSet<>();
     private final Map<EntityId, Long> tasksIdsByEntities = new HashMap<>();
     private final Map<Short, IPlayerController> playerControllers;
     private final Map<IRoomController, Map<Point, AbstractCapacityCriticalRoomTask>> roomTasks = new HashMap<>();
@@ -153,7 +165,7 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
             playerControllers.put(keeper.getId(), playerController);
 
             if (keeper.getId() != Player.GOOD_PLAYER_ID && keeper.getId() != Player.NEUTRAL_PLAYER_ID) {
-                taskQueues.put(keeper.getId(), new HashSet<>());
+                taskQueues.put(keeper.getId(), new TaskIndex(mapController.getMapData().getWidth(), mapController.getMapData().getHeight()));
             }
         }
 
@@ -227,8 +239,8 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
             Task task = tasksByIds.get(taskId);
             if (task != null) {
                 task.unassign(creaturesController.createController(entity.getId()));
-                if (task.getAssigneeCount() == 0 && task.isRemovable()) {
-                    //tasksByIds.remove(taskId);
+                if (task.getAssigneeCount() == 0 && retiredTaskIds.remove(task.getId())) {
+                    tasksByIds.remove(task.getId());
                 }
             }
         }
@@ -245,8 +257,8 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
             Task task = tasksByIds.get(oldTaskId);
             if (task != null) {
                 task.unassign(creaturesController.createController(entity.getId()));
-                if (task.getAssigneeCount() == 0 && task.isRemovable()) {
-                    //tasksByIds.remove(taskId);
+                if (task.getAssigneeCount() == 0 && retiredTaskIds.remove(task.getId())) {
+                    tasksByIds.remove(task.getId());
                 }
             }
         }
@@ -257,7 +269,7 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
         // Add rescue mission for the own troops and capture for the enemy
         for (Entity entity : entities) {
             Owner owner = entity.get(Owner.class);
-            for (Entry<Short, Set<Task>> entry : taskQueues.entrySet()) {
+            for (Entry<Short, TaskIndex> entry : taskQueues.entrySet()) {
 
                 Task task = null;
                 if (entry.getKey() == owner.ownerId) {
@@ -439,19 +451,15 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
     }
 
     private void scanTerrainTasks(final Point tile, final boolean checkNeighbours, final boolean deleteObsolete) {
-        for (Entry<Short, Set<Task>> entry : taskQueues.entrySet()) {
+        for (Entry<Short, TaskIndex> entry : taskQueues.entrySet()) {
 
             // Scan existing tasks that are they valid, should be only one tile task per tile?
+            // The tile change can only affect the tasks on the tile itself and right next to it
             if (deleteObsolete) {
-                Iterator<Task> iter = entry.getValue().iterator();
-                while (iter.hasNext()) {
-                    Task task = iter.next();
-                    if (task instanceof AbstractTileTask tileTask) {
-                        if (tileTask.isRemovable()) {
-                            iter.remove();
-                            if (tileTask.getAssigneeCount() == 0) {
-                                //tasksByIds.remove(task.getId());
-                            }
+                for (Point p : WorldUtils.getSurroundingTiles(mapController.getMapData(), tile, true)) {
+                    for (Task task : new ArrayList<>(entry.getValue().getTasks(p.x, p.y))) {
+                        if (task instanceof AbstractTileTask && task.isRemovable()) {
+                            retireTask(entry.getValue(), task);
                         }
                     }
                 }
@@ -510,9 +518,7 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
     }
 
     public void addTask(short playerId, Task task) {
-        Set<Task> tasks = taskQueues.get(playerId);
-        if (!tasks.contains(task)) {
-            tasks.add(task);
+        if (taskQueues.get(playerId).add(task)) {
             tasksByIds.put(task.getId(), task);
             logger.log(Level.INFO, "Added task {0} for player {1}!", new Object[]{task, playerId});
         } else {
@@ -520,6 +526,25 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
         }
     }
 
+    /**
+     * Removes the task from the queue. The task can still be looked up by its
+     * ID while it has assignees.
+     *
+     * @param tasks the task queue
+     * @param task the task to remove
+     */
+    private void retireTask(TaskIndex tasks, Task task) {
+        if (!tasks.remove(task)) {
+            return;
+        }
+
+        if (task.getAssigneeCount() == 0) {
+            tasksByIds.remove(task.getId());
+        } else {
+            retiredTaskIds.add(task.getId());
+        }
+    }
+
     @Override
     public boolean assignGoldToTreasuryTask(ICreatureController creature) {
 
@@ -553,7 +578,9 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
         List<IRoomController> rooms = mapController.getRoomsByFunction(objectType, creature.getOwnerId());
         Map<Integer, IRoomController> distancesToRooms = new TreeMap<>();
         for (IRoomController room : rooms) {
-            if (!room.isFullCapacity()) {
+
+            // Rooms are always connected inside, one tile tells whether the whole room can be reached
+            if (!room.isFullCapacity() && navigationService.isReachable(currentPosition, room.getRoomInstance().getCoordinates().get(0), creature)) {
                 distancesToRooms.put(getShortestDistance(currentPosition, room.getRoomInstance().getCoordinates().toArray(new Point[0])), room
                 );
             }
@@ -796,93 +823,94 @@ public final class TaskManager implements ITaskManager, IGameLogicUpdatable {
                 .collect(Collectors.groupingBy((creature) -> creature.getKey().getOwnerId()))
                 .entrySet()
                 .forEach((creaturesByOwnerId) -> {
-                    processUnemployedWorkers(taskQueues.getOrDefault(creaturesByOwnerId.getKey(), Collections.emptySet()), creaturesByOwnerId.getValue());
+                    processUnemployedWorkers(taskQueues.get(creaturesByOwnerId.getKey()), creaturesByOwnerId.getValue());
                 });
         unemployedCreatures.clear();
     }
 
-    private void processUnemployedWorkers(Set<Task> tasks, List<Entry<ICreatureController, Consumer<Boolean>>> workers) {
-        Set<Task> taskQueue = new HashSet<>(tasks);
-        Map<ICreatureController, Consumer<Boolean>> unemployedWorkers = workers
-                .stream()
-                .collect(Collectors.toMap((entry) -> entry.getKey(), (entry) -> entry.getValue()));
-
-        // Process each available task for each available worker
-        List<TaskWorkerPriority> priorizedTasks = new LinkedList<>();
-        for (Entry<ICreatureController, Consumer<Boolean>> workerEntry : unemployedWorkers.entrySet()) {
-            ICreatureController creature = workerEntry.getKey();
-            Consumer<Boolean> workResult = workerEntry.getValue();
-            final Point currentLocation = creature.getCreatureCoordinates();
-
-            // Give points by distance and priority, no need to know can we do the task as this point as it might be a heavy check
-            for (Task task : taskQueue) {
-                Vector2f target = task.getTarget(creature);
-                if (target == null) {
-
-                    // Can't reach
-                    continue;
+    private void processUnemployedWorkers(TaskIndex tasks, List<Entry<ICreatureController, Consumer<Boolean>>> workers) {
+        List<Entry<ICreatureController, Consumer<Boolean>>> unemployedWorkers = workers;
+        if (tasks != null && !tasks.isEmpty()) {
+
+            // Only consider the best tasks for each worker, if none of them will do, look further
+            Map<ICreatureController, Set<Task>> triedTasks = HashMap.newHashMap(workers.size());
+            List<Task> bestTasks = new ArrayList<>(MAX_CANDIDATE_TASKS);
+            int candidateCount = MAX_CANDIDATE_TASKS;
+            while (!unemployedWorkers.isEmpty()) {
+                Map<ICreatureController, Set<Task>> candidateTasks = HashMap.newHashMap(unemployedWorkers.size());
+                Set<Task> taskQueue = new LinkedHashSet<>();
+                for (Entry<ICreatureController, Consumer<Boolean>> workerEntry : unemployedWorkers) {
+                    Set<Task> tried = triedTasks.computeIfAbsent(workerEntry.getKey(), (worker) -> new HashSet<>());
+                    bestTasks.clear();
+                    tasks.getBestTasks(workerEntry.getKey().getCreatureCoordinates(), candidateCount, (task) -> !task.isFull() && !tried.contains(task), bestTasks);
+                    candidateTasks.put(workerEntry.getKey(), new HashSet<>(bestTasks));
+                    tried.addAll(bestTasks);
+                    taskQueue.addAll(bestTasks);
+                }
+                if (taskQueue.isEmpty()) {
+                    break;
                 }
 
-                int points = WorldUtils.calculateDistance(currentLocation, WorldUtils.vectorToPoint(target)) + task.getPriority();
-                priorizedTasks.add(new TaskWorkerPriority(task, creature, points, workResult));
+                unemployedWorkers = new TaskAssigner<>(new WorkerTaskRules(candidateTasks), TASK_ORDER).assign(unemployedWorkers, new ArrayList<>(taskQueue));
+                candidateCount *= 2;
             }
         }
 
-        // Go through the tasks and assign workers
-        while (!unemployedWorkers.isEmpty() && !priorizedTasks.isEmpty()) {
-
-            // With each iteration we sort to fill the jobs as even as possible (assignee count changes)
-            Collections.sort(priorizedTasks, (o1, o2) -> sortByTaskStatusAndDistance(o1, o2));
+        // Finally anybody without assigment will get feedback
+        for (Entry<ICreatureController, Consumer<Boolean>> workerEntry : unemployedWorkers) {
+            workerEntry.getValue().accept(Boolean.FALSE);
+        }
+    }
 
-            Iterator<TaskWorkerPriority> iter = priorizedTasks.iterator();
-            while (iter.hasNext()) {
-                TaskWorkerPriority taskWorkerPriority = iter.next();
+    /**
+     * Rules for assigning the unemployed workers, fill in the jobs that have no
+     * workers first and let the closest worker have the job
+     */
+    private static final class WorkerTaskRules implements TaskAssigner.Rules<Entry<ICreatureController, Consumer<Boolean>>, Task> {
 
-                // See if the task is full or the worker is not unemployed anymore or that the task can't actually be handled by this creature
-                if (!unemployedWorkers.containsKey(taskWorkerPriority.creature)
-                        || taskWorkerPriority.task.isFull()
-                        || !taskWorkerPriority.task.canAssign(taskWorkerPriority.creature)) {
-                    iter.remove();
-                    continue;
-                }
+        private final Map<ICreatureController, Set<Task>> candidateTasks;
 
-                // Assign task
-                taskWorkerPriority.task.assign(taskWorkerPriority.creature, true);
-                taskWorkerPriority.workResult.accept(Boolean.TRUE);
+        public WorkerTaskRules(Map<ICreatureController, Set<Task>> candidateTasks) {
+            this.candidateTasks = candidateTasks;
+        }
 
-                // Prune list and re-sort tasks
-                unemployedWorkers.remove(taskWorkerPriority.creature);
-                iter.remove();
-                break;
+        @Override
+        public int getPoints(Entry<ICreatureController, Consumer<Boolean>> worker, Task task) {
+            if (!candidateTasks.get(worker.getKey()).contains(task)) {
+                return TaskAssigner.NO_POINTS;
             }
-        }
 
-        // Finally anybody without assigment will get feedback
-        unemployedWorkers.forEach((t, u) -> {
-            u.accept(Boolean.FALSE);
-        });
-    }
+            // Give points by distance and priority, no need to know can we do the task as this point as it might be a heavy check
+            Vector2f target = task.getTarget(worker.getKey());
+            if (target == null) {
 
-    private int sortByTaskStatusAndDistance(TaskWorkerPriority o1, TaskWorkerPriority o2) {
+                // Can't reach
+                return TaskAssigner.NO_POINTS;
+            }
 
-        // Fill in jobs that have no workers first
-        int result = Integer.compare(o1.task.getAssigneeCount(), o2.task.getAssigneeCount());
-        if (result != 0) {
-            return result;
+            return WorldUtils.calculateDistance(worker.getKey().getCreatureCoordinates(), WorldUtils.vectorToPoint(target)) + task.getPriority();
         }
 
-        // Closest creature gets the job
-        result = Integer.compare(o1.points, o2.points);
-        if (result != 0) {
-            return result;
+        @Override
+        public int getAssigneeCount(Task task) {
+            return task.getAssigneeCount();
         }
 
-        // If the same, compare by date added
-        return o1.task.getTaskCreated().compareTo(o2.task.getTaskCreated());
-    }
+        @Override
+        public boolean isFull(Task task) {
+            return task.isFull();
+        }
 
-    private static record TaskWorkerPriority(Task task, ICreatureController creature, int points, Consumer<Boolean> workResult) {
+        @Override
+        public boolean canAssign(Entry<ICreatureController, Consumer<Boolean>> worker, Task task) {
+            return task.canAssign(worker.getKey());
+        }
 
+        @Override
+        public void assign(Entry<ICreatureController, Consumer<Boolean>> worker, Task task) {
+            task.assign(worker.getKey(), true);
+            worker.getValue().accept(Boolean.TRUE);
+        }
     }
 
 }
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.benchmark;
+
+import com.badlogic.gdx.ai.DefaultTimepiece;
+import com.badlogic.gdx.ai.GdxAI;
+import com.jme3.math.FastMath;
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntitySet;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import toniarts.openkeeper.game.component.AttackTarget;
+import toniarts.openkeeper.game.component.CreatureAi;
+import toniarts.openkeeper.game.component.CreatureComponent;
+import toniarts.openkeeper.game.component.CreatureExperience;
+import toniarts.openkeeper.game.component.CreatureHunger;
+import toniarts.openkeeper.game.component.CreatureMood;
+import toniarts.openkeeper.game.component.CreatureSleep;
+import toniarts.openkeeper.game.component.Death;
+import toniarts.openkeeper.game.component.Gold;
+import toniarts.openkeeper.game.component.HauledBy;
+import toniarts.openkeeper.game.component.Health;
+import toniarts.openkeeper.game.component.Navigation;
+import toniarts.openkeeper.game.component.Owner;
+import toniarts.openkeeper.game.component.Position;
+import toniarts.openkeeper.game.component.TaskComponent;
+import toniarts.openkeeper.game.component.Unconscious;
+import toniarts.openkeeper.game.data.Keeper;
+import toniarts.openkeeper.game.logic.CreatureAiSystem;
+import toniarts.openkeeper.game.state.loop.GameLoopManager;
+import toniarts.openkeeper.game.state.session.LocalGameSession;
+import toniarts.openkeeper.tools.convert.map.KwdFile;
+import toniarts.openkeeper.tools.convert.map.Player;
+import toniarts.openkeeper.utils.PathUtils;
+import toniarts.openkeeper.utils.Utils;
+
+/**
+ * Checks that the creatures behave the same when the {@link CreatureAiSystem}
+ * assesses their surroundings in parallel. Runs the same level headless with
+ * the same random seed, first sequentially twice (the reference, and to see
+ * that the replay itself is deterministic) and then in parallel. The game is
+ * stepped tick by tick on the main thread and the creature component states
+ * are compared after every tick, the first tick that differs is reported.
+ * Nothing is asserted, the parallel mode stays off until this reports no
+ * differences on the levels that have enough creatures for it.<br>
+ * Usage: CreatureAiReplay &lt;Dungeon Keeper II folder&gt; &lt;level
+ * name&gt; [ticks] [seed], defaults to 2000 ticks and seed 0, the level is
+ * read from the maps folder (e.g. FinalMap).
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class CreatureAiReplay {
+
+    private static final int DEFAULT_TICKS = 2000;
+    private static final int MAX_REPORTED_DIFFERENCES = 10;
+    private static final List<Class<? extends EntityComponent>> COMPARED_COMPONENTS = List.of(
+            Position.class, Health.class, CreatureAi.class, Navigation.class, TaskComponent.class,
+            AttackTarget.class, Gold.class, Owner.class, CreatureMood.class, CreatureHunger.class,
+            CreatureSleep.class, CreatureExperience.class, Unconscious.class, Death.class, HauledBy.class);
+
+    private CreatureAiReplay() {
+        // Nope
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: CreatureAiReplay <Dungeon Keeper II folder> <level name> [ticks] [seed]");
+        }
+        String dkIIFolder = PathUtils.fixFilePath(args[0]);
+        Path mapFile = Paths.get(PathUtils.getRealFileName(dkIIFolder + PathUtils.DKII_MAPS_FOLDER, args[1] + ".kwd"));
+        if (!Files.exists(mapFile)) {
+            throw new IllegalArgumentException("Level " + mapFile + " not found!");
+        }
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_TICKS;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+
+        List<Map<String, String>> reference = replay(dkIIFolder, mapFile, ticks, seed, false, null);
+        long creatures = reference.get(reference.size() - 1).keySet().stream()
+                .filter(key -> key.endsWith(" " + CreatureAi.class.getSimpleName()))
+                .count();
+        System.out.println(String.format("%s, %d ticks, seed %d, %d creatures at the end (parallel from %d)",
+                args[1], ticks, seed, creatures, CreatureAiSystem.PARALLEL_THRESHOLD));
+
+        replay(dkIIFolder, mapFile, ticks, seed, false, reference);
+        replay(dkIIFolder, mapFile, ticks, seed, true, reference);
+    }
+
+    /**
+     * Plays the level for the given amount of ticks
+     *
+     * @param reference the states to compare each tick to, {@code null} to
+     * just record them
+     * @return the recorded states, or the states up to the first difference
+     */
+    private static List<Map<String, String>> replay(String dkIIFolder, Path mapFile, int ticks, long seed, boolean parallel,
+            List<Map<String, String>> reference) {
+
+        // Everything random in the game needs to start from the same state
+        Utils.setRandomSeed(seed);
+        FastMath.rand.setSeed(seed);
+        GdxAI.setTimepiece(new DefaultTimepiece());
+
+        KwdFile kwdFile = new KwdFile(dkIIFolder, mapFile);
+        LocalGameSession gameSession = new LocalGameSession();
+        GameLoopManager game = new GameLoopManager(kwdFile, gameSession, List.of(new Keeper(false, Player.KEEPER1_ID)), parallel);
+        EntityData entityData = gameSession.getEntityData();
+        List<EntitySet> entitySets = new ArrayList<>(COMPARED_COMPONENTS.size());
+        for (Class<? extends EntityComponent> type : COMPARED_COMPONENTS) {
+            entitySets.add(entityData.getEntities(CreatureComponent.class, type));
+        }
+
+        String mode = parallel ? "parallel" : "sequential";
+        List<Map<String, String>> states = new ArrayList<>(ticks);
+        try {
+            for (int tick = 0; tick < ticks; tick++) {
+                game.step();
+                Map<String, String> state = snapshot(entitySets);
+                states.add(state);
+                if (reference != null && !state.equals(reference.get(tick))) {
+                    report(mode, tick, reference.get(tick), state);
+                    return states;
+                }
+            }
+        } finally {
+            game.stop();
+            entitySets.forEach(EntitySet::release);
+        }
+
+        if (reference != null) {
+            System.out.println(String.format("%s: identical for %d ticks", mode, ticks));
+        }
+
+        return states;
+    }
+
+    private static Map<String, String> snapshot(List<EntitySet> entitySets) {
+        Map<String, String> state = new TreeMap<>();
+        for (int i = 0; i < entitySets.size(); i++) {
+            EntitySet entitySet = entitySets.get(i);
+            Class<? extends EntityComponent> type = COMPARED_COMPONENTS.get(i);
+            entitySet.applyChanges();
+            for (Entity entity : entitySet) {
+                state.put(entity.getId() + " " + type.getSimpleName(), describe(entity.get(type)));
+            }
+        }
+
+        return state;
+    }
+
+    /**
+     * The components don't implement equals, compare their field values
+     * instead
+     */
+    private static String describe(EntityComponent component) {
+        StringBuilder sb = new StringBuilder();
+        for (Field field : component.getClass().getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            try {
+                sb.append(field.getName()).append('=').append(Arrays.deepToString(new Object[]{field.get(component)})).append(' ');
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException("Can't read " + field + "!", ex);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static void report(String mode, int tick, Map<String, String> expected, Map<String, String> actual) {
+        System.out.println(String.format("%s: differs on tick %d", mode, tick));
+        TreeSet<String> keys = new TreeSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        int reported = 0;
+        for (String key : keys) {
+            if (!Objects.equals(expected.get(key), actual.get(key))) {
+                System.out.println(String.format("  %s: expected %s, was %s", key, expected.get(key), actual.get(key)));
+                if (++reported == MAX_REPORTED_DIFFERENCES) {
+                    break;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.benchmark;
+
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.base.DefaultEntityData;
+import com.simsilica.es.filter.FieldFilter;
+import java.util.Arrays;
+import java.util.Random;
+import toniarts.openkeeper.game.component.ObjectComponent;
+import toniarts.openkeeper.game.component.Owner;
+import toniarts.openkeeper.game.controller.room.AbstractRoomController;
+import toniarts.openkeeper.game.data.IndexedEntityData;
+
+/**
+ * Measures the {@link FieldFilter} queries the game logic does, like finding
+ * the player's food or the dungeon heart plugs. Compares the
+ * {@link IndexedEntityData} to the {@link DefaultEntityData}. Synthetic
+ * entities are owned by random players, half of them are objects with a
+ * random object ID.<br>
+ * Usage: EntityQueryBenchmark [entity counts...], defaults to 1000, 10000 and
+ * 50000 entities.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class EntityQueryBenchmark {
+
+    private static final int PLAYERS = 5;
+    private static final int OBJECT_TYPES = 100;
+    private static final int QUERIES = 100;
+    private static final int ROUNDS = 10;
+    private static final int WARMUP_ROUNDS = 5;
+
+    private EntityQueryBenchmark() {
+        // Nope
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[]{1000, 10000, 50000};
+        for (int size : sizes) {
+            EntityData defaultEntityData = populate(new DefaultEntityData(), size);
+            EntityData indexedEntityData = populate(IndexedEntityData.createGameEntityData(), size);
+            System.out.println(String.format("%d entities, by owner: default %.3f ms, indexed %.3f ms; by object ID: default %.3f ms, indexed %.3f ms",
+                    size,
+                    measure(defaultEntityData, true), measure(indexedEntityData, true),
+                    measure(defaultEntityData, false), measure(indexedEntityData, false)));
+            defaultEntityData.close();
+            indexedEntityData.close();
+        }
+    }
+
+    private static EntityData populate(EntityData entityData, int size) {
+        Random random = new Random(size);
+        for (int i = 0; i < size; i++) {
+            EntityId entityId = entityData.createEntity();
+            entityData.setComponent(entityId, new Owner((short) (1 + random.nextInt(PLAYERS)), (short) 0));
+            if (random.nextBoolean()) {
+                entityData.setComponent(entityId, new ObjectComponent((short) random.nextInt(OBJECT_TYPES), AbstractRoomController.ObjectType.GOLD));
+            }
+        }
+
+        return entityData;
+    }
+
+    /**
+     * Runs a batch of queries per round
+     *
+     * @return the median time of a round
+     */
+    private static double measure(EntityData entityData, boolean byOwner) {
+        long[] times = new long[ROUNDS];
+        long found = 0;
+        for (int round = -WARMUP_ROUNDS; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                if (byOwner) {
+                    found += entityData.findEntities(new FieldFilter<>(Owner.class, "ownerId", (short) (1 + i % PLAYERS)), Owner.class, ObjectComponent.class).size();
+                } else {
+                    found += entityData.findEntities(new FieldFilter<>(ObjectComponent.class, "objectId", (short) (i % OBJECT_TYPES)), ObjectComponent.class, Owner.class).size();
+                }
+            }
+            long time = System.nanoTime() - start;
+            if (round >= 0) {
+                times[round] = time;
+            }
+        }
+
+        // Keep the results alive
+        if (found < 0) {
+            System.out.println(found);
+        }
+
+        // Median
+        Arrays.sort(times);
+        return times[ROUNDS / 2] / 1_000_000.0;
+    }
+
+}
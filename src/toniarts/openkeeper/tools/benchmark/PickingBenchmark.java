@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.benchmark;
+
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Sphere;
+import com.simsilica.es.EntityId;
+import java.util.Arrays;
+import java.util.Random;
+import toniarts.openkeeper.utils.WorldUtils;
+import toniarts.openkeeper.view.selection.EntityPicker;
+
+/**
+ * Measures the per frame cost of the hover picking. Compares the
+ * {@link EntityPicker} to colliding the cursor ray with the whole entity scene
+ * graph. Synthetic creatures (spheres of about a thousand triangles, roughly
+ * an animated creature mesh) are scattered on a map sized area and the rays
+ * come from above, like from the player camera.<br>
+ * Usage: PickingBenchmark [creature counts...], defaults to 100 and 300
+ * creatures.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class PickingBenchmark {
+
+    private static final int MAP_SIZE = 85;
+    private static final int FRAMES = 1000;
+    private static final int ROUNDS = 10;
+    private static final int WARMUP_ROUNDS = 5;
+
+    private PickingBenchmark() {
+        // Nope
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[]{100, 300};
+        for (int size : sizes) {
+            Node root = new Node("Creatures");
+            EntityPicker picker = new EntityPicker(MAP_SIZE, MAP_SIZE, true);
+            EntityPicker boundPicker = new EntityPicker(MAP_SIZE, MAP_SIZE, false);
+            Random random = new Random(size);
+            Sphere mesh = new Sphere(24, 24, 0.4f);
+            for (int i = 0; i < size; i++) {
+                Node creature = new Node("Creature " + i);
+                creature.attachChild(new Geometry("Mesh", mesh));
+                creature.setLocalTranslation(random.nextInt(MAP_SIZE), WorldUtils.FLOOR_HEIGHT + 0.4f, random.nextInt(MAP_SIZE));
+                root.attachChild(creature);
+                picker.add(new EntityId(i), creature);
+                boundPicker.add(new EntityId(i), creature);
+            }
+            root.updateGeometricState();
+            picker.update();
+            boundPicker.update();
+
+            System.out.println(String.format("%d creatures, %d triangles: scene graph %.4f ms, picker %.4f ms, picker without refinement %.4f ms per frame",
+                    size, size * mesh.getTriangleCount(),
+                    measure(root, null), measure(root, picker), measure(root, boundPicker)));
+        }
+    }
+
+    /**
+     * Picks once per frame, the tile update included
+     *
+     * @return the median time of a frame
+     */
+    private static double measure(Node root, EntityPicker picker) {
+        long[] times = new long[ROUNDS];
+        long hits = 0;
+        CollisionResults results = new CollisionResults();
+        Ray ray = new Ray();
+        Vector3f target = new Vector3f();
+        for (int round = -WARMUP_ROUNDS; round < ROUNDS; round++) {
+            Random random = new Random(round);
+            long start = System.nanoTime();
+            for (int frame = 0; frame < FRAMES; frame++) {
+                target.set(random.nextFloat() * MAP_SIZE, WorldUtils.FLOOR_HEIGHT, random.nextFloat() * MAP_SIZE);
+                ray.setOrigin(target.add(0, 15, 8));
+                ray.setDirection(target.subtract(ray.getOrigin()).normalizeLocal());
+                if (picker == null) {
+                    results.clear();
+                    root.collideWith(ray, results);
+                    hits += results.size() > 0 ? 1 : 0;
+                } else {
+                    picker.update();
+                    hits += picker.pick(ray) != null ? 1 : 0;
+                }
+            }
+            long time = System.nanoTime() - start;
+            if (round >= 0) {
+                times[round] = time;
+            }
+        }
+
+        // Keep the results alive
+        if (hits < 0) {
+            System.out.println(hits);
+        }
+
+        // Median
+        Arrays.sort(times);
+        return times[ROUNDS / 2] / 1_000_000.0 / FRAMES;
+    }
+
+}
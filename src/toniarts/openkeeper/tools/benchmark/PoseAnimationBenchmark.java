@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.benchmark;
+
+import com.jme3.anim.AnimClip;
+import com.jme3.anim.AnimComposer;
+import com.jme3.anim.AnimTrack;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.asset.plugins.FileLocator;
+import com.jme3.scene.Spatial;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import toniarts.openkeeper.animation.PoseFrameCache;
+import toniarts.openkeeper.animation.PoseTrack;
+import toniarts.openkeeper.tools.convert.AssetsConverter;
+import toniarts.openkeeper.tools.convert.KmfModelLoader;
+
+/**
+ * Measures the pose animation of many instances of the same converted KMF
+ * animation, with and without sharing the morphed frames in the
+ * {@link PoseFrameCache}. The instances play the animation at random phases,
+ * like a room full of creatures. Runs headless, the uploaded bytes are the
+ * vertex data that would need to be sent to the GPU.<br>
+ * Usage: PoseAnimationBenchmark &lt;instances&gt; &lt;animation names...&gt;,
+ * the animations are read from the converted models folder (e.g. Imp_Walk).
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class PoseAnimationBenchmark {
+
+    private static final int FRAMES = 600;
+    private static final float TPF = 1 / 60f;
+    private static final int WARMUP_FRAMES = 120;
+
+    private PoseAnimationBenchmark() {
+        // Nope
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: PoseAnimationBenchmark <instances> <animation names...>");
+        }
+        int instances = Integer.parseInt(args[0]);
+
+        AssetManager assetManager = new DesktopAssetManager(true);
+        assetManager.registerLocator(AssetsConverter.getAssetsFolder(), FileLocator.class);
+
+        for (String name : Arrays.copyOfRange(args, 1, args.length)) {
+            Spatial model = assetManager.loadModel(AssetsConverter.MODELS_FOLDER + File.separator + name + ".j3o");
+            for (long budget : new long[]{0, PoseFrameCache.DEFAULT_MEMORY_BUDGET}) {
+                measure(name, model, instances, budget);
+            }
+        }
+    }
+
+    private static void measure(String name, Spatial model, int instances, long budget) {
+        PoseFrameCache cache = PoseFrameCache.getInstance();
+        cache.setMemoryBudget(budget);
+        cache.clear();
+
+        // Clone the instances, the clones share the pose frames just like in the game
+        Random random = new Random(instances);
+        List<PoseTrack> tracks = new ArrayList<>();
+        double[] phases = new double[instances];
+        int[] trackCounts = new int[instances];
+        double length = 0;
+        for (int i = 0; i < instances; i++) {
+            Spatial instance = model.clone();
+            AnimClip clip = instance.getControl(AnimComposer.class).getAnimClip(KmfModelLoader.DUMMY_ANIM_CLIP_NAME);
+            length = clip.getLength();
+            phases[i] = random.nextDouble() * length;
+            for (AnimTrack<?> track : clip.getTracks()) {
+                tracks.add((PoseTrack) track);
+                trackCounts[i]++;
+            }
+        }
+
+        long morphs = 0;
+        long uploadedBytes = 0;
+        long start = 0;
+        for (int frame = -WARMUP_FRAMES; frame < FRAMES; frame++) {
+            if (frame == 0) {
+                morphs = cache.getMorphs();
+                uploadedBytes = cache.getUploadedBytes();
+                start = System.nanoTime();
+            }
+            int trackIndex = 0;
+            for (int i = 0; i < instances; i++) {
+                double time = (phases[i] + (frame + WARMUP_FRAMES) * TPF) % length;
+                for (int j = 0; j < trackCounts[i]; j++) {
+                    tracks.get(trackIndex++).getDataAtTime(time, null);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        morphs = cache.getMorphs() - morphs;
+        uploadedBytes = cache.getUploadedBytes() - uploadedBytes;
+
+        System.out.println(String.format("%s, %d instances, %s: %.0f pose updates/s, %.0f morphs/s, %.1f kB uploaded per frame, %.3f ms per frame, %d kB cached",
+                name, instances, budget > 0 ? "shared frames" : "no sharing",
+                tracks.size() * FRAMES / seconds, morphs / seconds, uploadedBytes / 1024.0 / FRAMES,
+                seconds * 1000 / FRAMES, cache.getMemoryUsed() / 1024));
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.benchmark;
+
+import com.jme3.network.Client;
+import com.jme3.network.Network;
+import com.jme3.network.Server;
+import com.jme3.network.serializing.Serializer;
+import com.jme3.network.serializing.serializers.FieldSerializer;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import toniarts.openkeeper.game.network.NetworkConstants;
+import toniarts.openkeeper.game.network.message.StreamedMessage;
+import toniarts.openkeeper.game.network.message.StreamedMessageAck;
+import toniarts.openkeeper.game.network.streaming.StreamedMessageSerializer;
+import toniarts.openkeeper.game.network.streaming.StreamingClientService;
+import toniarts.openkeeper.game.network.streaming.StreamingHostedService;
+
+/**
+ * Measures the throughput of the streaming service over a loopback server and
+ * client pair. The payload resembles level data, mostly repeating with some
+ * noise, and is sent both with and without compression.<br>
+ * Usage: StreamingBenchmark [sizes in kilobytes...], defaults to 256, 2048 and
+ * 8192 kilobytes.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class StreamingBenchmark {
+
+    private static final int PORT = 7576;
+    private static final int MESSAGE_TYPE = 0;
+    private static final int ROUNDS = 5;
+    private static final int WARMUP_ROUNDS = 2;
+
+    private StreamingBenchmark() {
+        // Nope
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[]{256, 2048, 8192};
+
+        Serializer.registerClass(StreamedMessage.class, new StreamedMessageSerializer());
+        Serializer.registerClass(StreamedMessageAck.class, new FieldSerializer());
+
+        for (boolean compress : new boolean[]{false, true}) {
+            for (int size : sizes) {
+                System.out.println(String.format("%d kB, %s: %.1f MB/s", size,
+                        compress ? "compressed" : "uncompressed", measure(size * 1024, compress)));
+            }
+        }
+    }
+
+    private static double measure(int size, boolean compress) throws IOException, InterruptedException {
+        String payload = createPayload(size);
+        Server server = Network.createServer(NetworkConstants.GAME_NAME, NetworkConstants.PROTOCOL_VERSION, PORT, PORT);
+        StreamingHostedService hostedService = new StreamingHostedService(compress);
+        server.getServices().addService(hostedService);
+        server.start();
+
+        Client client = Network.connectToServer(NetworkConstants.GAME_NAME, NetworkConstants.PROTOCOL_VERSION, "localhost", PORT);
+        StreamingClientService clientService = new StreamingClientService();
+        client.getServices().addService(clientService);
+        CountDownLatch[] received = new CountDownLatch[1];
+        clientService.addListener(MESSAGE_TYPE, (data) -> received[0].countDown());
+        client.start();
+        try {
+            while (server.getConnections().isEmpty()) {
+                Thread.sleep(10);
+            }
+
+            long[] times = new long[ROUNDS];
+            for (int round = -WARMUP_ROUNDS; round < ROUNDS; round++) {
+                received[0] = new CountDownLatch(1);
+                long start = System.nanoTime();
+                hostedService.sendData(MESSAGE_TYPE, payload, null);
+                if (!received[0].await(1, TimeUnit.MINUTES)) {
+                    throw new IOException("The payload was not received!");
+                }
+                long time = System.nanoTime() - start;
+                if (round >= 0) {
+                    times[round] = time;
+                }
+            }
+
+            // Median
+            Arrays.sort(times);
+            return size / (1024.0 * 1024.0) / (times[ROUNDS / 2] / 1_000_000_000.0);
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+    private static String createPayload(int size) {
+        Random random = new Random(size);
+        StringBuilder sb = new StringBuilder(size);
+        while (sb.length() < size) {
+            char c = (char) ('a' + random.nextInt(8));
+            int run = 1 + random.nextInt(16);
+            for (int i = 0; i < run && sb.length() < size; i++) {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+
+}
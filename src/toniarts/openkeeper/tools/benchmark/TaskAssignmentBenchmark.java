@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import toniarts.openkeeper.game.task.TaskAssigner;
+import toniarts.openkeeper.utils.Point;
+import toniarts.openkeeper.utils.WorldUtils;
+
+/**
+ * Measures the time it takes to assign a batch of unemployed workers to tasks.
+ * Compares the batched {@link TaskAssigner} to the old way of re-sorting all
+ * the worker-task pairs after each assignment. Synthetic workers and tasks are
+ * scattered randomly on a map sized area.<br>
+ * Usage: TaskAssignmentBenchmark [sizes...], defaults to 50, 200 and 1000
+ * workers and tasks.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class TaskAssignmentBenchmark {
+
+    private static final int MAP_SIZE = 85;
+    private static final int ROUNDS = 10;
+    private static final int WARMUP_ROUNDS = 5;
+    /**
+     * The old assignment is quadratic in pairs, don't wait for it forever
+     */
+    private static final int MAX_LEGACY_SIZE = 200;
+
+    private TaskAssignmentBenchmark() {
+        // Nope
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[]{50, 200, 1000};
+        for (int size : sizes) {
+            System.out.println(String.format("%d workers, %d tasks: batched %.3f ms, legacy %s",
+                    size, size, measure(size, false),
+                    size <= MAX_LEGACY_SIZE ? String.format("%.3f ms", measure(size, true)) : "skipped"));
+        }
+    }
+
+    private static double measure(int size, boolean legacy) {
+        long[] times = new long[ROUNDS];
+        for (int round = -WARMUP_ROUNDS; round < ROUNDS; round++) {
+            Random random = new Random(round);
+            List<BenchmarkWorker> workers = new ArrayList<>(size);
+            List<BenchmarkTask> tasks = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                workers.add(new BenchmarkWorker(new Point(random.nextInt(MAP_SIZE), random.nextInt(MAP_SIZE))));
+                tasks.add(new BenchmarkTask(new Point(random.nextInt(MAP_SIZE), random.nextInt(MAP_SIZE)), random.nextInt(200), 1 + random.nextInt(3), i));
+            }
+
+            long start = System.nanoTime();
+            if (legacy) {
+                assignLegacy(workers, tasks);
+            } else {
+                new TaskAssigner<>(new BenchmarkRules(), Comparator.comparingLong((BenchmarkTask task) -> task.created)).assign(workers, tasks);
+            }
+            long time = System.nanoTime() - start;
+            if (round >= 0) {
+                times[round] = time;
+            }
+        }
+
+        // Median
+        Arrays.sort(times);
+        return times[ROUNDS / 2] / 1_000_000.0;
+    }
+
+    private static void assignLegacy(List<BenchmarkWorker> workers, List<BenchmarkTask> tasks) {
+        BenchmarkRules rules = new BenchmarkRules();
+        Set<BenchmarkWorker> unemployedWorkers = new HashSet<>(workers);
+        List<Pair> pairs = new ArrayList<>(workers.size() * tasks.size());
+        for (BenchmarkWorker worker : workers) {
+            for (BenchmarkTask task : tasks) {
+                pairs.add(new Pair(worker, task, rules.getPoints(worker, task)));
+            }
+        }
+
+        while (!unemployedWorkers.isEmpty() && !pairs.isEmpty()) {
+            pairs.sort(Comparator.comparingInt((Pair pair) -> pair.task.assignees)
+                    .thenComparingInt(pair -> pair.points)
+                    .thenComparingLong(pair -> pair.task.created));
+
+            Iterator<Pair> iter = pairs.iterator();
+            while (iter.hasNext()) {
+                Pair pair = iter.next();
+                if (!unemployedWorkers.contains(pair.worker) || rules.isFull(pair.task)) {
+                    iter.remove();
+                    continue;
+                }
+
+                rules.assign(pair.worker, pair.task);
+                unemployedWorkers.remove(pair.worker);
+                iter.remove();
+                break;
+            }
+        }
+    }
+
+    private static final class BenchmarkRules implements TaskAssigner.Rules<BenchmarkWorker, BenchmarkTask> {
+
+        @Override
+        public int getPoints(BenchmarkWorker worker, BenchmarkTask task) {
+            return WorldUtils.calculateDistance(worker.location, task.location) + task.priority;
+        }
+
+        @Override
+        public int getAssigneeCount(BenchmarkTask task) {
+            return task.assignees;
+        }
+
+        @Override
+        public boolean isFull(BenchmarkTask task) {
+            return task.assignees >= task.capacity;
+        }
+
+        @Override
+        public boolean canAssign(BenchmarkWorker worker, BenchmarkTask task) {
+            return true;
+        }
+
+        @Override
+        public void assign(BenchmarkWorker worker, BenchmarkTask task) {
+            task.assignees++;
+        }
+    }
+
+    private static final class BenchmarkWorker {
+
+        private final Point location;
+
+        public BenchmarkWorker(Point location) {
+            this.location = location;
+        }
+    }
+
+    private static final class BenchmarkTask {
+
+        private final Point location;
+        private final int priority;
+        private final int capacity;
+        private final long created;
+        private int assignees;
+
+        public BenchmarkTask(Point location, int priority, int capacity, long created) {
+            this.location = location;
+            this.priority = priority;
+            this.capacity = capacity;
+            this.created = created;
+        }
+    }
+
+    private static record Pair(BenchmarkWorker worker, BenchmarkTask task, int points) {
+
+    }
+
+}
@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import toniarts.openkeeper.Main;
+import toniarts.openkeeper.tools.convert.conversion.ConversionManifest;
 import toniarts.openkeeper.tools.convert.conversion.ConversionTaskManager;
 import toniarts.openkeeper.tools.convert.conversion.task.ConvertFonts;
 import toniarts.openkeeper.tools.convert.conversion.task.ConvertHiScores;
@@ -112,11 +113,15 @@ public abstract class AssetsConverter implements IConversionTaskUpdate {
     public static final String TEXTURES_FOLDER = "Textures";
     public static final String SPRITES_FOLDER = "Sprites";
     public static final String MAP_THUMBNAILS_FOLDER = "Thumbnails";
+    public static final String ENGINE_TEXTURE_CACHE_FOLDER = TEXTURES_FOLDER + File.separator + "EngineTextureCache";
     private static final String INTERFACE_FOLDER = "Interface" + File.separator;
     public static final String MOUSE_CURSORS_FOLDER = INTERFACE_FOLDER + "Cursors";
     public static final String FONTS_FOLDER = INTERFACE_FOLDER + "Fonts";
     public static final String TEXTS_FOLDER = INTERFACE_FOLDER + "Texts";
     public static final String PATHS_FOLDER = INTERFACE_FOLDER + "Paths";
+    private static final String MANIFEST_FILE = "conversion.manifest";
+
+    private static ConversionManifest manifest;
     
     private final String dungeonKeeperFolder;
     private final AssetManager assetManager;
@@ -151,7 +156,20 @@ public abstract class AssetsConverter implements IConversionTaskUpdate {
      */
     public static boolean isConversionNeeded(ConvertProcess convertProcess, AppSettings settings) {
         String key = convertProcess.getSettingName();
-        return convertProcess.getVersion() > settings.getInteger(key);
+        return convertProcess.getVersion() > settings.getInteger(key) || getManifest().isSourcesChanged(convertProcess);
+    }
+
+    /**
+     * Get the manifest of the converted assets
+     *
+     * @return the conversion manifest
+     */
+    public static synchronized ConversionManifest getManifest() {
+        if (manifest == null) {
+            manifest = new ConversionManifest(Paths.get(ABSOLUTE_ASSETS_FOLDER, MANIFEST_FILE));
+        }
+
+        return manifest;
     }
 
     /**
@@ -191,12 +209,13 @@ public abstract class AssetsConverter implements IConversionTaskUpdate {
         String assetFolder = currentFolder.concat(ASSETS_FOLDER).concat(File.separator);
 
         // Create task manager for taking care of the conversion workflow
-        ConversionTaskManager conversionTaskManager = new ConversionTaskManager();
+        ConversionTaskManager conversionTaskManager = new ConversionTaskManager(getManifest());
         AppSettings settings = Main.getSettings();
         for (ConvertProcess conversion : ConvertProcess.values()) {
             conversionTaskManager.addTask(conversion,
                     () -> {
                         IConversionTask task = createTask(conversion, assetFolder);
+                        task.setManifest(getManifest());
                         task.addListener(new IConversionTaskUpdate() {
 
                             @Override
@@ -23,7 +23,9 @@ import java.nio.ByteOrder;
 /**
  * A version of Dungeon Keeper 2 resource reader that reads data directly from
  * given byte array. Convenient if we already read all the data and
- * decompressed/decrypted it. No need to swing it through a temp file etc.
+ * decompressed/decrypted it. No need to swing it through a temp file etc.<br>
+ * Can also read from any byte buffer, such as a memory mapped file, without
+ * copying the data first.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
@@ -32,7 +34,17 @@ public final class ByteArrayResourceReader implements ISeekableResourceReader {
     private final ByteBuffer buffer;
 
     public ByteArrayResourceReader(byte[] data) {
-        buffer = ByteBuffer.wrap(data);
+        this(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Reads the remaining bytes of the given buffer. The buffer itself is not
+     * modified
+     *
+     * @param data the data to read
+     */
+    public ByteArrayResourceReader(ByteBuffer data) {
+        buffer = data.slice();
         buffer.order(ByteOrder.LITTLE_ENDIAN);
     }
 
@@ -54,7 +66,7 @@ public final class ByteArrayResourceReader implements ISeekableResourceReader {
     @Override
     public int read(byte[] b) throws IOException {
         int length = Math.min(b.length, buffer.remaining());
-        System.arraycopy(buffer.array(), buffer.position(), b, 0, length);
+        buffer.get(buffer.position(), b, 0, length);
 
         // Advance marker
         skipBytes(length);
@@ -70,7 +82,7 @@ public final class ByteArrayResourceReader implements ISeekableResourceReader {
         }
 
         byte[] bytes = new byte[length];
-        System.arraycopy(buffer.array(), buffer.position(), bytes, 0, length);
+        buffer.get(buffer.position(), bytes, 0, length);
 
         // Advance marker
         skipBytes(length);
@@ -89,10 +101,7 @@ public final class ByteArrayResourceReader implements ISeekableResourceReader {
             String message = "Error reading byte array. Expect %s bytes and %s given";
             throw new IOException(String.format(message, size, buffer.remaining()));
         }
-        byte[] bytes = new byte[size];
-        System.arraycopy(buffer.array(), buffer.position(), bytes, 0, size);
-
-        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        ByteBuffer buf = buffer.slice(buffer.position(), size);
         buf.order(ByteOrder.LITTLE_ENDIAN);
 
         // Advance marker
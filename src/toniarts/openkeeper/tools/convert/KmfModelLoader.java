@@ -136,8 +136,11 @@ public final class KmfModelLoader implements AssetLoader {
         var root = new Node("Root");
         if (kmfFile.getType() == KmfFile.Type.MESH || kmfFile.getType() == KmfFile.Type.ANIM) {
 
-            // Get the materials first
-            Map<Integer, List<Material>> materials = getMaterials(kmfFile, generateMaterialFile, assetInfo);
+            // Get the materials first, the models share the material files so only one model at a time
+            Map<Integer, List<Material>> materials;
+            synchronized (materialCache) {
+                materials = getMaterials(kmfFile, generateMaterialFile, assetInfo);
+            }
 
             if (kmfFile.getType() == KmfFile.Type.MESH)
                 root.attachChild(handleMesh(kmfFile.getMesh(), materials));
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.convert.conversion;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+import toniarts.openkeeper.tools.convert.AssetsConverter;
+
+/**
+ * Keeps record of the converted asset entries and the content hashes of their
+ * sources. Lets the conversion skip the entries whose sources and converter
+ * haven't changed, and continue where it left off after an interrupted
+ * conversion.<br>
+ * The conversion records are appended to the manifest file as soon as the
+ * entry has been converted. The file is rewritten without the outdated
+ * records once the conversion is done. The source files are recorded by
+ * their size and modification time, so that the changes can be noticed
+ * without reading them through
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class ConversionManifest {
+
+    private static final Logger logger = System.getLogger(ConversionManifest.class.getName());
+
+    private static final String ENTRY_RECORD = "E";
+    private static final String SOURCE_RECORD = "S";
+    private static final String SEPARATOR = "\t";
+
+    private final Path file;
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+    private final Map<String, String> sources = new ConcurrentHashMap<>();
+    private final Map<AssetsConverter.ConvertProcess, LongAdder> convertedCounts = new EnumMap<>(AssetsConverter.ConvertProcess.class);
+    private final Map<AssetsConverter.ConvertProcess, LongAdder> skippedCounts = new EnumMap<>(AssetsConverter.ConvertProcess.class);
+    private BufferedWriter journal;
+
+    /**
+     * Loads up the manifest from the given file, if it exists
+     *
+     * @param file the manifest file
+     */
+    public ConversionManifest(Path file) {
+        this.file = file;
+        for (AssetsConverter.ConvertProcess process : AssetsConverter.ConvertProcess.values()) {
+            convertedCounts.put(process, new LongAdder());
+            skippedCounts.put(process, new LongAdder());
+        }
+
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+
+            // The later records replace the earlier ones, an interrupted write may leave a broken last line
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                String[] record = line.split(SEPARATOR, 4);
+                if (record.length == 4 && ENTRY_RECORD.equals(record[0])) {
+                    entries.put(getKey(record[1], record[3]), record[2]);
+                } else if (record.length == 4 && SOURCE_RECORD.equals(record[0])) {
+                    sources.put(getKey(record[1], record[3]), record[2]);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to read the conversion manifest " + file + ", converting everything!", e);
+            entries.clear();
+            sources.clear();
+        }
+    }
+
+    /**
+     * Checks whether the entry has already been converted from the same
+     * source with the current converter version
+     *
+     * @param process the conversion process
+     * @param entry the source entry name, unique within the process
+     * @param hash the content hash of the source entry
+     * @param output the converted file, {@code null} if not to check it
+     * @return true if the entry doesn't need to be converted again
+     */
+    public boolean isUpToDate(AssetsConverter.ConvertProcess process, String entry, String hash, Path output) {
+        boolean upToDate = isRecorded(process, entry, hash) && (output == null || Files.exists(output));
+        if (upToDate) {
+            skippedCounts.get(process).increment();
+        }
+
+        return upToDate;
+    }
+
+    /**
+     * Checks whether the entry has been recorded with the same hash and the
+     * current converter version. Unlike
+     * {@link #isUpToDate(toniarts.openkeeper.tools.convert.AssetsConverter.ConvertProcess, java.lang.String, java.lang.String, java.nio.file.Path)}
+     * this is not counted as skipped
+     *
+     * @param process the conversion process
+     * @param entry the entry name, unique within the process
+     * @param hash the content hash of the source entry
+     * @return true if recorded
+     */
+    public boolean isRecorded(AssetsConverter.ConvertProcess process, String entry, String hash) {
+        return getEntryValue(process, hash).equals(entries.get(getKey(process.name(), entry)));
+    }
+
+    /**
+     * Records the entry converted. Call after the converted files are
+     * completely written
+     *
+     * @param process the conversion process
+     * @param entry the source entry name, unique within the process
+     * @param hash the content hash of the source entry
+     */
+    public void markConverted(AssetsConverter.ConvertProcess process, String entry, String hash) {
+        record(process, entry, hash);
+        convertedCounts.get(process).increment();
+    }
+
+    /**
+     * Records additional information of an entry, that is not a converted
+     * entry by itself and so is not counted as one
+     *
+     * @param process the conversion process
+     * @param entry the entry name, unique within the process
+     * @param hash the content hash of the source entry
+     */
+    public void record(AssetsConverter.ConvertProcess process, String entry, String hash) {
+        String value = getEntryValue(process, hash);
+        entries.put(getKey(process.name(), entry), value);
+        append(ENTRY_RECORD, process.name(), value, entry);
+    }
+
+    /**
+     * Records a source file of the conversion process, the process is
+     * considered to need conversion if any of its source files change
+     *
+     * @param process the conversion process
+     * @param source the source file
+     */
+    public void addSource(AssetsConverter.ConvertProcess process, Path source) {
+        String stamp = getStamp(source);
+        if (stamp != null && !stamp.equals(sources.put(getKey(process.name(), source.toString()), stamp))) {
+            append(SOURCE_RECORD, process.name(), stamp, source.toString());
+        }
+    }
+
+    /**
+     * Checks whether there are any entries converted with the current
+     * converter version. If not, the conversion can't be continued but needs
+     * to start from scratch
+     *
+     * @param process the conversion process
+     * @return true if some of the entries are converted
+     */
+    public boolean hasEntries(AssetsConverter.ConvertProcess process) {
+        String prefix = process.name().concat(SEPARATOR);
+        String versionPrefix = process.getVersion() + ":";
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (entry.getKey().startsWith(prefix) && entry.getValue().startsWith(versionPrefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether any of the recorded source files of the conversion
+     * process have changed or disappeared since
+     *
+     * @param process the conversion process
+     * @return true if the sources have changed
+     */
+    public boolean isSourcesChanged(AssetsConverter.ConvertProcess process) {
+        String prefix = process.name().concat(SEPARATOR);
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            if (source.getKey().startsWith(prefix)
+                    && !source.getValue().equals(getStamp(Path.of(source.getKey().substring(prefix.length()))))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Rewrites the manifest file with only the current records
+     */
+    public synchronized void save() {
+        closeJournal();
+
+        Path tempFile = file.resolveSibling(file.getFileName().toString().concat(".tmp"));
+        try {
+            Files.createDirectories(file.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                for (AssetsConverter.ConvertProcess process : AssetsConverter.ConvertProcess.values()) {
+                    String prefix = process.name().concat(SEPARATOR);
+                    String versionPrefix = process.getVersion() + ":";
+                    for (Map.Entry<String, String> entry : entries.entrySet()) {
+                        if (entry.getKey().startsWith(prefix) && entry.getValue().startsWith(versionPrefix)) {
+                            write(writer, ENTRY_RECORD, process.name(), entry.getValue(), entry.getKey().substring(prefix.length()));
+                        }
+                    }
+                    for (Map.Entry<String, String> source : sources.entrySet()) {
+                        if (source.getKey().startsWith(prefix)) {
+                            write(writer, SOURCE_RECORD, process.name(), source.getValue(), source.getKey().substring(prefix.length()));
+                        }
+                    }
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to save the conversion manifest " + file + "!", e);
+        }
+    }
+
+    /**
+     * Logs the amount of the converted and skipped entries per conversion
+     * process
+     */
+    public void logSummary() {
+        for (AssetsConverter.ConvertProcess process : AssetsConverter.ConvertProcess.values()) {
+            long converted = convertedCounts.get(process).sum();
+            long skipped = skippedCounts.get(process).sum();
+            if (converted > 0 || skipped > 0) {
+                logger.log(Level.INFO, "{0}: {1} entries converted, {2} up to date and skipped", process, converted, skipped);
+            }
+        }
+    }
+
+    /**
+     * Calculates a content hash for the given data
+     *
+     * @param data the data, the buffer itself is not modified
+     * @return the content hash
+     */
+    public static String hash(ByteBuffer data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data.duplicate());
+
+        return Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(data.remaining());
+    }
+
+    /**
+     * Calculates a content hash for the given file
+     *
+     * @param file the file
+     * @return the content hash
+     * @throws IOException may fail
+     */
+    public static String hash(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            return hash(data);
+        }
+    }
+
+    private synchronized void append(String type, String process, String value, String name) {
+        try {
+            if (journal == null) {
+                Files.createDirectories(file.getParent());
+                journal = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            write(journal, type, process, value, name);
+
+            // Flush right away, so that we can continue from here if the conversion is interrupted
+            journal.flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write to the conversion manifest " + file + "!", e);
+        }
+    }
+
+    private synchronized void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close the conversion manifest " + file + "!", e);
+            }
+            journal = null;
+        }
+    }
+
+    private static void write(BufferedWriter writer, String type, String process, String value, String name) throws IOException {
+        writer.write(String.join(SEPARATOR, type, process, value, name));
+        writer.newLine();
+    }
+
+    private static String getKey(String process, String name) {
+        return process.concat(SEPARATOR).concat(name);
+    }
+
+    private static String getEntryValue(AssetsConverter.ConvertProcess process, String hash) {
+        return process.getVersion() + ":" + hash;
+    }
+
+    private static String getStamp(Path source) {
+        try {
+            return Files.size(source) + ":" + Files.getLastModifiedTime(source).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+}
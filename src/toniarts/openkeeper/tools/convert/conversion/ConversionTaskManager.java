@@ -18,27 +18,30 @@ package toniarts.openkeeper.tools.convert.conversion;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.atomic.AtomicInteger;
 import toniarts.openkeeper.tools.convert.AssetsConverter;
-import toniarts.openkeeper.tools.convert.conversion.graph.BreadthFirstTraverser;
 import toniarts.openkeeper.tools.convert.conversion.graph.Graph;
 import toniarts.openkeeper.tools.convert.conversion.graph.TaskNode;
 
 /**
  * Handles all your asset conversion needs. The dataflow and multithreading.
- * Does not validate the work flow i.e. check for cyclic dependencies etc. Very
- * naive implementation, but should be sufficient for our simple needs.
+ * Does not validate the work flow i.e. check for cyclic dependencies etc.<br>
+ * Each task is started as soon as all of its dependencies are done. The tasks
+ * share a single work stealing pool where they further split into per entry
+ * subtasks, so the threads are kept busy until the very end. If a task fails,
+ * the rest are cancelled.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
@@ -47,25 +50,31 @@ public final class ConversionTaskManager {
     private static final Logger logger = System.getLogger(ConversionTaskManager.class.getName());
     private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
 
-    private final ExecutorService executorService;
-    private final AtomicInteger tasksRunning = new AtomicInteger();
-    private int tasksToRun = 0;
-    private final Map<TaskNode, Future> runningTasks = new HashMap<>();
+    private final ForkJoinPool pool;
+    private final Map<TaskNode, CompletableFuture<Void>> scheduledTasks = new HashMap<>();
     private final Map<AssetsConverter.ConvertProcess, TaskNode> taskNodes = new LinkedHashMap<>();
     private final Graph<TaskNode> graph = new Graph<>();
-    private boolean failure = false;
+    private volatile boolean failure = false;
+    private final ConversionManifest manifest;
 
     public ConversionTaskManager() {
-        this.executorService = Executors.newFixedThreadPool(MAX_THREADS, new ThreadFactory() {
+        this(null);
+    }
+
+    public ConversionTaskManager(ConversionManifest manifest) {
+        this.manifest = manifest;
+        this.pool = new ForkJoinPool(MAX_THREADS, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
 
             private final AtomicInteger threadIndex = new AtomicInteger(0);
 
             @Override
-            public Thread newThread(Runnable r) {
-                return new Thread(r, "AssetConversionTask_" + threadIndex.incrementAndGet());
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("AssetConversionTask_" + threadIndex.incrementAndGet());
+                return thread;
             }
 
-        });
+        }, null, false);
     }
 
     public void addTask(AssetsConverter.ConvertProcess conversion, IConversionTaskProvider task, boolean conversionNeeded) {
@@ -80,103 +89,94 @@ public final class ConversionTaskManager {
     public boolean executeTasks() {
         createTaskGraph();
 
-        // If we didn't have anything, just quit
-        if (tasksToRun == 0) {
-            return true;
+        // Prioritize tasks so that have higher amount of dependendant tasks get the priority
+        List<TaskNode> nodes = new ArrayList<>(taskNodes.values());
+        sortNodesChildCountDesc(nodes);
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(nodes.size());
+        for (TaskNode node : nodes) {
+            tasks.add(scheduleTask(node));
         }
 
-        // Get root nodes to start the processing
-        List<TaskNode> rootNodes = graph.getRootNodes();
+        try {
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException | CancellationException e) {
 
-        // Prioritize tasks so that have higher amount of dependendant (initial) tasks get the priority
-        sortNodesChildCountDesc(rootNodes);
-            synchronized (graph) {
-                for (TaskNode node : rootNodes) {
-                    new TaskExecuterGraphTraverser().traverse(node);
-                }
-            }
+            // The failing task has already been logged
+            failure = true;
+        } finally {
+            pool.shutdown();
+        }
 
-        try {
-            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.HOURS);
-        } catch (InterruptedException ex) {
-            logger.log(Level.ERROR, "Conversion tasks failed to complete!", ex);
+        // Compact the manifest, the entries converted so far are kept even on failure
+        if (manifest != null) {
+            manifest.save();
+            manifest.logSummary();
         }
 
         return !failure;
     }
 
     private void createTaskGraph() {
-        tasksToRun = 0;
         for (Entry<AssetsConverter.ConvertProcess, TaskNode> node : taskNodes.entrySet()) {
             graph.add(node.getValue());
             for (AssetsConverter.ConvertProcess dependency : node.getKey().getDependencies()) {
                 graph.addDependency(taskNodes.get(dependency), node.getValue());
             }
-
-            // Update the count of the tasks we are supposed to run
-            if (isNeedForExecuting(node.getValue())) {
-                tasksToRun++;
-            }
         }
     }
 
-    private void executeTask(TaskNode node) {
-        if (failure) {
-            logger.log(Level.INFO, "Aborting execution of task {0}!", node);
-            return;
+    /**
+     * Chains the task to run after its dependencies
+     *
+     * @param node the task
+     * @return the task completion
+     */
+    private CompletableFuture<Void> scheduleTask(TaskNode node) {
+        CompletableFuture<Void> task = scheduledTasks.get(node);
+        if (task != null) {
+            return task;
         }
-        logger.log(Level.INFO, "Starting task {0}!", node);
 
-        Future task = executorService.submit(() -> {
-            try {
-                node.executeTask();
-
-                logger.log(Level.INFO, "Task {0} finished!", node);
-
-                executeNextTask(node);
-            } catch (Exception e) {
-                failure = true;
-                logger.log(Level.ERROR, "Task " + node + " failed! Aborting...", e);
-
-                executorService.shutdown();
+        // Tasks that don't need to be run are considered done right away
+        if (node.isExecuted()) {
+            task = CompletableFuture.completedFuture(null);
+        } else {
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>(node.getIncomingNodes().size());
+            for (TaskNode parentNode : node.getIncomingNodes()) {
+                dependencies.add(scheduleTask(parentNode));
             }
-        });
-        runningTasks.put(node, task);
-
-        // See if we have now set all the tasks to the execution queue
-        int tasksRunningValue = tasksRunning.incrementAndGet();
-        if (tasksRunningValue == tasksToRun) {
-            executorService.shutdown();
-        }
-    }
-
-    private void executeNextTask(TaskNode node) {
-        if (!node.hasOutgoingNodes()) {
-            return;
+            task = CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new))
+                    .thenRunAsync(() -> executeTask(node), pool);
         }
+        scheduledTasks.put(node, task);
 
-        /**
-         * Get the next possible task<br>
-         * Synchronize since the finished tasks can enter here simultaneously
-         * and add the same tasks to the queue
-         */
-        synchronized (graph) {
-            new TaskExecuterGraphTraverser().traverse(node);
-        }
+        return task;
     }
 
-    private boolean isNeedForExecuting(TaskNode node) {
-        return !node.isExecuted() && !runningTasks.containsKey(node);
-    }
+    private void executeTask(TaskNode node) {
+        if (failure) {
+            logger.log(Level.INFO, "Aborting execution of task {0}!", node);
+            throw new CancellationException("Task " + node + " aborted!");
+        }
+        logger.log(Level.INFO, "Starting task {0}!", node);
 
-    private boolean canExecute(TaskNode node) {
-        for (TaskNode parentNode : node.getIncomingNodes()) {
-            if (!parentNode.isExecuted()) {
-                return false;
+        try {
+            node.executeTask();
+
+            logger.log(Level.INFO, "Task {0} finished!", node);
+        } catch (CancellationException e) {
+            logger.log(Level.INFO, "Task {0} cancelled!", node);
+            throw e;
+        } catch (Exception e) {
+            failure = true;
+            logger.log(Level.ERROR, "Task " + node + " failed! Aborting...", e);
+
+            // Stop the other tasks too
+            for (TaskNode taskNode : taskNodes.values()) {
+                taskNode.cancel();
             }
+            throw new CompletionException(e);
         }
-
-        return true;
     }
 
     private void sortNodesChildCountDesc(List<TaskNode> childNodes) {
@@ -185,28 +185,4 @@ public final class ConversionTaskManager {
         });
     }
 
-    /**
-     * Traverses through tasks, but stops traversing if the node is not
-     * completed (adjacent tasks can't be run)
-     *
-     * @author Toni Helenius <helenius.toni@gmail.com>
-     */
-    public final class TaskExecuterGraphTraverser extends BreadthFirstTraverser<TaskNode> {
-
-        public void traverse(TaskNode startNode) {
-            traverse(startNode, (node) -> {
-                if (isNeedForExecuting(node)) {
-                    executeTask(node);
-                }
-                return node.isExecuted();
-            });
-        }
-
-        @Override
-        protected boolean isVisitChildValid(TaskNode childNode) {
-            return canExecute(childNode);
-        }
-
-    }
-
 }
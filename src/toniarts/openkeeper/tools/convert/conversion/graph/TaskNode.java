@@ -17,6 +17,7 @@
 package toniarts.openkeeper.tools.convert.conversion.graph;
 
 import toniarts.openkeeper.tools.convert.conversion.IConversionTaskProvider;
+import toniarts.openkeeper.tools.convert.conversion.task.IConversionTask;
 
 /**
  * Graph node that holds task related data
@@ -27,7 +28,9 @@ public final class TaskNode extends Node<TaskNode> {
 
     private final String name;
     private final IConversionTaskProvider task;
-    private boolean executed = false;
+    private volatile IConversionTask conversionTask;
+    private volatile boolean executed = false;
+    private volatile boolean cancelled = false;
 
     public TaskNode(int id, String name, IConversionTaskProvider task, boolean executed) {
         super(id);
@@ -38,11 +41,26 @@ public final class TaskNode extends Node<TaskNode> {
     }
 
     public void executeTask() throws Exception {
-        task.getTask().executeTask();
+        conversionTask = task.getTask();
+        if (cancelled) {
+            conversionTask.cancel();
+        }
+        conversionTask.executeTask();
 
         executed = true;
     }
 
+    /**
+     * Cancels the task if it is running
+     */
+    public void cancel() {
+        cancelled = true;
+        IConversionTask runningTask = conversionTask;
+        if (runningTask != null) {
+            runningTask.cancel();
+        }
+    }
+
     public boolean isExecuted() {
         return executed;
     }
@@ -16,22 +16,38 @@
  */
 package toniarts.openkeeper.tools.convert.conversion.task;
 
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import toniarts.openkeeper.tools.convert.AssetsConverter;
+import toniarts.openkeeper.tools.convert.conversion.ConversionManifest;
 
 /**
- * Base class for conversion tasks
+ * Base class for conversion tasks. The tasks are run in a fork join pool, and
+ * can fan out into per entry subtasks in the same pool with
+ * {@link #convertEntries(java.util.Collection, toniarts.openkeeper.tools.convert.conversion.task.ConversionTask.IEntryConversion)}
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public abstract class ConversionTask implements IConversionTask {
 
+    private static final Logger logger = System.getLogger(ConversionTask.class.getName());
+
     protected final String dungeonKeeperFolder;
     protected final String destination;
     protected final boolean overwriteData;
-    private boolean inError = false;
+    private volatile boolean inError = false;
+    private volatile boolean cancelled = false;
     private Exception error;
+    private ConversionManifest manifest;
+    private final AtomicInteger progress = new AtomicInteger(0);
+    private volatile int progressTotal = 0;
 
     private final List<IConversionTaskUpdate> listeners = new ArrayList<>();
 
@@ -58,6 +74,11 @@ public abstract class ConversionTask implements IConversionTask {
             handleError(error);
         }
 
+        // Cancelled due to some other task failing, it is not our error to report
+        if (cancelled) {
+            throw new CancellationException("Task " + getConvertProcess() + " cancelled!");
+        }
+
         // Completed succesfully
         for (IConversionTaskUpdate listener : listeners) {
             listener.onComplete(getConvertProcess());
@@ -77,9 +98,81 @@ public abstract class ConversionTask implements IConversionTask {
         return inError;
     }
 
-    protected void onError(Exception e) {
-        inError = true;
-        error = e;
+    /**
+     * Signal an error, the first one is reported once the task is done. The
+     * entries not yet started are skipped
+     *
+     * @param e the error
+     */
+    protected synchronized void onError(Exception e) {
+        if (!inError) {
+            error = e;
+            inError = true;
+        }
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Whether the task should stop, either it has failed or it has been
+     * cancelled
+     *
+     * @return true if no more work should be started
+     */
+    protected boolean isCancelled() {
+        return cancelled || inError;
+    }
+
+    /**
+     * Sets the total amount of the work and resets the progress
+     *
+     * @param total the total amount of work units
+     */
+    protected void setProgressTotal(int total) {
+        progress.set(0);
+        progressTotal = total;
+        updateStatus(0, total);
+    }
+
+    /**
+     * Advances the progress by one unit of work and reports it, thread safe
+     */
+    protected void advanceProgress() {
+        updateStatus(progress.incrementAndGet(), progressTotal);
+    }
+
+    /**
+     * Converts the entries each in its own subtask, in parallel with work
+     * stealing. Blocks until all the entries are done, but the calling thread
+     * helps with the work meanwhile. Each entry advances the progress by one.
+     * The first failure is signalled as an error and the rest of the entries
+     * are skipped
+     *
+     * @param <T> the entry type
+     * @param entries the entries to convert
+     * @param conversion the conversion for a single entry
+     */
+    protected <T> void convertEntries(Collection<T> entries, IEntryConversion<T> conversion) {
+        List<ForkJoinTask<?>> subtasks = new ArrayList<>(entries.size());
+        for (T entry : entries) {
+            subtasks.add(ForkJoinTask.adapt(() -> {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    conversion.convert(entry);
+                    advanceProgress();
+                } catch (Exception e) {
+                    String msg = "Failed to convert " + entry + " in " + getConvertProcess() + "!";
+                    logger.log(Level.ERROR, msg, e);
+                    onError(new RuntimeException(msg, e));
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(subtasks);
     }
 
     protected void updateStatus(Integer currentProgress, Integer totalProgress) {
@@ -93,4 +186,96 @@ public abstract class ConversionTask implements IConversionTask {
         listeners.add(listener);
     }
 
+    /**
+     * Conversion of a single entry, run as a subtask
+     *
+     * @param <T> the entry type
+     */
+    @FunctionalInterface
+    protected interface IEntryConversion<T> {
+
+        void convert(T entry) throws Exception;
+
+    }
+
+    @Override
+    public void setManifest(ConversionManifest manifest) {
+        this.manifest = manifest;
+    }
+
+    /**
+     * Whether we can continue on top of the previous conversion instead of
+     * starting from scratch. The previously converted files should be kept
+     * then
+     *
+     * @return true if only the changed entries need to be converted
+     */
+    protected boolean isIncremental() {
+        return manifest != null && manifest.hasEntries(getConvertProcess());
+    }
+
+    /**
+     * Checks whether the entry has already been converted from the same
+     * source
+     *
+     * @param entry the source entry name
+     * @param hash the content hash of the source entry
+     * @param output the converted file, {@code null} if not to check it
+     * @return true if the entry can be skipped
+     * @see ConversionManifest#hash(java.nio.ByteBuffer)
+     */
+    protected boolean isUpToDate(String entry, String hash, Path output) {
+        return manifest != null && manifest.isUpToDate(getConvertProcess(), entry, hash, output);
+    }
+
+    /**
+     * Records the entry converted, call after the output is fully written
+     *
+     * @param entry the source entry name
+     * @param hash the content hash of the source entry
+     */
+    protected void markConverted(String entry, String hash) {
+        if (manifest != null) {
+            manifest.markConverted(getConvertProcess(), entry, hash);
+        }
+    }
+
+    /**
+     * Checks whether the additional information of an entry has been
+     * recorded from the same source
+     *
+     * @param entry the entry name
+     * @param hash the content hash of the source entry
+     * @return true if recorded
+     * @see #record(java.lang.String, java.lang.String)
+     */
+    protected boolean isRecorded(String entry, String hash) {
+        return manifest != null && manifest.isRecorded(getConvertProcess(), entry, hash);
+    }
+
+    /**
+     * Records additional information of an entry, it is not counted as a
+     * converted entry
+     *
+     * @param entry the entry name
+     * @param hash the content hash of the source entry
+     */
+    protected void record(String entry, String hash) {
+        if (manifest != null) {
+            manifest.record(getConvertProcess(), entry, hash);
+        }
+    }
+
+    /**
+     * Records a source file of this task. The task is run again if any of its
+     * source files change
+     *
+     * @param source the source file
+     */
+    protected void addSource(Path source) {
+        if (manifest != null) {
+            manifest.addSource(getConvertProcess(), source);
+        }
+    }
+
 }
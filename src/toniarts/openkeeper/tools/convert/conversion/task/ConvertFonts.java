@@ -32,11 +32,6 @@ import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.imageio.ImageIO;
@@ -45,7 +40,6 @@ import toniarts.openkeeper.tools.convert.FontCreator;
 import toniarts.openkeeper.tools.convert.FontCreator.FontImage;
 import toniarts.openkeeper.tools.convert.bf4.Bf4File;
 import toniarts.openkeeper.utils.PathUtils;
-import toniarts.openkeeper.utils.Utils;
 
 /**
  * Dungeon Keeper II font conversion. Converts all fonts to jME friendly bitmap
@@ -57,35 +51,13 @@ public final class ConvertFonts extends ConversionTask {
 
     private static final Logger logger = System.getLogger(ConvertFonts.class.getName());
 
-    private final ExecutorService executorService;
-
     public ConvertFonts(String dungeonKeeperFolder, String destination, boolean overwriteData) {
         super(dungeonKeeperFolder, destination, overwriteData);
-
-        this.executorService = Executors.newFixedThreadPool(Utils.MAX_THREADS, new ThreadFactory() {
-
-            private final AtomicInteger threadIndex = new AtomicInteger(0);
-
-            @Override
-            public Thread newThread(Runnable r) {
-                return new Thread(r, "FontsConverter_" + threadIndex.incrementAndGet());
-            }
-
-        });
     }
 
     @Override
     public void internalExecuteTask() {
-        try {
-            convertFonts(dungeonKeeperFolder, destination);
-        } finally {
-            executorService.shutdown();
-            try {
-                executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
-            } catch (InterruptedException ex) {
-                logger.log(Level.ERROR, "Failed to wait font conversion complete!", ex);
-            }
-        }
+        convertFonts(dungeonKeeperFolder, destination);
     }
 
     /**
@@ -100,14 +72,13 @@ public final class ConvertFonts extends ConversionTask {
         Path destFolder = Paths.get(destination);
         PathUtils.deleteFolder(destFolder);
         ImageIO.setUseCache(false);
-
+        final List<Path> bf4Files = new ArrayList<>();
         try {
 
             // Make sure the folder exists
             Files.createDirectories(destFolder);
 
             // Find all the font files
-            final List<Path> bf4Files = new ArrayList<>();
             Files.walkFileTree(Paths.get(dungeonKeeperFolder, PathUtils.DKII_TEXT_DEFAULT_FOLDER), new SimpleFileVisitor<Path>() {
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
@@ -121,64 +92,49 @@ public final class ConvertFonts extends ConversionTask {
                     return FileVisitResult.CONTINUE;
                 }
             });
-
-            // Go through the font files
-            AtomicInteger progress = new AtomicInteger(0);
-            int total = bf4Files.size();
-            updateStatus(0, total);
-            Pattern pattern = Pattern.compile("FONT_(?<name>\\D+)(?<size>\\d+)", Pattern.CASE_INSENSITIVE);
-            for (Path file : bf4Files) {
-                executorService.submit(() -> {
-                    handleFontFile(pattern, file, destination, progress, total);
-                });
-            }
-
         } catch (Exception ex) {
             String msg = "Failed to save the font files to " + destination + "!";
             logger.log(Level.ERROR, msg, ex);
             throw new RuntimeException(msg, ex);
         }
-    }
 
-    private void handleFontFile(Pattern pattern, Path file, final String destination, AtomicInteger progress, int total) {
-        try {
+        // Go through the font files
+        setProgressTotal(bf4Files.size());
+        Pattern pattern = Pattern.compile("FONT_(?<name>\\D+)(?<size>\\d+)", Pattern.CASE_INSENSITIVE);
+        convertEntries(bf4Files, file -> handleFontFile(pattern, file, destination));
+    }
 
-            // The file names
-            final int fontSize;
-            final String imageFileName;
-            final String descriptionFileName;
-            Matcher matcher = pattern.matcher(file.getFileName().toString());
-            boolean found = matcher.find();
-            if (!found) {
-                logger.log(Level.ERROR, "Font name {0} not recognized!", file.getFileName());
-                throw new RuntimeException("Unknown font name!");
-            }
+    private void handleFontFile(Pattern pattern, Path file, final String destination) throws IOException {
+
+        // The file names
+        final int fontSize;
+        final String imageFileName;
+        final String descriptionFileName;
+        Matcher matcher = pattern.matcher(file.getFileName().toString());
+        boolean found = matcher.find();
+        if (!found) {
+            logger.log(Level.ERROR, "Font name {0} not recognized!", file.getFileName());
+            throw new RuntimeException("Unknown font name!");
+        }
 
-            // Parse font info from the file name
-            fontSize = Integer.parseInt(matcher.group("size"));
-            String baseFileName = matcher.group("name");
-            baseFileName = destination.concat(Character.toUpperCase(baseFileName.charAt(0)) + baseFileName.substring(1).toLowerCase() + fontSize);
-            imageFileName = baseFileName.substring(destination.length()).concat(".png");
-            descriptionFileName = baseFileName.concat(".fnt");
-
-            // Convert & save the font files
-            FontCreator fc = new FontCreator(new Bf4File(file), fontSize, imageFileName);
-            for (FontImage fontImage : fc.getFontImages()) {
-                Path destPath = Paths.get(destination, fontImage.fileName());
-                try (OutputStream os = Files.newOutputStream(destPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-                        BufferedOutputStream bos = new BufferedOutputStream(os)) {
-                    ImageIO.write(fontImage.fontImage(), "png", bos);
-                }
-            }
-            try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(descriptionFileName), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                bw.write(fc.getDescription());
+        // Parse font info from the file name
+        fontSize = Integer.parseInt(matcher.group("size"));
+        String baseFileName = matcher.group("name");
+        baseFileName = destination.concat(Character.toUpperCase(baseFileName.charAt(0)) + baseFileName.substring(1).toLowerCase() + fontSize);
+        imageFileName = baseFileName.substring(destination.length()).concat(".png");
+        descriptionFileName = baseFileName.concat(".fnt");
+
+        // Convert & save the font files
+        FontCreator fc = new FontCreator(new Bf4File(file), fontSize, imageFileName);
+        for (FontImage fontImage : fc.getFontImages()) {
+            Path destPath = Paths.get(destination, fontImage.fileName());
+            try (OutputStream os = Files.newOutputStream(destPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                    BufferedOutputStream bos = new BufferedOutputStream(os)) {
+                ImageIO.write(fontImage.fontImage(), "png", bos);
             }
-
-            updateStatus(progress.incrementAndGet(), total);
-        } catch (Exception ex) {
-            String msg = "Failed to export font file " + file + "!";
-            logger.log(Level.ERROR, msg, ex);
-            onError(new RuntimeException(msg, ex));
+        }
+        try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(descriptionFileName), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            bw.write(fc.getDescription());
         }
     }
 
@@ -31,6 +31,8 @@ import java.util.ArrayList;
 import java.util.List;
 import javax.imageio.ImageIO;
 import toniarts.openkeeper.tools.convert.AssetsConverter;
+import toniarts.openkeeper.tools.convert.conversion.ConversionManifest;
+import toniarts.openkeeper.tools.convert.map.FilePath;
 import toniarts.openkeeper.tools.convert.map.GameLevel;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.utils.MapThumbnailGenerator;
@@ -66,7 +68,11 @@ public final class ConvertMapThumbnails extends ConversionTask {
         logger.log(Level.INFO, "Generating map thumbnails to: {0}", destination);
         updateStatus(null, null);
         Path destFolder = Paths.get(destination);
-        PathUtils.deleteFolder(destFolder);
+
+        // Keep the earlier results if we can continue from them, the unchanged maps are skipped
+        if (!isIncremental()) {
+            PathUtils.deleteFolder(destFolder);
+        }
 
         try {
 
@@ -76,37 +82,44 @@ public final class ConvertMapThumbnails extends ConversionTask {
             throw new RuntimeException("Failed to create destination folder " + destFolder + "!", ex);
         }
 
-        // Get the skirmish/mp maps
-        List<KwdFile> maps = new ArrayList<>();
+        // Get the map files
+        List<Path> mapFiles = new ArrayList<>();
         try (DirectoryStream<Path> paths = Files.newDirectoryStream(Paths.get(dungeonKeeperFolder, PathUtils.DKII_MAPS_FOLDER), PathUtils.getFilterForFilesEndingWith(".kwd"))) {
             for (Path path : paths) {
-                try {
-                    KwdFile kwd = new KwdFile(dungeonKeeperFolder, path, false);
-                    if (kwd.getGameLevel().getLvlFlags().contains(GameLevel.LevFlag.IS_SKIRMISH_LEVEL)
-                            || kwd.getGameLevel().getLvlFlags().contains(GameLevel.LevFlag.IS_MULTIPLAYER_LEVEL)) {
-                        maps.add(kwd);
-                    }
-                } catch (Exception ex) {
-                    logger.log(Level.WARNING, "Failed to open map file: " + path + "!", ex); // Not fatal
-                }
+                mapFiles.add(path);
             }
         } catch (Exception ex) {
             logger.log(Level.ERROR, "Failed to search for the map files!", ex);
         }
 
-        // Go through the map files
-        int i = 0;
-        int total = maps.size();
+        // Go through the map files, only the skirmish/mp maps get a thumbnail
+        setProgressTotal(mapFiles.size());
         ImageIO.setUseCache(false);
-        for (KwdFile kwd : maps) {
-            updateStatus(i, total);
+        convertEntries(mapFiles, path -> {
+            KwdFile kwd;
             try {
+                kwd = new KwdFile(dungeonKeeperFolder, path, false);
+            } catch (Exception ex) {
+                logger.log(Level.WARNING, "Failed to open map file: " + path + "!", ex); // Not fatal
+                return;
+            }
+            if (!kwd.getGameLevel().getLvlFlags().contains(GameLevel.LevFlag.IS_SKIRMISH_LEVEL)
+                    && !kwd.getGameLevel().getLvlFlags().contains(GameLevel.LevFlag.IS_MULTIPLAYER_LEVEL)) {
+                return;
+            }
+
+            try {
+                String hash = getMapHash(dungeonKeeperFolder, kwd, path);
+                addSource(path);
+                if (isUpToDate(kwd.getGameLevel().getName(), hash, getThumbnailFile(kwd, destination))) {
+                    return;
+                }
                 genererateMapThumbnail(kwd, destination);
+                markConverted(kwd.getGameLevel().getName(), hash);
             } catch (Exception ex) {
                 logger.log(Level.WARNING, "Failed to create a thumbnail from map: " + kwd.getGameLevel().getName() + "!", ex); // Not fatal
             }
-            i++;
-        }
+        });
     }
 
     /**
@@ -122,13 +135,35 @@ public final class ConvertMapThumbnails extends ConversionTask {
         // TODO maybe image size in Settings ???
         BufferedImage thumbnail = MapThumbnailGenerator.generateMap(kwd, 144, 144, false);
 
-        Path destinationPath = Paths.get(destination, PathUtils.stripFileName(kwd.getGameLevel().getName()) + ".png");
-        try (OutputStream os = Files.newOutputStream(destinationPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try (OutputStream os = Files.newOutputStream(getThumbnailFile(kwd, destination), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
                 BufferedOutputStream bos = new BufferedOutputStream(os)) {
             ImageIO.write(thumbnail, "png", bos);
         }
     }
 
+    private static Path getThumbnailFile(KwdFile kwd, String destination) {
+        return Paths.get(destination, PathUtils.stripFileName(kwd.getGameLevel().getName()) + ".png");
+    }
+
+    /**
+     * Combines the content hashes of the map file and the level data files it
+     * refers to, the thumbnail is drawn from all of them
+     *
+     * @param dungeonKeeperFolder DK II main folder
+     * @param kwd the map file
+     * @param path path to the map file
+     * @return the content hash
+     * @throws IOException may fail
+     */
+    private static String getMapHash(String dungeonKeeperFolder, KwdFile kwd, Path path) throws IOException {
+        StringBuilder sb = new StringBuilder(ConversionManifest.hash(path));
+        for (FilePath filePath : kwd.getGameLevel().getPaths()) {
+            sb.append('+').append(ConversionManifest.hash(Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder, filePath.getPath()))));
+        }
+
+        return sb.toString();
+    }
+
     @Override
     public AssetsConverter.ConvertProcess getConvertProcess() {
         return AssetsConverter.ConvertProcess.MAP_THUMBNAILS;
@@ -28,21 +28,16 @@ import java.lang.System.Logger.Level;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
 import toniarts.openkeeper.tools.convert.AssetsConverter;
 import static toniarts.openkeeper.tools.convert.AssetsConverter.getAssetsFolder;
 import toniarts.openkeeper.tools.convert.KmfAssetInfo;
 import toniarts.openkeeper.tools.convert.KmfModelLoader;
+import toniarts.openkeeper.tools.convert.conversion.ConversionManifest;
 import toniarts.openkeeper.tools.convert.kmf.KmfFile;
 import toniarts.openkeeper.tools.convert.wad.WadFile;
 import toniarts.openkeeper.utils.PathUtils;
-import toniarts.openkeeper.utils.Utils;
 
 /**
  * Dungeon Keeper II models conversion. Converts KMF to jME internal optimized
@@ -54,37 +49,23 @@ public final class ConvertModels extends ConversionTask {
 
     private static final Logger logger = System.getLogger(ConvertModels.class.getName());
 
+    /**
+     * The groups are recorded in the manifest under their name with this
+     * suffix, so that they are known without parsing them
+     */
+    private static final String GROUP_RECORD_SUFFIX = "#group";
+
     private final AssetManager assetManager;
-    private final ExecutorService executorService;
 
     public ConvertModels(String dungeonKeeperFolder, String destination, boolean overwriteData, AssetManager assetManager) {
         super(dungeonKeeperFolder, destination, overwriteData);
 
         this.assetManager = assetManager;
-        this.executorService = Executors.newFixedThreadPool(Utils.MAX_THREADS, new ThreadFactory() {
-
-            private final AtomicInteger threadIndex = new AtomicInteger(0);
-
-            @Override
-            public Thread newThread(Runnable r) {
-                return new Thread(r, "ModelExporter_" + threadIndex.incrementAndGet());
-            }
-
-        });
     }
 
     @Override
     public void internalExecuteTask() {
-        try {
-            convertModels(dungeonKeeperFolder, destination, assetManager);
-        } finally {
-            executorService.shutdown();
-            try {
-                executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
-            } catch (InterruptedException ex) {
-                logger.log(Level.ERROR, "Failed to wait model saving complete!", ex);
-            }
-        }
+        convertModels(dungeonKeeperFolder, destination, assetManager);
     }
 
     /**
@@ -97,7 +78,12 @@ public final class ConvertModels extends ConversionTask {
         logger.log(Level.INFO, "Extracting models to: {0}", destination);
         updateStatus(null, null);
         Path dest = Paths.get(destination);
-        PathUtils.deleteFolder(dest);
+
+        // Keep the earlier results if we can continue from them, the unchanged models are skipped
+        boolean incremental = isIncremental();
+        if (!incremental) {
+            PathUtils.deleteFolder(dest);
+        }
         try {
             Files.createDirectories(dest);
         } catch (IOException ex) {
@@ -106,7 +92,9 @@ public final class ConvertModels extends ConversionTask {
 
         // Create the materials folder or else the material file saving fails
         Path materialFolder = Paths.get(getAssetsFolder(), AssetsConverter.MATERIALS_FOLDER);
-        PathUtils.deleteFolder(materialFolder);
+        if (!incremental) {
+            PathUtils.deleteFolder(materialFolder);
+        }
         try {
             Files.createDirectories(materialFolder);
         } catch (IOException ex) {
@@ -116,55 +104,57 @@ public final class ConvertModels extends ConversionTask {
         // Meshes are in the data folder, access the packed file
         WadFile wad;
         try {
-            wad = new WadFile(Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder + PathUtils.DKII_DATA_FOLDER, "Meshes.WAD")));
+            Path wadFile = Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder + PathUtils.DKII_DATA_FOLDER, "Meshes.WAD"));
+            wad = new WadFile(wadFile);
+            addSource(wadFile);
         } catch (IOException ex) {
             throw new RuntimeException("Could not open the meshes.wad archive!", ex);
         }
-        Map<String, KmfFile> kmfs = LinkedHashMap.newLinkedHashMap(wad.getWadFileEntryCount());
-        AtomicInteger progress = new AtomicInteger(0);
-        int total = wad.getWadFileEntryCount();
-        for (final String entry : wad.getWadFileEntries()) {
-            try {
-
-                // See if we already have this model
-                if (!overwriteData && Files.exists(Paths.get(destination, entry.substring(0, entry.length() - 4).concat(".j3o")))) {
-                    logger.log(Level.INFO, "File {0} already exists, skipping!", entry);
-                    updateStatus(progress.incrementAndGet(), total);
-                    continue;
-                }
-
-                // Parse
-                final KmfFile kmfFile = new KmfFile(wad.getFileData(entry));
-
-                // If it is a regular model or animation, process it straight away
-                // Leave groups for later (since linking)
-                if (kmfFile.getType() == KmfFile.Type.MESH || kmfFile.getType() == KmfFile.Type.ANIM) {
-                    convertModel(assetManager, entry, kmfFile, destination, total, progress);
-                } else {
-
-                    // For later processing
-                    kmfs.put(entry, kmfFile);
-                }
-
-                // See if model conversion already failed
-                if (isInError()) {
-                    return;
-                }
-            } catch (Exception ex) {
-                logger.log(Level.ERROR, "Failed to create a file for WAD entry " + entry + "!", ex);
-                throw ex;
+        setProgressTotal(wad.getWadFileEntryCount());
+
+        // Regular models and animations are processed straight away
+        // Leave groups for later (since linking), they are converted once all the others are done
+        Map<String, String> groups = new ConcurrentHashMap<>();
+        Map<String, KmfFile> parsedGroups = new ConcurrentHashMap<>();
+        convertEntries(wad.getWadFileEntries(), entry -> {
+
+            // See if we already have this model
+            Path modelFile = getModelFile(destination, entry);
+            if (!overwriteData && Files.exists(modelFile)) {
+                logger.log(Level.INFO, "File {0} already exists, skipping!", entry);
+                return;
             }
-        }
 
-        // And the groups (now they can be linked)
-        for (Map.Entry<String, KmfFile> entry : kmfs.entrySet()) {
-            convertModel(assetManager, entry.getKey(), entry.getValue(), destination, total, progress);
-
-            // See if model conversion already failed
-            if (isInError()) {
+            // Groups are always converted since the linked models may have changed, the rest only if changed
+            String hash = ConversionManifest.hash(wad.getStoredFileBuffer(entry));
+            if (isRecorded(entry.concat(GROUP_RECORD_SUFFIX), hash)) {
+                groups.put(entry, hash);
                 return;
             }
-        }
+            if (isUpToDate(entry, hash, modelFile)) {
+                return;
+            }
+
+            // Parse
+            KmfFile kmfFile = new KmfFile(wad.getFileBuffer(entry));
+            if (kmfFile.getType() == KmfFile.Type.MESH || kmfFile.getType() == KmfFile.Type.ANIM) {
+                convertModel(assetManager, entry, hash, kmfFile, modelFile);
+            } else {
+                groups.put(entry, hash);
+                parsedGroups.put(entry, kmfFile);
+            }
+        });
+
+        // And the groups (now they can be linked)
+        convertEntries(groups.keySet(), entry -> {
+            String hash = groups.get(entry);
+            KmfFile kmfFile = parsedGroups.get(entry);
+            if (kmfFile == null) {
+                kmfFile = new KmfFile(wad.getFileBuffer(entry));
+            }
+            convertModel(assetManager, entry, hash, kmfFile, getModelFile(destination, entry));
+            record(entry.concat(GROUP_RECORD_SUFFIX), hash);
+        });
     }
 
     /**
@@ -172,41 +162,26 @@ public final class ConvertModels extends ConversionTask {
      *
      * @param assetManager assetManager, for finding stuff
      * @param name model name
+     * @param hash content hash of the model entry
      * @param model the loaded KMF model
-     * @param destination destination directory
-     * @param total the total amount to process
-     * @param progress current progress
-     * @throws RuntimeException May fail
+     * @param modelFile the file to save to
+     * @throws IOException May fail
      */
-    private void convertModel(AssetManager assetManager, String name, KmfFile model, String destination, int total, AtomicInteger progress) throws RuntimeException {
-
-        // Remove the file extension from the file
+    private void convertModel(AssetManager assetManager, String name, String hash, KmfFile model, Path modelFile) throws IOException {
         KmfAssetInfo ai = new KmfAssetInfo(assetManager, new AssetKey(name), model, true);
         KmfModelLoader kmfModelLoader = new KmfModelLoader();
-        try {
-            Node n = (Node) kmfModelLoader.load(ai);
-
-            // Handle the saving to the disk in own thread pool
-            executorService.submit(() -> {
-                try {
-                    BinaryExporter exporter = BinaryExporter.getInstance();
-                    try (OutputStream out = Files.newOutputStream(Paths.get(destination, name.substring(0, name.length() - 4).concat(".j3o")));
-                            BufferedOutputStream bout = new BufferedOutputStream(out)) {
-                        exporter.save(n, bout);
-                    }
-
-                    updateStatus(progress.incrementAndGet(), total);
-                } catch (Exception ex) {
-                    String msg = "Failed to export KMF entry " + name + "!";
-                    logger.log(Level.ERROR, msg, ex);
-                    onError(new RuntimeException(msg, ex));
-                }
-            });
-        } catch (Exception ex) {
-            String msg = "Failed to convert KMF entry " + name + "!";
-            logger.log(Level.ERROR, msg, ex);
-            throw new RuntimeException(msg, ex);
+        Node n = (Node) kmfModelLoader.load(ai);
+
+        BinaryExporter exporter = BinaryExporter.getInstance();
+        try (OutputStream out = Files.newOutputStream(modelFile);
+                BufferedOutputStream bout = new BufferedOutputStream(out)) {
+            exporter.save(n, bout);
         }
+        markConverted(name, hash);
+    }
+
+    private static Path getModelFile(String destination, String name) {
+        return Paths.get(destination, name.substring(0, name.length() - 4).concat(".j3o"));
     }
 
     @Override
@@ -25,6 +25,7 @@ import java.nio.file.Paths;
 import toniarts.openkeeper.tools.convert.AssetsConverter;
 import static toniarts.openkeeper.tools.convert.AssetsConverter.SPRITES_FOLDER;
 import static toniarts.openkeeper.tools.convert.AssetsConverter.getAssetsFolder;
+import toniarts.openkeeper.tools.convert.conversion.ConversionManifest;
 import toniarts.openkeeper.tools.convert.spr.SprFile;
 import toniarts.openkeeper.tools.convert.wad.WadFile;
 import toniarts.openkeeper.utils.PathUtils;
@@ -57,19 +58,26 @@ public final class ConvertMouseCursors extends ConversionTask {
     private void convertMouseCursors(String dungeonKeeperFolder, String destination) {
         logger.log(Level.INFO, "Extracting mouse cursors to: {0}", destination);
         updateStatus(null, null);
-        PathUtils.deleteFolder(Paths.get(destination));
+
+        // Keep the earlier results if we can continue from them, the unchanged cursors are skipped
+        boolean incremental = isIncremental();
+        if (!incremental) {
+            PathUtils.deleteFolder(Paths.get(destination));
+        }
 
         // Mouse cursors are PNG files in the Sprite.WAD
         WadFile wadFile;
         try {
-            wadFile = new WadFile(Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder + PathUtils.DKII_DATA_FOLDER, "Sprite.WAD")));
+            Path wadPath = Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder + PathUtils.DKII_DATA_FOLDER, "Sprite.WAD"));
+            wadFile = new WadFile(wadPath);
+            addSource(wadPath);
         } catch (IOException ex) {
             throw new RuntimeException("Could not open the Sprite.wad archive!", ex);
         }
-        int i = 0;
-        int total = wadFile.getWadFileEntryCount();
         Path destinationFolder = Paths.get(getAssetsFolder(), SPRITES_FOLDER);
-        PathUtils.deleteFolder(destinationFolder);
+        if (!incremental) {
+            PathUtils.deleteFolder(destinationFolder);
+        }
         try {
             Files.createDirectories(destinationFolder);
         } catch (IOException ex) {
@@ -77,25 +85,33 @@ public final class ConvertMouseCursors extends ConversionTask {
         }
         String destinationFolderAsString = destinationFolder.toString();
 
-        for (String fileName : wadFile.getWadFileEntries()) {
-            updateStatus(i, total);
-            i++;
+        setProgressTotal(wadFile.getWadFileEntryCount());
+        convertEntries(wadFile.getWadFileEntries(), fileName -> {
 
-            if (fileName.toLowerCase().endsWith(".spr")) {
+            // The sprites extract to several frames, so we can only check the extracted regular files
+            boolean sprite = fileName.toLowerCase().endsWith(".spr");
+            String hash = ConversionManifest.hash(wadFile.getStoredFileBuffer(fileName));
+            if (isUpToDate(fileName, hash, sprite ? null : Paths.get(destination, fileName))) {
+                return;
+            }
+
+            if (sprite) {
 
                 // Extract the spr and delete it afterwards
-                SprFile sprFile = new SprFile(wadFile.getFileData(fileName));
+                SprFile sprFile = new SprFile(wadFile.getFileBuffer(fileName));
                 try {
                     sprFile.extract(destinationFolderAsString, fileName.substring(0, fileName.length() - 4));
                 } catch (Exception ex) {
                     logger.log(Level.ERROR, "Error Sprite: {0}", ex);
+                    return;
                 }
             } else {
 
                 // Extract the file
                 wadFile.extractFileData(fileName, destination);
             }
-        }
+            markConverted(fileName, hash);
+        });
     }
 
     @Override
@@ -36,6 +36,7 @@ import toniarts.openkeeper.cinematics.CameraSweepDataEntry;
 import toniarts.openkeeper.cinematics.CameraSweepDataLoader;
 import toniarts.openkeeper.tools.convert.AssetsConverter;
 import toniarts.openkeeper.tools.convert.ConversionUtils;
+import toniarts.openkeeper.tools.convert.conversion.ConversionManifest;
 import toniarts.openkeeper.tools.convert.kcs.KcsEntry;
 import toniarts.openkeeper.tools.convert.kcs.KcsFile;
 import toniarts.openkeeper.tools.convert.wad.WadFile;
@@ -70,7 +71,11 @@ public final class ConvertPaths extends ConversionTask {
         logger.log(Level.INFO, "Extracting paths to: {0}", destination);
         updateStatus(null, null);
         Path dest = Paths.get(destination);
-        PathUtils.deleteFolder(dest);
+
+        // Keep the earlier results if we can continue from them, the unchanged paths are skipped
+        if (!isIncremental()) {
+            PathUtils.deleteFolder(dest);
+        }
         try {
             Files.createDirectories(dest);
         } catch (IOException ex) {
@@ -80,60 +85,60 @@ public final class ConvertPaths extends ConversionTask {
         // Paths are in the data folder, access the packed file
         WadFile wad;
         try {
-            wad = new WadFile(Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder + PathUtils.DKII_DATA_FOLDER, "Paths.WAD")));
+            Path wadFile = Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder + PathUtils.DKII_DATA_FOLDER, "Paths.WAD"));
+            wad = new WadFile(wadFile);
+            addSource(wadFile);
         } catch (IOException ex) {
             throw new RuntimeException("Failed to open the Paths.wad archive!", ex);
         }
-        int i = 0;
-        int total = wad.getWadFileEntryCount();
-        BinaryExporter exporter = BinaryExporter.getInstance();
-        for (final String entry : wad.getWadFileEntries()) {
-            try {
-                updateStatus(i, total);
-                i++;
-
-                // Convert all the KCS entries
-                if (entry.toLowerCase().endsWith(".kcs")) {
-
-                    // Open the entry
-                    KcsFile kcsFile = new KcsFile(wad.getFileData(entry));
-
-                    // Convert
-                    List<CameraSweepDataEntry> entries = new ArrayList<>(kcsFile.getKcsEntries().size());
-                    for (KcsEntry kcsEntry : kcsFile.getKcsEntries()) {
-
-                        // Convert the rotation matrix to quatenion
-                        Matrix3f mat = new Matrix3f();
-                        Vector3f direction = ConversionUtils.convertVector(kcsEntry.getDirection());
-                        Vector3f left = ConversionUtils.convertVector(kcsEntry.getLeft());
-                        Vector3f up = ConversionUtils.convertVector(kcsEntry.getUp());
-                        mat.setColumn(0, new Vector3f(-direction.x, direction.y, direction.z));
-                        mat.setColumn(1, new Vector3f(left.x, -left.y, -left.z));
-                        mat.setColumn(2, new Vector3f(-up.x, up.y, up.z));
-
-                        entries.add(new CameraSweepDataEntry(ConversionUtils.convertVector(kcsEntry.getPosition()),
-                                new Quaternion().fromRotationMatrix(mat), FastMath.RAD_TO_DEG * kcsEntry.getLens(),
-                                kcsEntry.getNear()));
-                    }
-                    CameraSweepData cameraSweepData = new CameraSweepData(entries);
-
-                    // Save it
-                    try (OutputStream out = Files.newOutputStream(Paths.get(destination, entry.substring(0, entry.length() - 3).concat(CameraSweepDataLoader.FILE_EXTENSION)));
-                            BufferedOutputStream bout = new BufferedOutputStream(out)) {
-                        exporter.save(cameraSweepData, bout);
-                    }
-                } else if (entry.toLowerCase().endsWith(".txt")) {
-
-                    // The text file is nice to have, it is an info text
-                    wad.extractFileData(entry, destination);
+        setProgressTotal(wad.getWadFileEntryCount());
+        convertEntries(wad.getWadFileEntries(), entry -> {
+
+            // See if we already have converted this one
+            boolean kcs = entry.toLowerCase().endsWith(".kcs");
+            Path outputFile = Paths.get(destination, kcs ? entry.substring(0, entry.length() - 3).concat(CameraSweepDataLoader.FILE_EXTENSION) : entry);
+            String hash = ConversionManifest.hash(wad.getStoredFileBuffer(entry));
+            if (isUpToDate(entry, hash, outputFile)) {
+                return;
+            }
+
+            // Convert all the KCS entries
+            if (kcs) {
+
+                // Open the entry
+                KcsFile kcsFile = new KcsFile(wad.getFileBuffer(entry));
+
+                // Convert
+                List<CameraSweepDataEntry> entries = new ArrayList<>(kcsFile.getKcsEntries().size());
+                for (KcsEntry kcsEntry : kcsFile.getKcsEntries()) {
+
+                    // Convert the rotation matrix to quatenion
+                    Matrix3f mat = new Matrix3f();
+                    Vector3f direction = ConversionUtils.convertVector(kcsEntry.getDirection());
+                    Vector3f left = ConversionUtils.convertVector(kcsEntry.getLeft());
+                    Vector3f up = ConversionUtils.convertVector(kcsEntry.getUp());
+                    mat.setColumn(0, new Vector3f(-direction.x, direction.y, direction.z));
+                    mat.setColumn(1, new Vector3f(left.x, -left.y, -left.z));
+                    mat.setColumn(2, new Vector3f(-up.x, up.y, up.z));
+
+                    entries.add(new CameraSweepDataEntry(ConversionUtils.convertVector(kcsEntry.getPosition()),
+                            new Quaternion().fromRotationMatrix(mat), FastMath.RAD_TO_DEG * kcsEntry.getLens(),
+                            kcsEntry.getNear()));
                 }
+                CameraSweepData cameraSweepData = new CameraSweepData(entries);
 
-            } catch (Exception ex) {
-                String msg = "Failed to save the path file to " + destination + "!";
-                logger.log(Level.ERROR, msg, ex);
-                throw new RuntimeException(msg, ex);
+                // Save it
+                try (OutputStream out = Files.newOutputStream(outputFile);
+                        BufferedOutputStream bout = new BufferedOutputStream(out)) {
+                    BinaryExporter.getInstance().save(cameraSweepData, bout);
+                }
+            } else if (entry.toLowerCase().endsWith(".txt")) {
+
+                // The text file is nice to have, it is an info text
+                wad.extractFileData(entry, destination);
             }
-        }
+            markConverted(entry, hash);
+        });
     }
 
     @Override
@@ -28,6 +28,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
 import toniarts.openkeeper.tools.convert.AssetsConverter;
+import toniarts.openkeeper.tools.convert.conversion.ConversionManifest;
 import toniarts.openkeeper.tools.convert.sound.SdtFile;
 import toniarts.openkeeper.utils.PathUtils;
 
@@ -59,12 +60,16 @@ public final class ConvertSounds extends ConversionTask {
     private void convertSounds(String dungeonKeeperFolder, String destination) {
         logger.log(Level.INFO, "Extracting sounds to: {0}", destination);
         updateStatus(null, null);
-        PathUtils.deleteFolder(Paths.get(destination));
+
+        // Keep the earlier results if we can continue from them, the unchanged sound files are skipped
+        if (!isIncremental()) {
+            PathUtils.deleteFolder(Paths.get(destination));
+        }
         String dataDirectory = PathUtils.DKII_SFX_FOLDER;
 
         // Find all the sound files
         final List<Path> sdtFiles = new ArrayList<>();
-        Path dataDir = null;
+        final Path dataDir;
         try {
             dataDir = Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder, dataDirectory));
             Files.walkFileTree(dataDir, new SimpleFileVisitor<Path>() {
@@ -88,17 +93,23 @@ public final class ConvertSounds extends ConversionTask {
 
         // Extract the sounds
         // FIXME: We should try to figure out the map files, but at least merge the sound track files
-        int i = 0;
-        int total = sdtFiles.size();
+        setProgressTotal(sdtFiles.size());
         for (Path file : sdtFiles) {
-            updateStatus(i, total);
-            i++;
-
-            SdtFile sdt = new SdtFile(file);
+            addSource(file);
+        }
+        convertEntries(sdtFiles, file -> {
 
             // Get a relative path
             Path path = Paths.get(file.toString().substring(0, file.toString().length() - 4));
             Path relative = dataDir.relativize(path);
+
+            // See if we already have extracted this one, a sound file extracts to many so we can't check them
+            String hash = ConversionManifest.hash(file);
+            if (isUpToDate(relative.toString(), hash, null)) {
+                return;
+            }
+
+            SdtFile sdt = new SdtFile(file);
             String dest = destination;
             dest += relative.toString();
 
@@ -106,7 +117,8 @@ public final class ConvertSounds extends ConversionTask {
             //dest = dest.substring(0, dest.length() - file.toPath().getFileName().toString().length());
             // Extract
             sdt.extractFileData(dest);
-        }
+            markConverted(relative.toString(), hash);
+        });
     }
 
     @Override
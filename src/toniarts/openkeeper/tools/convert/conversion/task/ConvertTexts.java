@@ -98,21 +98,15 @@ public final class ConvertTexts extends ConversionTask {
         } catch (IOException ex) {
             throw new RuntimeException("Failed to create destination folder " + destinationFolder + "!", ex);
         }
-        int i = 0;
-        int total = srtFiles.size();
-        MbToUniFile codePage = null;
-        for (Path file : srtFiles) {
-            updateStatus(i, total);
-            i++;
+        if (srtFiles.isEmpty()) {
+            return;
+        }
+        setProgressTotal(srtFiles.size());
 
-            // The code page cache makes processing faster
-            StrFile strFile;
-            if (codePage == null) {
-                strFile = new StrFile(file);
-                codePage = strFile.getCodePage();
-            } else {
-                strFile = new StrFile(codePage, file);
-            }
+        // The code page is shared by all the files, read it only once
+        MbToUniFile codePage = StrFile.readCodePage(srtFiles.get(0));
+        convertEntries(srtFiles, file -> {
+            StrFile strFile = new StrFile(codePage, file);
 
             // Write the properties
             String fileName = file.getFileName().toString();
@@ -130,7 +124,7 @@ public final class ConvertTexts extends ConversionTask {
                 logger.log(Level.ERROR, msg, ex);
                 throw new RuntimeException(msg, ex);
             }
-        }
+        });
     }
 
     @Override
@@ -26,20 +26,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.imageio.ImageIO;
 import toniarts.openkeeper.tools.convert.AssetsConverter;
+import toniarts.openkeeper.tools.convert.conversion.ConversionManifest;
 import toniarts.openkeeper.tools.convert.textures.enginetextures.EngineTexturesFile;
+import toniarts.openkeeper.tools.convert.textures.enginetextures.EngineTexturesLocator;
 import toniarts.openkeeper.tools.convert.textures.loadingscreens.LoadingScreenFile;
 import toniarts.openkeeper.tools.convert.wad.WadFile;
 import toniarts.openkeeper.utils.PathUtils;
-import toniarts.openkeeper.utils.Utils;
 
 /**
  * Dungeon Keeper II textures conversion. Converts textures to PNG.
@@ -49,36 +48,15 @@ import toniarts.openkeeper.utils.Utils;
 public final class ConvertTextures extends ConversionTask {
 
     private static final Logger logger = System.getLogger(ConvertTextures.class.getName());
-
-    private final ExecutorService executorService;
+    private static final Pattern MIPMAP_PATTERN = Pattern.compile("(?<name>\\w+)MM(?<mipmaplevel>\\d{1})");
 
     public ConvertTextures(String dungeonKeeperFolder, String destination, boolean overwriteData) {
         super(dungeonKeeperFolder, destination, overwriteData);
-
-        this.executorService = Executors.newFixedThreadPool(Utils.MAX_THREADS, new ThreadFactory() {
-
-            private final AtomicInteger threadIndex = new AtomicInteger(0);
-
-            @Override
-            public Thread newThread(Runnable r) {
-                return new Thread(r, "TexturesConverter_" + threadIndex.incrementAndGet());
-            }
-
-        });
     }
 
     @Override
     public void internalExecuteTask() {
-        try {
-            convertTextures(dungeonKeeperFolder, destination);
-        } finally {
-            executorService.shutdown();
-            try {
-                executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
-            } catch (InterruptedException ex) {
-                logger.log(Level.ERROR, "Failed to wait textures conversion complete!", ex);
-            }
-        }
+        convertTextures(dungeonKeeperFolder, destination);
     }
 
     /**
@@ -90,30 +68,48 @@ public final class ConvertTextures extends ConversionTask {
     private void convertTextures(String dungeonKeeperFolder, String destination) {
         logger.log(Level.INFO, "Extracting textures to: {0}", destination);
         updateStatus(null, null);
-        PathUtils.deleteFolder(Paths.get(destination));
+
+        // Keep the earlier results if we can continue from them, the unchanged textures are skipped
+        if (!isIncremental()) {
+            PathUtils.deleteFolder(Paths.get(destination));
+        }
         EngineTexturesFile etFile = getEngineTexturesFile(dungeonKeeperFolder);
+
+        // Fill the decoded texture cache while at it, the game reads the engine textures from there
+        etFile.setCacheFolder(EngineTexturesLocator.getCacheFolder());
         WadFile frontEnd;
         WadFile engineTextures;
         try {
-            frontEnd = new WadFile(Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder + PathUtils.DKII_DATA_FOLDER, "FrontEnd.WAD")));
-            engineTextures = new WadFile(Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder + PathUtils.DKII_DATA_FOLDER, "EngineTextures.WAD")));
+            Path frontEndFile = Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder + PathUtils.DKII_DATA_FOLDER, "FrontEnd.WAD"));
+            Path engineTexturesFile = Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder + PathUtils.DKII_DATA_FOLDER, "EngineTextures.WAD"));
+            frontEnd = new WadFile(frontEndFile);
+            engineTextures = new WadFile(engineTexturesFile);
+            addSource(frontEndFile);
+            addSource(engineTexturesFile);
+            addSource(getEngineTexturesPath(dungeonKeeperFolder));
         } catch (IOException e) {
             throw new RuntimeException("Failed to open a WAD file!", e);
         }
 
-        AtomicInteger progress = new AtomicInteger(0);
-        int total = etFile.getFileCount() + frontEnd.getWadFileEntries().size() + engineTextures.getWadFileEntries().size();
-
-        // Process each container in its own thread
-        executorService.submit(() -> {
-            extractEngineTextureContainer(progress, total, etFile, destination);
-        });
-        executorService.submit(() -> {
-            extractTextureContainer(progress, total, frontEnd, destination);
-        });
-        executorService.submit(() -> {
-            extractTextureContainer(progress, total, engineTextures, destination);
-        });
+        // All engine textures are PNG files, and MipMap levels are present, we need only the
+        // highest quality one, so don't bother decoding the other mipmap levels
+        List<String> textureFiles = new ArrayList<>(etFile.getFileCount());
+        for (String textureFile : etFile) {
+            Matcher matcher = MIPMAP_PATTERN.matcher(textureFile);
+            if (!matcher.find() || Integer.parseInt(matcher.group("mipmaplevel")) == 0) {
+                textureFiles.add(textureFile);
+            }
+        }
+        setProgressTotal(textureFiles.size() + frontEnd.getWadFileEntryCount() + engineTextures.getWadFileEntryCount());
+
+        // Every texture is a subtask of its own
+        ImageIO.setUseCache(false);
+        long start = System.nanoTime();
+        convertEntries(textureFiles, textureFile -> extractEngineTexture(etFile, textureFile, destination));
+        logger.log(Level.INFO, "Engine textures extracted in {0} ms, decoding took {1} ms and encoding {2} ms in total",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), etFile.getDecodingTime(), etFile.getEncodingTime());
+        convertEntries(frontEnd.getWadFileEntries(), entry -> extractTexture(frontEnd, "FrontEnd.WAD", entry, destination));
+        convertEntries(engineTextures.getWadFileEntries(), entry -> extractTexture(engineTextures, "EngineTextures.WAD", entry, destination));
     }
 
     /**
@@ -126,102 +122,66 @@ public final class ConvertTextures extends ConversionTask {
 
         // Get the engine textures file
         try {
-            EngineTexturesFile etFile = new EngineTexturesFile(Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder, "DK2TextureCache".concat(FileSystems.getDefault().getSeparator()).concat("EngineTextures.dat"))));
+            EngineTexturesFile etFile = new EngineTexturesFile(getEngineTexturesPath(dungeonKeeperFolder));
             return etFile;
         } catch (IOException e) {
             throw new RuntimeException("Failed to open the EngineTextures file!", e);
         }
     }
 
-    private void extractEngineTextureContainer(AtomicInteger progress, int total, EngineTexturesFile etFile, String destination) throws NumberFormatException {
-        Pattern pattern = Pattern.compile("(?<name>\\w+)MM(?<mipmaplevel>\\d{1})");
-        for (String textureFile : etFile) {
+    private static Path getEngineTexturesPath(String dungeonKeeperFolder) throws IOException {
+        return Paths.get(PathUtils.getRealFileName(dungeonKeeperFolder, "DK2TextureCache".concat(FileSystems.getDefault().getSeparator()).concat("EngineTextures.dat")));
+    }
 
-            // All are PNG files, and MipMap levels are present, we need only the
-            // highest quality one, so don't bother extracting the other mipmap levels
-            Matcher matcher = pattern.matcher(textureFile);
-            boolean found = matcher.find();
-            if (found && Integer.parseInt(matcher.group("mipmaplevel")) == 0) {
-
-                // Highest resolution, extract and rename
-                Path f = etFile.extractFileData(textureFile, destination, overwriteData);
-                Path newFile = Paths.get(f.toString().replaceFirst("MM" + matcher.group("mipmaplevel"), ""));
-                try {
-                    if (overwriteData && Files.exists(newFile)) {
-                        Files.delete(newFile);
-                    } else if (!overwriteData && Files.exists(newFile)) {
-
-                        // Delete the extracted file
-                        logger.log(Level.INFO, "File {0} already exists, skipping!", newFile);
-                        Files.delete(f);
-                        updateStatus(progress.incrementAndGet(), total);
-
-                        return;
-                    }
-                    Files.move(f, newFile);
-                } catch (IOException ex) {
-                    logger.log(Level.ERROR, "Failed to handle " + textureFile + "!", ex);
-                    onError(new RuntimeException("Failed to handle " + textureFile + "!", ex));
-
-                    return;
-                }
-            } else if (!found) {
-                try {
-
-                    // No mipmap levels, just extract
-                    etFile.extractFileData(textureFile, destination, overwriteData);
-                } catch (Exception ex) {
-                    logger.log(Level.ERROR, "Failed to extract the texture file entry " + textureFile + "!", ex);
-                    onError(new RuntimeException("Failed to save the texture file entry " + textureFile + "!", ex));
-
-                    return;
-                }
-            }
-            updateStatus(progress.incrementAndGet(), total);
+    /**
+     * Extracts a single engine texture
+     *
+     * @param etFile the engine textures
+     * @param textureFile the texture entry
+     * @param destination destination directory
+     */
+    private void extractEngineTexture(EngineTexturesFile etFile, String textureFile, String destination) {
+
+        // Highest resolution is extracted without the mipmap level in the name
+        Matcher matcher = MIPMAP_PATTERN.matcher(textureFile);
+        boolean found = matcher.find();
+        Path destinationFile = Paths.get(destination, (found ? textureFile.replaceFirst("MM" + matcher.group("mipmaplevel"), "") : textureFile).concat(".png"));
+        String hash = ConversionManifest.hash(etFile.getEncodedData(textureFile));
+        if (!isUpToDate(textureFile, hash, destinationFile)) {
+            etFile.extractFileData(textureFile, destinationFile, overwriteData);
+            markConverted(textureFile, hash);
         }
     }
 
     /**
-     * Extracts the wad files and updates the progress bar
+     * Extracts a single wad file entry
      *
-     * @param i current entry number
-     * @param total total entry number
      * @param wad wad file
+     * @param wadName name of the wad file, for the conversion manifest
+     * @param entry the wad file entry
      * @param destination destination directory
+     * @throws IOException may fail
      */
-    private void extractTextureContainer(AtomicInteger progress, int total, WadFile wad, String destination) {
-        ImageIO.setUseCache(false);
-        for (final String entry : wad.getWadFileEntries()) {
-
-            // Some of these archives contain .444 files, convert these to PNGs
-            if (entry.endsWith(".444")) {
-                LoadingScreenFile lsf = new LoadingScreenFile(wad.getFileData(entry));
-                try {
-                    Path destFile = Paths.get(destination, entry.substring(0, entry.length() - 3).concat("png"));
-                    Files.createDirectories(destFile.getParent());
-                    try (OutputStream os = Files.newOutputStream(destFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-                            BufferedOutputStream bos = new BufferedOutputStream(os)) {
-                        ImageIO.write(lsf.getImage(), "png", bos);
-                    }
-                } catch (IOException ex) {
-                    logger.log(Level.ERROR, "Failed to save the wad entry " + entry + "!", ex);
-                    onError(new RuntimeException("Failed to save the wad entry " + entry + "!", ex));
-
-                    return;
-                }
-            } else {
-                try {
-                    wad.extractFileData(entry, destination);
-                } catch (Exception ex) {
-                    logger.log(Level.ERROR, "Failed to extract the wad entry " + entry + "!", ex);
-                    onError(new RuntimeException("Failed to save the wad entry " + entry + "!", ex));
-
-                    return;
-                }
-            }
+    private void extractTexture(WadFile wad, String wadName, String entry, String destination) throws IOException {
+        String manifestEntry = wadName + "/" + entry;
+        String hash = ConversionManifest.hash(wad.getStoredFileBuffer(entry));
+        Path destFile = Paths.get(destination, entry.endsWith(".444") ? entry.substring(0, entry.length() - 3).concat("png") : entry);
+        if (isUpToDate(manifestEntry, hash, destFile)) {
+            return;
+        }
 
-            updateStatus(progress.incrementAndGet(), total);
+        // Some of these archives contain .444 files, convert these to PNGs
+        if (entry.endsWith(".444")) {
+            LoadingScreenFile lsf = new LoadingScreenFile(wad.getFileData(entry));
+            Files.createDirectories(destFile.getParent());
+            try (OutputStream os = Files.newOutputStream(destFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                    BufferedOutputStream bos = new BufferedOutputStream(os)) {
+                ImageIO.write(lsf.getImage(), "png", bos);
+            }
+        } else {
+            wad.extractFileData(entry, destination);
         }
+        markConverted(manifestEntry, hash);
     }
 
     @Override
@@ -16,6 +16,8 @@
  */
 package toniarts.openkeeper.tools.convert.conversion.task;
 
+import toniarts.openkeeper.tools.convert.conversion.ConversionManifest;
+
 /**
  * Simple interface for signaling executable task
  *
@@ -27,4 +29,18 @@ public interface IConversionTask {
 
     public void addListener(IConversionTaskUpdate listener);
 
+    /**
+     * Sets the manifest for incremental conversion. Without it the task
+     * converts everything
+     *
+     * @param manifest the conversion manifest
+     */
+    public void setManifest(ConversionManifest manifest);
+
+    /**
+     * Asks the task to stop, the entries not yet started are skipped. The task
+     * then finishes with a cancellation instead of completing
+     */
+    public void cancel();
+
 }
@@ -17,6 +17,7 @@
 package toniarts.openkeeper.tools.convert.kcs;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -71,6 +72,18 @@ public final class KcsFile {
         }
     }
 
+    public KcsFile(ByteBuffer data) {
+
+        // Read the file
+        try (IResourceReader rawKcs = new ByteArrayResourceReader(data)) {
+            parseKcsFile(rawKcs);
+        } catch (Exception e) {
+
+            // Fug
+            throw new RuntimeException("Failed to parse KCS data!", e);
+        }
+    }
+
     private void parseKcsFile(final IResourceReader rawKcs) throws IOException {
 
         // Header
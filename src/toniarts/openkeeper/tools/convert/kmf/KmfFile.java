@@ -18,6 +18,7 @@ package toniarts.openkeeper.tools.convert.kmf;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -120,6 +121,18 @@ public final class KmfFile {
         }
     }
 
+    public KmfFile(ByteBuffer data) {
+
+        // Read the file
+        try (IResourceReader rawKmf = new ByteArrayResourceReader(data)) {
+            parseKmfFile(rawKmf);
+        } catch (Exception e) {
+
+            // Fug
+            throw new RuntimeException("Failed to parse KMF data!", e);
+        }
+    }
+
     private void parseKmfFile(final IResourceReader rawKmf) throws RuntimeException, IOException {
         IResourceChunkReader rawKmfReader = rawKmf.readChunk(28);
 
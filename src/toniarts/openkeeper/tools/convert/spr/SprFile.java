@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -74,6 +75,16 @@ public final class SprFile {
         }
     }
 
+    public SprFile(ByteBuffer data) {
+        try (IResourceReader reader = new ByteArrayResourceReader(data)) {
+            parseSprFile(reader);
+        } catch (Exception e) {
+
+            // Fug
+            throw new RuntimeException("Failed to parse SPR data!", e);
+        }
+    }
+
     private void parseSprFile(final IResourceReader data) throws RuntimeException, IOException {
         IResourceChunkReader dataReader = data.readChunk(8);
         header = new SprHeader();
@@ -138,7 +138,7 @@ public final class StrFile {
      * @return code page as char buffer
      * @throws RuntimeException may fail miserably
      */
-    private static MbToUniFile readCodePage(Path file) throws RuntimeException {
+    public static MbToUniFile readCodePage(Path file) throws RuntimeException {
 
         // We also need the codepage, assume it is in the same directory
         return new MbToUniFile(file.getParent().resolve("MBToUni.dat"));
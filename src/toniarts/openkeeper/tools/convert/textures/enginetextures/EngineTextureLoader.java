@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.convert.textures.enginetextures;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetLoader;
+import com.jme3.asset.TextureKey;
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.texture.plugins.AWTLoader;
+import com.jme3.util.BufferUtils;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Builds the textures located by the {@link EngineTexturesLocator} straight
+ * from the decoded pixels, with the original mipmap levels. Registered for the
+ * PNG files, so the rest of the PNGs are loaded as usual
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class EngineTextureLoader implements AssetLoader {
+
+    private static final Logger logger = System.getLogger(EngineTextureLoader.class.getName());
+
+    public static final String FILE_EXTENSION = "png";
+
+    private final AWTLoader pngLoader = new AWTLoader();
+
+    @Override
+    public Object load(AssetInfo assetInfo) throws IOException {
+        if (!(assetInfo instanceof EngineTexturesLocator.EngineTextureAssetInfo engineTextureInfo)) {
+            return pngLoader.load(assetInfo);
+        }
+
+        EngineTexturesFile engineTextures = engineTextureInfo.getEngineTextures();
+        List<String> mipmapLevels = engineTextureInfo.getMipmapLevels();
+
+        // Take the levels as long as they are halved in size
+        EngineTextureEntry entry = engineTextures.getEntry(mipmapLevels.get(0));
+        int width = entry.getResX();
+        int height = entry.getResY();
+        int levels = 1;
+        int[] mipMapSizes = new int[mipmapLevels.size()];
+        mipMapSizes[0] = width * height * 4;
+        int size = mipMapSizes[0];
+        for (; levels < mipmapLevels.size(); levels++) {
+            EngineTextureEntry level = engineTextures.getEntry(mipmapLevels.get(levels));
+            if (level.getResX() != Math.max(1, width >> levels) || level.getResY() != Math.max(1, height >> levels)) {
+                logger.log(Level.WARNING, "Mipmap level {0} of {1} is not half the size of the previous level, ignoring the rest!", levels, assetInfo.getKey());
+                break;
+            }
+            mipMapSizes[levels] = level.getResX() * level.getResY() * 4;
+            size += mipMapSizes[levels];
+        }
+
+        // Read the levels one after another
+        ByteBuffer data = BufferUtils.createByteBuffer(size);
+        boolean flipY = assetInfo.getKey() instanceof TextureKey textureKey && textureKey.isFlipY();
+        for (int i = 0; i < levels; i++) {
+            int start = data.position();
+            engineTextures.readPixels(mipmapLevels.get(i), data);
+            if (flipY) {
+                flip(data, start, Math.max(1, width >> i) * 4, Math.max(1, height >> i));
+            }
+        }
+        data.flip();
+
+        int[] sizes = null;
+        if (levels > 1) {
+            sizes = new int[levels];
+            System.arraycopy(mipMapSizes, 0, sizes, 0, levels);
+        }
+
+        return new Image(Image.Format.RGBA8, width, height, data, sizes, ColorSpace.sRGB);
+    }
+
+    private static void flip(ByteBuffer data, int start, int stride, int rows) {
+        byte[] upper = new byte[stride];
+        byte[] lower = new byte[stride];
+        for (int y = 0; y < rows / 2; y++) {
+            int upperRow = start + y * stride;
+            int lowerRow = start + (rows - 1 - y) * stride;
+            data.get(upperRow, upper);
+            data.get(lowerRow, lower);
+            data.put(upperRow, lower);
+            data.put(lowerRow, upper);
+        }
+    }
+
+}
@@ -20,17 +20,25 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import javax.imageio.ImageIO;
 import toniarts.openkeeper.tools.convert.FileResourceReader;
 import toniarts.openkeeper.tools.convert.IResourceChunkReader;
@@ -42,7 +50,11 @@ import toniarts.openkeeper.utils.PathUtils;
 /**
  * Reads Dungeon Keeper II EngineTextures.dat file to a structure<br>
  * Also reads EngineTextures.dir for the texture names<br>
- * The file is LITTLE ENDIAN I might say
+ * The file is LITTLE ENDIAN I might say<br>
+ * The textures can be extracted from several threads at once, the data file is
+ * memory mapped and every thread decodes with its own decoder<br>
+ * The decoded pixels can be cached on disk, the cache files are named by the
+ * texture data offset
  *
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
@@ -54,12 +66,23 @@ public final class EngineTexturesFile implements Iterable<String> {
     private static final boolean DECOMPRESSION_ENABLED = true;
     private static final int CHESS_BOARD_GRID_SIZE = 8;
     private static final String ENGINE_TEXTURE_HEADER_IDENTIFIER = "TCHC";
+    private static final String CACHE_FILE_EXTENSION = ".raw";
+    private static final int CACHE_HEADER_SIZE = 16;
 
     private final int version;
 
+    /**
+     * The decoders have internal state, keep them confined to a thread
+     */
+    private static final ThreadLocal<EngineTextureDecoder> DECODER = ThreadLocal.withInitial(EngineTextureDecoder::new);
+
     private final Path file;
-    private EngineTextureDecoder decoder;
+    private final MappedByteBuffer data;
     private final Map<String, EngineTextureEntry> engineTextureEntries;
+    private final Map<String, String> textureNames = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private volatile Path cacheFolder;
+    private final LongAdder decodingTime = new LongAdder();
+    private final LongAdder encodingTime = new LongAdder();
 
     public EngineTexturesFile(Path file) {
         this.file = file;
@@ -122,6 +145,19 @@ public final class EngineTexturesFile implements Iterable<String> {
             // Fug
             throw new RuntimeException("Failed to open the file " + dirFile + "!", e);
         }
+
+        for (String name : engineTextureEntries.keySet()) {
+            textureNames.put(name, name);
+        }
+
+        // Map the texture data for the extraction
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+
+            // Fug
+            throw new RuntimeException("Failed to open the file " + file + "!", e);
+        }
     }
 
     /**
@@ -139,17 +175,8 @@ public final class EngineTexturesFile implements Iterable<String> {
      * @param destination destination directory
      */
     public void extractFileData(String destination) {
-
-        // Open the Texture file for extraction
-        try (ISeekableResourceReader rawTextures = new FileResourceReader(file)) {
-
-            for (String textureEntry : engineTextureEntries.keySet()) {
-                extractFileData(textureEntry, destination, rawTextures, true);
-            }
-        } catch (IOException e) {
-
-            //Fug
-            throw new RuntimeException("Failed to open the file " + file + "!", e);
+        for (String textureEntry : engineTextureEntries.keySet()) {
+            extractFileData(textureEntry, destination, true);
         }
     }
 
@@ -162,31 +189,19 @@ public final class EngineTexturesFile implements Iterable<String> {
      * @return returns the extracted file
      */
     public Path extractFileData(String textureEntry, String destination, boolean overwrite) {
-
-        // Open the Texture file for extraction
-        try (ISeekableResourceReader rawTextures = new FileResourceReader(file)) {
-            return extractFileData(textureEntry, destination, rawTextures, overwrite);
-        } catch (IOException e) {
-
-            // Fug
-            throw new RuntimeException("Failed to open the file " + file + "!", e);
-        }
+        return extractFileData(textureEntry, Paths.get(destination, textureEntry.concat(".png")), overwrite);
     }
 
     /**
-     * Extract a single file to a given location
+     * Extract a single texture to a given file. The texture is not decoded if
+     * the file exists and is not to be overwritten
      *
      * @param textureEntry texture to extract
-     * @param destination destination directory
-     * @param rawTextures the opened EngineTextures file
+     * @param destinationFile the PNG file to write
      * @param overwrite overwrite destination file
-     *
+     * @return returns the extracted file
      */
-    private Path extractFileData(String textureEntry, String destination, ISeekableResourceReader rawTextures, boolean overwrite) {
-
-        // See that the destination is formatted correctly and create it if it does not exist
-        Path destinationFile = Paths.get(destination, textureEntry.concat(".png"));
-
+    public Path extractFileData(String textureEntry, Path destinationFile, boolean overwrite) {
         if (!overwrite && Files.exists(destinationFile)) {
 
             // Skip
@@ -200,66 +215,227 @@ public final class EngineTexturesFile implements Iterable<String> {
             throw new RuntimeException("Failed to create destination folder to " + destinationFile + "!", e);
         }
 
-        // Write to the file
+        // Decode and write to the file
+        long start = System.nanoTime();
+        BufferedImage image = getImage(textureEntry);
+        long decoded = System.nanoTime();
+        ImageIO.setUseCache(false);
         try (OutputStream out = Files.newOutputStream(destinationFile);
                 BufferedOutputStream bout = new BufferedOutputStream(out)) {
-            getFileData(textureEntry, rawTextures).writeTo(bout);
+            ImageIO.write(image, "png", bout);
         } catch (IOException e) {
             throw new RuntimeException("Failed to write to " + destinationFile + "!", e);
         }
+        long encoded = System.nanoTime();
+
+        decodingTime.add(decoded - start);
+        encodingTime.add(encoded - decoded);
+        logger.log(Level.DEBUG, "Texture {0} decoded in {1} ms and encoded in {2} ms", textureEntry,
+                TimeUnit.NANOSECONDS.toMillis(decoded - start), TimeUnit.NANOSECONDS.toMillis(encoded - decoded));
 
         return destinationFile;
     }
 
     /**
-     * Extract a single file
+     * Decodes a single texture
      *
-     * @param textureEntry the texture to extract
-     * @param rawTextures the opened EngineTextures file
-     * @return the file data
+     * @param textureEntry the texture to decode
+     * @return the texture image
      */
-    private ByteArrayOutputStream getFileData(String textureEntry, ISeekableResourceReader rawTextures) {
-        ByteArrayOutputStream result = null;
+    public BufferedImage getImage(String textureEntry) {
+        EngineTextureEntry engineTextureEntry = getExistingEntry(textureEntry);
+
+        // We should decompress the texture
+        if (DECOMPRESSION_ENABLED) {
+            byte[] pixels = decodePixels(textureEntry, engineTextureEntry);
+
+            return ImageUtil.createImage(engineTextureEntry.getResX(), engineTextureEntry.getResY(), engineTextureEntry.isAlphaFlag(), pixels);
+        }
 
-        // Get the file
+        // Use our chess board texture
+        return generateChessBoard(engineTextureEntry);
+    }
+
+    /**
+     * Reads the decoded pixels of a single texture, 4 unsigned bytes per pixel
+     * (R, G, B, A respectively) row by row from the top. Textures without
+     * alpha are fully opaque. The pixels are read from the cache if they are
+     * there, otherwise they are decoded and cached
+     *
+     * @param textureEntry the texture to read
+     * @param out the buffer to put the pixels to, needs to have room for them
+     */
+    public void readPixels(String textureEntry, ByteBuffer out) {
+        EngineTextureEntry engineTextureEntry = getExistingEntry(textureEntry);
+        if (readCachedPixels(textureEntry, engineTextureEntry, out)) {
+            return;
+        }
+
+        out.put(decodePixels(textureEntry, engineTextureEntry), 0, engineTextureEntry.getResX() * engineTextureEntry.getResY() * 4);
+    }
+
+    /**
+     * Get the encoded data of a single texture, as it is stored in the file
+     *
+     * @param textureEntry the texture to get
+     * @return read only view to the encoded texture data
+     */
+    public ByteBuffer getEncodedData(String textureEntry) {
+        return getEncodedSlice(textureEntry, getExistingEntry(textureEntry)).asReadOnlyBuffer();
+    }
+
+    private ByteBuffer getEncodedSlice(String textureEntry, EngineTextureEntry engineTextureEntry) {
+
+        // Read the data straight from the mapping, slicing leaves the shared position alone
+        long offset = engineTextureEntry.getDataStartLocation();
+        int size = engineTextureEntry.getSize();
+        if (offset < 0 || size < 0 || offset + size > data.capacity()) {
+            throw new RuntimeException("Failed to read the engine texture file, " + textureEntry + " is past the end of it!");
+        }
+
+        return data.slice((int) offset, size);
+    }
+
+    /**
+     * Set the folder to cache the decoded pixels to
+     *
+     * @param cacheFolder the cache folder, {@code null} to not to use the
+     * cache
+     */
+    public void setCacheFolder(Path cacheFolder) {
+        this.cacheFolder = cacheFolder;
+    }
+
+    /**
+     * Find the texture entry name matching the given name, ignoring the case
+     *
+     * @param textureEntry the texture entry to look for
+     * @return the texture entry name in this file, {@code null} if not found
+     */
+    public String findEntryName(String textureEntry) {
+        return textureNames.get(PathUtils.convertFileSeparators(textureEntry));
+    }
+
+    private EngineTextureEntry getExistingEntry(String textureEntry) {
         EngineTextureEntry engineTextureEntry = engineTextureEntries.get(textureEntry);
         if (engineTextureEntry == null) {
             throw new RuntimeException("File " + textureEntry + " not found from the texture archive!");
         }
 
-        ImageIO.setUseCache(false);
-        try {
+        return engineTextureEntry;
+    }
 
-            // We should decompress the texture
-            BufferedImage image;
-            if (DECOMPRESSION_ENABLED) {
+    private byte[] decodePixels(String textureEntry, EngineTextureEntry engineTextureEntry) {
+        ByteBuffer rawTextures = getEncodedSlice(textureEntry, engineTextureEntry).order(ByteOrder.LITTLE_ENDIAN);
+        int count = engineTextureEntry.getSize() / 4;
+        long[] buf = new long[count];
+        for (int i = 0; i < count; i++) {
+            buf[i] = Integer.toUnsignedLong(rawTextures.getInt(i * 4));
+        }
 
-                // Seek to the file we want and read it
-                rawTextures.seek(engineTextureEntry.getDataStartLocation());
+        // Use the monstrous decompression routine
+        byte[] pixels = decompressTexture(buf, engineTextureEntry);
+        writeCachedPixels(textureEntry, engineTextureEntry, pixels);
 
-                IResourceChunkReader rawTexturesReader = rawTextures.readChunk(engineTextureEntry.getSize());
-                int count = (engineTextureEntry.getSize()) / 4;
-                long[] buf = new long[count];
-                for (int i = 0; i < count; i++) {
-                    buf[i] = rawTexturesReader.readUnsignedIntegerAsLong();
-                }
+        return pixels;
+    }
 
-                // Use the monstrous decompression routine
-                image = decompressTexture(buf, engineTextureEntry);
-            } else {
+    private Path getCacheFile(EngineTextureEntry engineTextureEntry) {
+        Path folder = cacheFolder;
+        if (folder == null) {
+            return null;
+        }
+
+        return folder.resolve(Long.toHexString(engineTextureEntry.getDataStartLocation()).concat(CACHE_FILE_EXTENSION));
+    }
+
+    private boolean readCachedPixels(String textureEntry, EngineTextureEntry engineTextureEntry, ByteBuffer out) {
+        Path cacheFile = getCacheFile(engineTextureEntry);
+        if (cacheFile == null || !Files.exists(cacheFile)) {
+            return false;
+        }
+
+        int length = engineTextureEntry.getResX() * engineTextureEntry.getResY() * 4;
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+
+            // See that the cached texture is still the same
+            ByteBuffer header = ByteBuffer.allocate(CACHE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() != CACHE_HEADER_SIZE + length || channel.read(header, 0) != CACHE_HEADER_SIZE
+                    || !isCacheHeaderValid(header.flip(), engineTextureEntry)) {
+                logger.log(Level.DEBUG, "Cached texture {0} is outdated!", textureEntry);
+                return false;
+            }
 
-                // Use our chess board texture
-                image = generateChessBoard(engineTextureEntry);
+            ByteBuffer pixels = out.slice(out.position(), length);
+            long position = CACHE_HEADER_SIZE;
+            while (pixels.hasRemaining()) {
+                int read = channel.read(pixels, position);
+                if (read < 0) {
+                    return false;
+                }
+                position += read;
             }
-            result = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", result);
+            out.position(out.position() + length);
+
+            return true;
         } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to read the cached texture " + textureEntry + "!", e);
+            return false;
+        }
+    }
 
-            // Fug
-            throw new RuntimeException("Faile to read the engine texture file!", e);
+    private void writeCachedPixels(String textureEntry, EngineTextureEntry engineTextureEntry, byte[] pixels) {
+        Path cacheFile = getCacheFile(engineTextureEntry);
+        if (cacheFile == null) {
+            return;
         }
 
-        return result;
+        // Write to a temporary file first so that the readers never see half a texture
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tempFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), null);
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(CACHE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(engineTextureEntry.getResX());
+                header.putInt(engineTextureEntry.getResY());
+                header.putInt(engineTextureEntry.getSize());
+                header.putInt(engineTextureEntry.isAlphaFlag() ? 1 : 0);
+                ByteBuffer[] buffers = {header.flip(), ByteBuffer.wrap(pixels, 0, engineTextureEntry.getResX() * engineTextureEntry.getResY() * 4)};
+                while (buffers[1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to cache the texture " + textureEntry + "!", e);
+        }
+    }
+
+    private static boolean isCacheHeaderValid(ByteBuffer header, EngineTextureEntry engineTextureEntry) {
+        return header.getInt() == engineTextureEntry.getResX()
+                && header.getInt() == engineTextureEntry.getResY()
+                && header.getInt() == engineTextureEntry.getSize()
+                && header.getInt() == (engineTextureEntry.isAlphaFlag() ? 1 : 0);
+    }
+
+    /**
+     * Get the total time spent decoding the extracted textures, summed over
+     * all the threads
+     *
+     * @return the decoding time in milliseconds
+     */
+    public long getDecodingTime() {
+        return TimeUnit.NANOSECONDS.toMillis(decodingTime.sum());
+    }
+
+    /**
+     * Get the total time spent encoding the extracted textures to PNG, summed
+     * over all the threads
+     *
+     * @return the encoding time in milliseconds
+     */
+    public long getEncodingTime() {
+        return TimeUnit.NANOSECONDS.toMillis(encodingTime.sum());
     }
 
     /**
@@ -300,17 +476,21 @@ public final class EngineTexturesFile implements Iterable<String> {
      *
      * @param buf the compressed texture data read as uint32 items
      * @param engineTextureEntry the texture entry
-     * @return
+     * @return the pixels, 4 bytes per pixel (R, G, B, A respectively)
      */
-    private BufferedImage decompressTexture(long[] buf, EngineTextureEntry engineTextureEntry) {
+    private byte[] decompressTexture(long[] buf, EngineTextureEntry engineTextureEntry) {
 
         // Decompress the texture
-        if (decoder == null) {
-            decoder = new EngineTextureDecoder();
+        byte[] pixels = DECODER.get().dd_texture(buf, engineTextureEntry.getResX() * (32 / 8)/*(bpp / 8 = bytes per pixel)*/, engineTextureEntry.getResX(), engineTextureEntry.getResY(), engineTextureEntry.isAlphaFlag());
+
+        // Make the textures without alpha opaque
+        if (!engineTextureEntry.isAlphaFlag()) {
+            for (int i = 3; i < pixels.length; i += 4) {
+                pixels[i] = (byte) 0xFF;
+            }
         }
-        byte[] pixels = decoder.dd_texture(buf, engineTextureEntry.getResX() * (32 / 8)/*(bpp / 8 = bytes per pixel)*/, engineTextureEntry.getResX(), engineTextureEntry.getResY(), engineTextureEntry.isAlphaFlag());
 
-        return ImageUtil.createImage(engineTextureEntry.getResX(), engineTextureEntry.getResY(), engineTextureEntry.isAlphaFlag(), pixels);
+        return pixels;
     }
 
     @Override
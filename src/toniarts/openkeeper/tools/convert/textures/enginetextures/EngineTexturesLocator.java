@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.convert.textures.enginetextures;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetLoadException;
+import com.jme3.asset.AssetLocator;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.AssetNotFoundException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageIO;
+import toniarts.openkeeper.tools.convert.AssetsConverter;
+import toniarts.openkeeper.utils.PathUtils;
+
+/**
+ * Locates the engine textures straight from the EngineTextures.dat, so that
+ * they don't need to be converted to PNGs. Register with the path of the
+ * EngineTextures.dat as the root path, together with the
+ * {@link EngineTextureLoader}. The textures are found with the same asset
+ * names as the converted ones would have, and the mipmap levels of a texture
+ * are found with it
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class EngineTexturesLocator implements AssetLocator {
+
+    private static final Logger logger = System.getLogger(EngineTexturesLocator.class.getName());
+
+    private static final String TEXTURES_PREFIX = AssetsConverter.TEXTURES_FOLDER + "/";
+    private static final String TEXTURE_EXTENSION = ".png";
+    private static final String MIPMAP_LEVEL = "MM";
+    private static final Map<Path, EngineTexturesFile> ENGINE_TEXTURES = new ConcurrentHashMap<>();
+
+    private EngineTexturesFile engineTextures;
+
+    @Override
+    public void setRootPath(String rootPath) {
+        Path file = Paths.get(rootPath).toAbsolutePath().normalize();
+        if (!Files.isRegularFile(file)) {
+            throw new AssetNotFoundException("The given root path " + rootPath + " is not an engine textures file!");
+        }
+
+        engineTextures = ENGINE_TEXTURES.computeIfAbsent(file, (f) -> {
+            EngineTexturesFile etFile = new EngineTexturesFile(f);
+            etFile.setCacheFolder(getCacheFolder());
+
+            return etFile;
+        });
+    }
+
+    /**
+     * Registers the engine textures locator and loader to the asset manager.
+     * Register before the converted assets to use the original textures
+     * instead of the converted ones
+     *
+     * @param assetManager the asset manager
+     * @param dungeonKeeperFolder DK II folder
+     */
+    public static void register(AssetManager assetManager, String dungeonKeeperFolder) {
+        String engineTextures;
+        try {
+            engineTextures = PathUtils.getRealFileName(dungeonKeeperFolder, "DK2TextureCache".concat(FileSystems.getDefault().getSeparator()).concat("EngineTextures.dat"));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Engine textures not found, using the converted textures!", e);
+            return;
+        }
+
+        assetManager.registerLocator(engineTextures, EngineTexturesLocator.class);
+        assetManager.registerLoader(EngineTextureLoader.class, EngineTextureLoader.FILE_EXTENSION);
+    }
+
+    /**
+     * Get the folder where the decoded engine textures are cached to
+     *
+     * @return the cache folder
+     */
+    public static Path getCacheFolder() {
+        return Paths.get(AssetsConverter.getAssetsFolder(), AssetsConverter.ENGINE_TEXTURE_CACHE_FOLDER);
+    }
+
+    @Override
+    public AssetInfo locate(AssetManager manager, AssetKey key) {
+        String name = key.getName();
+        if (!name.regionMatches(true, 0, TEXTURES_PREFIX, 0, TEXTURES_PREFIX.length())
+                || !name.regionMatches(true, name.length() - TEXTURE_EXTENSION.length(), TEXTURE_EXTENSION, 0, TEXTURE_EXTENSION.length())) {
+            return null;
+        }
+        String texture = name.substring(TEXTURES_PREFIX.length(), name.length() - TEXTURE_EXTENSION.length());
+
+        // The textures with mipmaps are stored level by level, the converted texture is the top level
+        List<String> mipmapLevels = new ArrayList<>();
+        String entry = engineTextures.findEntryName(texture.concat(MIPMAP_LEVEL).concat("0"));
+        while (entry != null) {
+            mipmapLevels.add(entry);
+            entry = engineTextures.findEntryName(texture.concat(MIPMAP_LEVEL).concat(Integer.toString(mipmapLevels.size())));
+        }
+        if (mipmapLevels.isEmpty()) {
+            entry = engineTextures.findEntryName(texture);
+            if (entry == null) {
+                return null;
+            }
+            mipmapLevels.add(entry);
+        }
+
+        return new EngineTextureAssetInfo(manager, key, engineTextures, mipmapLevels);
+    }
+
+    /**
+     * Engine texture to be decoded by the {@link EngineTextureLoader}. Those
+     * reading the asset as a PNG file get the full size texture encoded as one
+     */
+    static final class EngineTextureAssetInfo extends AssetInfo {
+
+        private final EngineTexturesFile engineTextures;
+        private final List<String> mipmapLevels;
+
+        public EngineTextureAssetInfo(AssetManager manager, AssetKey key, EngineTexturesFile engineTextures, List<String> mipmapLevels) {
+            super(manager, key);
+
+            this.engineTextures = engineTextures;
+            this.mipmapLevels = mipmapLevels;
+        }
+
+        @Override
+        public InputStream openStream() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                ImageIO.write(engineTextures.getImage(mipmapLevels.get(0)), TEXTURE_EXTENSION.substring(1), out);
+            } catch (IOException e) {
+                throw new AssetLoadException("Failed to encode the engine texture " + getKey() + "!", e);
+            }
+
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+
+        public EngineTexturesFile getEngineTextures() {
+            return engineTextures;
+        }
+
+        /**
+         * Get the texture entries of the mipmap levels, the first one is the
+         * full size texture
+         *
+         * @return the mipmap level entries
+         */
+        public List<String> getMipmapLevels() {
+            return mipmapLevels;
+        }
+    }
+
+}
@@ -16,30 +16,35 @@
  */
 package toniarts.openkeeper.tools.convert.wad;
 
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.SequencedMap;
+import java.util.TreeMap;
 import toniarts.openkeeper.tools.convert.ConversionUtils;
-import toniarts.openkeeper.tools.convert.FileResourceReader;
 import toniarts.openkeeper.tools.convert.IResourceChunkReader;
-import toniarts.openkeeper.tools.convert.ISeekableResourceReader;
+import toniarts.openkeeper.tools.convert.ResourceChunkReader;
 import toniarts.openkeeper.utils.PathUtils;
 
 /**
  * Stores the wad file structure and contains the methods to handle the WAD archive<br>
  * The file is LITTLE ENDIAN I might say<br>
+ * The archive is memory mapped once and the entries are read straight from the
+ * mapping, so the same instance can be read from several threads at once<br>
  * Converted to JAVA from C code, C code by:
  * <li>Tomasz Lis</li>
  * <li>Anonymous</li>
@@ -49,12 +54,20 @@ import toniarts.openkeeper.utils.PathUtils;
 public final class WadFile {
 
     private static final Logger logger = System.getLogger(WadFile.class.getName());
-    
+
     private final Path file;
+    private final MappedByteBuffer data;
     private final SequencedMap<String, WadFileEntry> wadFileEntries;
+    private final Map<String, String> wadFileNames;
     private static final String WAD_HEADER_IDENTIFIER = "DWFB";
     private static final int WAD_HEADER_VERSION = 2;
 
+    /**
+     * Decompression buffers, one per thread. Only handed out for the duration
+     * of a single read
+     */
+    private static final ThreadLocal<byte[]> DECOMPRESSION_BUFFER = ThreadLocal.withInitial(() -> new byte[0]);
+
     /**
      * Constructs a new Wad file reader<br>
      * Reads the WAD file structure
@@ -64,87 +77,94 @@ public final class WadFile {
     public WadFile(Path file) {
         this.file = file;
 
-        // Read the file
-        try (ISeekableResourceReader rawWad = new FileResourceReader(file)) {
+        // Map the file, the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
 
-            // Check the header
-            IResourceChunkReader reader = rawWad.readChunk(8);
-            String header = reader.readString(4);
-            if (!WAD_HEADER_IDENTIFIER.equals(header)) {
-                throw new RuntimeException("Header should be " + WAD_HEADER_IDENTIFIER + " and it was " + header + "! Cancelling!");
-            }
+            //Fug
+            throw new RuntimeException("Failed to open the file " + file + "!", e);
+        }
 
-            // See the version
-            int version = reader.readUnsignedInteger();
-            if (WAD_HEADER_VERSION != version) {
-                throw new RuntimeException("Version header should be " + WAD_HEADER_VERSION + " and it was " + version + "! Cancelling!");
-            }
+        // Check the header
+        IResourceChunkReader reader = getChunk(0, 8);
+        String header = reader.readString(4);
+        if (!WAD_HEADER_IDENTIFIER.equals(header)) {
+            throw new RuntimeException("Header should be " + WAD_HEADER_IDENTIFIER + " and it was " + header + "! Cancelling!");
+        }
 
-            // Seek
-            rawWad.seek(0x48);
-            reader = rawWad.readChunk(16);
-
-            int files = reader.readUnsignedInteger();
-            int nameOffset = reader.readUnsignedInteger();
-            int nameSize = reader.readUnsignedInteger();
-            int unknown = reader.readUnsignedInteger();
-
-            // Loop through the file count
-            reader = rawWad.readChunk(40 * files);
-            List<WadFileEntry> entries = new ArrayList<>(files);
-            for (int i = 0; i < files; i++) {
-                WadFileEntry wadInfo = new WadFileEntry();
-                wadInfo.setUnk1(reader.readUnsignedInteger());
-                wadInfo.setNameOffset(reader.readUnsignedInteger());
-                wadInfo.setNameSize(reader.readUnsignedInteger());
-                wadInfo.setOffset(reader.readUnsignedInteger());
-                wadInfo.setCompressedSize(reader.readUnsignedInteger());
-                wadInfo.setType(reader.readIntegerAsEnum(WadFileEntry.WadFileEntryType.class));
-                wadInfo.setSize(reader.readUnsignedInteger());
-                int[] unknown2 = new int[3];
-                unknown2[0] = reader.readUnsignedInteger();
-                unknown2[1] = reader.readUnsignedInteger();
-                unknown2[2] = reader.readUnsignedInteger();
-                wadInfo.setUnknown2(unknown2);
-                entries.add(wadInfo);
-            }
+        // See the version
+        int version = reader.readUnsignedInteger();
+        if (WAD_HEADER_VERSION != version) {
+            throw new RuntimeException("Version header should be " + WAD_HEADER_VERSION + " and it was " + version + "! Cancelling!");
+        }
 
-            // Read the file names and put them to a hashmap
-            // If the file has a path, carry that path all the way to next entry with path
-            // The file names itself aren't unique, but with the path they are
-            rawWad.seek(nameOffset);
-            byte[] nameArray = rawWad.read(nameSize);
-            wadFileEntries = LinkedHashMap.newLinkedHashMap(files);
-            String path = "";
-            for (WadFileEntry entry : entries) {
-                int offset = entry.getNameOffset() - nameOffset;
-                String name = ConversionUtils.toString(Arrays.copyOfRange(nameArray, offset, offset + entry.getNameSize())).trim();
-
-                // The path
-                name = PathUtils.convertFileSeparators(name);
-                int index = name.lastIndexOf(File.separator);
-                if (index > -1) {
-                    path = name.substring(0, index + 1);
-                } else if (!path.isEmpty()) {
-                    name = path + name;
-                }
+        // Seek
+        reader = getChunk(0x48, 16);
+
+        int files = reader.readUnsignedInteger();
+        int nameOffset = reader.readUnsignedInteger();
+        int nameSize = reader.readUnsignedInteger();
+        int unknown = reader.readUnsignedInteger();
+
+        // Loop through the file count
+        reader = getChunk(0x48 + 16, 40 * files);
+        List<WadFileEntry> entries = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            WadFileEntry wadInfo = new WadFileEntry();
+            wadInfo.setUnk1(reader.readUnsignedInteger());
+            wadInfo.setNameOffset(reader.readUnsignedInteger());
+            wadInfo.setNameSize(reader.readUnsignedInteger());
+            wadInfo.setOffset(reader.readUnsignedInteger());
+            wadInfo.setCompressedSize(reader.readUnsignedInteger());
+            wadInfo.setType(reader.readIntegerAsEnum(WadFileEntry.WadFileEntryType.class));
+            wadInfo.setSize(reader.readUnsignedInteger());
+            int[] unknown2 = new int[3];
+            unknown2[0] = reader.readUnsignedInteger();
+            unknown2[1] = reader.readUnsignedInteger();
+            unknown2[2] = reader.readUnsignedInteger();
+            wadInfo.setUnknown2(unknown2);
+            entries.add(wadInfo);
+        }
 
-                wadFileEntries.put(name, entry);
+        // Read the file names and put them to a hashmap
+        // If the file has a path, carry that path all the way to next entry with path
+        // The file names itself aren't unique, but with the path they are
+        wadFileEntries = LinkedHashMap.newLinkedHashMap(files);
+        wadFileNames = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        String path = "";
+        for (WadFileEntry entry : entries) {
+            String name = getChunk(entry.getNameOffset(), entry.getNameSize()).readString(entry.getNameSize()).trim();
+
+            // The path
+            name = PathUtils.convertFileSeparators(name);
+            int index = name.lastIndexOf(File.separator);
+            if (index > -1) {
+                path = name.substring(0, index + 1);
+            } else if (!path.isEmpty()) {
+                name = path + name;
             }
-        } catch (IOException e) {
 
-            //Fug
-            throw new RuntimeException("Failed to open the file " + file + "!", e);
+            wadFileEntries.put(name, entry);
+            wadFileNames.putIfAbsent(name, name);
         }
     }
 
+    private IResourceChunkReader getChunk(int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.capacity()) {
+            throw new RuntimeException("Tried to read " + length + " bytes at " + offset + " past the end of " + file + "!");
+        }
+
+        return new ResourceChunkReader(data.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
     /**
      * Get the individual file names as a list
      *
      * @return list of the file names
      */
     public List<String> getWadFileEntries() {
-        return new ArrayList(wadFileEntries.keySet());
+        return new ArrayList<>(wadFileEntries.keySet());
     }
 
     /**
@@ -156,23 +176,26 @@ public final class WadFile {
         return wadFileEntries.size();
     }
 
+    /**
+     * Find the file entry name matching the given name, ignoring the case.
+     * Both slashes and the platform file separator are accepted as path
+     * separators
+     *
+     * @param fileName the file name to look for
+     * @return the file entry name in this archive, {@code null} if not found
+     */
+    public String findFileName(String fileName) {
+        return wadFileNames.get(PathUtils.convertFileSeparators(fileName));
+    }
+
     /**
      * Extract all the files to a given location
      *
      * @param destination destination directory
      */
     public void extractFileData(String destination) {
-
-        // Open the WAD for extraction
-        try (ISeekableResourceReader rawWad = new FileResourceReader(file)) {
-
-            for (String fileName : wadFileEntries.keySet()) {
-                extractFileData(fileName, destination, rawWad);
-            }
-        } catch (Exception e) {
-
-            // Fug
-            throw new RuntimeException("Failed to read the WAD file!", e);
+        for (String fileName : wadFileEntries.keySet()) {
+            extractFileData(fileName, destination);
         }
     }
 
@@ -181,9 +204,9 @@ public final class WadFile {
      *
      * @param fileName file to extract
      * @param destination destination directory
-     * @param rawWad the opened WAD file
+     * @return the file for the extracted contents
      */
-    private Path extractFileData(String fileName, String destination, ISeekableResourceReader rawWad) {
+    public Path extractFileData(String fileName, String destination) {
 
         // See that the destination is formatted correctly and create it if it does not exist
         Path destinationFile = Paths.get(destination, fileName);
@@ -195,9 +218,13 @@ public final class WadFile {
         }
 
         // Write to the file
-        try (OutputStream out = Files.newOutputStream(destinationFile);
-                BufferedOutputStream bout = new BufferedOutputStream(out)) {
-            getFileData(fileName, rawWad).writeTo(bout);
+        WadFileEntry fileEntry = getFileEntry(fileName);
+        try (FileChannel out = FileChannel.open(destinationFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = fileEntry.isCompressed() ? decompressFileData(fileEntry, fileName) : getEntrySlice(fileEntry);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
         } catch (IOException e) {
             throw new RuntimeException("Failed to write to " + destinationFile + "!", e);
         }
@@ -206,114 +233,126 @@ public final class WadFile {
     }
 
     /**
-     * Extract a single file to a given location
+     * Get a single file as a buffer. Uncompressed files are returned as read
+     * only views to the mapped archive without copying. Compressed files are
+     * decompressed into a per thread buffer that is valid only until the next
+     * compressed file is read on the same thread, so parse the data right away
+     * or use {@link #getFileData(java.lang.String)} to keep it
      *
-     * @param fileName file to extract
-     * @param destination destination directory
-     * @return the file for the extracted contents
+     * @param fileName the file to get
+     * @return the file data, little endian
      */
-    public Path extractFileData(String fileName, String destination) {
-
-        // Open the WAD for extraction
-        try (ISeekableResourceReader rawWad = new FileResourceReader(file)) {
-            return extractFileData(fileName, destination, rawWad);
-        } catch (Exception e) {
+    public ByteBuffer getFileBuffer(String fileName) {
+        WadFileEntry fileEntry = getFileEntry(fileName);
+        ByteBuffer buffer = fileEntry.isCompressed() ? decompressFileData(fileEntry, fileName).asReadOnlyBuffer() : getEntrySlice(fileEntry);
 
-            // Fug
-            throw new RuntimeException("Failed to read the WAD file!", e);
-        }
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
     }
 
     /**
      * Extract a single file
      *
      * @param fileName the file to extract
-     * @param rawWad the opened WAD file
      * @return the file data
      */
-    private ByteArrayOutputStream getFileData(String fileName, ISeekableResourceReader rawWad) {
-        ByteArrayOutputStream result = null;
+    public byte[] getFileData(String fileName) {
+        ByteBuffer buffer = getFileBuffer(fileName);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Get a single file as it is stored in the archive, possibly compressed.
+     * A cheap way to tell if the file has changed, without decompressing it
+     *
+     * @param fileName the file to get
+     * @return read only view to the stored file data
+     */
+    public ByteBuffer getStoredFileBuffer(String fileName) {
+        return getEntrySlice(getFileEntry(fileName));
+    }
 
-        // Get the file
+    boolean isCompressed(String fileName) {
+        return getFileEntry(fileName).isCompressed();
+    }
+
+    private WadFileEntry getFileEntry(String fileName) {
         WadFileEntry fileEntry = wadFileEntries.get(fileName);
         if (fileEntry == null) {
             throw new RuntimeException("File " + fileName + " not found from the WAD archive!");
         }
 
-        try {
-
-            // Seek to the file we want and read it
-            rawWad.seek(fileEntry.getOffset());
-            byte[] bytes = rawWad.read(fileEntry.getCompressedSize());
-
-            result = new ByteArrayOutputStream();
-
-            // See if the file is compressed
-            if (fileEntry.isCompressed()) {
-                result.write(decompressFileData(bytes, fileName));
-            } else {
-                result.write(bytes);
-            }
-
-        } catch (Exception e) {
+        return fileEntry;
+    }
 
-            // Fug
-            throw new RuntimeException("Failed to read the WAD file!", e);
+    private ByteBuffer getEntrySlice(WadFileEntry fileEntry) {
+        int offset = fileEntry.getOffset();
+        int length = fileEntry.getCompressedSize();
+        if (offset < 0 || length < 0 || offset + length > data.capacity()) {
+            throw new RuntimeException("The WAD file " + file + " is truncated!");
         }
 
-        return result;
+        // Slicing doesn't touch the position of the shared mapping
+        return data.slice(offset, length).asReadOnlyBuffer();
     }
 
     /**
-     * Extract a single file
+     * Decompresses the file entry into the decompression buffer of this thread
      *
-     * @param fileName the file to extract
-     * @return the file data
+     * @param fileEntry the compressed file entry
+     * @param fileName just for logging
+     * @return the decompressed data, backed by the decompression buffer
      */
-    public byte[] getFileData(String fileName) {
+    private ByteBuffer decompressFileData(WadFileEntry fileEntry, String fileName) {
+        int length = getDecompressedSize(fileEntry);
+        byte[] dest = DECOMPRESSION_BUFFER.get();
+        if (dest.length < length) {
+            dest = new byte[Math.max(length, dest.length * 2)];
+            DECOMPRESSION_BUFFER.set(dest);
+        }
+        decompressFileData(getEntrySlice(fileEntry), dest, fileName);
+
+        return ByteBuffer.wrap(dest, 0, length).slice();
+    }
 
-        // Open the WAD for extraction
-        try (ISeekableResourceReader rawWad = new FileResourceReader(file)) {
-            return getFileData(fileName, rawWad).toByteArray();
-        } catch (Exception e) {
+    private int getDecompressedSize(WadFileEntry fileEntry) {
+        ByteBuffer src = getEntrySlice(fileEntry);
+        int i = (src.get(0) & 1) != 0 ? 5 : 2;
 
-            // Fug
-            throw new RuntimeException("Failed to read the WAD file!", e);
-        }
+        return (ConversionUtils.toUnsignedByte(src.get(i)) << 16) + (ConversionUtils.toUnsignedByte(src.get(i + 1)) << 8) + ConversionUtils.toUnsignedByte(src.get(i + 2));
     }
 
     /**
      * Some file entries in the WAD are compressed (type 4?), this decompresses the file data
      *
-     * @param bytes the compressed bytes
+     * @param src the compressed bytes
+     * @param dest the buffer to decompress to, must fit the decompressed size
      * @param fileName just for logging
-     * @return the decompressed bytes
      */
-    private byte[] decompressFileData(byte[] src, String fileName) {
+    private static void decompressFileData(ByteBuffer src, byte[] dest, String fileName) {
         int i = 0, j = 0;
-        if ((src[i++] & 1) != 0) {
+        if ((src.get(i++) & 1) != 0) {
             i += 3;
         }
         i++; // <<skip second byte
         // <decompressed size packed into 3 bytes
-
-        int decsize = (ConversionUtils.toUnsignedByte(src[i]) << 16) + (ConversionUtils.toUnsignedByte(src[i + 1]) << 8) + ConversionUtils.toUnsignedByte(src[i + 2]);
-        byte[] dest = new byte[decsize];
         i += 3;
         byte flag; // The flag byte read at the beginning of each main loop iteration
         int counter; // Counter for all loops
         boolean finished = false;
         while (!finished) {
-            if (i >= src.length) {
+            if (i >= src.limit()) {
                 break;
             }
-            flag = src[i++]; // Get flag byte
+            flag = src.get(i++); // Get flag byte
             if ((ConversionUtils.toUnsignedByte(flag) & 0x80) == 0) {
-                byte tmp = src[i++];
+                byte tmp = src.get(i++);
                 counter = ConversionUtils.toUnsignedByte(flag) & 3; // mod 4
                 while (counter-- != 0) // Copy literally
                 {
-                    dest[j] = src[i++];
+                    dest[j] = src.get(i++);
                     j++;
                 }
                 int k = j; // Get the destbuf position
@@ -327,12 +366,12 @@ public final class WadFile {
                     j++;
                 } while (counter-- != 0); // Correct decrement
             } else if ((ConversionUtils.toUnsignedByte(flag) & 0x40) == 0) {
-                byte tmp = src[i++];
-                byte tmp2 = src[i++];
+                byte tmp = src.get(i++);
+                byte tmp2 = src.get(i++);
                 counter = (ConversionUtils.toUnsignedByte(tmp)) >> 6;
                 while (counter-- != 0) // Copy literally
                 {
-                    dest[j] = src[i++];
+                    dest[j] = src.get(i++);
                     j++;
                 }
                 int k = j;
@@ -345,13 +384,13 @@ public final class WadFile {
                     j++;
                 } while (counter-- != 0); // Correct postfix decrement
             } else if ((ConversionUtils.toUnsignedByte(flag) & 0x20) == 0) {
-                byte localtemp = src[i++];
-                byte tmp2 = src[i++];
-                byte tmp3 = src[i++];
+                byte localtemp = src.get(i++);
+                byte tmp2 = src.get(i++);
+                byte tmp3 = src.get(i++);
                 counter = ConversionUtils.toUnsignedByte(flag) & 3;
                 while (counter-- != 0) // Copy literally
                 {
-                    dest[j] = src[i++];
+                    dest[j] = src.get(i++);
                     j++;
                 }
                 int k = j;
@@ -373,14 +412,16 @@ public final class WadFile {
                     counter = ConversionUtils.toUnsignedByte(flag) & 3;
                 }
                 while (counter-- != 0) { // Copy literally
-                    dest[j] = src[i++];
+                    dest[j] = src.get(i++);
                     j++;
                 }
             }
         } // Of while()
         if (!finished) {
             logger.log(Level.WARNING, "File {0} might not be successfully extracted!", fileName);
+
+            // The buffer is reused, don't leak the previous file to the missing part
+            Arrays.fill(dest, Math.min(j, dest.length), dest.length, (byte) 0);
         }
-        return dest;
     }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.convert.wad;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetLocator;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.AssetNotFoundException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Locates assets straight from a WAD archive, so the files don't need to be
+ * extracted first. Register with the path of the WAD file as the root path,
+ * the asset names are the file names inside the archive. The archives are
+ * opened once and shared between the locator instances
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class WadLocator implements AssetLocator {
+
+    private static final Map<Path, WadFile> WAD_FILES = new ConcurrentHashMap<>();
+
+    private WadFile wadFile;
+
+    @Override
+    public void setRootPath(String rootPath) {
+        Path file = Paths.get(rootPath).toAbsolutePath().normalize();
+        if (!Files.isRegularFile(file)) {
+            throw new AssetNotFoundException("The given root path " + rootPath + " is not a WAD file!");
+        }
+
+        wadFile = WAD_FILES.computeIfAbsent(file, WadFile::new);
+    }
+
+    @Override
+    public AssetInfo locate(AssetManager manager, AssetKey key) {
+        String fileName = wadFile.findFileName(key.getName());
+        if (fileName == null) {
+            return null;
+        }
+
+        return new WadAssetInfo(manager, key, wadFile, fileName);
+    }
+
+    private static final class WadAssetInfo extends AssetInfo {
+
+        private final WadFile wadFile;
+        private final String fileName;
+
+        public WadAssetInfo(AssetManager manager, AssetKey key, WadFile wadFile, String fileName) {
+            super(manager, key);
+
+            this.wadFile = wadFile;
+            this.fileName = fileName;
+        }
+
+        @Override
+        public InputStream openStream() {
+
+            // The loaders may load other assets while reading the stream, so
+            // don't hold on to the shared decompression buffer
+            if (wadFile.isCompressed(fileName)) {
+                return new ByteBufferInputStream(ByteBuffer.wrap(wadFile.getFileData(fileName)));
+            }
+
+            return new ByteBufferInputStream(wadFile.getFileBuffer(fileName));
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int length = Math.min(len, buffer.remaining());
+            buffer.get(b, off, length);
+
+            return length;
+        }
+
+        @Override
+        public long skip(long n) {
+            int length = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + length);
+
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
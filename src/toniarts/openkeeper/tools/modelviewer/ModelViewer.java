@@ -66,6 +66,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import toniarts.openkeeper.Main;
+import toniarts.openkeeper.animation.PoseFrameCache;
 import toniarts.openkeeper.audio.plugins.MP2Loader;
 import toniarts.openkeeper.game.data.ISoundable;
 import toniarts.openkeeper.game.sound.SoundCategory;
@@ -86,6 +87,7 @@ import toniarts.openkeeper.tools.convert.map.Room;
 import toniarts.openkeeper.tools.convert.map.Shot;
 import toniarts.openkeeper.tools.convert.map.Terrain;
 import toniarts.openkeeper.tools.convert.map.Trap;
+import toniarts.openkeeper.tools.convert.textures.enginetextures.EngineTexturesLocator;
 import toniarts.openkeeper.utils.AssetUtils;
 import toniarts.openkeeper.utils.PathUtils;
 import toniarts.openkeeper.view.animation.AnimationLoader;
@@ -206,6 +208,9 @@ public final class ModelViewer extends SimpleApplication {
         ((GLRenderer) renderer).setDebugEnabled(true); // get debug names for GL objects
 
         // Distribution locator
+        if (dkIIFolder != null) {
+            EngineTexturesLocator.register(assetManager, dkIIFolder);
+        }
         assetManager.registerLocator(AssetsConverter.getAssetsFolder(), FileLocator.class);
         assetManager.registerLoader(MP2Loader.class, "mp2");
 
@@ -281,6 +286,12 @@ public final class ModelViewer extends SimpleApplication {
         //TODO: add render code
     }
 
+    @Override
+    public void destroy() {
+        PoseFrameCache.getInstance().clear();
+        super.destroy();
+    }
+
     private NiftyJmeDisplay getNiftyDisplay() {
         if (niftyDisplay == null) {
             niftyDisplay = new NiftyJmeDisplay(assetManager,
@@ -569,8 +580,9 @@ public final class ModelViewer extends SimpleApplication {
         // Shadows
         spat.setShadowMode(RenderQueue.ShadowMode.CastAndReceive);
 
-        // Remove the old model
+        // Remove the old model, and its shared animation frames
         rootNode.detachChildNamed(NODE_NAME);
+        PoseFrameCache.getInstance().clear();
 
         // Attach the new model
         rootNode.attachChild(spat);
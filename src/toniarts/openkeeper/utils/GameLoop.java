@@ -36,9 +36,12 @@ public final class GameLoop {
 
     private final IGameLogicUpdatable gameLoopManager;
     private final Runner loop;
+    private final String name;
 
     private final long updateRate;
     private final AtomicBoolean pauseFlag = new AtomicBoolean(false);
+    private boolean stepping = false;
+    private long steppedTime;
 
     public GameLoop(IGameLogicUpdatable gameLoopManager) {
         this(gameLoopManager, INTERVAL_FPS_60); // 60 FPS
@@ -51,6 +54,7 @@ public final class GameLoop {
     public GameLoop(IGameLogicUpdatable gameLoopManager, long updateRateNanos, String name) {
         this.gameLoopManager = gameLoopManager;
         this.updateRate = updateRateNanos;
+        this.name = name;
         this.loop = new Runner(NAME_PREFIX + " " + name);
     }
 
@@ -70,6 +74,30 @@ public final class GameLoop {
      */
     public void stop() {
         loop.close();
+        if (stepping) {
+            stepping = false;
+            gameLoopManager.stop();
+        }
+    }
+
+    /**
+     * Runs the game systems on the calling thread instead of the background thread, advancing them by the given
+     * time in fixed steps of the update rate. The ticks don't depend on the wall clock so the game can be
+     * replayed. Don't mix with {@link #start()}.
+     *
+     * @param nanos the game time to advance
+     */
+    public void step(long nanos) {
+        if (!stepping) {
+            stepping = true;
+            gameLoopManager.start();
+        }
+
+        steppedTime += nanos;
+        while (steppedTime >= updateRate) {
+            steppedTime -= updateRate;
+            gameLoopManager.processTick(updateRate / 1_000_000_000f);
+        }
     }
 
     public void pause() {
@@ -108,6 +136,9 @@ public final class GameLoop {
 
         @Override
         public void run() {
+
+            // Overruns are counted against the update rate, the per system statistics are in the GameLogicManager
+            TickStatistics statistics = TickProfiler.register(name.isEmpty() ? getName() : name, "Loop", updateRate);
             gameLoopManager.start();
 
             long frameRate = 0;
@@ -137,9 +168,10 @@ public final class GameLoop {
                     frameRate += delta - updateRate;
                     gameLoopManager.processTick(delta / 1_000_000_000f);
                     long tickTime = System.nanoTime() - time;
+                    statistics.record(tickTime);
                     // Logging
                     logger.log(tickTime < updateRate ? Level.TRACE : Level.ERROR, "Loop \"{0}\" took {1} ms!",
-                            getName(), TimeUnit.NANOSECONDS.toMillis(delta));
+                            getName(), TimeUnit.NANOSECONDS.toMillis(tickTime));
                 }
 
                 // Wait just a little.  This is an important enough thread
@@ -174,6 +206,7 @@ public final class GameLoop {
             }
 
             gameLoopManager.stop();
+            TickProfiler.unregister(statistics);
         }
     }
 }
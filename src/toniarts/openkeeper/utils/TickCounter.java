@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts something happening per tick, i.e. component writes. Any thread may
+ * count, the latest per tick totals are kept in a ring buffer where the
+ * percentiles are calculated from on demand.<br>
+ * Only one thread may tick, any thread may read.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class TickCounter implements TickCounterMBean {
+
+    private static final int SAMPLE_COUNT = 1024;
+    private static final int SAMPLE_MASK = SAMPLE_COUNT - 1;
+
+    private final String loop;
+    private final String name;
+    private final LongAdder pending = new LongAdder();
+    private final long[] samples = new long[SAMPLE_COUNT];
+    private volatile long tickCount;
+    private volatile long totalCount;
+    private volatile long maxCount;
+
+    /**
+     * Creates a new tick counter
+     *
+     * @param loop the loop the ticking happens in
+     * @param name the name of the counted thing
+     */
+    public TickCounter(String loop, String name) {
+        this.loop = loop;
+        this.name = name;
+    }
+
+    /**
+     * Count one
+     */
+    public void increment() {
+        pending.increment();
+    }
+
+    /**
+     * Ends the tick, everything counted so far is recorded to this tick
+     */
+    public void tick() {
+        long count = pending.sumThenReset();
+        samples[(int) (tickCount & SAMPLE_MASK)] = count;
+        if (count > maxCount) {
+            maxCount = count;
+        }
+        totalCount += count;
+        tickCount++;
+    }
+
+    @Override
+    public String getLoop() {
+        return loop;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    @Override
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    @Override
+    public long getMedianCount() {
+        return getPercentile(getSamples(), 0.5);
+    }
+
+    @Override
+    public long getPercentile99Count() {
+        return getPercentile(getSamples(), 0.99);
+    }
+
+    @Override
+    public long getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * Resets the counters. The samples are left in place, they are replaced
+     * by the new ones soon enough
+     */
+    @Override
+    public void reset() {
+        totalCount = 0;
+        maxCount = 0;
+    }
+
+    @Override
+    public String toString() {
+        long[] sorted = getSamples();
+        return String.format("%s/%s: p50 %d, p99 %d, max %d per tick, total %d",
+                loop, name, getPercentile(sorted, 0.5), getPercentile(sorted, 0.99), maxCount, totalCount);
+    }
+
+    /**
+     * Get a copy of the latest samples, sorted. The copy is taken while the
+     * samples are being written, so it is not exact, but good enough
+     */
+    private long[] getSamples() {
+        int count = (int) Math.min(tickCount, SAMPLE_COUNT);
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+
+        return sorted;
+    }
+
+    private static long getPercentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+}
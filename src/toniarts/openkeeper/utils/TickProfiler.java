@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.utils;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Keeps track of the tick timing statistics of the game loops and the game
+ * logic, and the per tick counters. The statistics are also registered to the
+ * platform MBean server, so they can be watched with any JMX client.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class TickProfiler {
+
+    private static final Logger logger = System.getLogger(TickProfiler.class.getName());
+
+    private static final String JMX_DOMAIN = "toniarts.openkeeper";
+    private static final List<TickStatistics> STATISTICS = new CopyOnWriteArrayList<>();
+    private static final List<TickCounter> COUNTERS = new CopyOnWriteArrayList<>();
+
+    private TickProfiler() {
+        // Nope
+    }
+
+    /**
+     * Registers new tick statistics
+     *
+     * @param loop the loop the ticking happens in
+     * @param name the name of the ticking thing
+     * @param budgetNanos the time a tick may take, zero if there is no budget
+     * @return the statistics to record the ticks to
+     * @see #unregister(TickStatistics)
+     */
+    public static TickStatistics register(String loop, String name, long budgetNanos) {
+        TickStatistics statistics = new TickStatistics(loop, name, budgetNanos);
+        STATISTICS.add(statistics);
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = getObjectName(statistics);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(statistics, objectName);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Failed to register tick statistics " + statistics.getName() + "!", e);
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Unregisters the tick statistics, i.e. when the loop is stopped
+     *
+     * @param statistics the statistics
+     */
+    public static void unregister(TickStatistics statistics) {
+        STATISTICS.remove(statistics);
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = getObjectName(statistics);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Failed to unregister tick statistics " + statistics.getName() + "!", e);
+        }
+    }
+
+    /**
+     * Registers a new tick counter
+     *
+     * @param loop the loop the ticking happens in
+     * @param name the name of the counted thing
+     * @return the counter to count to
+     * @see #unregister(TickCounter)
+     */
+    public static TickCounter registerCounter(String loop, String name) {
+        TickCounter counter = new TickCounter(loop, name);
+        COUNTERS.add(counter);
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = getObjectName(counter);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(counter, objectName);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Failed to register tick counter " + counter.getName() + "!", e);
+        }
+
+        return counter;
+    }
+
+    /**
+     * Unregisters the tick counter
+     *
+     * @param counter the counter
+     */
+    public static void unregister(TickCounter counter) {
+        COUNTERS.remove(counter);
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = getObjectName(counter);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Failed to unregister tick counter " + counter.getName() + "!", e);
+        }
+    }
+
+    /**
+     * Get all the registered statistics
+     *
+     * @return the statistics in the order registered
+     */
+    public static List<TickStatistics> getStatistics() {
+        return new ArrayList<>(STATISTICS);
+    }
+
+    /**
+     * Get all the registered counters
+     *
+     * @return the counters in the order registered
+     */
+    public static List<TickCounter> getCounters() {
+        return new ArrayList<>(COUNTERS);
+    }
+
+    /**
+     * Resets all the statistics
+     */
+    public static void reset() {
+        for (TickStatistics statistics : STATISTICS) {
+            statistics.reset();
+        }
+        for (TickCounter counter : COUNTERS) {
+            counter.reset();
+        }
+    }
+
+    private static ObjectName getObjectName(TickStatistics statistics) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=TickStatistics,loop=" + ObjectName.quote(statistics.getLoop())
+                + ",name=" + ObjectName.quote(statistics.getName()));
+    }
+
+    private static ObjectName getObjectName(TickCounter counter) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=TickCounter,loop=" + ObjectName.quote(counter.getLoop())
+                + ",name=" + ObjectName.quote(counter.getName()));
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.utils;
+
+import java.util.Arrays;
+
+/**
+ * Timing statistics of a single ticking thing. The latest tick durations are
+ * kept in a ring buffer where the percentiles are calculated from on demand.
+ * Recording a tick is just a couple of writes, so these can be left on all
+ * the time.<br>
+ * Only one thread may record, any thread may read.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class TickStatistics implements TickStatisticsMBean {
+
+    private static final int SAMPLE_COUNT = 1024;
+    private static final int SAMPLE_MASK = SAMPLE_COUNT - 1;
+
+    private final String loop;
+    private final String name;
+    private final long budgetNanos;
+    private final long[] samples = new long[SAMPLE_COUNT];
+    private volatile long tickCount;
+    private volatile long overrunCount;
+    private volatile long maxNanos;
+
+    /**
+     * Creates new tick statistics
+     *
+     * @param loop the loop the ticking happens in
+     * @param name the name of the ticking thing
+     * @param budgetNanos the time a tick may take, ticks taking longer are
+     * counted as overruns. Zero if there is no budget
+     */
+    public TickStatistics(String loop, String name, long budgetNanos) {
+        this.loop = loop;
+        this.name = name;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Record a tick
+     *
+     * @param nanos the duration of the tick
+     */
+    public void record(long nanos) {
+        samples[(int) (tickCount & SAMPLE_MASK)] = nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+        if (budgetNanos > 0 && nanos > budgetNanos) {
+            overrunCount++;
+        }
+        tickCount++;
+    }
+
+    @Override
+    public String getLoop() {
+        return loop;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    @Override
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    @Override
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    @Override
+    public double getMedianMillis() {
+        return toMillis(getPercentile(getSamples(), 0.5));
+    }
+
+    @Override
+    public double getPercentile99Millis() {
+        return toMillis(getPercentile(getSamples(), 0.99));
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return toMillis(maxNanos);
+    }
+
+    /**
+     * Resets the counters. The samples are left in place, they are replaced
+     * by the new ones soon enough
+     */
+    @Override
+    public void reset() {
+        overrunCount = 0;
+        maxNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        long[] sorted = getSamples();
+        return String.format("%s/%s: p50 %.3f ms, p99 %.3f ms, max %.3f ms, ticks %d, overruns %d",
+                loop, name, toMillis(getPercentile(sorted, 0.5)), toMillis(getPercentile(sorted, 0.99)),
+                toMillis(maxNanos), tickCount, overrunCount);
+    }
+
+    /**
+     * Get a copy of the latest samples, sorted. The copy is taken while the
+     * samples are being written, so it is not exact, but good enough
+     */
+    private long[] getSamples() {
+        int count = (int) Math.min(tickCount, SAMPLE_COUNT);
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+
+        return sorted;
+    }
+
+    private static long getPercentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+
+}
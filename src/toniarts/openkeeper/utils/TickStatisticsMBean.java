@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.utils;
+
+/**
+ * JMX view of the {@link TickStatistics}
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public interface TickStatisticsMBean {
+
+    String getLoop();
+
+    String getName();
+
+    long getTickCount();
+
+    long getOverrunCount();
+
+    double getMedianMillis();
+
+    double getPercentile99Millis();
+
+    double getMaxMillis();
+
+    void reset();
+
+}
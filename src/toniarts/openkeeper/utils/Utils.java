@@ -183,6 +183,16 @@ public final class Utils {
         return RANDOM;
     }
 
+    /**
+     * Seeds the random generator used by the game, for replaying the same
+     * game
+     *
+     * @param seed the seed
+     */
+    public static void setRandomSeed(long seed) {
+        RANDOM.setSeed(seed);
+    }
+
     /**
      * Get the game main text resource bundle
      *
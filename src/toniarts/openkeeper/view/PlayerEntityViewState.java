@@ -20,6 +20,7 @@ import com.jme3.app.Application;
 import com.jme3.app.state.AbstractAppState;
 import com.jme3.app.state.AppStateManager;
 import com.jme3.asset.AssetManager;
+import com.jme3.math.Ray;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.simsilica.es.Entity;
@@ -35,10 +36,14 @@ import toniarts.openkeeper.game.component.DoorViewState;
 import toniarts.openkeeper.game.component.ObjectViewState;
 import toniarts.openkeeper.game.component.Position;
 import toniarts.openkeeper.game.component.TrapViewState;
+import toniarts.openkeeper.game.map.VisibilityGrid;
+import toniarts.openkeeper.game.network.game.EntityTransformBuffer;
 import toniarts.openkeeper.tools.convert.map.Creature;
 import toniarts.openkeeper.tools.convert.map.Door;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Trap;
+import toniarts.openkeeper.utils.Point;
+import toniarts.openkeeper.utils.WorldUtils;
 import toniarts.openkeeper.view.control.CreatureFlowerControl;
 import toniarts.openkeeper.view.control.CreatureViewControl;
 import toniarts.openkeeper.view.control.DoorFlowerControl;
@@ -54,6 +59,7 @@ import toniarts.openkeeper.view.loader.DoorLoader;
 import toniarts.openkeeper.view.loader.ILoader;
 import toniarts.openkeeper.view.loader.ObjectLoader;
 import toniarts.openkeeper.view.loader.TrapLoader;
+import toniarts.openkeeper.view.selection.EntityPicker;
 import toniarts.openkeeper.view.text.TextParser;
 
 /**
@@ -90,15 +96,36 @@ public class PlayerEntityViewState extends AbstractAppState {
 
     private final Map<EntityId, IUnitFlowerControl> flowerControls = new HashMap<>();
     private final Map<EntityId, IEntityViewControl> entityViewControls = new HashMap<>();
+    private final EntityTransformBuffer entityTransforms;
+    private final EntityPicker entityPicker;
+    private final VisibilityGrid visibility;
+    private final Map<EntityId, Spatial> creatureModels = new HashMap<>();
 
-    public PlayerEntityViewState(KwdFile kwdFile, AssetManager assetManager, EntityData entityData, short playerId, TextParser textParser, Node rootNode) {
+    /**
+     * Creates the entity view
+     *
+     * @param kwdFile the level
+     * @param assetManager the asset manager
+     * @param entityData the entity data
+     * @param entityTransforms the transforms of the moving entities,
+     * {@code null} if the Position components are always up to date
+     * @param playerId the player
+     * @param textParser the text parser
+     * @param rootNode the root node
+     * @param visibility the tiles the player currently sees, the creatures
+     * outside of them are hidden. {@code null} to show everything
+     */
+    public PlayerEntityViewState(KwdFile kwdFile, AssetManager assetManager, EntityData entityData, EntityTransformBuffer entityTransforms,
+            short playerId, TextParser textParser, Node rootNode, VisibilityGrid visibility) {
         super(Short.toString(playerId));
         this.kwdFile = kwdFile;
         this.assetManager = assetManager;
         this.entityData = entityData;
+        this.entityTransforms = entityTransforms;
         this.playerId = playerId;
         this.textParser = textParser;
         this.rootNode = rootNode;
+        this.visibility = visibility;
 
         // Init the loaders
         objectLoader = new ObjectLoader(kwdFile);
@@ -122,6 +149,9 @@ public class PlayerEntityViewState extends AbstractAppState {
         creatureModelContainer = new CreatureModelContainer(entityData);
         doorModelContainer = new DoorModelContainer(entityData);
         trapModelContainer = new TrapModelContainer(entityData);
+
+        // Hover picking
+        entityPicker = new EntityPicker(kwdFile.getMap().getWidth(), kwdFile.getMap().getHeight(), true);
     }
 
     @Override
@@ -137,6 +167,9 @@ public class PlayerEntityViewState extends AbstractAppState {
         creatureModelContainer.start();
         doorModelContainer.start();
         trapModelContainer.start();
+        if (entityTransforms != null) {
+            entityTransforms.start();
+        }
     }
 
     @Override
@@ -147,6 +180,19 @@ public class PlayerEntityViewState extends AbstractAppState {
         creatureModelContainer.update();
         doorModelContainer.update();
         trapModelContainer.update();
+
+        // Move the moving ones
+        if (entityTransforms != null) {
+            entityTransforms.update(this::getModel);
+        }
+
+        // Hide the creatures in the fog of war
+        if (visibility != null) {
+            updateFogOfWar();
+        }
+
+        // Keep the picking up with the moved models
+        entityPicker.update();
     }
 
     @Override
@@ -155,9 +201,14 @@ public class PlayerEntityViewState extends AbstractAppState {
         creatureModelContainer.stop();
         doorModelContainer.stop();
         trapModelContainer.stop();
+        if (entityTransforms != null) {
+            entityTransforms.stop();
+        }
 
         // Detach entities
         rootNode.detachChild(root);
+        entityPicker.clear();
+        creatureModels.clear();
 
         for (IEntityViewControl entityViewControl : entityViewControls.values()) {
             entityViewControl.cleanup();
@@ -178,6 +229,22 @@ public class PlayerEntityViewState extends AbstractAppState {
         return root;
     }
 
+    /**
+     * Picks the entity under the ray, for hovering
+     *
+     * @param ray the ray, i.e. from the cursor
+     * @return the closest entity view control hit, or {@code null} if none
+     * @see EntityPicker
+     */
+    public IEntityViewControl pickEntityViewControl(Ray ray) {
+        EntityId entityId = entityPicker.pick(ray);
+        if (entityId == null) {
+            return null;
+        }
+
+        return entityViewControls.get(entityId);
+    }
+
     private Spatial createObjectModel(Entity e) {
 
         // We can only draw the few basic types, maybe we can do it like this
@@ -198,6 +265,7 @@ public class PlayerEntityViewState extends AbstractAppState {
                 result.setCullHint(objectViewState.visible ? Spatial.CullHint.Inherit : Spatial.CullHint.Always);
 
                 entityViewControls.put(e.getId(), control);
+                entityPicker.add(e.getId(), result);
             }
         }
         if (result == null) {
@@ -229,7 +297,9 @@ public class PlayerEntityViewState extends AbstractAppState {
                 result.addControl(flowerControl);
 
                 entityViewControls.put(e.getId(), control);
+                entityPicker.add(e.getId(), result);
                 flowerControls.put(e.getId(), flowerControl);
+                creatureModels.put(e.getId(), result);
             }
         }
         if (result == null) {
@@ -260,6 +330,7 @@ public class PlayerEntityViewState extends AbstractAppState {
             result.addControl(flowerControl);
 
             entityViewControls.put(e.getId(), control);
+            entityPicker.add(e.getId(), result);
             flowerControls.put(e.getId(), flowerControl);
         }
         if (result == null) {
@@ -290,6 +361,7 @@ public class PlayerEntityViewState extends AbstractAppState {
             result.addControl(flowerControl);
 
             entityViewControls.put(e.getId(), control);
+            entityPicker.add(e.getId(), result);
             flowerControls.put(e.getId(), flowerControl);
         }
         if (result == null) {
@@ -325,7 +397,22 @@ public class PlayerEntityViewState extends AbstractAppState {
         object.setCullHint(viewState.visible ? Spatial.CullHint.Inherit : Spatial.CullHint.Always);
     }
 
+    private Spatial getModel(EntityId entityId) {
+        Spatial model = creatureModelContainer.getModel(entityId);
+        if (model == null) {
+            model = objectModelContainer.getModel(entityId);
+        }
+
+        return model;
+    }
+
     private void updateModelPosition(Spatial object, Entity e) {
+
+        // Moving entities only update the Position when they change tiles, the accurate transform comes separately
+        if (entityTransforms != null && entityTransforms.isMoving(e.getId())) {
+            return;
+        }
+
         Position position = e.get(Position.class);
         object.setLocalTranslation(position.position);
         object.setLocalRotation(object.getLocalRotation().fromAngles(0, position.rotation, 0));
@@ -333,6 +420,8 @@ public class PlayerEntityViewState extends AbstractAppState {
 
     private void removeModel(Spatial spatial, Entity e) {
         spatial.removeFromParent();
+        entityPicker.remove(e.getId());
+        creatureModels.remove(e.getId());
 
         IEntityViewControl entityViewControl = entityViewControls.remove(e.getId());
         if (entityViewControl != null) {
@@ -344,6 +433,27 @@ public class PlayerEntityViewState extends AbstractAppState {
         }
     }
 
+    private void updateFogOfWar() {
+        for (Map.Entry<EntityId, Spatial> entry : creatureModels.entrySet()) {
+            Spatial model = entry.getValue();
+            Point p = WorldUtils.vectorToPoint(model.getLocalTranslation());
+            boolean visible = visibility.isVisible(p.x, p.y);
+            boolean hidden = model.getCullHint() == Spatial.CullHint.Always;
+            if (visible != hidden) {
+                continue;
+            }
+
+            // Hidden creatures can't be hovered either, that would give them away
+            if (visible) {
+                model.setCullHint(Spatial.CullHint.Inherit);
+                entityPicker.add(entry.getKey(), model);
+            } else {
+                model.setCullHint(Spatial.CullHint.Always);
+                entityPicker.remove(entry.getKey());
+            }
+        }
+    }
+
     public void showUnitFlower(EntityId entityId, int interval) {
 
         // FIXME: We may not yet have the entity as visible, is this a problem?
@@ -362,6 +472,10 @@ public class PlayerEntityViewState extends AbstractAppState {
             super(ed, Position.class, ObjectViewState.class); // Stuff with position is on the map
         }
 
+        private Spatial getModel(EntityId entityId) {
+            return getObject(entityId);
+        }
+
         @Override
         protected Spatial addObject(Entity e) {
             logger.log(Level.TRACE, "ObjectModelContainer.addObject({0})", e);
@@ -393,6 +507,10 @@ public class PlayerEntityViewState extends AbstractAppState {
             super(ed, Position.class, CreatureViewState.class); // Stuff with position is on the map
         }
 
+        private Spatial getModel(EntityId entityId) {
+            return getObject(entityId);
+        }
+
         @Override
         protected Spatial addObject(Entity e) {
             logger.log(Level.TRACE, "CreatureModelContainer.addObject({0})", e);
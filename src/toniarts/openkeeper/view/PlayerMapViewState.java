@@ -30,6 +30,7 @@ import toniarts.openkeeper.game.listener.PlayerActionListener;
 import toniarts.openkeeper.game.map.IMapInformation;
 import toniarts.openkeeper.game.map.IRoomsInformation;
 import toniarts.openkeeper.game.map.MapInformation;
+import toniarts.openkeeper.game.map.MapTileDelta;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.modelviewer.Debug;
 import toniarts.openkeeper.utils.Point;
@@ -42,6 +43,7 @@ import toniarts.openkeeper.view.map.MapViewController;
 import java.lang.System.Logger;
 import java.util.Collection;
 import java.util.List;
+import java.util.Queue;
 
 /**
  * Handles the handling of game world for a player, visually
@@ -64,7 +66,7 @@ public abstract class PlayerMapViewState extends AbstractAppState implements Map
     private final FlashTileViewState flashTileControl;
     private final MapRoomContainer mapRoomContainer;
 
-    public PlayerMapViewState(Main app, final KwdFile kwdFile, final AssetManager assetManager, Collection<Keeper> players, EntityData entityData, short playerId, ILoadCompleteNotifier loadCompleteNotifier) {
+    public PlayerMapViewState(Main app, final KwdFile kwdFile, final AssetManager assetManager, Collection<Keeper> players, EntityData entityData, Queue<MapTileDelta> tileStateDeltas, short playerId, ILoadCompleteNotifier loadCompleteNotifier) {
         this.app = app;
         this.kwdFile = kwdFile;
         this.assetManager = assetManager;
@@ -79,7 +81,7 @@ public abstract class PlayerMapViewState extends AbstractAppState implements Map
         mapRoomContainer = new MapRoomContainer(entityData, kwdFile);
 
         // Make sure we load the whole map before we continue
-        mapTileContainer = new MapTileContainer(entityData, kwdFile, this::updateTiles) {
+        mapTileContainer = new MapTileContainer(tileStateDeltas, kwdFile, this::updateTiles) {
 
             @Override
             protected void onLoadComplete() {
@@ -116,9 +118,8 @@ public abstract class PlayerMapViewState extends AbstractAppState implements Map
 
         flashTileControl = new FlashTileViewState(mapLoader);
 
-        // Start collecting the map entities
+        // Start collecting the map entities, the tiles come in the updates
         mapRoomContainer.start();
-        mapTileContainer.start();
     }
 
     @Override
@@ -154,7 +155,6 @@ public abstract class PlayerMapViewState extends AbstractAppState implements Map
 
         // The actual map data
         mapRoomContainer.stop();
-        mapTileContainer.stop();
 
         super.cleanup();
     }
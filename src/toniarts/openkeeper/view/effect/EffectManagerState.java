@@ -17,10 +17,12 @@
 package toniarts.openkeeper.view.effect;
 
 import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
 import com.jme3.app.state.AbstractAppState;
 import com.jme3.app.state.AppStateManager;
 import com.jme3.asset.AssetManager;
 import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
 import com.jme3.scene.Node;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.view.PlayerMapViewState;
@@ -45,17 +47,31 @@ public class EffectManagerState extends AbstractAppState {
     private final KwdFile kwdFile;
     private final AssetManager assetManager;
     private final List<VisualEffect> activeEffects = new ArrayList<>();
+    private final ParticleSystem particleSystem;
     private AppStateManager stateManager;
+    private Camera camera;
 
     public EffectManagerState(KwdFile kwdFile, AssetManager assetManager) {
         this.kwdFile = kwdFile;
         this.assetManager = assetManager;
+        this.particleSystem = new ParticleSystem(assetManager);
     }
 
     @Override
     public void initialize(AppStateManager stateManager, Application app) {
         super.initialize(stateManager, app);
         this.stateManager = stateManager;
+        this.camera = app.getCamera();
+        ((SimpleApplication) app).getRootNode().attachChild(particleSystem.getNode());
+    }
+
+    @Override
+    public void cleanup() {
+        clearActiveEffects();
+        particleSystem.clear();
+        particleSystem.getNode().removeFromParent();
+
+        super.cleanup();
     }
 
     @Override
@@ -69,6 +85,8 @@ public class EffectManagerState extends AbstractAppState {
                 iterator.remove();
             }
         }
+
+        particleSystem.update(tpf, camera);
     }
 
     /**
@@ -120,6 +138,10 @@ public class EffectManagerState extends AbstractAppState {
         return stateManager.getState(PlayerMapViewState.class);
     }
 
+    public ParticleSystem getParticleSystem() {
+        return particleSystem;
+    }
+
     public AssetManager getAssetManger() {
         return assetManager;
     }
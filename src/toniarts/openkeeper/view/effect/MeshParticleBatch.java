@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.view.effect;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import java.util.ArrayList;
+import java.util.List;
+import toniarts.openkeeper.tools.convert.map.EffectElement;
+
+/**
+ * Renders the mesh particles of an effect element. Every particle needs its
+ * own copy of the model, but the copies are pooled and reused, and there are
+ * no per particle controls.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class MeshParticleBatch extends ParticleBatch {
+
+    private final Node node;
+    private final Spatial model;
+    private final boolean facingVelocity;
+    private final List<Spatial> instances = new ArrayList<>();
+    private int renderedSize = 0;
+    private final Vector3f location = new Vector3f();
+    private final Vector3f direction = new Vector3f();
+    private final Quaternion rotation = new Quaternion();
+
+    public MeshParticleBatch(EffectElement effectElement, Spatial model) {
+        super(effectElement);
+
+        this.model = model;
+        facingVelocity = effectElement.getFlags().contains(EffectElement.EffectElementFlag.ROTATE_TO_MOVEMENT_DIRECTION);
+        node = new Node(effectElement.getName());
+        node.setShadowMode(RenderQueue.ShadowMode.Off);
+    }
+
+    @Override
+    public Spatial getSpatial() {
+        return node;
+    }
+
+    @Override
+    public void render(Camera cam) {
+        while (instances.size() < size) {
+            Spatial instance = model.clone();
+            instances.add(instance);
+            node.attachChild(instance);
+        }
+
+        for (int i = 0; i < size; i++) {
+            Spatial instance = instances.get(i);
+            instance.setLocalTranslation(getWorldLocation(i, location));
+            instance.setLocalScale(direction.set(model.getLocalScale()).multLocal(getScale(i)));
+            if (facingVelocity && (velocityX[i] != 0 || velocityZ[i] != 0)) {
+                rotation.lookAt(direction.set(velocityX[i], velocityY[i], velocityZ[i]), Vector3f.UNIT_Y);
+                instance.setLocalRotation(rotation);
+            }
+            if (i >= renderedSize) {
+                instance.setCullHint(Spatial.CullHint.Inherit);
+            }
+        }
+
+        // Hide the pooled instances
+        for (int i = size; i < renderedSize; i++) {
+            instances.get(i).setCullHint(Spatial.CullHint.Always);
+        }
+        renderedSize = size;
+    }
+
+}
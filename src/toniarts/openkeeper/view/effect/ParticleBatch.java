@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.view.effect;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Spatial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import toniarts.openkeeper.tools.convert.map.EffectElement;
+import toniarts.openkeeper.utils.WorldUtils;
+
+/**
+ * All the particles of a single effect element type. The particles are kept
+ * in parallel arrays, dead particles are swapped out with the last one so the
+ * living ones are always packed in the beginning. The arrays only grow, so
+ * they are a pool for the particles of this type.<br>
+ * The subclasses render the particles, all of them at once.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+abstract class ParticleBatch {
+
+    /**
+     * The hit points of the effect elements are in tenths of a second
+     */
+    static final float HP_PER_SECOND = 10f;
+    private static final int INITIAL_CAPACITY = 16;
+
+    protected final EffectElement effectElement;
+    protected int size = 0;
+    protected float[] x;
+    protected float[] y;
+    protected float[] z;
+    protected float[] velocityX;
+    protected float[] velocityY;
+    protected float[] velocityZ;
+    protected float[] life;
+    protected float[] startLife;
+    protected float[] startScale;
+    protected float[] endScale;
+    /**
+     * The fixed animation frame, or -1 if the frame follows the age
+     */
+    protected int[] frame;
+    protected ParticleGroup[] groups;
+    private final List<ParticleEvent> events = new ArrayList<>();
+    private final Vector3f tmpLocation = new Vector3f();
+
+    private record ParticleEvent(ParticleGroup group, Vector3f location, boolean hit) {
+
+    }
+
+    protected ParticleBatch(EffectElement effectElement) {
+        this.effectElement = effectElement;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Emits new particles
+     *
+     * @param group the group the particles belong to
+     * @param count the number of particles
+     */
+    public void emit(ParticleGroup group, int count) {
+        if (size + count > x.length) {
+            allocate(Math.max(size + count, x.length * 2));
+        }
+
+        boolean shrink = effectElement.getFlags().contains(EffectElement.EffectElementFlag.SHRINK);
+        boolean expand = effectElement.getFlags().contains(EffectElement.EffectElementFlag.EXPAND);
+        Vector3f origin = group.getOrigin();
+        for (int n = 0; n < count; n++) {
+            int i = size++;
+            Vector3f velocity = EffectControl.calculateVelocity(effectElement);
+            x[i] = origin.x;
+            y[i] = origin.y;
+            z[i] = origin.z;
+            velocityX[i] = velocity.x;
+            velocityY[i] = velocity.y;
+            velocityZ[i] = velocity.z;
+            life[i] = startLife[i] = Math.max(FastMath.nextRandomInt(effectElement.getMinHp(), effectElement.getMaxHp()) / HP_PER_SECOND, FastMath.ZERO_TOLERANCE);
+            if (shrink) {
+                startScale[i] = effectElement.getMaxScale();
+                endScale[i] = effectElement.getMinScale();
+            } else if (expand) {
+                startScale[i] = effectElement.getMinScale();
+                endScale[i] = effectElement.getMaxScale();
+            } else {
+                startScale[i] = endScale[i] = effectElement.getMinScale() + FastMath.nextRandomFloat() * (effectElement.getMaxScale() - effectElement.getMinScale());
+            }
+            frame[i] = getStartFrame();
+            groups[i] = group;
+        }
+        group.addParticles(count);
+    }
+
+    /**
+     * Simulates the particles. The hit and death events are fired after all
+     * the particles have been moved, so the events are free to emit new
+     * particles.
+     *
+     * @param tpf the update time
+     */
+    public void update(float tpf) {
+        float gravity = effectElement.getMass() * tpf;
+        float friction = Math.max(0, 1 - effectElement.getAirFriction() * tpf);
+        float elasticity = Math.min(1, effectElement.getElasticity());
+        boolean dieWhenHit = effectElement.getFlags().contains(EffectElement.EffectElementFlag.DIE_WHEN_HIT_SOLID);
+
+        int i = 0;
+        while (i < size) {
+            ParticleGroup group = groups[i];
+            if (group.isRemoved()) {
+                kill(i);
+                continue;
+            }
+            if (!group.isEnabled()) {
+                i++;
+                continue;
+            }
+
+            life[i] -= tpf;
+            if (life[i] <= 0) {
+                events.add(new ParticleEvent(group, new Vector3f(x[i], y[i], z[i]), false));
+                kill(i);
+                continue;
+            }
+
+            velocityX[i] *= friction;
+            velocityY[i] = velocityY[i] * friction - gravity;
+            velocityZ[i] *= friction;
+
+            // See if we hit the floor on the way down
+            float previousY = getWorldY(group, i);
+            x[i] += velocityX[i] * tpf;
+            y[i] += velocityY[i] * tpf;
+            z[i] += velocityZ[i] * tpf;
+            if (velocityY[i] < 0 && previousY > WorldUtils.FLOOR_HEIGHT && getWorldY(group, i) <= WorldUtils.FLOOR_HEIGHT) {
+                events.add(new ParticleEvent(group, new Vector3f(x[i], y[i], z[i]), true));
+                if (dieWhenHit) {
+                    kill(i);
+                    continue;
+                }
+                y[i] -= velocityY[i] * tpf;
+                velocityY[i] *= -elasticity;
+            }
+            i++;
+        }
+
+        // Fire the events
+        for (ParticleEvent event : events) {
+            if (event.hit()) {
+                event.group().onHit(event.location());
+            } else {
+                event.group().onDeath(event.location());
+            }
+        }
+        events.clear();
+    }
+
+    private float getWorldY(ParticleGroup group, int i) {
+        return group.getWorldTransform().transformVector(tmpLocation.set(x[i], y[i], z[i]), tmpLocation).y;
+    }
+
+    /**
+     * Get the scale of the particle at its current age
+     *
+     * @param i the particle index
+     * @return the scale
+     */
+    protected float getScale(int i) {
+        return FastMath.interpolateLinear(getAge(i), startScale[i], endScale[i]);
+    }
+
+    /**
+     * Get the age of the particle
+     *
+     * @param i the particle index
+     * @return the age from 0 (born) to 1 (dead)
+     */
+    protected float getAge(int i) {
+        return 1 - life[i] / startLife[i];
+    }
+
+    /**
+     * Get the particle location in the world
+     *
+     * @param i the particle index
+     * @param store the vector to store the location to
+     * @return the world location
+     */
+    protected Vector3f getWorldLocation(int i, Vector3f store) {
+        return groups[i].getWorldTransform().transformVector(store.set(x[i], y[i], z[i]), store);
+    }
+
+    /**
+     * The animation frame for a new particle
+     *
+     * @return the frame, or -1 if the frame follows the age
+     */
+    protected int getStartFrame() {
+        return -1;
+    }
+
+    private void kill(int i) {
+        groups[i].addParticles(-1);
+        int last = --size;
+        x[i] = x[last];
+        y[i] = y[last];
+        z[i] = z[last];
+        velocityX[i] = velocityX[last];
+        velocityY[i] = velocityY[last];
+        velocityZ[i] = velocityZ[last];
+        life[i] = life[last];
+        startLife[i] = startLife[last];
+        startScale[i] = startScale[last];
+        endScale[i] = endScale[last];
+        frame[i] = frame[last];
+        groups[i] = groups[last];
+        groups[last] = null;
+    }
+
+    private void allocate(int capacity) {
+        x = grow(x, capacity);
+        y = grow(y, capacity);
+        z = grow(z, capacity);
+        velocityX = grow(velocityX, capacity);
+        velocityY = grow(velocityY, capacity);
+        velocityZ = grow(velocityZ, capacity);
+        life = grow(life, capacity);
+        startLife = grow(startLife, capacity);
+        startScale = grow(startScale, capacity);
+        endScale = grow(endScale, capacity);
+        frame = frame == null ? new int[capacity] : Arrays.copyOf(frame, capacity);
+        groups = groups == null ? new ParticleGroup[capacity] : Arrays.copyOf(groups, capacity);
+    }
+
+    private static float[] grow(float[] array, int capacity) {
+        return array == null ? new float[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    public int getParticleCount() {
+        return size;
+    }
+
+    /**
+     * Kills all the particles, without any events
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            groups[i].addParticles(-1);
+            groups[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Get the spatial that renders this batch
+     *
+     * @return the batch spatial
+     */
+    public abstract Spatial getSpatial();
+
+    /**
+     * Updates the visuals to match the particles
+     *
+     * @param cam the camera the particles are viewed with
+     */
+    public abstract void render(Camera cam);
+}
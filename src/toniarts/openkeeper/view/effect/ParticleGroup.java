@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.view.effect;
+
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+import toniarts.openkeeper.tools.convert.map.EffectElement;
+
+/**
+ * A group of particles emitted together by a single effect element. The
+ * particles themselves live in the {@link ParticleSystem}, this is just the
+ * handle to them and the receiver of their hit and death events.<br>
+ * The particle locations are relative to the anchor spatial, so the particles
+ * follow it around.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public abstract class ParticleGroup {
+
+    private final EffectElement effectElement;
+    private final Spatial anchor;
+    private final Vector3f origin;
+    private final Transform worldTransform = new Transform();
+    private int particleCount = 0;
+    private boolean enabled = true;
+    private boolean removed = false;
+
+    /**
+     * Creates a new particle group
+     *
+     * @param effectElement the effect element the particles are of
+     * @param anchor the spatial the particles are relative to
+     * @param origin the emission location relative to the anchor, maybe
+     * {@code null}
+     */
+    public ParticleGroup(EffectElement effectElement, Spatial anchor, Vector3f origin) {
+        this.effectElement = effectElement;
+        this.anchor = anchor;
+        this.origin = origin != null ? origin.clone() : new Vector3f();
+    }
+
+    public EffectElement getEffectElement() {
+        return effectElement;
+    }
+
+    public Vector3f getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Get the number of living particles in this group
+     *
+     * @return the particle count
+     */
+    public int getParticleCount() {
+        return particleCount;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Pauses or resumes the particles of this group
+     *
+     * @param enabled whether the particles are simulated
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Kills all the particles of this group, without any death events
+     */
+    public void remove() {
+        removed = true;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    Transform getWorldTransform() {
+        return worldTransform;
+    }
+
+    void updateWorldTransform() {
+        worldTransform.set(anchor.getWorldTransform());
+    }
+
+    void addParticles(int count) {
+        particleCount += count;
+    }
+
+    /**
+     * Called when a particle dies of old age
+     *
+     * @param location the particle location relative to the anchor
+     */
+    public abstract void onDeath(Vector3f location);
+
+    /**
+     * Called when a particle hits the floor
+     *
+     * @param location the particle location relative to the anchor
+     */
+    public abstract void onHit(Vector3f location);
+}
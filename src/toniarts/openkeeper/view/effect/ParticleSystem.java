@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.view.effect;
+
+import com.jme3.animation.AnimControl;
+import com.jme3.asset.AssetManager;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import toniarts.openkeeper.tools.convert.map.ArtResource;
+import toniarts.openkeeper.tools.convert.map.ArtResource.ArtResourceType;
+import toniarts.openkeeper.tools.convert.map.EffectElement;
+import toniarts.openkeeper.utils.AssetUtils;
+
+/**
+ * Simulates and renders all the effect element particles. There is one batch
+ * per effect element type, holding all the particles of that type in the
+ * world. The sprite particles of a type are drawn as a single mesh.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class ParticleSystem {
+
+    private static final Logger logger = System.getLogger(ParticleSystem.class.getName());
+
+    private final AssetManager assetManager;
+    private final Node node = new Node("Particles");
+    private final Map<EffectElement, ParticleBatch> batchesByElement = new HashMap<>();
+    private final List<ParticleBatch> batches = new ArrayList<>();
+    private final List<ParticleGroup> groups = new ArrayList<>();
+
+    public ParticleSystem(AssetManager assetManager) {
+        this.assetManager = assetManager;
+    }
+
+    /**
+     * Get the node that holds the particle visuals, attach this to the world
+     * root. The particles are in world space.
+     *
+     * @return the particle node
+     */
+    public Node getNode() {
+        return node;
+    }
+
+    /**
+     * Emits particles
+     *
+     * @param group the group of the particles, tells the effect element
+     * @param count the number of particles to emit
+     * @return false if the effect element type is not supported
+     */
+    public boolean emit(ParticleGroup group, int count) {
+        EffectElement effectElement = group.getEffectElement();
+        ParticleBatch batch = batchesByElement.get(effectElement);
+        if (batch == null) {
+            batch = createBatch(effectElement);
+            if (batch == null) {
+                return false;
+            }
+            batchesByElement.put(effectElement, batch);
+            batches.add(batch);
+            node.attachChild(batch.getSpatial());
+        }
+
+        groups.add(group);
+        group.updateWorldTransform();
+        batch.emit(group, count);
+        return true;
+    }
+
+    private ParticleBatch createBatch(EffectElement effectElement) {
+        ArtResource resource = effectElement.getArtResource();
+        switch (resource.getType()) {
+            case ALPHA:
+            case ADDITIVE_ALPHA:
+            case SPRITE:
+                return new SpriteParticleBatch(effectElement, AssetUtils.createParticleMaterial(resource, assetManager));
+
+            case MESH:
+            case ANIMATING_MESH:
+            case PROCEDURAL_MESH: {
+                Spatial model;
+                if (resource.getType() == ArtResourceType.PROCEDURAL_MESH) {
+                    model = AssetUtils.createProceduralMesh(resource);
+                } else {
+                    model = AssetUtils.loadModel(assetManager, resource.getName(), resource);
+                }
+
+                if (resource.getType() == ArtResourceType.MESH) {
+                    model.setLocalScale(resource.getData(ArtResource.KEY_SCALE));
+                } else if (resource.getType() == ArtResourceType.ANIMATING_MESH) {
+                    AnimControl animControl = model.getControl(AnimControl.class);
+                    if (animControl != null) {
+                        animControl.setEnabled(true);
+                    }
+                }
+                return new MeshParticleBatch(effectElement, model);
+            }
+
+            default:
+                logger.log(Level.WARNING, "Not supported effect element type {0}", resource.getType());
+                return null;
+        }
+    }
+
+    /**
+     * Simulates and renders the particles
+     *
+     * @param tpf the update time
+     * @param cam the camera the particles are viewed with
+     */
+    public void update(float tpf, Camera cam) {
+        for (ParticleGroup group : groups) {
+            group.updateWorldTransform();
+        }
+
+        // The events may emit more particles, even new batches
+        for (int i = 0; i < batches.size(); i++) {
+            batches.get(i).update(tpf);
+        }
+        for (ParticleBatch batch : batches) {
+            batch.render(cam);
+        }
+
+        groups.removeIf(group -> group.getParticleCount() == 0);
+    }
+
+    /**
+     * Get the number of living particles
+     *
+     * @return the particle count
+     */
+    public int getParticleCount() {
+        int count = 0;
+        for (ParticleBatch batch : batches) {
+            count += batch.getParticleCount();
+        }
+        return count;
+    }
+
+    /**
+     * Kills all the particles, the batches are kept for reuse
+     */
+    public void clear() {
+        for (ParticleBatch batch : batches) {
+            batch.clear();
+            batch.render(null);
+        }
+        groups.clear();
+    }
+
+}
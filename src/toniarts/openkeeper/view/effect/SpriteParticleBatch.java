@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.view.effect;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.material.Material;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import toniarts.openkeeper.tools.convert.map.ArtResource;
+import toniarts.openkeeper.tools.convert.map.EffectElement;
+import toniarts.openkeeper.utils.Color;
+
+/**
+ * Renders the sprite particles of an effect element as camera facing quads,
+ * all of them in a single mesh. The vertices are in world space.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+final class SpriteParticleBatch extends ParticleBatch {
+
+    private final Geometry geometry;
+    private final Mesh mesh;
+    private final int frames;
+    private final boolean randomStartFrame;
+    private final boolean facingVelocity;
+    private final float red;
+    private final float green;
+    private final float blue;
+    private final float endAlpha;
+    private int capacity = 0;
+    private int renderedSize = 0;
+    private FloatBuffer positions;
+    private FloatBuffer texCoords;
+    private FloatBuffer colors;
+    private final Vector3f location = new Vector3f();
+    private final Vector3f left = new Vector3f();
+    private final Vector3f up = new Vector3f();
+    private final Vector3f min = new Vector3f();
+    private final Vector3f max = new Vector3f();
+    private final BoundingBox bound = new BoundingBox();
+
+    public SpriteParticleBatch(EffectElement effectElement, Material material) {
+        super(effectElement);
+
+        ArtResource resource = effectElement.getArtResource();
+        frames = Math.max(1, resource.getData(ArtResource.KEY_FRAMES));
+        randomStartFrame = resource.getFlags().contains(ArtResource.ArtResourceFlag.RANDOM_START_FRAME);
+        facingVelocity = effectElement.getFlags().contains(EffectElement.EffectElementFlag.ROTATE_TO_MOVEMENT_DIRECTION);
+
+        Color color = effectElement.getColor();
+        red = color.getRed() / 255f;
+        green = color.getGreen() / 255f;
+        blue = color.getBlue() / 255f;
+        endAlpha = effectElement.getFlags().contains(EffectElement.EffectElementFlag.FADE) ? 1f - effectElement.getFadePercentage() / 100f : 1f;
+
+        mesh = new Mesh();
+        geometry = new Geometry(effectElement.getName(), mesh);
+        geometry.setMaterial(material);
+        geometry.setBatchHint(Spatial.BatchHint.Never);
+        geometry.setShadowMode(RenderQueue.ShadowMode.Off);
+        geometry.setQueueBucket(RenderQueue.Bucket.Transparent);
+        geometry.setCullHint(Spatial.CullHint.Always);
+    }
+
+    @Override
+    protected int getStartFrame() {
+        return randomStartFrame ? FastMath.nextRandomInt(0, frames - 1) : -1;
+    }
+
+    @Override
+    public Spatial getSpatial() {
+        return geometry;
+    }
+
+    @Override
+    public void render(Camera cam) {
+        if (size == 0) {
+            geometry.setCullHint(Spatial.CullHint.Always);
+            renderedSize = 0;
+            return;
+        }
+        if (size > capacity) {
+            allocateMesh(Math.max(size, capacity * 2));
+        }
+
+        positions.clear();
+        texCoords.clear();
+        colors.clear();
+        min.set(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        max.set(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < size; i++) {
+            float halfScale = getScale(i) / 2;
+            float age = getAge(i);
+            getWorldLocation(i, location);
+            min.minLocal(left.set(location).subtractLocal(halfScale * 2, halfScale * 2, halfScale * 2));
+            max.maxLocal(left.set(location).addLocal(halfScale * 2, halfScale * 2, halfScale * 2));
+            if (facingVelocity && (velocityX[i] != 0 || velocityY[i] != 0 || velocityZ[i] != 0)) {
+                up.set(velocityX[i], velocityY[i], velocityZ[i]).normalizeLocal();
+                up.cross(cam.getDirection(), left).normalizeLocal();
+            } else {
+                left.set(cam.getLeft());
+                up.set(cam.getUp());
+            }
+            left.multLocal(halfScale);
+            up.multLocal(halfScale);
+
+            positions.put(location.x + left.x + up.x).put(location.y + left.y + up.y).put(location.z + left.z + up.z);
+            positions.put(location.x - left.x + up.x).put(location.y - left.y + up.y).put(location.z - left.z + up.z);
+            positions.put(location.x + left.x - up.x).put(location.y + left.y - up.y).put(location.z + left.z - up.z);
+            positions.put(location.x - left.x - up.x).put(location.y - left.y - up.y).put(location.z - left.z - up.z);
+
+            int frameIndex = frame[i] >= 0 ? frame[i] : Math.min((int) (age * frames), frames - 1);
+            float startX = (float) frameIndex / frames;
+            float endX = startX + 1f / frames;
+            texCoords.put(startX).put(1).put(endX).put(1).put(startX).put(0).put(endX).put(0);
+
+            float alpha = FastMath.interpolateLinear(age, 1f, endAlpha);
+            for (int v = 0; v < 4; v++) {
+                colors.put(red).put(green).put(blue).put(alpha);
+            }
+        }
+
+        // Collapse the quads that were rendered last time but are now dead
+        for (int i = size; i < renderedSize; i++) {
+            for (int v = 0; v < 12; v++) {
+                positions.put(0);
+            }
+        }
+        renderedSize = size;
+
+        positions.clear();
+        texCoords.clear();
+        colors.clear();
+        mesh.getBuffer(VertexBuffer.Type.Position).updateData(positions);
+        mesh.getBuffer(VertexBuffer.Type.TexCoord).updateData(texCoords);
+        mesh.getBuffer(VertexBuffer.Type.Color).updateData(colors);
+
+        // The dead quads are collapsed to the origin, so only bound the living
+        bound.setMinMax(min, max);
+        geometry.setModelBound(bound);
+        geometry.setCullHint(Spatial.CullHint.Inherit);
+    }
+
+    private void allocateMesh(int capacity) {
+        this.capacity = capacity;
+        renderedSize = 0;
+        positions = BufferUtils.createFloatBuffer(capacity * 4 * 3);
+        texCoords = BufferUtils.createFloatBuffer(capacity * 4 * 2);
+        colors = BufferUtils.createFloatBuffer(capacity * 4 * 4);
+        IntBuffer indices = BufferUtils.createIntBuffer(capacity * 6);
+        for (int i = 0; i < capacity; i++) {
+            int index = i * 4;
+            indices.put(index).put(index + 1).put(index + 2);
+            indices.put(index + 1).put(index + 3).put(index + 2);
+        }
+        indices.flip();
+
+        mesh.clearBuffer(VertexBuffer.Type.Position);
+        mesh.clearBuffer(VertexBuffer.Type.TexCoord);
+        mesh.clearBuffer(VertexBuffer.Type.Color);
+        mesh.clearBuffer(VertexBuffer.Type.Index);
+        mesh.setBuffer(createBuffer(VertexBuffer.Type.Position, 3, positions));
+        mesh.setBuffer(createBuffer(VertexBuffer.Type.TexCoord, 2, texCoords));
+        mesh.setBuffer(createBuffer(VertexBuffer.Type.Color, 4, colors));
+        mesh.setBuffer(VertexBuffer.Type.Index, 3, indices);
+        mesh.updateCounts();
+    }
+
+    private static VertexBuffer createBuffer(VertexBuffer.Type type, int components, FloatBuffer data) {
+        VertexBuffer vertexBuffer = new VertexBuffer(type);
+        vertexBuffer.setupData(VertexBuffer.Usage.Stream, components, VertexBuffer.Format.Float, data);
+        return vertexBuffer;
+    }
+
+}
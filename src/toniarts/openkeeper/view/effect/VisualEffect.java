@@ -18,8 +18,6 @@ package toniarts.openkeeper.view.effect;
 
 import com.jme3.animation.AnimControl;
 import com.jme3.asset.AssetManager;
-import com.jme3.effect.ParticleEmitter;
-import com.jme3.effect.ParticleMesh;
 import com.jme3.light.PointLight;
 import com.jme3.material.Material;
 import com.jme3.math.ColorRGBA;
@@ -30,23 +28,17 @@ import toniarts.openkeeper.game.map.IMapTileInformation;
 import toniarts.openkeeper.tools.convert.map.*;
 import toniarts.openkeeper.tools.convert.map.ArtResource.ArtResourceType;
 import toniarts.openkeeper.utils.AssetUtils;
-import toniarts.openkeeper.utils.Color;
 import toniarts.openkeeper.utils.WorldUtils;
+import toniarts.openkeeper.view.PlayerMapViewState;
 
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.util.*;
-import java.util.Map.Entry;
 
 /**
  * An effect & its elements, or a tree of effects & their elements. The logic is
- * quite here now, how the effects are chained and what they do, but:<br>
- * TODO
- * <ul>
- * <li>We probably need our own particle emitter, the stock wont probably do..
- * Just pass the Effect & EffectElement to our custom one and boom</li>
- * <li>Maybe cache the emitters?</li>
- * </ul>
+ * quite here now, how the effects are chained and what they do. The effect
+ * element particles are simulated and drawn by the {@link ParticleSystem}.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
@@ -55,7 +47,7 @@ public class VisualEffect {
     private static final Logger logger = System.getLogger(VisualEffect.class.getName());
 
     private final Effect effect;
-    private final Map<EffectElement, Spatial> effectElements;
+    private final Map<EffectElement, List<ParticleGroup>> effectElements;
     private final List<VisualEffect> effects;
     private final Node effectNode;
     private final KwdFile kwdFile;
@@ -154,7 +146,7 @@ public class VisualEffect {
 
                 @Override
                 public void onHit(Vector3f location) {
-                    IMapTileInformation tile = effectManagerState.getPlayerMapViewState().getMapInformation().getMapData().getTile(WorldUtils.vectorToPoint(location));
+                    IMapTileInformation tile = getTile(location);
                     if (tile == null) {
                         logger.log(Level.WARNING, "Effect hit error");
                         return;
@@ -211,16 +203,11 @@ public class VisualEffect {
 
     private void addEffectElement(Integer id, Vector3f location) {
         EffectElement effectElement = kwdFile.getEffectElement(id);
-        Spatial emitter = loadElement(effectElement);
-        if (emitter != null) {
-            if (location != null) {
-                emitter.setLocalTranslation(location);
-            }
-            effectElements.put(effectElement, emitter);
-            effectNode.attachChild(emitter);
-            if (emitter instanceof ParticleEmitter) {
-                ((ParticleEmitter) emitter).emitAllParticles();
-            }
+        ParticleGroup group = loadElement(effectElement, location);
+        if (group != null) {
+
+            // The same element may be emitted many times, e.g. as a death element of each particle
+            effectElements.computeIfAbsent(effectElement, (element) -> new ArrayList<>(1)).add(group);
         }
 
         // The next effect is chaining the effects, they'll start immediately
@@ -229,138 +216,64 @@ public class VisualEffect {
         }
     }
 
-    private Spatial loadElement(EffectElement element) {
-        ArtResource resource = element.getArtResource();
-
+    private ParticleGroup loadElement(EffectElement element, Vector3f location) {
         if (effect.getGenerationType() == Effect.GenerationType.CUBE_GEN) {
             //emitter.setShape(new EmitterSphereShape(new Vector3f(), 1));
         } else if (effect.getGenerationType() == Effect.GenerationType.NONE) {
             return null;
         }
 
-        if (resource == null) {
+        if (element.getArtResource() == null) {
             return null;
         }
 
-        switch (resource.getType()) {
-            case ALPHA:
-            case ADDITIVE_ALPHA:
-            case SPRITE: {
-                ParticleEmitter emitter = new ParticleEmitter(element.getName(),
-                        ParticleMesh.Type.Triangle,
-                        effect.getElementsPerTurn());
-                emitter.setParticlesPerSec(0);
-                Material material = AssetUtils.createParticleMaterial(resource, assetManager);
-                emitter.setMaterial(material);
-                emitter.setImagesX(Math.max(1, resource.getData(ArtResource.KEY_FRAMES)));
-                emitter.setImagesY(1);
-                emitter.setSelectRandomImage(resource.getFlags().contains(ArtResource.ArtResourceFlag.RANDOM_START_FRAME));
-                emitter.setInWorldSpace(false);
-
-                Color color = element.getColor();
-                float alpha = 1f;
-                if (element.getFlags().contains(EffectElement.EffectElementFlag.FADE)) {
-                    alpha -= element.getFadePercentage() / 100;
-                }
+        ParticleGroup group = new ParticleGroup(element, effectNode, location) {
 
-                emitter.setStartColor(new ColorRGBA(color.getRed() / 255f, color.getGreen() / 255f, color.getBlue() / 255f, 1f));
-                emitter.setEndColor(new ColorRGBA(color.getRed() / 255f, color.getGreen() / 255f, color.getBlue() / 255f, alpha));
-                //
-                Vector3f velocity = EffectControl.calculateVelocity(element);
-                emitter.getParticleInfluencer().setInitialVelocity(velocity);
-                //
-                float scaleRatio = element.getScaleRatio() == 0 ? 1 : element.getScaleRatio();
-                if (element.getFlags().contains(EffectElement.EffectElementFlag.SHRINK)) {
-                    emitter.setEndSize(element.getMaxScale());
-                    emitter.setStartSize(element.getMinScale());
-                } else {
-                    emitter.setStartSize(element.getMaxScale());
-                    emitter.setEndSize(element.getMinScale());
+            @Override
+            public void onDeath(Vector3f location) {
+                if (element.getDeathElementId() != 0) {
+                    VisualEffect.this.addEffectElement(element.getDeathElementId(), location);
                 }
-                //
-                emitter.setFacingVelocity(element.getFlags().contains(EffectElement.EffectElementFlag.ROTATE_TO_MOVEMENT_DIRECTION));
-                //
-                emitter.setGravity(0, element.getMass() * element.getAirFriction(), 0);
-                emitter.setLowLife(element.getMinHp() / 10f);
-                emitter.setHighLife(element.getMaxHp() / 10f);
-                //
-                float delta = Math.max((element.getMaxSpeedXy() - element.getMinSpeedXy()) / (element.getMaxSpeedXy() + 1),
-                        (element.getMaxSpeedYz() - element.getMinSpeedYz()) / (element.getMaxSpeedYz() + 1));
-                emitter.getParticleInfluencer().setVelocityVariation(delta);
-
-                return emitter;
             }
 
-            case MESH:
-            case ANIMATING_MESH:
-            case PROCEDURAL_MESH: {
-                EffectEmitter emitter = new EffectEmitter(element, effect) {
-
-                    @Override
-                    public void onDeath(Vector3f location) {
-                        if (element.getDeathElementId() != 0) {
-                            VisualEffect.this.addEffectElement(element.getDeathElementId(), location);
-                        }
-                    }
-
-                    @Override
-                    public void onHit(Vector3f location) {
-                        IMapTileInformation tile = effectManagerState.getPlayerMapViewState().getMapInformation().getMapData().getTile(WorldUtils.vectorToPoint(location));
-                        if (tile == null) {
-                            logger.log(Level.WARNING, "Effect hit error");
-                            return;
-                        }
-
-                        Terrain terrain = kwdFile.getTerrain(tile.getTerrainId());
-                        if (terrain.getFlags().contains(Terrain.TerrainFlag.LAVA)
-                                && element.getHitLavaElementId() != 0) {
-                            VisualEffect.this.addEffectElement(element.getHitLavaElementId(), location);
-                        } else if (terrain.getFlags().contains(Terrain.TerrainFlag.WATER)
-                                && element.getHitWaterElementId() != 0) {
-                            VisualEffect.this.addEffectElement(element.getHitWaterElementId(), location);
-                        } else if (element.getHitSolidElementId() != 0) {
-                            // && tile.getTerrain().getFlags().contains(Terrain.TerrainFlag.SOLID)) {
-                            if (element.getFlags().contains(EffectElement.EffectElementFlag.DIE_WHEN_HIT_SOLID)) {
-                                onDeath(location);
-                            } else {
-                                VisualEffect.this.addEffectElement(element.getHitSolidElementId(), location);
-                            }
-                        }
-                    }
-                };
-
-                Node model;
-                if (resource.getType() == ArtResourceType.PROCEDURAL_MESH) {
-                    model = (Node) AssetUtils.createProceduralMesh(resource);
-                } else {
-                    model = (Node) AssetUtils.loadModel(assetManager, resource.getName(), resource);
+            @Override
+            public void onHit(Vector3f location) {
+                IMapTileInformation tile = getTile(effectNode.localToWorld(location, null));
+                if (tile == null) {
+                    logger.log(Level.WARNING, "Effect hit error");
+                    return;
                 }
 
-                if (resource.getType() == ArtResourceType.MESH) {
-                    model.setLocalScale(resource.getData(ArtResource.KEY_SCALE));
-
-                } else if (resource.getType() == ArtResourceType.ANIMATING_MESH) {
-
-                    AnimControl animControl = (AnimControl) model.getControl(AnimControl.class);
-                    if (animControl != null) {
-//                        AnimChannel channel = animControl.getChannel(0);
-//                        channel.setAnim(ANIM_NAME);
-//                        resource.getData(ArtResource.KEY_FPS);
-//                        resource.getData(ArtResource.KEY_FRAMES);
-//                        channel.setSpeed(speed);
-//                        channel.setTime(time);
-                        animControl.setEnabled(true);
+                Terrain terrain = kwdFile.getTerrain(tile.getTerrainId());
+                if (terrain.getFlags().contains(Terrain.TerrainFlag.LAVA)
+                        && element.getHitLavaElementId() != 0) {
+                    VisualEffect.this.addEffectElement(element.getHitLavaElementId(), location);
+                } else if (terrain.getFlags().contains(Terrain.TerrainFlag.WATER)
+                        && element.getHitWaterElementId() != 0) {
+                    VisualEffect.this.addEffectElement(element.getHitWaterElementId(), location);
+                } else if (element.getHitSolidElementId() != 0) {
+                    // && tile.getTerrain().getFlags().contains(Terrain.TerrainFlag.SOLID)) {
+                    if (element.getFlags().contains(EffectElement.EffectElementFlag.DIE_WHEN_HIT_SOLID)) {
+                        onDeath(location);
+                    } else {
+                        VisualEffect.this.addEffectElement(element.getHitSolidElementId(), location);
                     }
                 }
-                emitter.setSpatial(model);
-                return emitter;
             }
+        };
 
-            default:
-                logger.log(Level.WARNING, "Not supported effect element type {0}", resource.getType());
+        if (!effectManagerState.getParticleSystem().emit(group, effect.getElementsPerTurn())) {
+            return null;
         }
+        return group;
+    }
 
-        return null;
+    private IMapTileInformation getTile(Vector3f location) {
+        PlayerMapViewState playerMapViewState = effectManagerState.getPlayerMapViewState();
+        if (playerMapViewState == null) {
+            return null;
+        }
+        return playerMapViewState.getMapInformation().getMapData().getTile(WorldUtils.vectorToPoint(location));
     }
 
     private PointLight getLight(Light effectLight) {
@@ -390,33 +303,13 @@ public class VisualEffect {
         // Update the child effects
         effects.removeIf(visualEffect -> !visualEffect.update(tpf));
 
-        // Check the elements
-        Iterator<Entry<EffectElement, Spatial>> iter = effectElements.entrySet().iterator();
-        List<Integer> deathEffectElements = null;
+        // Drop the dead elements, their particles have already attached the death elements as they died
+        Iterator<List<ParticleGroup>> iter = effectElements.values().iterator();
         while (iter.hasNext()) {
-            Entry<EffectElement, Spatial> entry = iter.next();
-            if (entry.getValue() instanceof ParticleEmitter) {
-                if (((ParticleEmitter) entry.getValue()).getNumVisibleParticles() == 0) {
-
-                    // Kill
-                    entry.getValue().removeFromParent();
-                    iter.remove();
-
-                    // Attach on death element
-                    if (entry.getKey().getDeathElementId() != 0) {
-                        if (deathEffectElements == null) {
-                            deathEffectElements = new ArrayList<>();
-                        }
-                        deathEffectElements.add(entry.getKey().getDeathElementId());
-                    }
-                }
-            }
-        }
-
-        // Init the death elements
-        if (deathEffectElements != null) {
-            for (Integer id : deathEffectElements) {
-                addEffectElement(id, null);
+            List<ParticleGroup> groups = iter.next();
+            groups.removeIf(group -> group.getParticleCount() == 0);
+            if (groups.isEmpty()) {
+                iter.remove();
             }
         }
 
@@ -445,7 +338,15 @@ public class VisualEffect {
     }
 
     public void removeEffect() {
+        for (VisualEffect visualEffect : effects) {
+            visualEffect.removeEffect();
+        }
         effects.clear();
+        for (List<ParticleGroup> groups : effectElements.values()) {
+            for (ParticleGroup group : groups) {
+                group.remove();
+            }
+        }
         effectElements.clear();
         infinite = false;
     }
@@ -16,98 +16,88 @@
  */
 package toniarts.openkeeper.view.map;
 
-import com.simsilica.es.Entity;
-import com.simsilica.es.EntityComponent;
-import com.simsilica.es.EntityContainer;
-import com.simsilica.es.EntityData;
 import java.lang.System.Logger.Level;
 import java.util.List;
-import java.util.Set;
+import java.util.Queue;
 import java.util.function.Consumer;
-import toniarts.openkeeper.game.component.Gold;
-import toniarts.openkeeper.game.component.Health;
-import toniarts.openkeeper.game.component.Mana;
-import toniarts.openkeeper.game.component.MapTile;
-import toniarts.openkeeper.game.component.Owner;
 import toniarts.openkeeper.game.map.AbstractMapTileInformation;
 import toniarts.openkeeper.game.map.IMapDataInformation;
 import toniarts.openkeeper.game.map.IMapTileInformation;
+import toniarts.openkeeper.game.map.MapTileDelta;
+import toniarts.openkeeper.game.map.MapTileStore;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.utils.Point;
 
 /**
- * Contains the map tiles
+ * Contains the map tiles. The tile states are received as deltas from the
+ * server, they are applied to our own tile store on {@link #update()}.
  */
-public abstract class MapTileContainer extends EntityContainer<IMapTileInformation> implements IMapDataInformation<IMapTileInformation> {
+public abstract class MapTileContainer implements IMapDataInformation<IMapTileInformation> {
 
     private static final System.Logger logger = System.getLogger(MapTileContainer.class.getName());
 
     private final int width;
     private final int height;
+    private final MapTileStore tileStore;
     private final IMapTileInformation[][] tiles;
+    private final Queue<MapTileDelta> tileStateDeltas;
     private final Consumer<Point[]> tileUpdateCallback;
+    private final boolean[] tilesReceived;
     private int tilesAdded = 0;
+    private boolean loaded = false;
 
-    protected MapTileContainer(EntityData entityData, KwdFile kwdFile, Consumer<Point[]> tileUpdateCallback) {
-        super(entityData, MapTile.class, Owner.class, Health.class, Gold.class, Mana.class);
-
+    protected MapTileContainer(Queue<MapTileDelta> tileStateDeltas, KwdFile kwdFile, Consumer<Point[]> tileUpdateCallback) {
+        this.tileStateDeltas = tileStateDeltas;
         this.tileUpdateCallback = tileUpdateCallback;
         width = kwdFile.getMap().getWidth();
         height = kwdFile.getMap().getHeight();
 
         // Duplicate the map
+        this.tileStore = new MapTileStore(width, height);
         this.tiles = new IMapTileInformation[width][height];
-    }
-
-    @Override
-    protected IMapTileInformation addObject(Entity e) {
-        logger.log(Level.TRACE, "MapTileContainer.addObject({0})", e);
-        IMapTileInformation result = new MapTileInformation(e);
-        Point p = result.getLocation();
-        this.tiles[p.x][p.y] = result;
-
-        // Naive completion checker
-        tilesAdded++;
-        if (tilesAdded == getSize()) {
-            onLoadComplete();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                tiles[x][y] = new MapTileInformation(tileStore, y * width + x);
+            }
         }
-
-        return result;
+        this.tilesReceived = new boolean[getSize()];
     }
 
-    @Override
-    protected void updateObjects(Set<Entity> set) {
-        if (set.isEmpty()) {
-            return;
-        }
-
-        logger.log(System.Logger.Level.TRACE, "MapTileContainer.updateObjects({0})", set.size());
+    /**
+     * Apply the received tile changes
+     */
+    public void update() {
+        MapTileDelta delta;
+        while ((delta = tileStateDeltas.poll()) != null) {
+            logger.log(Level.TRACE, "MapTileContainer.update({0})", delta.getTileCount());
+            tileStore.applyDelta(delta);
+
+            // Collect the tiles
+            Point[] updatableTiles = new Point[delta.getTileCount()];
+            int[] runs = delta.getRuns();
+            int i = 0;
+            for (int j = 0; j < runs.length; j += 2) {
+                for (int index = runs[j]; index < runs[j] + runs[j + 1]; index++) {
+                    updatableTiles[i++] = tiles[index % width][index / width].getLocation();
+                    if (!tilesReceived[index]) {
+                        tilesReceived[index] = true;
+                        tilesAdded++;
+                    }
+                }
+            }
 
-        // Collect the tiles
-        Point[] updatableTiles = new Point[set.size()];
-        int i = 0;
-        for (Entity e : set) {
-            IMapTileInformation object = getObject(e.getId());
-            if (object == null) {
-                logger.log(Level.WARNING, "Update: No matching object for entity:{0}", e);
+            // Naive completion checker, nothing to update before we have the whole map
+            if (!loaded) {
+                if (tilesAdded == getSize()) {
+                    loaded = true;
+                    onLoadComplete();
+                }
                 continue;
             }
-            updatableTiles[i] = object.getLocation();
-            i++;
-        }
-
-        // Update the batch
-        tileUpdateCallback.accept(updatableTiles);
-    }
-
-    @Override
-    protected void updateObject(IMapTileInformation object, Entity e) {
-        throw new UnsupportedOperationException("Should use the batch method.");
-    }
 
-    @Override
-    protected void removeObject(IMapTileInformation object, Entity e) {
-        logger.log(Level.TRACE, "MapTileContainer.removeObject({0})", e);
+            // Update the batch
+            tileUpdateCallback.accept(updatableTiles);
+        }
     }
 
     @Override
@@ -137,21 +127,12 @@ public abstract class MapTileContainer extends EntityContainer<IMapTileInformati
     protected abstract void onLoadComplete();
 
     /**
-     * Single map tile that taps into the entity information
+     * Single map tile that taps into the tile store
      */
     private static class MapTileInformation extends AbstractMapTileInformation {
 
-        private final Entity entity;
-
-        public MapTileInformation(Entity entity) {
-            super(entity.getId());
-
-            this.entity = entity;
-        }
-
-        @Override
-        protected <T extends EntityComponent> T getEntityComponent(Class<T> type) {
-            return entity.get(type);
+        public MapTileInformation(MapTileStore tileStore, int index) {
+            super(tileStore, index);
         }
 
     }
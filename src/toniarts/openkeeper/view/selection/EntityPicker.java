@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2014-2025 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.view.selection;
+
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+import com.simsilica.es.EntityId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import toniarts.openkeeper.utils.WorldUtils;
+
+/**
+ * Picks the entity under the cursor. Instead of colliding the ray with the
+ * whole entity scene graph, the ray is first walked through the tile grid and
+ * only the entities on the tiles along the ray (and their neighbours, the
+ * models are not confined to their tile) are tested, by their bounding
+ * volumes. Optionally the hits are refined against the actual triangles,
+ * which is still cheap since there are only a few candidates.<br>
+ * The entities are bucketed by tile on {@link #update()}, so moving entities
+ * are tracked. Meant for the render thread only.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class EntityPicker {
+
+    /**
+     * Entities are picked between the floor and this height, covers the
+     * dropped and the flying stuff
+     */
+    private static final float PICK_HEIGHT = WorldUtils.DROP_HEIGHT;
+
+    private final int width;
+    private final int height;
+    private final boolean refine;
+    private final Map<EntityId, Entry> entries = new HashMap<>();
+    private final List<Entry>[] entriesByTile;
+    private final CollisionResults boundResults = new CollisionResults();
+    private final CollisionResults triangleResults = new CollisionResults();
+    private int pickCount = 0;
+
+    /**
+     * Creates a new entity picker
+     *
+     * @param width the map width in tiles
+     * @param height the map height in tiles
+     * @param refine whether to refine the bounding volume hits against the
+     * triangles
+     */
+    @SuppressWarnings("unchecked")
+    public EntityPicker(int width, int height, boolean refine) {
+        this.width = width;
+        this.height = height;
+        this.refine = refine;
+        this.entriesByTile = new List[width * height];
+    }
+
+    /**
+     * Add an entity to be picked
+     *
+     * @param entityId the entity
+     * @param spatial the model of the entity
+     */
+    public void add(EntityId entityId, Spatial spatial) {
+        remove(entityId);
+
+        Entry entry = new Entry(entityId, spatial);
+        entries.put(entityId, entry);
+        moveToTile(entry, getTile(spatial));
+    }
+
+    /**
+     * Remove the entity from picking
+     *
+     * @param entityId the entity
+     */
+    public void remove(EntityId entityId) {
+        Entry entry = entries.remove(entityId);
+        if (entry != null) {
+            moveToTile(entry, -1);
+        }
+    }
+
+    /**
+     * Updates the entity tiles, call after the models have been moved
+     */
+    public void update() {
+        for (Entry entry : entries.values()) {
+            int tile = getTile(entry.spatial);
+            if (tile != entry.tile) {
+                moveToTile(entry, tile);
+            }
+        }
+    }
+
+    /**
+     * Picks the closest entity hit by the ray
+     *
+     * @param ray the ray
+     * @return the entity, or {@code null} if none was hit
+     */
+    public EntityId pick(Ray ray) {
+        Vector3f origin = ray.getOrigin();
+        Vector3f direction = ray.getDirection();
+
+        // The part of the ray between the floor and the pick height
+        float tStart;
+        float tEnd;
+        if (Math.abs(direction.y) < 1e-6f) {
+            if (origin.y < 0 || origin.y > PICK_HEIGHT) {
+                return null;
+            }
+            tStart = 0;
+            tEnd = (width + height) * WorldUtils.TILE_WIDTH;
+        } else {
+            float t0 = -origin.y / direction.y;
+            float t1 = (PICK_HEIGHT - origin.y) / direction.y;
+            tStart = Math.max(0, Math.min(t0, t1));
+            tEnd = Math.max(t0, t1);
+            if (tEnd < 0) {
+                return null;
+            }
+        }
+
+        // Walk the tiles, the tile centers are on the integer coordinates
+        pickCount++;
+        Entry closest = null;
+        float closestDistance = Float.POSITIVE_INFINITY;
+        float startX = (origin.x + direction.x * tStart) / WorldUtils.TILE_WIDTH + 0.5f;
+        float startZ = (origin.z + direction.z * tStart) / WorldUtils.TILE_WIDTH + 0.5f;
+        float endX = (origin.x + direction.x * tEnd) / WorldUtils.TILE_WIDTH + 0.5f;
+        float endZ = (origin.z + direction.z * tEnd) / WorldUtils.TILE_WIDTH + 0.5f;
+        int x = (int) Math.floor(startX);
+        int z = (int) Math.floor(startZ);
+        int lastX = (int) Math.floor(endX);
+        int lastZ = (int) Math.floor(endZ);
+        int stepX = Integer.signum(lastX - x);
+        int stepZ = Integer.signum(lastZ - z);
+        float deltaX = endX - startX;
+        float deltaZ = endZ - startZ;
+        float tDeltaX = stepX != 0 ? Math.abs(1f / deltaX) : Float.POSITIVE_INFINITY;
+        float tDeltaZ = stepZ != 0 ? Math.abs(1f / deltaZ) : Float.POSITIVE_INFINITY;
+        float tMaxX = stepX > 0 ? (x + 1 - startX) * tDeltaX : stepX < 0 ? (startX - x) * tDeltaX : Float.POSITIVE_INFINITY;
+        float tMaxZ = stepZ > 0 ? (z + 1 - startZ) * tDeltaZ : stepZ < 0 ? (startZ - z) * tDeltaZ : Float.POSITIVE_INFINITY;
+        int steps = Math.abs(lastX - x) + Math.abs(lastZ - z);
+        for (int step = 0;; step++) {
+            for (int neighbourX = x - 1; neighbourX <= x + 1; neighbourX++) {
+                for (int neighbourZ = z - 1; neighbourZ <= z + 1; neighbourZ++) {
+                    if (neighbourX < 0 || neighbourZ < 0 || neighbourX >= width || neighbourZ >= height) {
+                        continue;
+                    }
+                    List<Entry> tileEntries = entriesByTile[neighbourZ * width + neighbourX];
+                    if (tileEntries == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < tileEntries.size(); i++) {
+                        Entry entry = tileEntries.get(i);
+                        if (entry.pickCount == pickCount) {
+                            continue;
+                        }
+                        entry.pickCount = pickCount;
+                        float distance = getDistance(entry.spatial, ray);
+                        if (distance < closestDistance) {
+                            closestDistance = distance;
+                            closest = entry;
+                        }
+                    }
+                }
+            }
+
+            if (step == steps) {
+                break;
+            }
+            if (tMaxX < tMaxZ) {
+                x += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                z += stepZ;
+                tMaxZ += tDeltaZ;
+            }
+        }
+
+        return closest != null ? closest.entityId : null;
+    }
+
+    /**
+     * Clears all the entities
+     */
+    public void clear() {
+        entries.clear();
+        for (List<Entry> tileEntries : entriesByTile) {
+            if (tileEntries != null) {
+                tileEntries.clear();
+            }
+        }
+    }
+
+    private float getDistance(Spatial spatial, Ray ray) {
+        if (spatial.getCullHint() == Spatial.CullHint.Always) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        BoundingVolume bound = spatial.getWorldBound();
+        if (bound == null) {
+            return Float.POSITIVE_INFINITY;
+        }
+        boundResults.clear();
+        if (bound.collideWith(ray, boundResults) == 0) {
+            return Float.POSITIVE_INFINITY;
+        }
+        if (!refine) {
+            return boundResults.getClosestCollision().getDistance();
+        }
+
+        triangleResults.clear();
+        if (spatial.collideWith(ray, triangleResults) == 0) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        return triangleResults.getClosestCollision().getDistance();
+    }
+
+    private int getTile(Spatial spatial) {
+        Vector3f position = spatial.getWorldTranslation();
+        int x = Math.round(position.x / WorldUtils.TILE_WIDTH);
+        int z = Math.round(position.z / WorldUtils.TILE_WIDTH);
+        if (x < 0 || z < 0 || x >= width || z >= height) {
+            return -1;
+        }
+
+        return z * width + x;
+    }
+
+    private void moveToTile(Entry entry, int tile) {
+        if (entry.tile >= 0) {
+            entriesByTile[entry.tile].remove(entry);
+        }
+        entry.tile = tile;
+        if (tile >= 0) {
+            List<Entry> tileEntries = entriesByTile[tile];
+            if (tileEntries == null) {
+                tileEntries = new ArrayList<>(2);
+                entriesByTile[tile] = tileEntries;
+            }
+            tileEntries.add(entry);
+        }
+    }
+
+    private static final class Entry {
+
+        private final EntityId entityId;
+        private final Spatial spatial;
+        private int tile = -1;
+        private int pickCount;
+
+        public Entry(EntityId entityId, Spatial spatial) {
+            this.entityId = entityId;
+            this.spatial = spatial;
+        }
+    }
+
+}